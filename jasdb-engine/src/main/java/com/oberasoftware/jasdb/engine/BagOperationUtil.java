@@ -76,6 +76,14 @@ public class BagOperationUtil {
         return insertKeys;
     }
     
+    /**
+     * Determines if the key fields of the index hold more than one value in the entity, the entity then has a key
+     * in the index for every value
+     */
+    public static boolean isMultiValued(Entity entity, Index index) throws JasDBStorageException {
+        return index.getKeyInfo().getKeyFactory().isMultiValueKey(entity);
+    }
+
     public static void doIndexInsert(Set<Key> keys, Index index) throws JasDBStorageException {
         LOG.trace("Inserting {} keys into index: {}", keys.size(), index.getKeyInfo().getKeyName());
         StatRecord indexInsert = StatisticsMonitor.createRecord("bag:indexInsert");
@@ -0,0 +1,61 @@
+package com.oberasoftware.jasdb.engine;
+
+import com.oberasoftware.jasdb.api.caching.CacheEntry;
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.storage.ClonableDataStream;
+import com.oberasoftware.jasdb.api.storage.RecordResult;
+import com.oberasoftware.jasdb.core.storage.ClonableByteArrayInputStream;
+
+/**
+ * Cache entry containing the decoded contents of a single record, every read of the record gets its own stream
+ * over the shared contents.
+ *
+ * @author Renze de Vries
+ */
+public class CachedRecord implements CacheEntry<byte[]>, RecordResult {
+    /**
+     * Estimate of the memory used by the entry, key and cache bookkeeping on top of the record contents
+     */
+    private static final long ENTRY_OVERHEAD = 128;
+
+    private final byte[] contents;
+
+    public CachedRecord(byte[] contents) {
+        this.contents = contents;
+    }
+
+    @Override
+    public boolean isInUse() {
+        return false;
+    }
+
+    @Override
+    public long memorySize() {
+        return contents.length + ENTRY_OVERHEAD;
+    }
+
+    @Override
+    public byte[] getValue() {
+        return contents;
+    }
+
+    @Override
+    public void release() throws JasDBStorageException {
+
+    }
+
+    @Override
+    public ClonableDataStream getStream() throws JasDBStorageException {
+        return new ClonableByteArrayInputStream(contents);
+    }
+
+    @Override
+    public long getRecordSize() {
+        return contents.length;
+    }
+
+    @Override
+    public boolean isRecordFound() {
+        return true;
+    }
+}
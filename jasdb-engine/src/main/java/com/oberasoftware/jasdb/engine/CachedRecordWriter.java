@@ -0,0 +1,197 @@
+/*
+ * The JASDB software and code is Copyright protected 2011 and owned by Renze de Vries
+ *
+ * All the code and design principals in the codebase are also Copyright 2011
+ * protected and owned Renze de Vries. Any unauthorized usage of the code or the
+ * design and principals as in this code is prohibited.
+ */
+package com.oberasoftware.jasdb.engine;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.storage.ClonableDataStream;
+import com.oberasoftware.jasdb.api.storage.RecordIterator;
+import com.oberasoftware.jasdb.api.storage.RecordResult;
+import com.oberasoftware.jasdb.api.storage.RecordWriter;
+import com.oberasoftware.jasdb.core.caching.GlobalCachingMemoryManager;
+import com.oberasoftware.jasdb.core.caching.LRURegion;
+import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+import com.oberasoftware.jasdb.core.utils.RecordStreamUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Record writer that keeps the decoded contents of recently read records in a cache region, the region is
+ * registered with the global caching memory manager and is additionally bounded by a maximum memory size.
+ * Records that are updated or removed are invalidated after they have been written to the wrapped writer.
+ *
+ * @author Renze de Vries
+ */
+public class CachedRecordWriter implements RecordWriter<UUIDKey> {
+	private static final Logger LOG = LoggerFactory.getLogger(CachedRecordWriter.class);
+
+    private static final int INVALIDATION_STRIPES = 64;
+    private static final long EVICTION_TARGET_PCT = 90;
+
+	private final RecordWriter<UUIDKey> wrappedWriter;
+	private final String storeName;
+    private final long maxMemory;
+
+    private final LRURegion<UUIDKey, CachedRecord> recordRegion;
+
+    /**
+     * Every invalidation increments the counter of the stripe of the record, a read only keeps the record it
+     * loaded in the cache when no invalidation happened on its stripe while the record was loaded
+     */
+    private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+
+	public CachedRecordWriter(String storeName, RecordWriter<UUIDKey> wrappedWriter, long maxMemory) {
+		this.wrappedWriter = wrappedWriter;
+		this.storeName = storeName;
+        this.maxMemory = maxMemory;
+        this.recordRegion = new LRURegion<>("RecordCache_" + storeName);
+	}
+
+    public RecordWriter<UUIDKey> getWrappedWriter() {
+        return wrappedWriter;
+    }
+
+	@Override
+	public void openWriter() throws JasDBStorageException {
+        wrappedWriter.openWriter();
+        GlobalCachingMemoryManager.getGlobalInstance().registerRegion(recordRegion);
+	}
+
+	@Override
+	public void closeWriter() throws JasDBStorageException {
+        GlobalCachingMemoryManager.getGlobalInstance().unregisterRegion(recordRegion.name());
+        recordRegion.clear();
+		wrappedWriter.closeWriter();
+	}
+
+    @Override
+    public void flush() throws JasDBStorageException {
+        wrappedWriter.flush();
+    }
+
+    @Override
+	public boolean isOpen() {
+		return wrappedWriter.isOpen();
+	}
+
+	@Override
+	public RecordIterator readAllRecords() throws JasDBStorageException {
+		return wrappedWriter.readAllRecords();
+	}
+
+	@Override
+	public RecordIterator readAllRecords(int limit) throws JasDBStorageException {
+		return wrappedWriter.readAllRecords(limit);
+	}
+
+	@Override
+	public List<RecordIterator> readRecordSegments(int segments) throws JasDBStorageException {
+		return wrappedWriter.readRecordSegments(segments);
+	}
+
+	@Override
+	public long getDiskSize() throws JasDBStorageException {
+		return wrappedWriter.getDiskSize();
+	}
+
+	@Override
+	public long getSize() throws JasDBStorageException {
+		return wrappedWriter.getSize();
+	}
+
+    @Override
+    public RecordResult readRecord(UUIDKey documentId) throws JasDBStorageException {
+        CachedRecord cachedRecord = recordRegion.getEntry(documentId);
+        if(cachedRecord != null) {
+            LOG.trace("Cache hit for record: {} in store: {}", documentId, storeName);
+            return cachedRecord;
+        } else {
+            return readRecordFromStore(documentId);
+        }
+    }
+
+    private RecordResult readRecordFromStore(UUIDKey documentId) throws JasDBStorageException {
+        LOG.trace("Cache miss for record: {} in store: {}", documentId, storeName);
+        int stripe = getStripe(documentId);
+        long invalidation = invalidations.get(stripe);
+
+        RecordResult result = wrappedWriter.readRecord(documentId);
+        if(!result.isRecordFound()) {
+            return result;
+        }
+
+        CachedRecord record = new CachedRecord(RecordStreamUtil.toBytes(result));
+        if(record.memorySize() <= maxMemory) {
+            UUIDKey cacheKey = new UUIDKey(documentId.getLeastSignificant(), documentId.getMostSignificant());
+            recordRegion.putEntry(cacheKey, record);
+
+            //an update or remove during the load might have invalidated before the stale record was cached
+            if(invalidations.get(stripe) != invalidation) {
+                recordRegion.removeEntry(cacheKey);
+            }
+            checkRegionMemory();
+        }
+
+        return record;
+    }
+
+    private void checkRegionMemory() {
+        long memorySize = recordRegion.memorySize();
+        if(memorySize > maxMemory) {
+            long reduced = recordRegion.reduceBy(memorySize - (maxMemory * EVICTION_TARGET_PCT / 100));
+            LOG.debug("Record cache of store: {} exceeded memory limit, evicted: {} bytes", storeName, reduced);
+        }
+    }
+
+    private void invalidate(UUIDKey documentId) {
+        invalidations.incrementAndGet(getStripe(documentId));
+        recordRegion.removeEntry(documentId);
+    }
+
+    private static int getStripe(UUIDKey documentId) {
+        return (documentId.hashCode() & 0x7fffffff) % INVALIDATION_STRIPES;
+    }
+
+    @Override
+    public void writeRecord(UUIDKey documentId, ClonableDataStream dataStream) throws JasDBStorageException {
+        wrappedWriter.writeRecord(documentId, dataStream);
+        invalidate(documentId);
+    }
+
+    @Override
+    public void writeRecords(Map<UUIDKey, ClonableDataStream> records) throws JasDBStorageException {
+        wrappedWriter.writeRecords(records);
+        for(UUIDKey documentId : records.keySet()) {
+            invalidate(documentId);
+        }
+    }
+
+	@Override
+	public void removeRecord(UUIDKey documentId) throws JasDBStorageException {
+		wrappedWriter.removeRecord(documentId);
+        invalidate(documentId);
+	}
+
+    @Override
+    public void updateRecord(UUIDKey documentId, ClonableDataStream dataStream) throws JasDBStorageException {
+        wrappedWriter.updateRecord(documentId, dataStream);
+        invalidate(documentId);
+    }
+
+    @Override
+    public String toString() {
+        return "CachedRecordWriter{" +
+                "storeName='" + storeName + '\'' +
+                ", cachedRecords=" + recordRegion.size() +
+                ", memorySize=" + recordRegion.memorySize() +
+                '}';
+    }
+}
@@ -5,6 +5,9 @@ import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import com.oberasoftware.jasdb.api.exceptions.RuntimeJasDBException;
 import com.oberasoftware.jasdb.api.model.IndexDefinition;
 import com.oberasoftware.jasdb.api.session.Entity;
+import com.oberasoftware.jasdb.api.session.query.Aggregation;
+import com.oberasoftware.jasdb.api.session.query.AggregationResult;
+import com.oberasoftware.jasdb.api.session.query.QueryExplain;
 import com.oberasoftware.jasdb.api.session.query.QueryResult;
 import com.oberasoftware.jasdb.core.SimpleEntity;
 import com.oberasoftware.jasdb.core.concurrency.ResourceLockManager;
@@ -24,6 +27,7 @@ import com.oberasoftware.jasdb.core.utils.StringUtils;
 import com.oberasoftware.jasdb.api.engine.Configuration;
 import com.oberasoftware.jasdb.engine.indexing.IndexScanAndRecovery;
 import com.oberasoftware.jasdb.engine.operations.DataOperation;
+import com.oberasoftware.jasdb.engine.query.LeasedQueryResult;
 import com.oberasoftware.jasdb.engine.query.operators.BlockOperation;
 import com.oberasoftware.jasdb.engine.search.EntityRetrievalOperation;
 import com.oberasoftware.jasdb.engine.search.QuerySearchOperation;
@@ -38,6 +42,7 @@ import org.springframework.stereotype.Component;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -86,6 +91,9 @@ public class LocalStorageServiceImpl implements StorageService {
     @Autowired
     private MetadataStore metadataStore;
 
+    @Autowired
+    private TableScanExecutor tableScanExecutor;
+
     public LocalStorageServiceImpl(String instanceId, String bagName) {
         this.bagName = bagName;
         this.instanceId = instanceId;
@@ -164,6 +172,9 @@ public class LocalStorageServiceImpl implements StorageService {
         List<Future<?>> indexRebuilds = new ArrayList<>(indexes.size());
         LOG.info("Doing index scan for: {} items", getSize());
         RecordWriter recordWriter = recordWriterFactoryLoader.loadRecordWriter(instanceId, bagName);
+        if(recordWriter instanceof CachedRecordWriter) {
+            recordWriter = ((CachedRecordWriter) recordWriter).getWrappedWriter();
+        }
         if(recordWriter instanceof TransactionalRecordWriter) {
             TransactionalRecordWriter transactionalRecordWriter = (TransactionalRecordWriter) recordWriter;
             LOG.info("Forcing primary key rebuild first, we need to ensure integrity");
@@ -201,6 +212,20 @@ public class LocalStorageServiceImpl implements StorageService {
         }
 	}
 	
+    @Override
+    public void insertEntities(RequestContext context, List<Entity> entities) throws JasDBStorageException {
+        resourceLockManager.sharedLock();
+        try {
+            for(Entity entity : entities) {
+                runIdGeneration(entity);
+            }
+
+            bagInsertOperation.doDataOperation(instanceId, bagName, entities);
+        } finally {
+            resourceLockManager.sharedUnlock();
+        }
+    }
+	
 	@Override
 	public void removeEntity(RequestContext context, Entity entity) throws JasDBStorageException {
         resourceLockManager.sharedLock();
@@ -294,9 +319,49 @@ public class LocalStorageServiceImpl implements StorageService {
 
 	@Override
 	public QueryResult search(RequestContext context, BlockOperation blockOperation, SearchLimit limit, List<SortParameter> params) throws JasDBStorageException {
+        return search(context, blockOperation, limit, params, null);
+	}
+
+	@Override
+	public QueryResult search(RequestContext context, BlockOperation blockOperation, SearchLimit limit, List<SortParameter> params,
+							  Set<String> selectedFields) throws JasDBStorageException {
+        resourceLockManager.sharedLock();
+        try {
+		    QueryResult result = new QuerySearchOperation(bagName, getIndexManager(), getRecordWriter(), tableScanExecutor).search(blockOperation, limit, params, selectedFields);
+            //the cursors read lazily from the indexes of the bag, the result releases the lock once it is done with them
+            return new LeasedQueryResult(result, resourceLockManager);
+        } catch(JasDBStorageException | RuntimeException e) {
+            resourceLockManager.sharedUnlock();
+            throw e;
+        }
+	}
+
+	@Override
+	public QueryExplain explain(RequestContext context, BlockOperation blockOperation, SearchLimit limit, List<SortParameter> params) throws JasDBStorageException {
+        resourceLockManager.sharedLock();
+        try {
+            return new QuerySearchOperation(bagName, getIndexManager(), getRecordWriter(), tableScanExecutor).explain(blockOperation, limit, params);
+        } finally {
+            resourceLockManager.sharedUnlock();
+        }
+	}
+
+	@Override
+	public long count(RequestContext context, BlockOperation blockOperation) throws JasDBStorageException {
+        resourceLockManager.sharedLock();
+        try {
+            return new QuerySearchOperation(bagName, getIndexManager(), getRecordWriter(), tableScanExecutor).count(blockOperation);
+        } finally {
+            resourceLockManager.sharedUnlock();
+        }
+	}
+
+	@Override
+	public AggregationResult aggregate(RequestContext context, BlockOperation blockOperation, String groupByField,
+									   List<Aggregation> aggregations) throws JasDBStorageException {
         resourceLockManager.sharedLock();
         try {
-		    return new QuerySearchOperation(bagName, getIndexManager(), getRecordWriter()).search(blockOperation, limit, params);
+            return new QuerySearchOperation(bagName, getIndexManager(), getRecordWriter(), tableScanExecutor).aggregate(blockOperation, groupByField, aggregations);
         } finally {
             resourceLockManager.sharedUnlock();
         }
@@ -324,6 +389,17 @@ public class LocalStorageServiceImpl implements StorageService {
         }
     }
 
+    @Override
+    public void ensureInvertedIndex(IndexField indexField) throws JasDBStorageException {
+        resourceLockManager.sharedLock();
+        try {
+            Index index = getIndexManager().createInvertedIndex(bagName, indexField);
+            initializeIndex(index);
+        } finally {
+            resourceLockManager.sharedUnlock();
+        }
+    }
+
     private void initializeIndex(Index index) throws JasDBStorageException {
         KeyInfo keyInfo = index.getKeyInfo();
         IndexDefinition definition = new IndexDefinition(keyInfo.getKeyName(), keyInfo.keyAsHeader(), keyInfo.valueAsHeader(), index.getIndexType());
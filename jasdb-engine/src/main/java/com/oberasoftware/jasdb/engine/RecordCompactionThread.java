@@ -0,0 +1,91 @@
+package com.oberasoftware.jasdb.engine;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.storage.CompactableRecordWriter;
+import com.oberasoftware.jasdb.api.storage.RecordWriter;
+import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * Periodically compacts the record writers of which the reclaimable space exceeds the configured
+ * percentage of their size on disk.
+ *
+ * @author Renze de Vries
+ */
+public class RecordCompactionThread implements Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(RecordCompactionThread.class);
+
+    private Map<String, RecordWriter<UUIDKey>> recordWriters;
+    private long interval;
+    private int threshold;
+
+    private volatile boolean running = false;
+    private Thread compactionThread;
+
+    public RecordCompactionThread(Map<String, RecordWriter<UUIDKey>> recordWriters, long interval, int threshold) {
+        this.recordWriters = recordWriters;
+        this.interval = interval;
+        this.threshold = threshold;
+    }
+
+    public void start() {
+        if(compactionThread == null) {
+            running = true;
+            compactionThread = new Thread(this, "jasdb-record-compaction");
+            compactionThread.setDaemon(true);
+            compactionThread.start();
+        }
+    }
+
+    public void stop() {
+        running = false;
+        compactionThread.interrupt();
+        try {
+            compactionThread.join();
+        } catch(InterruptedException e) {
+            LOG.info("Waiting for stop command interrupted");
+        }
+    }
+
+    @Override
+    public void run() {
+        LOG.info("Starting background compaction thread, interval: {} threshold: {}%", interval, threshold);
+        while(running && !compactionThread.isInterrupted()) {
+            try {
+                Thread.sleep(interval);
+
+                runCompaction();
+            } catch(InterruptedException e) {
+                compactionThread.interrupt();
+                running = false;
+            }
+        }
+        LOG.info("Finished background compaction thread");
+    }
+
+    private void runCompaction() {
+        for(Map.Entry<String, RecordWriter<UUIDKey>> entry : recordWriters.entrySet()) {
+            RecordWriter<UUIDKey> recordWriter = entry.getValue();
+            if(recordWriter instanceof CachedRecordWriter) {
+                //compaction does not change the record contents so the cached records remain valid
+                recordWriter = ((CachedRecordWriter) recordWriter).getWrappedWriter();
+            }
+            if(running && recordWriter instanceof CompactableRecordWriter && recordWriter.isOpen()) {
+                CompactableRecordWriter<UUIDKey> compactableWriter = (CompactableRecordWriter<UUIDKey>) recordWriter;
+                try {
+                    long diskSize = compactableWriter.getDiskSize();
+                    long reclaimable = compactableWriter.getReclaimableSize();
+                    if(diskSize > 0 && reclaimable * 100 / diskSize >= threshold) {
+                        LOG.info("Compacting record writer: {} reclaimable: {} of: {} bytes", entry.getKey(), reclaimable, diskSize);
+                        compactableWriter.compact();
+                    }
+                } catch(JasDBStorageException e) {
+                    LOG.error("Unable to compact record writer: " + entry.getKey(), e);
+                }
+            }
+        }
+    }
+}
@@ -4,10 +4,12 @@ import com.oberasoftware.jasdb.api.engine.Configuration;
 import com.oberasoftware.jasdb.api.engine.MetadataStore;
 import com.oberasoftware.jasdb.api.engine.ConfigurationLoader;
 import com.oberasoftware.jasdb.api.exceptions.ConfigurationException;
+import com.oberasoftware.jasdb.api.exceptions.CoreConfigException;
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import com.oberasoftware.jasdb.api.storage.RecordWriter;
 import com.oberasoftware.jasdb.api.storage.RecordWriterFactory;
 import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+import com.oberasoftware.jasdb.core.utils.conversion.ValueConverterUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,16 +35,27 @@ public class RecordWriterFactoryLoader {
 
     private static final String DEFAULT_PROVIDER = "transactional";
 
+    private static final long DEFAULT_COMPACTION_INTERVAL = 3600000;
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 30;
+    private static final String DEFAULT_RECORD_CACHE_MEMORY = "32m";
+
     private final MetadataStore metadataStore;
 
     private Map<String, RecordWriter<UUIDKey>> recordWriters = new ConcurrentHashMap<>();
 
     private RecordWriterFactory<UUIDKey> recordWriterFactory;
 
+    private Configuration recordWriterConfiguration;
+
+    private RecordCompactionThread recordCompactionThread;
+
+    private boolean recordCacheEnabled = false;
+    private long recordCacheMemory;
+
     @Autowired
     public RecordWriterFactoryLoader(ConfigurationLoader configurationLoader, MetadataStore metadataStore) throws ConfigurationException {
         Configuration configuration = configurationLoader.getConfiguration();
-        Configuration recordWriterConfiguration = configuration.getChildConfiguration("/jasdb/Storage/RecordWriter");
+        this.recordWriterConfiguration = configuration.getChildConfiguration("/jasdb/Storage/RecordWriter");
         String recordWriterProvider = recordWriterConfiguration != null ? recordWriterConfiguration.getAttribute("provider", DEFAULT_PROVIDER) : DEFAULT_PROVIDER;
 
         ServiceLoader<RecordWriterFactory> recordWriterFactories = ServiceLoader.load(RecordWriterFactory.class);
@@ -58,10 +71,54 @@ public class RecordWriterFactoryLoader {
             throw new ConfigurationException("No record writer factory is available, could not load configured provider: " + recordWriterProvider);
         }
         this.metadataStore = metadataStore;
+
+        loadCompaction(configuration.getChildConfiguration("/jasdb/Storage/Compaction"));
+        loadRecordCache(configuration.getChildConfiguration("/jasdb/Storage/RecordCache"));
+    }
+
+    private void loadRecordCache(Configuration cacheConfiguration) throws ConfigurationException {
+        if(cacheConfiguration != null && cacheConfiguration.getAttribute("enabled", false)) {
+            Configuration memoryConfiguration = cacheConfiguration.getChildConfiguration("Property[@Name='MaxMemory']");
+            String maxMemory = memoryConfiguration != null ?
+                    memoryConfiguration.getAttribute("Value", DEFAULT_RECORD_CACHE_MEMORY) : DEFAULT_RECORD_CACHE_MEMORY;
+            try {
+                recordCacheMemory = ValueConverterUtil.convertToBytes(maxMemory);
+            } catch(CoreConfigException e) {
+                throw new ConfigurationException("Unable to load record cache settings", e);
+            }
+
+            LOG.info("Record cache enabled, maximum memory per bag: {} bytes", recordCacheMemory);
+            recordCacheEnabled = true;
+        }
+    }
+
+    private void loadCompaction(Configuration compactionConfiguration) {
+        if(compactionConfiguration != null && compactionConfiguration.getAttribute("enabled", false)) {
+            Configuration intervalConfiguration = compactionConfiguration.getChildConfiguration("Property[@Name='interval']");
+            Configuration thresholdConfiguration = compactionConfiguration.getChildConfiguration("Property[@Name='threshold']");
+
+            long interval = DEFAULT_COMPACTION_INTERVAL;
+            try {
+                if(intervalConfiguration != null) {
+                    interval = ValueConverterUtil.convertToMilliseconds(intervalConfiguration.getAttribute("Value"));
+                }
+            } catch(CoreConfigException e) {
+                LOG.warn("Could not convert compaction interval in configuration", e);
+            }
+            int threshold = thresholdConfiguration != null ?
+                    thresholdConfiguration.getAttribute("Value", DEFAULT_COMPACTION_THRESHOLD) : DEFAULT_COMPACTION_THRESHOLD;
+
+            LOG.info("Record compaction enabled, interval: {} threshold: {}%", interval, threshold);
+            recordCompactionThread = new RecordCompactionThread(recordWriters, interval, threshold);
+            recordCompactionThread.start();
+        }
     }
 
     @PreDestroy
     public void closeRecordWriters() throws JasDBStorageException {
+        if(recordCompactionThread != null) {
+            recordCompactionThread.stop();
+        }
         for(RecordWriter recordWriter : recordWriters.values()) {
             recordWriter.closeWriter();
         }
@@ -84,6 +141,7 @@ public class RecordWriterFactoryLoader {
 
         File indexLocation = new File(removeExtension(writerPath.toString()) + ".idx");
         deleteSafely(indexLocation);
+        deleteSafely(new File(writerPath + ".dict"));
         deleteSafely(writerPath);
 
         recordWriters.remove(writerPath.toString());
@@ -96,7 +154,10 @@ public class RecordWriterFactoryLoader {
 
     private synchronized RecordWriter<UUIDKey> loadExistingWriter(File file) throws JasDBStorageException {
         if(!recordWriters.containsKey(file.toString())) {
-            RecordWriter<UUIDKey> recordWriter = recordWriterFactory.createWriter(file);
+            RecordWriter<UUIDKey> recordWriter = recordWriterFactory.createWriter(file, recordWriterConfiguration);
+            if(recordCacheEnabled) {
+                recordWriter = new CachedRecordWriter(file.toString(), recordWriter, recordCacheMemory);
+            }
             recordWriter.openWriter();
             recordWriters.put(file.toString(), recordWriter);
         }
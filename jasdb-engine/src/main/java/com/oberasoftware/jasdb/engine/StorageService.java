@@ -2,6 +2,9 @@ package com.oberasoftware.jasdb.engine;
 
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import com.oberasoftware.jasdb.api.session.Entity;
+import com.oberasoftware.jasdb.api.session.query.Aggregation;
+import com.oberasoftware.jasdb.api.session.query.AggregationResult;
+import com.oberasoftware.jasdb.api.session.query.QueryExplain;
 import com.oberasoftware.jasdb.api.session.query.QueryResult;
 import com.oberasoftware.jasdb.core.context.RequestContext;
 import com.oberasoftware.jasdb.api.index.query.SearchLimit;
@@ -12,6 +15,7 @@ import com.oberasoftware.jasdb.api.engine.Configuration;
 import com.oberasoftware.jasdb.engine.query.operators.BlockOperation;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * The storage serivce is the main storage interface in JasDB, it handles all interactions against
@@ -66,6 +70,16 @@ public interface StorageService {
 	 */
 	void insertEntity(RequestContext context, Entity entity)	throws JasDBStorageException;
 
+	/**
+	 * This inserts a batch of entities into the storage and indexes, the records are written as a single group and
+	 * the index keys of the entities are inserted per index as a single batch
+	 *
+	 * @param context The request context
+	 * @param entities The entities to store in the storage and which are used to populate the indexes
+	 * @throws JasDBStorageException If unable to insert the entities or the indexes
+	 */
+	void insertEntities(RequestContext context, List<Entity> entities) throws JasDBStorageException;
+
 	/**
 	 * This removes and entity from storage and the indexes
 	 *
@@ -156,6 +170,59 @@ public interface StorageService {
 	 */
 	QueryResult search(RequestContext context, BlockOperation blockOperation, SearchLimit limit, List<SortParameter> params) throws JasDBStorageException;
 
+	/**
+	 * Executes the query with the entities of the result limited to the selected fields, storage that is not able
+	 * to limit the entities returns the complete entities.
+	 *
+	 * @param context The request context
+	 * @param blockOperation The main blockoperation, the parent item in the Query Object Model.
+	 * @param limit The limits of the given query
+	 * @param params The sorting paramaters to be applied to the resultset
+	 * @param selectedFields The fields to limit the entities of the result to
+	 * @return A Query ResultSet which can be iterated over, the records are only loaded when iterating.
+	 * @throws JasDBStorageException If unable to execute the search query
+	 */
+	default QueryResult search(RequestContext context, BlockOperation blockOperation, SearchLimit limit, List<SortParameter> params,
+							   Set<String> selectedFields) throws JasDBStorageException {
+		return search(context, blockOperation, limit, params);
+	}
+
+	/**
+	 * Executes the query in the same way as a search, but instead of the results returns a profile describing how
+	 * every block of the query was evaluated.
+	 *
+	 * @param context The request context
+	 * @param blockOperation The main blockoperation, the parent item in the Query Object Model.
+	 * @param limit The limits of the given query
+	 * @param params The sorting paramaters to be applied to the resultset
+	 * @return The profile of the executed query
+	 * @throws JasDBStorageException If unable to execute the search query
+	 */
+	QueryExplain explain(RequestContext context, BlockOperation blockOperation, SearchLimit limit, List<SortParameter> params) throws JasDBStorageException;
+
+	/**
+	 * Counts the entities matching the query, the entities are not loaded to count them.
+	 *
+	 * @param context The request context
+	 * @param blockOperation The main blockoperation, the parent item in the Query Object Model.
+	 * @return The amount of entities matching the query
+	 * @throws JasDBStorageException If unable to execute the search query
+	 */
+	long count(RequestContext context, BlockOperation blockOperation) throws JasDBStorageException;
+
+	/**
+	 * Calculates the aggregations over the entities matching the query, when possible the values are taken from
+	 * the indexes instead of the entities.
+	 *
+	 * @param context The request context
+	 * @param blockOperation The main blockoperation, the parent item in the Query Object Model.
+	 * @param groupByField The field to group the entities by, null to aggregate all entities as a single group
+	 * @param aggregations The aggregations to calculate
+	 * @return The aggregated values per group
+	 * @throws JasDBStorageException If unable to execute the search query
+	 */
+	AggregationResult aggregate(RequestContext context, BlockOperation blockOperation, String groupByField, List<Aggregation> aggregations) throws JasDBStorageException;
+
     /**
      * Ensures an index with the given field is present. If the index is not present it will be created.
      * If the index is created it will block until index creation is completed.
@@ -178,6 +245,15 @@ public interface StorageService {
      */
     void ensureIndex(CompositeIndexField indexField, boolean isUnique, IndexField... valueFields) throws JasDBStorageException;
 
+    /**
+     * Ensures an inverted index on the terms of the values of the field is present. If the index is not present it
+     * will be created. If the index is created it will block until index creation is completed.
+     *
+     * @param indexField The field of which the terms are indexed
+     * @throws JasDBStorageException If unable to ensure the index exists
+     */
+    void ensureInvertedIndex(IndexField indexField) throws JasDBStorageException;
+
     /**
      * Gets a list of all present index names
      * @return The list of index names
@@ -0,0 +1,133 @@
+package com.oberasoftware.jasdb.engine;
+
+import com.oberasoftware.jasdb.api.engine.Configuration;
+import com.oberasoftware.jasdb.api.engine.ConfigurationLoader;
+import com.oberasoftware.jasdb.api.exceptions.ConfigurationException;
+import com.oberasoftware.jasdb.api.exceptions.CoreConfigException;
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.core.utils.conversion.ValueConverterUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the scans of record segments for queries that need to evaluate their conditions against all records of a
+ * bag. The record file of a bag is split in segments that are scanned by a pool of threads shared by all bags.
+ *
+ * @author Renze de Vries
+ */
+@Component
+public class TableScanExecutor {
+    private static final Logger LOG = LoggerFactory.getLogger(TableScanExecutor.class);
+
+    private static final int DEFAULT_THREADS = 0;
+    private static final String DEFAULT_MIN_SEGMENT_SIZE = "16m";
+    private static final String DEFAULT_CONSUMER_TIMEOUT = "60s";
+
+    /**
+     * More segments than threads are created so threads that finish their segment early can pick up another one
+     */
+    private static final int SEGMENTS_PER_THREAD = 4;
+
+    private final int threads;
+    private final long minSegmentSize;
+    private final long consumerTimeout;
+    private final ExecutorService executorService;
+
+    @Autowired
+    public TableScanExecutor(ConfigurationLoader configurationLoader) throws ConfigurationException {
+        Configuration scanConfiguration = configurationLoader.getConfiguration().getChildConfiguration("/jasdb/Storage/TableScan");
+        if(scanConfiguration != null && scanConfiguration.getAttribute("enabled", false)) {
+            Configuration threadsConfiguration = scanConfiguration.getChildConfiguration("Property[@Name='threads']");
+            Configuration segmentConfiguration = scanConfiguration.getChildConfiguration("Property[@Name='minSegmentSize']");
+            Configuration timeoutConfiguration = scanConfiguration.getChildConfiguration("Property[@Name='consumerTimeout']");
+
+            int configuredThreads = threadsConfiguration != null ?
+                    threadsConfiguration.getAttribute("Value", DEFAULT_THREADS) : DEFAULT_THREADS;
+            try {
+                this.minSegmentSize = ValueConverterUtil.convertToBytes(segmentConfiguration != null ?
+                        segmentConfiguration.getAttribute("Value", DEFAULT_MIN_SEGMENT_SIZE) : DEFAULT_MIN_SEGMENT_SIZE);
+                this.consumerTimeout = ValueConverterUtil.convertToMilliseconds(timeoutConfiguration != null ?
+                        timeoutConfiguration.getAttribute("Value", DEFAULT_CONSUMER_TIMEOUT) : DEFAULT_CONSUMER_TIMEOUT);
+            } catch(CoreConfigException e) {
+                throw new ConfigurationException("Unable to load table scan settings", e);
+            }
+            this.threads = configuredThreads > 0 ? configuredThreads : Runtime.getRuntime().availableProcessors();
+        } else {
+            this.threads = 1;
+            this.minSegmentSize = Long.MAX_VALUE;
+            this.consumerTimeout = Long.MAX_VALUE;
+        }
+
+        this.executorService = createExecutor(threads);
+        LOG.info("Table scans use {} threads, minimum segment size: {} bytes", threads, minSegmentSize);
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        if(threads > 1) {
+            AtomicInteger threadCounter = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "jasdb-tablescan-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return null;
+    }
+
+    /**
+     * @return The amount of segments that can be scanned at the same time
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return The time in milliseconds a segment scan waits for room in its buffer of keys before it gives up, this
+     * releases the scan thread when the keys of a scan are no longer consumed
+     */
+    public long getConsumerTimeout() {
+        return consumerTimeout;
+    }
+
+    /**
+     * Determines the amount of segments to split a record file of the given size in
+     * @param diskSize The size of the record file in bytes
+     * @return The amount of segments, 1 if the records should be scanned by a single thread
+     */
+    public int getSegments(long diskSize) {
+        if(executorService == null) {
+            return 1;
+        }
+        return (int) Math.max(1, Math.min((long) threads * SEGMENTS_PER_THREAD, diskSize / minSegmentSize));
+    }
+
+    public void execute(Runnable segmentScan) throws JasDBStorageException {
+        try {
+            executorService.execute(segmentScan);
+        } catch(RejectedExecutionException e) {
+            throw new JasDBStorageException("Unable to schedule scan of record segment", e);
+        }
+    }
+
+    /**
+     * @return True if the executor has been shut down, segments that were not yet started will no longer be scanned
+     */
+    public boolean isShutdown() {
+        return executorService == null || executorService.isShutdown();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if(executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.oberasoftware.jasdb.engine.indexing;
+
+import com.oberasoftware.jasdb.api.engine.IndexManager;
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.Index;
+import com.oberasoftware.jasdb.api.index.IndexState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * Periodically compacts the loaded indexes of which the free blocks exceed the configured percentage of
+ * their size on disk.
+ *
+ * @author Renze de Vries
+ */
+public class IndexCompactionThread implements Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(IndexCompactionThread.class);
+
+    private Map<String, IndexManager> indexManagers;
+    private long interval;
+    private int threshold;
+
+    private volatile boolean running = false;
+    private Thread compactionThread;
+
+    public IndexCompactionThread(Map<String, IndexManager> indexManagers, long interval, int threshold) {
+        this.indexManagers = indexManagers;
+        this.interval = interval;
+        this.threshold = threshold;
+    }
+
+    public void start() {
+        if(compactionThread == null) {
+            running = true;
+            compactionThread = new Thread(this, "jasdb-index-compaction");
+            compactionThread.setDaemon(true);
+            compactionThread.start();
+        }
+    }
+
+    public void stop() {
+        running = false;
+        compactionThread.interrupt();
+        try {
+            compactionThread.join();
+        } catch(InterruptedException e) {
+            LOG.info("Waiting for stop command interrupted");
+        }
+    }
+
+    @Override
+    public void run() {
+        LOG.info("Starting background index compaction thread, interval: {} threshold: {}%", interval, threshold);
+        while(running && !compactionThread.isInterrupted()) {
+            try {
+                Thread.sleep(interval);
+
+                runCompaction();
+            } catch(InterruptedException e) {
+                compactionThread.interrupt();
+                running = false;
+            }
+        }
+        LOG.info("Finished background index compaction thread");
+    }
+
+    private void runCompaction() {
+        for(IndexManager indexManager : indexManagers.values()) {
+            for(Index index : indexManager.getLoadedIndexes()) {
+                if(running && index.getState() == IndexState.OK) {
+                    try {
+                        double freeBlockRatio = index.getFreeBlockRatio();
+                        if(freeBlockRatio * 100 >= threshold) {
+                            LOG.info("Compacting index: {} free blocks: {}%", index.getKeyInfo().getKeyName(), (int) (freeBlockRatio * 100));
+                            index.compactIndex();
+                        }
+                    } catch(JasDBStorageException e) {
+                        LOG.error("Unable to compact index: " + index.getKeyInfo().getKeyName(), e);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,15 +1,21 @@
 package com.oberasoftware.jasdb.engine.indexing;
 
+import com.oberasoftware.jasdb.api.engine.Configuration;
+import com.oberasoftware.jasdb.api.engine.ConfigurationLoader;
 import com.oberasoftware.jasdb.api.engine.IndexManager;
 import com.oberasoftware.jasdb.api.engine.IndexManagerFactory;
 import com.oberasoftware.jasdb.api.engine.MetadataStore;
+import com.oberasoftware.jasdb.api.exceptions.ConfigurationException;
+import com.oberasoftware.jasdb.api.exceptions.CoreConfigException;
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.core.utils.conversion.ValueConverterUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -20,14 +26,46 @@ import java.util.concurrent.ConcurrentHashMap;
 public class IndexManagerFactoryImpl implements IndexManagerFactory {
     private static final Logger LOG = LoggerFactory.getLogger(IndexManagerFactoryImpl.class);
 
+    private static final long DEFAULT_COMPACTION_INTERVAL = 3600000;
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 30;
+
     private ConcurrentHashMap<String, IndexManager> indexManagers = new ConcurrentHashMap<>();
 
+    @Autowired
+    private ConfigurationLoader configurationLoader;
+
     @Autowired
     private MetadataStore metadataStore;
 
     @Autowired
     private ApplicationContext applicationContext;
 
+    private IndexCompactionThread indexCompactionThread;
+
+    @PostConstruct
+    public void initializeCompaction() throws ConfigurationException {
+        Configuration compactionConfiguration = configurationLoader.getConfiguration().getChildConfiguration("/jasdb/Storage/Compaction");
+        if(compactionConfiguration != null && compactionConfiguration.getAttribute("enabled", false)) {
+            Configuration intervalConfiguration = compactionConfiguration.getChildConfiguration("Property[@Name='interval']");
+            Configuration thresholdConfiguration = compactionConfiguration.getChildConfiguration("Property[@Name='indexThreshold']");
+
+            long interval = DEFAULT_COMPACTION_INTERVAL;
+            try {
+                if(intervalConfiguration != null) {
+                    interval = ValueConverterUtil.convertToMilliseconds(intervalConfiguration.getAttribute("Value"));
+                }
+            } catch(CoreConfigException e) {
+                LOG.warn("Could not convert compaction interval in configuration", e);
+            }
+            int threshold = thresholdConfiguration != null ?
+                    thresholdConfiguration.getAttribute("Value", DEFAULT_COMPACTION_THRESHOLD) : DEFAULT_COMPACTION_THRESHOLD;
+
+            LOG.info("Index compaction enabled, interval: {} threshold: {}%", interval, threshold);
+            indexCompactionThread = new IndexCompactionThread(indexManagers, interval, threshold);
+            indexCompactionThread.start();
+        }
+    }
+
     @Override
     public IndexManager getIndexManager(String instanceId) throws JasDBStorageException {
         if(!indexManagers.containsKey(instanceId)) {
@@ -46,6 +84,9 @@ public class IndexManagerFactoryImpl implements IndexManagerFactory {
     @PreDestroy
     public void shutdownIndexes() throws JasDBStorageException {
         LOG.info("Shutting down indexes");
+        if(indexCompactionThread != null) {
+            indexCompactionThread.stop();
+        }
         for(IndexManager indexManager : indexManagers.values()) {
             indexManager.shutdownIndexes();
         }
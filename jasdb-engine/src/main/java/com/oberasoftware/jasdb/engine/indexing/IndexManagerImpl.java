@@ -22,6 +22,7 @@ import com.oberasoftware.jasdb.api.model.Bag;
 import com.oberasoftware.jasdb.api.model.IndexDefinition;
 import com.oberasoftware.jasdb.core.SimpleEntity;
 import com.oberasoftware.jasdb.core.index.btreeplus.BTreeIndex;
+import com.oberasoftware.jasdb.core.index.inverted.InvertedIndex;
 import com.oberasoftware.jasdb.core.index.keys.keyinfo.KeyInfoImpl;
 import com.oberasoftware.jasdb.core.index.keys.types.UUIDKeyType;
 import com.oberasoftware.jasdb.core.index.query.SimpleIndexField;
@@ -182,7 +183,7 @@ final public class IndexManagerImpl implements IndexManager {
             keyInfo = new KeyInfoImpl(indexFields, Lists.newArrayList(values));
         }
 
-		return createInStore(bagName, keyInfo);
+		return createInStore(bagName, keyInfo, IndexTypes.BTREE);
 	}
 
 	@Override
@@ -194,21 +195,26 @@ final public class IndexManagerImpl implements IndexManager {
             keyInfo = new KeyInfoImpl(Lists.newArrayList(indexField, new SimpleIndexField(SimpleEntity.DOCUMENT_ID, new UUIDKeyType())), Lists.newArrayList(valueFields));
         }
 
-		return createInStore(bagName, keyInfo);
+		return createInStore(bagName, keyInfo, IndexTypes.BTREE);
 	}
 
-    private Index createInStore(String bagName, KeyInfo keyInfo) throws JasDBStorageException {
+	@Override
+	public Index createInvertedIndex(String bagName, IndexField indexField) throws JasDBStorageException {
+		KeyInfo keyInfo = new KeyInfoImpl(indexField, new SimpleIndexField(SimpleEntity.DOCUMENT_ID, new UUIDKeyType()));
+
+		return createInStore(bagName, keyInfo, IndexTypes.INVERTED);
+	}
+
+    private Index createInStore(String bagName, KeyInfo keyInfo, IndexTypes indexType) throws JasDBStorageException {
 		if(!indexes.containsKey(bagName)) {
 			loadIndexes(bagName);
 		}
 
 		Map<String, Index> bagIndexes = this.indexes.get(bagName);
 		if(bagIndexes != null && !bagIndexes.containsKey(keyInfo.getKeyName())) {
-            File indexFile = createIndexFile(bagName, keyInfo.getKeyName(), false);
-
 			try {
-				Index index = new BTreeIndex(indexFile, keyInfo);
-				configureIndex(IndexTypes.BTREE, index);
+				Index index = createIndex(bagName, keyInfo, indexType);
+				configureIndex(indexType, index);
 
                 IndexDefinition definition = new IndexDefinition(keyInfo.getKeyName(), keyInfo.keyAsHeader(), keyInfo.valueAsHeader(), index.getIndexType());
                 metadataStore.addBagIndex(instanceId, bagName, definition);
@@ -219,13 +225,29 @@ final public class IndexManagerImpl implements IndexManager {
 				throw new JasDBStorageException("Unable to create index, configuration error", e);
 			}
 		} else if(bagIndexes != null){
-			return bagIndexes.get(keyInfo.getKeyName());
+			Index index = bagIndexes.get(keyInfo.getKeyName());
+			if(index.getIndexType() != indexType.getType()) {
+				throw new JasDBStorageException("Unable to create index: " + keyInfo.getKeyName() + " on bag: " + bagName +
+						", an index of another type already exists with the same name");
+			}
+			return index;
 		} else {
 			return null;
 		}
 
 	}
 
+	private Index createIndex(String bagName, KeyInfo keyInfo, IndexTypes indexType) throws JasDBStorageException {
+		switch(indexType) {
+			case BTREE:
+				return new BTreeIndex(createIndexFile(bagName, keyInfo.getKeyName(), false), keyInfo);
+			case INVERTED:
+				return new InvertedIndex(createIndexFile(bagName, keyInfo.getKeyName(), true), keyInfo);
+			default:
+				throw new JasDBStorageException("Creating this index type: " + indexType.getName() + " is not supported");
+		}
+	}
+
 	private List<IndexField> guaranteeIdKey(IndexField... valueFields) throws JasDBStorageException {
 		Set<String> fields = new HashSet<>();
 		List<IndexField> indexFields = new ArrayList<>();
@@ -262,14 +284,18 @@ final public class IndexManagerImpl implements IndexManager {
 	private Index loadIndex(String bagName, IndexDefinition indexDefinition) throws JasDBStorageException {
 		try {
             KeyInfo keyInfo = new KeyInfoImpl(indexDefinition.getHeaderDescriptor(), indexDefinition.getValueDescriptor());
-            File indexFile = createIndexFile(bagName, indexDefinition.getIndexName(), false);
 
             switch(IndexTypes.getTypeFor(indexDefinition.getIndexType())) {
                 case BTREE:
                     LOG.debug("Loaded BTree Index for key: {}", indexDefinition.getIndexName());
-                    Index btreeIndex = new BTreeIndex(indexFile, keyInfo);
+                    Index btreeIndex = new BTreeIndex(createIndexFile(bagName, indexDefinition.getIndexName(), false), keyInfo);
 
                     return configureIndex(IndexTypes.BTREE, btreeIndex);
+                case INVERTED:
+                    LOG.debug("Loaded Inverted Index for key: {}", indexDefinition.getIndexName());
+                    Index invertedIndex = new InvertedIndex(createIndexFile(bagName, indexDefinition.getIndexName(), true), keyInfo);
+
+                    return configureIndex(IndexTypes.INVERTED, invertedIndex);
                 default:
                     throw new JasDBStorageException("Reading from this index type: " + indexDefinition.getIndexName() +
                             " is not supported");
@@ -6,22 +6,29 @@ import com.oberasoftware.jasdb.api.index.Index;
 import com.oberasoftware.jasdb.api.index.keys.Key;
 import com.oberasoftware.jasdb.api.session.Entity;
 import com.oberasoftware.jasdb.api.storage.ClonableDataStream;
+import com.oberasoftware.jasdb.api.storage.RecordWriter;
 import com.oberasoftware.jasdb.core.index.keys.KeyUtil;
 import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
 import com.oberasoftware.jasdb.core.statistics.StatRecord;
 import com.oberasoftware.jasdb.core.statistics.StatisticsMonitor;
 import com.oberasoftware.jasdb.engine.BagOperationUtil;
 import com.oberasoftware.jasdb.engine.RecordWriterFactoryLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 @Component
 @Qualifier("insertOperation")
 public class BagInsertOperation implements DataOperation {
+    private static final Logger LOG = LoggerFactory.getLogger(BagInsertOperation.class);
 
     @Autowired
     private IndexManagerFactory indexManagerFactory;
@@ -45,6 +52,75 @@ public class BagInsertOperation implements DataOperation {
         }
 	}
 
+    /**
+     * Inserts the entities by writing all records as a single group and then inserting the keys of all
+     * entities per index as a single batch. When the keys can not be inserted into one of the indexes, the
+     * keys inserted into the other indexes and the written records are removed again.
+     */
+    @Override
+    public void doDataOperation(String instanceId, String bag, List<Entity> entities) throws JasDBStorageException {
+        Map<UUIDKey, ClonableDataStream> records = new LinkedHashMap<>();
+        for(Entity entity : entities) {
+            ClonableDataStream entityStream = BagOperationUtil.toStream(entity);
+            if(entityStream == null) {
+                throw new JasDBStorageException("Invalid entity, can't insert empty entity");
+            } else if(records.put(new UUIDKey(entity.getInternalId()), entityStream) != null) {
+                throw new JasDBStorageException("Unable to insert entities, entity: " + entity.getInternalId() + " is present more than once");
+            }
+        }
+
+        StatRecord bagWrite = StatisticsMonitor.createRecord("bag:writeRecords");
+        RecordWriter<UUIDKey> recordWriter = recordWriterFactory.loadRecordWriter(instanceId, bag);
+        recordWriter.writeRecords(records);
+        bagWrite.stop();
+
+        StatRecord bagIndexUpdate = StatisticsMonitor.createRecord("bag:batchIndexUpdate");
+        Map<String, Index> indexes = indexManagerFactory.getIndexManager(instanceId).getIndexes(bag);
+        Map<Index, List<Key>> indexedKeys = new LinkedHashMap<>();
+        Map<Index, Long> multiValuedCounts = new LinkedHashMap<>();
+        try {
+            for(Index index : indexes.values()) {
+                List<Key> insertKeys = new ArrayList<>();
+                long multiValued = 0;
+                for(Entity entity : entities) {
+                    if(KeyUtil.isAnyDataPresent(entity, index)) {
+                        insertKeys.addAll(BagOperationUtil.createEntityKeys(entity, index));
+                        if(BagOperationUtil.isMultiValued(entity, index)) {
+                            multiValued++;
+                        }
+                    }
+                }
+                if(!insertKeys.isEmpty()) {
+                    //the multi valued documents are registered before their keys can be found
+                    index.updateMultiValuedCount(multiValued);
+                    multiValuedCounts.put(index, multiValued);
+                    index.insertIntoIndex(insertKeys);
+                    indexedKeys.put(index, insertKeys);
+                }
+            }
+        } catch(JasDBStorageException e) {
+            rollbackInsert(recordWriter, records.keySet(), indexedKeys);
+            for(Map.Entry<Index, Long> multiValuedCount : multiValuedCounts.entrySet()) {
+                multiValuedCount.getKey().updateMultiValuedCount(-multiValuedCount.getValue());
+            }
+            throw e;
+        } finally {
+            bagIndexUpdate.stop();
+        }
+    }
+
+    private void rollbackInsert(RecordWriter<UUIDKey> recordWriter, Set<UUIDKey> documentIds, Map<Index, List<Key>> indexedKeys) throws JasDBStorageException {
+        LOG.debug("Rolling back insert of {} entities", documentIds.size());
+        for(Map.Entry<Index, List<Key>> indexKeys : indexedKeys.entrySet()) {
+            for(Key key : indexKeys.getValue()) {
+                indexKeys.getKey().removeFromIndex(key);
+            }
+        }
+        for(UUIDKey documentId : documentIds) {
+            recordWriter.removeRecord(documentId);
+        }
+    }
+
 	private void insertIntoIndexes(String instanceId, String bagName, Entity entity) throws JasDBStorageException {
 		StatRecord getIndexes = StatisticsMonitor.createRecord("bag:getIndexes");
 		Map<String, Index> indexes = indexManagerFactory.getIndexManager(instanceId).getIndexes(bagName);
@@ -56,6 +132,9 @@ public class BagInsertOperation implements DataOperation {
 			if(KeyUtil.isAnyDataPresent(entity, index)) {
                 Set<Key> insertKeys = BagOperationUtil.createEntityKeys(entity, index);
 				if(!insertKeys.isEmpty()) {
+                    if(BagOperationUtil.isMultiValued(entity, index)) {
+                        index.updateMultiValuedCount(1);
+                    }
                     BagOperationUtil.doIndexInsert(insertKeys, index);
 				}
 			}
@@ -65,6 +65,9 @@ public class BagRemoveOperation implements DataOperation {
                 for(Key removeKey : removeKeys) {
                     index.removeFromIndex(removeKey);
                 }
+                if(BagOperationUtil.isMultiValued(removeEntity, index)) {
+                    index.updateMultiValuedCount(-1);
+                }
             }
         }
     }
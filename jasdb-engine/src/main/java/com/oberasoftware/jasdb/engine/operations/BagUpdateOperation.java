@@ -70,6 +70,12 @@ public class BagUpdateOperation implements DataOperation {
 
             boolean dataPresentOldEntity = KeyUtil.isAnyDataPresent(oldEntity, index);
             boolean dataPresentNewEntity = KeyUtil.isAnyDataPresent(entity, index);
+            boolean multiValuedOldEntity = dataPresentOldEntity && BagOperationUtil.isMultiValued(oldEntity, index);
+            boolean multiValuedNewEntity = dataPresentNewEntity && BagOperationUtil.isMultiValued(entity, index);
+            if(multiValuedNewEntity) {
+                //the entity is registered as multi valued before its new keys can be found
+                index.updateMultiValuedCount(1);
+            }
 
             Set<Key> keys = BagOperationUtil.createEntityKeys(entity, index);
             if(dataPresentNewEntity && dataPresentOldEntity) {
@@ -100,6 +106,9 @@ public class BagUpdateOperation implements DataOperation {
                     index.removeFromIndex(key);
                 }
             }
+            if(multiValuedOldEntity) {
+                index.updateMultiValuedCount(-1);
+            }
         }
         
     }
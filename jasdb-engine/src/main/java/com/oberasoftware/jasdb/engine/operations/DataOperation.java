@@ -3,6 +3,14 @@ package com.oberasoftware.jasdb.engine.operations;
 import com.oberasoftware.jasdb.api.session.Entity;
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 
+import java.util.List;
+
 public interface DataOperation {
 	void doDataOperation(String instanceId, String bag, Entity entity) throws JasDBStorageException;
+
+	default void doDataOperation(String instanceId, String bag, List<Entity> entities) throws JasDBStorageException {
+		for(Entity entity : entities) {
+			doDataOperation(instanceId, bag, entity);
+		}
+	}
 }
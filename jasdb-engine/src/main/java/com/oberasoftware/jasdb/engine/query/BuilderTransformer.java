@@ -15,13 +15,21 @@ import com.oberasoftware.jasdb.engine.query.operators.BlockOperation;
 import com.oberasoftware.jasdb.engine.query.operators.OrBlock;
 import com.oberasoftware.jasdb.api.session.query.QueryBuilder;
 import com.oberasoftware.jasdb.api.session.query.QueryField;
+import com.oberasoftware.jasdb.api.session.query.QueryFieldOperator;
 import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.core.index.query.AllTermsCondition;
+import com.oberasoftware.jasdb.core.index.query.AnyTermsCondition;
 import com.oberasoftware.jasdb.core.index.query.EqualsCondition;
+import com.oberasoftware.jasdb.core.index.query.InCondition;
 import com.oberasoftware.jasdb.core.index.query.NotEqualsCondition;
+import com.oberasoftware.jasdb.core.index.query.PrefixCondition;
 import com.oberasoftware.jasdb.core.index.query.RangeCondition;
+import com.oberasoftware.jasdb.core.index.query.TermCondition;
+import com.oberasoftware.jasdb.core.index.query.TermTokenizer;
 import com.oberasoftware.jasdb.api.index.query.SearchCondition;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -58,7 +66,7 @@ public class BuilderTransformer {
         List<RangeCondition> rangeConditions = new ArrayList<>();
         for(QueryField queryField : fields) {
             SearchCondition searchCondition = createCondition(queryField);
-            if(searchCondition instanceof RangeCondition) {
+            if(searchCondition instanceof RangeCondition && !(searchCondition instanceof PrefixCondition)) {
                 rangeConditions.add((RangeCondition)searchCondition);
             } else {
                 block.addCondition(field, searchCondition);
@@ -98,8 +106,27 @@ public class BuilderTransformer {
     }
 
     private static SearchCondition createCondition(QueryField queryField) {
-        Key searchKey = valueToKey(queryField.getSearchKey());
         switch(queryField.getOperator()) {
+            case IN:
+                return new InCondition(valuesToKeys(queryField.getSearchKey()));
+            case BETWEEN:
+                List<Key> bounds = valuesToKeys(queryField.getSearchKey());
+                return new RangeCondition(bounds.get(0), true, bounds.get(1), true);
+            case STARTS_WITH:
+                return new PrefixCondition(new StringKey(queryField.getSearchKey().toString()));
+            case CONTAINS:
+                return createTermCondition(queryField.getSearchKey().toString());
+            case CONTAINS_ANY:
+                return new AnyTermsCondition(valuesToStrings(queryField.getSearchKey()));
+            case CONTAINS_ALL:
+                return new AllTermsCondition(valuesToStrings(queryField.getSearchKey()));
+            default:
+                return createValueCondition(queryField.getOperator(), valueToKey(queryField.getSearchKey()));
+        }
+    }
+
+    private static SearchCondition createValueCondition(QueryFieldOperator operator, Key searchKey) {
+        switch(operator) {
             case LARGER_THAN:
                 return new RangeCondition(searchKey, false, null, false);
             case LARGER_THAN_OR_EQUALS:
@@ -116,6 +143,30 @@ public class BuilderTransformer {
         }
     }
 
+    private static SearchCondition createTermCondition(String text) {
+        if(TermTokenizer.tokenize(text).size() == 1) {
+            return new TermCondition(text);
+        } else {
+            return new AllTermsCondition(Collections.singletonList(text));
+        }
+    }
+
+    private static List<String> valuesToStrings(Object values) {
+        List<String> texts = new ArrayList<>();
+        for(Object value : (List<?>) values) {
+            texts.add(value.toString());
+        }
+        return texts;
+    }
+
+    private static List<Key> valuesToKeys(Object values) {
+        List<Key> keys = new ArrayList<>();
+        for(Object value : (List<?>) values) {
+            keys.add(valueToKey(value));
+        }
+        return keys;
+    }
+
     private static Key valueToKey(Object value) {
         if(value instanceof Long) {
             return new LongKey((long) value);
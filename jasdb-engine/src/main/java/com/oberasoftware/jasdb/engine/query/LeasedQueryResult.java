@@ -0,0 +1,92 @@
+package com.oberasoftware.jasdb.engine.query;
+
+import com.oberasoftware.jasdb.api.session.Entity;
+import com.oberasoftware.jasdb.api.session.query.QueryResult;
+import com.oberasoftware.jasdb.core.concurrency.ResourceLockManager;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps a shared lock on the bag for as long as the keys of the query result are read from its cursors, so
+ * the bag cannot be closed or flushed underneath the result. The lock is released once when the result is
+ * closed, when the last entity has been iterated or when the size has read all remaining keys.
+ *
+ * @author Renze de Vries
+ */
+public class LeasedQueryResult implements QueryResult {
+    private final QueryResult queryResult;
+    private final ResourceLockManager resourceLockManager;
+    private final AtomicBoolean leased = new AtomicBoolean(true);
+
+    /**
+     * @param queryResult The query result reading from the bag
+     * @param resourceLockManager The lock manager of the bag, a shared lock has to be held already and is
+     *                            released by this result
+     */
+    public LeasedQueryResult(QueryResult queryResult, ResourceLockManager resourceLockManager) {
+        this.queryResult = queryResult;
+        this.resourceLockManager = resourceLockManager;
+    }
+
+    @Override
+    public long size() {
+        try {
+            return queryResult.size();
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public Iterator<Entity> iterator() {
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        boolean hasNext = queryResult.hasNext();
+        if(!hasNext) {
+            release();
+        }
+        return hasNext;
+    }
+
+    @Override
+    public Entity next() {
+        Entity entity = queryResult.next();
+        if(!queryResult.hasNext()) {
+            release();
+        }
+        return entity;
+    }
+
+    @Override
+    public void remove() {
+        queryResult.remove();
+    }
+
+    @Override
+    public void close() {
+        try {
+            queryResult.close();
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return queryResult.isClosed();
+    }
+
+    public boolean isLeased() {
+        return leased.get();
+    }
+
+    private void release() {
+        if(leased.compareAndSet(true, false)) {
+            resourceLockManager.sharedUnlock();
+        }
+    }
+}
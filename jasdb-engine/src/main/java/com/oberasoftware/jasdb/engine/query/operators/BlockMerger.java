@@ -8,10 +8,10 @@
 package com.oberasoftware.jasdb.engine.query.operators;
 
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
-import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIteratorCollection;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
 
 public interface BlockMerger {
-	public IndexSearchResultIteratorCollection mergeIterators(IndexSearchResultIteratorCollection mergeInto, IndexSearchResultIteratorCollection... results) throws JasDBStorageException;
+	public KeyCursor mergeCursors(KeyCursor mergeInto, KeyCursor results) throws JasDBStorageException;
 	
 	public boolean includeResult(boolean leftResultFound, boolean rightResultFound);
 
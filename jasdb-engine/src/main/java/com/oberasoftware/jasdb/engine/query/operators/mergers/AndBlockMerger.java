@@ -7,20 +7,9 @@
  */
 package com.oberasoftware.jasdb.engine.query.operators.mergers;
 
-import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
-import com.oberasoftware.jasdb.api.index.keys.Key;
-import com.oberasoftware.jasdb.core.index.keys.KeyUtil;
-import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
-import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIteratorCollection;
-import com.oberasoftware.jasdb.core.index.query.IndexSearchResultIteratorImpl;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
 import com.oberasoftware.jasdb.engine.query.operators.BlockMerger;
-
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import com.oberasoftware.jasdb.engine.search.cursors.IntersectKeyCursor;
 
 public class AndBlockMerger implements BlockMerger {
 
@@ -35,50 +24,7 @@ public class AndBlockMerger implements BlockMerger {
     }
 
     @Override
-	public IndexSearchResultIteratorCollection mergeIterators(IndexSearchResultIteratorCollection mergeInto, IndexSearchResultIteratorCollection... results)
-            throws JasDBStorageException {
-        List<Key> mergeIntoKeys = new LinkedList<>();
-        for(Key mergeKey : mergeInto.getKeys()) {
-            mergeIntoKeys.add(mergeKey.cloneKey(true));
-        }
-
-        KeyNameMapper keyNameMapper = mergeInto.getKeyNameMapper();
-
-		for(IndexSearchResultIteratorCollection collection : results) {
-			mergeCollection(collection, mergeIntoKeys, keyNameMapper);
-		}
-		
-		return new IndexSearchResultIteratorImpl(mergeIntoKeys, keyNameMapper);
-	}
-
-	private void mergeCollection(IndexSearchResultIteratorCollection collection, List<Key> mergeIntoKeys, KeyNameMapper keyNameMapper)
-            throws JasDBStorageException {
-		Map<Key, Key> collectionKeys = new HashMap<>(mergeIntoKeys.size());
-		for(Key collectionKey : collection) {
-			collectionKeys.put(KeyUtil.getDocumentKey(collection.getKeyNameMapper(), collectionKey), collectionKey);
-		}
-
-		for(Iterator<Key> mergeIterator = mergeIntoKeys.iterator(); mergeIterator.hasNext();) {
-			Key key = mergeIterator.next();
-            Key documentKey = KeyUtil.getDocumentKey(keyNameMapper, key);
-            if(!collectionKeys.containsKey(documentKey)) {
-                mergeIterator.remove();
-            } else {
-                mergeKeys(key, documentKey, collection.getKeyNameMapper(), keyNameMapper);
-            }
-		}
-	}
-	
-	private void mergeKeys(Key mergeInto, Key mergeFrom, KeyNameMapper sourceNameMapper, KeyNameMapper targetNameMapper) {
-        Set<String> sourceFields = sourceNameMapper.getFieldSet();
-        sourceFields.removeAll(targetNameMapper.getFieldSet());
-
-        if(!sourceFields.isEmpty()) {
-            for(String sourceField : sourceFields) {
-                targetNameMapper.addMappedField(sourceField);
-
-                mergeInto.addKey(targetNameMapper, sourceField, mergeFrom);
-            }
-        }
+	public KeyCursor mergeCursors(KeyCursor mergeInto, KeyCursor results) {
+		return new IntersectKeyCursor(mergeInto, results);
 	}
 }
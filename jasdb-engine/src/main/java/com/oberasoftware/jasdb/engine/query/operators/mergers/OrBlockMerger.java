@@ -1,12 +1,8 @@
 package com.oberasoftware.jasdb.engine.query.operators.mergers;
 
-import com.oberasoftware.jasdb.api.index.keys.Key;
-import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIteratorCollection;
-import com.oberasoftware.jasdb.core.index.query.IndexSearchResultIteratorImpl;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
 import com.oberasoftware.jasdb.engine.query.operators.BlockMerger;
-
-import java.util.ArrayList;
-import java.util.List;
+import com.oberasoftware.jasdb.engine.search.cursors.UnionKeyCursor;
 
 public class OrBlockMerger implements BlockMerger {
 	@Override
@@ -20,18 +16,7 @@ public class OrBlockMerger implements BlockMerger {
     }
 
     @Override
-	public IndexSearchResultIteratorCollection mergeIterators(IndexSearchResultIteratorCollection mergeInto, IndexSearchResultIteratorCollection... results) {
-		List<Key> mergedKeys = new ArrayList<>(mergeInto.getKeys());
-		for(IndexSearchResultIteratorCollection collection : results) {
-			mergeInto(mergedKeys, collection);
-		}
-
-		return new IndexSearchResultIteratorImpl(mergedKeys, mergeInto.getKeyNameMapper());
-	}
-	
-	private void mergeInto(List<Key> mergeInto, IndexSearchResultIteratorCollection from) {
-		for(Key key : from) {
-			mergeInto.add(key);
-		}
+	public KeyCursor mergeCursors(KeyCursor mergeInto, KeyCursor results) {
+		return new UnionKeyCursor(mergeInto, results);
 	}
 }
@@ -0,0 +1,114 @@
+package com.oberasoftware.jasdb.engine.search;
+
+import com.oberasoftware.jasdb.api.session.Entity;
+import com.oberasoftware.jasdb.api.session.Property;
+import com.oberasoftware.jasdb.api.session.Value;
+import com.oberasoftware.jasdb.api.session.query.AggregateGroup;
+import com.oberasoftware.jasdb.api.session.query.Aggregation;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates the values of the aggregated fields of the entities in a single group, only the count, sum and
+ * bounds of every field are kept.
+ *
+ * @author Renze de Vries
+ */
+class AggregateAccumulator {
+    /**
+     * Orders values of the same type by their natural order and numbers by their long value, values of different
+     * types are ordered by their type and null values last.
+     */
+    static final Comparator<Object> VALUE_ORDER = Comparator.nullsLast(AggregateAccumulator::compareValues);
+
+    private final Object groupValue;
+    private final List<Aggregation> aggregations;
+    private final Map<String, FieldValues> fieldValues = new HashMap<>();
+    private long count;
+
+    AggregateAccumulator(Object groupValue, List<Aggregation> aggregations) {
+        this.groupValue = groupValue;
+        this.aggregations = aggregations;
+        for(Aggregation aggregation : aggregations) {
+            fieldValues.put(aggregation.getField(), new FieldValues());
+        }
+    }
+
+    Object getGroupValue() {
+        return groupValue;
+    }
+
+    void addEntity(Entity entity) {
+        count++;
+        for(Map.Entry<String, FieldValues> field : fieldValues.entrySet()) {
+            Property property = entity.getProperty(field.getKey());
+            if(property != null) {
+                for(Value value : property.getValues()) {
+                    field.getValue().addValue(value.getValue());
+                }
+            }
+        }
+    }
+
+    AggregateGroup toGroup() {
+        AggregateGroup group = new AggregateGroup(groupValue);
+        group.setCount(count);
+        for(Aggregation aggregation : aggregations) {
+            FieldValues values = fieldValues.get(aggregation.getField());
+            switch(aggregation.getFunction()) {
+                case SUM:
+                    group.setValue(aggregation, values.numbers > 0 ? values.sum : null);
+                    break;
+                case AVG:
+                    group.setValue(aggregation, values.numbers > 0 ? (double) values.sum / values.numbers : null);
+                    break;
+                case MIN:
+                    group.setValue(aggregation, values.min);
+                    break;
+                case MAX:
+                    group.setValue(aggregation, values.max);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return group;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object value, Object otherValue) {
+        if(value instanceof Number && otherValue instanceof Number) {
+            return Long.compare(((Number) value).longValue(), ((Number) otherValue).longValue());
+        } else if(value.getClass().equals(otherValue.getClass()) && value instanceof Comparable) {
+            return ((Comparable<Object>) value).compareTo(otherValue);
+        }
+        return value.getClass().getName().compareTo(otherValue.getClass().getName());
+    }
+
+    private static final class FieldValues {
+        private long sum;
+        private long numbers;
+        private Object min;
+        private Object max;
+
+        private void addValue(Object value) {
+            if(value == null) {
+                return;
+            }
+
+            if(value instanceof Number) {
+                sum += ((Number) value).longValue();
+                numbers++;
+            }
+            if(min == null || VALUE_ORDER.compare(value, min) < 0) {
+                min = value;
+            }
+            if(max == null || VALUE_ORDER.compare(value, max) > 0) {
+                max = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.oberasoftware.jasdb.engine.search;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The chosen way of evaluating the conditions of a single query block. A block is either evaluated by searching
+ * one or more indexes and merging their results, optionally followed by fetching the records to evaluate the
+ * fields that are not covered by an index, or by scanning all the records of the bag.
+ *
+ * @author Renze de Vries
+ */
+public class BlockPlan {
+    public enum AccessType {
+        /**
+         * The block has no conditions of its own, only child blocks
+         */
+        NONE,
+        /**
+         * The block has no conditions at all and matches every record
+         */
+        FIND_ALL,
+        INDEX,
+        TABLE_SCAN
+    }
+
+    private final AccessType accessType;
+    private final List<IndexStep> indexSteps;
+    private final Set<String> filterFields;
+    private final long estimatedRows;
+    private final double cost;
+
+    public BlockPlan(AccessType accessType, List<IndexStep> indexSteps, Set<String> filterFields, long estimatedRows, double cost) {
+        this.accessType = accessType;
+        this.indexSteps = indexSteps;
+        this.filterFields = filterFields;
+        this.estimatedRows = estimatedRows;
+        this.cost = cost;
+    }
+
+    public static BlockPlan noConditions() {
+        return new BlockPlan(AccessType.NONE, Collections.emptyList(), Collections.emptySet(), 0, 0);
+    }
+
+    public AccessType getAccessType() {
+        return accessType;
+    }
+
+    /**
+     * @return The index searches in the order they are executed
+     */
+    public List<IndexStep> getIndexSteps() {
+        return indexSteps;
+    }
+
+    /**
+     * @return The fields evaluated against the records, for a table scan these are all the fields of the block
+     */
+    public Set<String> getFilterFields() {
+        return filterFields;
+    }
+
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockPlan{" +
+                "accessType=" + accessType +
+                ", indexSteps=" + indexSteps +
+                ", filterFields=" + filterFields +
+                ", estimatedRows=" + estimatedRows +
+                ", cost=" + cost +
+                '}';
+    }
+}
@@ -0,0 +1,70 @@
+package com.oberasoftware.jasdb.engine.search;
+
+import com.oberasoftware.jasdb.api.index.Index;
+import com.oberasoftware.jasdb.api.index.query.SearchCondition;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A search of a single index as part of a block plan, the results of all conditions are merged using the
+ * merger of the block.
+ *
+ * @author Renze de Vries
+ */
+public class IndexStep {
+    private final Index index;
+    private final Map<SearchCondition, Long> conditionEstimates;
+    private final Set<String> coveredFields;
+    private final long estimatedRows;
+    private final double cost;
+
+    public IndexStep(Index index, Map<SearchCondition, Long> conditionEstimates, Set<String> coveredFields, long estimatedRows, double cost) {
+        this.index = index;
+        this.conditionEstimates = conditionEstimates;
+        this.coveredFields = coveredFields;
+        this.estimatedRows = estimatedRows;
+        this.cost = cost;
+    }
+
+    public Index getIndex() {
+        return index;
+    }
+
+    public Set<SearchCondition> getConditions() {
+        return conditionEstimates.keySet();
+    }
+
+    /**
+     * @return The estimated amount of keys matching the condition in the index
+     */
+    public long getEstimatedMatches(SearchCondition condition) {
+        Long estimate = conditionEstimates.get(condition);
+        return estimate != null ? estimate : -1;
+    }
+
+    /**
+     * @return The fields of the block that are evaluated by searching the index
+     */
+    public Set<String> getCoveredFields() {
+        return coveredFields;
+    }
+
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexStep{" +
+                "index=" + index.getName() +
+                ", coveredFields=" + coveredFields +
+                ", estimatedRows=" + estimatedRows +
+                ", cost=" + cost +
+                '}';
+    }
+}
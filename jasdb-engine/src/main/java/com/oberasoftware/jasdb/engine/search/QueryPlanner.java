@@ -0,0 +1,246 @@
+package com.oberasoftware.jasdb.engine.search;
+
+import com.oberasoftware.jasdb.api.engine.IndexManager;
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.Index;
+import com.oberasoftware.jasdb.api.index.IndexStatistics;
+import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
+import com.oberasoftware.jasdb.api.index.query.SearchCondition;
+import com.oberasoftware.jasdb.api.storage.RecordWriter;
+import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+import com.oberasoftware.jasdb.engine.query.operators.BlockOperation;
+import com.oberasoftware.jasdb.engine.query.operators.OrBlock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chooses how the conditions of a query block are evaluated based on the estimated cost. The amount of keys
+ * matching a condition is estimated from the statistics of the index, the planner then decides which indexes to
+ * search and in which order, whether to intersect the results of another index or to evaluate the remaining
+ * fields against the fetched records, or to scan all the records of the bag instead.
+ *
+ * Costs are expressed relative to loading a single record.
+ *
+ * @author Renze de Vries
+ */
+public class QueryPlanner {
+    private static final Logger LOG = LoggerFactory.getLogger(QueryPlanner.class);
+
+    static final double RECORD_FETCH_COST = 1.0;
+    static final double TABLE_SCAN_RECORD_COST = 0.8;
+    static final double INDEX_SEARCH_COST = 2.0;
+    static final double INDEX_KEY_COST = 0.02;
+    static final double MERGE_KEY_COST = 0.01;
+
+    /**
+     * The fraction of the index expected to match a condition when the index provides no statistics
+     */
+    static final double DEFAULT_SELECTIVITY = 0.1;
+
+    private final String bagName;
+    private final IndexManager indexManager;
+    private final RecordWriter<UUIDKey> recordWriter;
+
+    public QueryPlanner(String bagName, IndexManager indexManager, RecordWriter<UUIDKey> recordWriter) {
+        this.bagName = bagName;
+        this.indexManager = indexManager;
+        this.recordWriter = recordWriter;
+    }
+
+    public BlockPlan planBlock(BlockOperation blockOperation) throws JasDBStorageException {
+        Set<String> fields = blockOperation.getFields();
+        if(fields.isEmpty()) {
+            if(blockOperation.isEmpty()) {
+                return new BlockPlan(BlockPlan.AccessType.FIND_ALL, Collections.emptyList(), Collections.emptySet(),
+                        recordWriter.getSize(), recordWriter.getSize() * TABLE_SCAN_RECORD_COST);
+            } else {
+                return BlockPlan.noConditions();
+            }
+        }
+
+        long records = recordWriter.getSize();
+        BlockPlan plan;
+        if(blockOperation instanceof OrBlock) {
+            plan = planUnion(blockOperation, fields, records);
+        } else {
+            plan = planIntersection(blockOperation, fields, records);
+        }
+        LOG.debug("Planned block: {} as: {}", blockOperation, plan);
+
+        return plan;
+    }
+
+    private BlockPlan tableScan(Set<String> fields, long records) {
+        return new BlockPlan(BlockPlan.AccessType.TABLE_SCAN, Collections.emptyList(), fields,
+                records, records * TABLE_SCAN_RECORD_COST);
+    }
+
+    /**
+     * All conditions of the block need to match, the most selective index is searched first and further indexes
+     * are only intersected when that is cheaper than evaluating their fields against the fetched records.
+     */
+    private BlockPlan planIntersection(BlockOperation blockOperation, Set<String> fields, long records) throws JasDBStorageException {
+        List<IndexStep> candidates = new ArrayList<>();
+        for(Index index : getIndexes().values()) {
+            IndexStep candidate = createIntersectionStep(blockOperation, index, fields);
+            if(candidate != null) {
+                candidates.add(candidate);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(IndexStep::getEstimatedRows).thenComparingDouble(IndexStep::getCost));
+
+        BlockPlan scanPlan = tableScan(fields, records);
+        if(candidates.isEmpty()) {
+            return scanPlan;
+        }
+
+        IndexStep first = candidates.get(0);
+        Set<String> remainingFields = new HashSet<>(fields);
+        remainingFields.removeAll(first.getCoveredFields());
+
+        long rows = first.getEstimatedRows();
+        double cost = first.getCost() + filterCost(remainingFields, rows);
+        if(cost >= scanPlan.getCost()) {
+            return scanPlan;
+        }
+
+        List<IndexStep> steps = new ArrayList<>();
+        steps.add(first);
+        for(IndexStep candidate : candidates.subList(1, candidates.size())) {
+            Set<String> uncovered = new HashSet<>(remainingFields);
+            uncovered.removeAll(candidate.getCoveredFields());
+            if(uncovered.size() == remainingFields.size()) {
+                continue;
+            }
+
+            //assumes the conditions on different fields are independent of each other
+            long intersectedRows = records > 0 ? Math.max(1, rows * candidate.getEstimatedRows() / records) : 0;
+            double intersectCost = candidate.getCost() + (rows + candidate.getEstimatedRows()) * MERGE_KEY_COST
+                    + filterCost(uncovered, intersectedRows);
+            if(intersectCost < filterCost(remainingFields, rows)) {
+                steps.add(candidate);
+                cost = cost - filterCost(remainingFields, rows) + intersectCost;
+                remainingFields = uncovered;
+                rows = intersectedRows;
+            }
+        }
+
+        return new BlockPlan(BlockPlan.AccessType.INDEX, steps, remainingFields, rows, cost);
+    }
+
+    private IndexStep createIntersectionStep(BlockOperation blockOperation, Index index, Set<String> fields) throws JasDBStorageException {
+        KeyInfo keyInfo = index.getKeyInfo();
+        List<String> keyFields = keyInfo.getKeyFields();
+        if(index.match(fields) <= 0 || !fields.contains(keyFields.get(0))) {
+            return null;
+        }
+
+        Set<String> coveredFields = new HashSet<>(keyFields);
+        coveredFields.retainAll(fields);
+
+        IndexStatistics statistics = index.getStatistics();
+        long indexKeys = index.count();
+        long rows = indexKeys;
+        Map<SearchCondition, Long> conditionEstimates = new LinkedHashMap<>();
+        for(SearchCondition condition : blockOperation.getConditions(keyInfo.getKeyNameMapper(), keyFields)) {
+            if(condition == null) {
+                //the conditions of the key fields could not be combined in a single search of the index
+                return null;
+            } else if(!index.supportsCondition(condition)) {
+                return null;
+            }
+            long matches = estimateMatches(statistics, indexKeys, condition);
+            conditionEstimates.put(condition, matches);
+            rows = Math.min(rows, matches);
+        }
+
+        return new IndexStep(index, conditionEstimates, coveredFields, rows, indexCost(conditionEstimates.size(), rows));
+    }
+
+    /**
+     * Any of the conditions of the block can match, this can only be done using indexes when there is an index
+     * for every field, otherwise all records need to be scanned anyway.
+     */
+    private BlockPlan planUnion(BlockOperation blockOperation, Set<String> fields, long records) throws JasDBStorageException {
+        Map<String, Index> indexes = getIndexes();
+
+        List<IndexStep> steps = new ArrayList<>();
+        long rows = 0;
+        double cost = 0;
+        for(String field : fields) {
+            IndexStep fieldStep = null;
+            for(Index index : indexes.values()) {
+                IndexStep candidate = createUnionStep(blockOperation, index, field);
+                if(candidate != null && (fieldStep == null || candidate.getCost() < fieldStep.getCost())) {
+                    fieldStep = candidate;
+                }
+            }
+
+            if(fieldStep == null) {
+                return tableScan(fields, records);
+            }
+            steps.add(fieldStep);
+            rows += fieldStep.getEstimatedRows();
+            cost += fieldStep.getCost() + fieldStep.getEstimatedRows() * MERGE_KEY_COST;
+        }
+
+        BlockPlan scanPlan = tableScan(fields, records);
+        if(cost >= scanPlan.getCost()) {
+            return scanPlan;
+        }
+        steps.sort(Comparator.comparingLong(IndexStep::getEstimatedRows));
+        return new BlockPlan(BlockPlan.AccessType.INDEX, steps, Collections.emptySet(), Math.min(rows, records), cost);
+    }
+
+    private IndexStep createUnionStep(BlockOperation blockOperation, Index index, String field) throws JasDBStorageException {
+        List<String> keyFields = index.getKeyInfo().getKeyFields();
+        if(!keyFields.get(0).equals(field)) {
+            return null;
+        }
+
+        IndexStatistics statistics = index.getStatistics();
+        long indexKeys = index.count();
+        long rows = 0;
+        Map<SearchCondition, Long> conditionEstimates = new LinkedHashMap<>();
+        for(SearchCondition condition : blockOperation.getConditions(field)) {
+            if(!index.supportsCondition(condition)) {
+                return null;
+            }
+            long matches = estimateMatches(statistics, indexKeys, condition);
+            conditionEstimates.put(condition, matches);
+            rows += matches;
+        }
+        rows = Math.min(rows, indexKeys);
+
+        return new IndexStep(index, conditionEstimates, Collections.singleton(field), rows, indexCost(conditionEstimates.size(), rows));
+    }
+
+    private Map<String, Index> getIndexes() throws JasDBStorageException {
+        return indexManager.getIndexes(bagName);
+    }
+
+    private static long estimateMatches(IndexStatistics statistics, long indexKeys, SearchCondition condition) {
+        if(statistics != null) {
+            return statistics.estimateMatches(condition);
+        } else {
+            return (long) Math.ceil(indexKeys * DEFAULT_SELECTIVITY);
+        }
+    }
+
+    private static double indexCost(int searches, long rows) {
+        return searches * INDEX_SEARCH_COST + rows * INDEX_KEY_COST;
+    }
+
+    private static double filterCost(Set<String> filterFields, long rows) {
+        return filterFields.isEmpty() ? 0 : rows * RECORD_FETCH_COST;
+    }
+}
@@ -15,32 +15,79 @@ import com.oberasoftware.jasdb.api.exceptions.RuntimeJasDBException;
 import com.oberasoftware.jasdb.api.storage.RecordResult;
 import com.oberasoftware.jasdb.api.storage.RecordWriter;
 import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
 import com.oberasoftware.jasdb.core.index.keys.KeyUtil;
+import com.oberasoftware.jasdb.core.index.keys.LongKey;
 import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
-import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIterator;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
 import com.oberasoftware.jasdb.api.index.query.SearchLimit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
 
 public class QueryResultIteratorImpl implements QueryResult {
 	private Logger log = LoggerFactory.getLogger(QueryResultIteratorImpl.class);
 	
-	private IndexSearchResultIterator indexIterator;
+	private KeyCursor keyCursor;
 	private SearchLimit limit;
 	private int currentIndex = 0;
     private RecordWriter<UUIDKey> recordWriter;
+    private List<Key> bufferedKeys;
+    private boolean closed = false;
+
+    private Set<String> selectedFields;
+    private Set<String> readFields;
+    private boolean keysCoverSelection = false;
 	
-	protected QueryResultIteratorImpl(IndexSearchResultIterator indexIterator, SearchLimit limit, RecordWriter<UUIDKey> recordWriter) {
-		this.indexIterator = indexIterator;
+	protected QueryResultIteratorImpl(KeyCursor keyCursor, SearchLimit limit, RecordWriter<UUIDKey> recordWriter) {
+		this(keyCursor, limit, recordWriter, null, Collections.emptySet());
+	}
+
+	/**
+	 * @param selectedFields The fields the entities of the result are limited to, null for complete entities
+	 * @param singleValuedFields The fields that have a single value in every document, the entities are only
+	 *                           created from the keys when all selected fields are single valued
+	 */
+	protected QueryResultIteratorImpl(KeyCursor keyCursor, SearchLimit limit, RecordWriter<UUIDKey> recordWriter,
+									  Set<String> selectedFields, Set<String> singleValuedFields) {
+		this.keyCursor = keyCursor;
 		this.limit = limit;
         this.recordWriter = recordWriter;
+
+        if(selectedFields != null) {
+            this.selectedFields = new HashSet<>(selectedFields);
+            this.selectedFields.remove(SimpleEntity.DOCUMENT_ID);
+
+            this.readFields = new HashSet<>();
+            this.readFields.add(SimpleEntity.DOCUMENT_ID);
+            for(String field : this.selectedFields) {
+                int separator = field.indexOf('.');
+                readFields.add(separator != -1 ? field.substring(0, separator) : field);
+            }
+
+            KeyNameMapper keyNameMapper = keyCursor.getKeyNameMapper();
+            this.keysCoverSelection = this.selectedFields.stream().allMatch(field -> !field.contains(".")
+                    && keyNameMapper.isMapped(field) && singleValuedFields.contains(field));
+        }
 	}
 	
 	@Override
 	public boolean hasNext() {
-		return indexIterator != null && indexIterator.hasNext() && !limit.isMaxReached(currentIndex);
+		return !closed && hasNextKey() && !limit.isMaxReached(currentIndex);
+	}
+
+	private boolean hasNextKey() {
+		return bufferedKeys != null ? !bufferedKeys.isEmpty() : keyCursor.hasNext();
+	}
+
+	private Key nextKey() {
+		return bufferedKeys != null ? bufferedKeys.remove(0) : keyCursor.next();
 	}
 
 	@Override
@@ -48,13 +95,20 @@ public class QueryResultIteratorImpl implements QueryResult {
 		if(hasNext()) {
 			if(!limit.isMaxReached(currentIndex)) {
 				currentIndex++;
-				Key key = indexIterator.next();
+				Key key = nextKey();
 				try {
-                    UUIDKey documentKey = KeyUtil.getDocumentKey(indexIterator.getKeyNameMapper(), key);
+                    UUIDKey documentKey = KeyUtil.getDocumentKey(keyCursor.getKeyNameMapper(), key);
+                    if(keysCoverSelection) {
+                        Entity entity = keyToEntity(key, documentKey);
+                        if(entity != null) {
+                            return entity;
+                        }
+                    }
 
 					RecordResult result = recordWriter.readRecord(documentKey);
 					if(result.isRecordFound()) {
-						return SimpleEntity.fromStream(result.getStream());
+						return selectedFields != null ? SimpleEntity.fromStream(result.getStream(), readFields, (entity, field) -> true)
+                                : SimpleEntity.fromStream(result.getStream());
 					} else {
 						log.warn("Could not find record: {}", documentKey);
 					}
@@ -65,9 +119,44 @@ public class QueryResultIteratorImpl implements QueryResult {
 		}
 		return null;
 	}
-	
+
+    /**
+     * Creates the entity with the selected fields from the values held by the key of the index. Only long and
+     * document id values are held exactly by an index, string values are normalized and a missing long value is
+     * held as 0, in which case the record needs to be read.
+     * @return The entity with the selected fields, null if the key does not hold all selected values exactly
+     */
+    private Entity keyToEntity(Key key, UUIDKey documentKey) {
+        KeyNameMapper keyNameMapper = keyCursor.getKeyNameMapper();
+        Key[] values = key.getKeys();
+        SimpleEntity entity = new SimpleEntity(documentKey.getValue());
+        for(String field : selectedFields) {
+            int index = keyNameMapper.getIndexForField(field);
+            Key value = values != null && index < values.length ? values[index] : null;
+            if(value instanceof LongKey && ((LongKey) value).getKey() != 0) {
+                entity.addProperty(field, ((LongKey) value).getKey());
+            } else if(value instanceof UUIDKey) {
+                entity.addProperty(field, ((UUIDKey) value).getValue());
+            } else {
+                return null;
+            }
+        }
+        return entity;
+    }
+
+	/**
+	 * The size of the result including the entities already iterated, the remaining keys of the result are
+	 * evaluated to determine the size.
+	 * @return The total amount of entities in the result
+	 */
 	public long size() {
-		return indexIterator.size();
+		if(bufferedKeys == null) {
+			bufferedKeys = new LinkedList<>();
+			while(!closed && keyCursor.hasNext()) {
+				bufferedKeys.add(keyCursor.next());
+			}
+		}
+		return currentIndex + bufferedKeys.size();
 	}
 
 	@Override
@@ -75,10 +164,6 @@ public class QueryResultIteratorImpl implements QueryResult {
 		log.warn("Remove operation on ResultIterator not implemented");
 		//not implemented
 	}
-	
-	public void reset() {
-		this.indexIterator.reset();
-	}
 
 	@Override
 	public Iterator<Entity> iterator() {
@@ -87,11 +172,12 @@ public class QueryResultIteratorImpl implements QueryResult {
 
     @Override
     public void close() {
-
+        closed = true;
+        keyCursor.close();
     }
 
     @Override
     public boolean isClosed() {
-        return false;
+        return closed;
     }
 }
@@ -1,15 +1,29 @@
 package com.oberasoftware.jasdb.engine.search;
 
 import com.oberasoftware.jasdb.api.session.Entity;
+import com.oberasoftware.jasdb.engine.TableScanExecutor;
+import com.oberasoftware.jasdb.engine.indexing.IndexTypes;
 import com.oberasoftware.jasdb.engine.query.operators.BlockMerger;
 import com.oberasoftware.jasdb.engine.query.operators.BlockOperation;
-import com.oberasoftware.jasdb.engine.query.operators.DistinctCollectionUtil;
+import com.oberasoftware.jasdb.engine.query.operators.OrBlock;
+import com.oberasoftware.jasdb.engine.search.cursors.DistinctKeyCursor;
+import com.oberasoftware.jasdb.engine.search.cursors.ExplainKeyCursor;
+import com.oberasoftware.jasdb.engine.search.cursors.LimitKeyCursor;
 import com.oberasoftware.jasdb.core.statistics.StatRecord;
 import com.oberasoftware.jasdb.core.statistics.StatisticsMonitor;
 import com.oberasoftware.jasdb.core.SimpleEntity;
 import com.oberasoftware.jasdb.api.engine.IndexManager;
 import com.oberasoftware.jasdb.api.session.Property;
+import com.oberasoftware.jasdb.api.session.Value;
+import com.oberasoftware.jasdb.api.session.query.AggregateFunction;
+import com.oberasoftware.jasdb.api.session.query.AggregateGroup;
+import com.oberasoftware.jasdb.api.session.query.Aggregation;
+import com.oberasoftware.jasdb.api.session.query.AggregationResult;
+import com.oberasoftware.jasdb.api.session.query.BlockExplain;
+import com.oberasoftware.jasdb.api.session.query.BlockType;
+import com.oberasoftware.jasdb.api.session.query.ExplainStep;
 import com.oberasoftware.jasdb.api.session.query.Order;
+import com.oberasoftware.jasdb.api.session.query.QueryExplain;
 import com.oberasoftware.jasdb.api.session.query.QueryResult;
 import com.oberasoftware.jasdb.api.session.query.SortParameter;
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
@@ -18,222 +32,616 @@ import com.oberasoftware.jasdb.api.storage.RecordWriter;
 import com.oberasoftware.jasdb.api.index.Index;
 import com.oberasoftware.jasdb.api.index.keys.Key;
 import com.oberasoftware.jasdb.core.index.keys.KeyUtil;
+import com.oberasoftware.jasdb.core.index.keys.LongKey;
 import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
-import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
 import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
 import com.oberasoftware.jasdb.core.index.keys.keyinfo.KeyNameMapperImpl;
-import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIterator;
-import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIteratorCollection;
-import com.oberasoftware.jasdb.core.index.query.IndexSearchResultIteratorImpl;
+import com.oberasoftware.jasdb.core.index.query.RangeCondition;
+import com.oberasoftware.jasdb.api.index.query.IteratorKeyCursor;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
 import com.oberasoftware.jasdb.api.index.query.SearchLimit;
 import com.oberasoftware.jasdb.api.index.query.SearchCondition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 public class QuerySearchOperation {
 	private static final Logger LOG = LoggerFactory.getLogger(QuerySearchOperation.class);
 	
-	private RecordWriter<UUIDKey> recordWriter;
-	private IndexManager indexManager;
 	private String bagName;
+	private IndexManager indexManager;
+	private RecordWriter<UUIDKey> recordWriter;
+	private QueryPlanner queryPlanner;
+	private TableScanOperation tableScanOperation;
+
+	private QueryExplain queryExplain;
+	private long recordsFetched = 0;
+	private boolean sortedByIndex = false;
 	
 	public QuerySearchOperation(String bagName, IndexManager indexManager, RecordWriter<UUIDKey> recordWriter) {
-		this.recordWriter = recordWriter;
+		this(bagName, indexManager, recordWriter, null);
+	}
+
+	public QuerySearchOperation(String bagName, IndexManager indexManager, RecordWriter<UUIDKey> recordWriter,
+								TableScanExecutor tableScanExecutor) {
 		this.bagName = bagName;
 		this.indexManager = indexManager;
+		this.recordWriter = recordWriter;
+		this.queryPlanner = new QueryPlanner(bagName, indexManager, recordWriter);
+		this.tableScanOperation = new TableScanOperation(recordWriter, tableScanExecutor);
 	}
-	
+
+	/**
+	 * Opens the query, the blocks of the query are evaluated lazily as the entities are pulled from the
+	 * query result. Only sorting requires all keys matching the query to be evaluated up front, unless the
+	 * keys can be searched in the sort order from the index.
+	 */
 	public QueryResult search(BlockOperation blockOperation, SearchLimit limit, List<SortParameter> params) throws JasDBStorageException {
+		return search(blockOperation, limit, params, null);
+	}
+
+	/**
+	 * Opens the query with the entities of the result limited to the selected fields, when the keys of the results
+	 * hold the values of the selected fields and these fields hold a single value per document the entities are
+	 * created from the keys without reading the records.
+	 * @param selectedFields The fields to limit the entities to, null for complete entities
+	 */
+	public QueryResult search(BlockOperation blockOperation, SearchLimit limit, List<SortParameter> params, Set<String> selectedFields) throws JasDBStorageException {
+		long stageStart = System.nanoTime();
 		StatRecord record = StatisticsMonitor.createRecord("bag:search:blockHierarchy");
-		IndexSearchResultIteratorCollection results = doBlockHierarchy(blockOperation, limit);
+		SortParameter indexSortParam = params != null && params.size() == 1 ? params.get(0) : null;
+		KeyCursor results = doBlockHierarchy(blockOperation, null, indexSortParam);
 		record.stop();
+		stageStart = explainStage(QueryExplain.STAGE_BLOCKS, stageStart);
 
-        results = results != null ? results : new IndexSearchResultIteratorImpl(new ArrayList<>(0), new KeyNameMapperImpl());
+        results = results != null ? results : new IteratorKeyCursor(Collections.emptyIterator(), new KeyNameMapperImpl());
 
-		if(params != null && !params.isEmpty()) {
+		if(sortedByIndex) {
+			explainSortMethod(QueryExplain.SORT_INDEX);
+		} else if(params != null && !params.isEmpty()) {
 			record = StatisticsMonitor.createRecord("bag:search:sort");
-			results = doSort(results, params);
+			results = doSort(results, params, limit);
 			record.stop();
+			explainStage(QueryExplain.STAGE_SORT, stageStart);
 		}
-        
+
+        results = new DistinctKeyCursor(results);
         if(limit.getBegin() >= 0 && limit.getMax() > 0) {
-            List<Key> k = results.subset(limit.getBegin(), limit.getMax());
-            results = new IndexSearchResultIteratorImpl(k, results.getKeyNameMapper());
+            results = new LimitKeyCursor(results, limit.getBegin(), limit.getMax());
         }
-        results = DistinctCollectionUtil.distinct(results);
 
-        return new QueryResultIteratorImpl(results, limit, this.recordWriter);
+        return new QueryResultIteratorImpl(results, limit, this.recordWriter, selectedFields,
+				selectedFields != null ? getSingleValuedFields() : Collections.emptySet());
 	}
-	
-	private IndexSearchResultIteratorCollection doSort(IndexSearchResultIteratorCollection results, List<SortParameter> params) throws JasDBStorageException {
-		Set<String> requiredKeys = new HashSet<>();
-		for(SortParameter sortParam : params) {
-			String paramField = sortParam.getField();
-			if(!results.getKeyNameMapper().isMapped(paramField)) {
-				LOG.debug("Sorting field: {} not present in index results following keys present: {}", paramField, results.getKeyNameMapper());
-				requiredKeys.add(paramField);
+
+	/**
+	 * A document gets a key in a btree index for every value of the key fields, a document with more than one
+	 * value is indexed regardless of the other key fields and counted as multi valued by the index. The key fields
+	 * of an index without multi valued documents have a single value in every document. The keys of the result
+	 * only hold one value per field, so only these fields can be taken from the keys.
+	 * @return The fields known to have a single value in every document of the bag
+	 */
+	private Set<String> getSingleValuedFields() throws JasDBStorageException {
+		Set<String> fields = new HashSet<>();
+		for(Index index : indexManager.getIndexes(bagName).values()) {
+			if(index.getIndexType() == IndexTypes.BTREE.getType() && index.getMultiValuedCount() == 0) {
+				fields.addAll(index.getKeyInfo().getKeyFields());
 			}
 		}
-		ensureSortingParams(results, requiredKeys);
-		
-		for(SortParameter sortParam : params) {
-            String field = sortParam.getField();
-            if(results.getKeyNameMapper().isMapped(field)) {
-                List<Key> sortedKeys = doMergeSort(results.getKeys(), sortParam.getField(), sortParam.getOrder(), results.getKeyNameMapper());
+		return fields;
+	}
 
-                results = new IndexSearchResultIteratorImpl(sortedKeys, results.getKeyNameMapper());
-            }
-		}
-		
-		return results;
+	/**
+	 * Executes the query while profiling every block and stage of the query
+	 * @return The profile of the executed query
+	 * @throws JasDBStorageException If unable to execute the query
+	 */
+	public QueryExplain explain(BlockOperation blockOperation, SearchLimit limit, List<SortParameter> params) throws JasDBStorageException {
+		queryExplain = new QueryExplain();
+		long start = System.nanoTime();
+		QueryResult result = search(blockOperation, limit, params);
+
+		long evaluateStart = System.nanoTime();
+		queryExplain.setResultSize(result.size());
+		explainStage(QueryExplain.STAGE_EVALUATE, evaluateStart);
+		result.close();
+
+		queryExplain.setTotalTime(toMicros(start));
+		queryExplain.setRecordsFetched(recordsFetched + tableScanOperation.getRecordsRead());
+
+		return queryExplain;
 	}
-	
-	private List<Key> doMergeSort(List<Key> results, final String field, final Order order, KeyNameMapper keyNameMapper) throws JasDBStorageException {
-		int listSize = results.size();
-		if(listSize > 1) {
-			int half = listSize / 2;
-			List<Key> left = results.subList(0, half);
-			left = doMergeSort(left, field, order, keyNameMapper);
-			
-			List<Key> right = results.subList(half, listSize);
-			right = doMergeSort(right, field, order, keyNameMapper);
-			
-			return merge(left, right, field, order, keyNameMapper);
-		} else {
-			return results;
+
+	/**
+	 * Counts the documents matching the query from the keys of the blocks, the records are only read when a
+	 * condition can not be evaluated using an index. A query without conditions matches all records of the bag.
+	 * @return The amount of documents matching the query
+	 * @throws JasDBStorageException If unable to execute the query
+	 */
+	public long count(BlockOperation blockOperation) throws JasDBStorageException {
+		if(isEmptyQuery(blockOperation)) {
+			return recordWriter.getSize();
+		}
+
+		KeyCursor results = doBlockHierarchy(blockOperation, null, null);
+		if(results == null) {
+			return 0;
 		}
+
+		long count = 0;
+		KeyCursor documents = new DistinctKeyCursor(results);
+		try {
+			while(documents.hasNext()) {
+				documents.next();
+				count++;
+			}
+		} finally {
+			documents.close();
+		}
+		return count;
 	}
-	
-	private List<Key> merge(List<Key> left, List<Key> right, final String field, final Order order, final KeyNameMapper keyNameMapper) {
-		List<Key> results = new ArrayList<>(left.size() + right.size());
-		int currentLeft = 0;
-		int currentRight = 0;
-		
-		int leftSize = left.size();
-		int rightSize = right.size();
-		
-		while(currentLeft < leftSize || currentRight < rightSize) {
-			if(currentLeft < leftSize && currentRight < rightSize) {
-				Key firstLeft = left.get(currentLeft);
-				Key firstRight = right.get(currentRight);
-
-				Key leftValue = firstLeft.getKey(keyNameMapper, field);
-				Key rightValue = firstRight.getKey(keyNameMapper, field);
-				
-				if((order == Order.ASCENDING && leftValue.compareTo(rightValue) <= 0) || (order == Order.DESCENDING && leftValue.compareTo(rightValue) >= 0)) {
-					results.add(firstLeft);
-					currentLeft++;
-				} else {
-					results.add(firstRight);
-					currentRight++;
+
+	/**
+	 * Aggregates the values of the fields over the documents matching the query. The minimum and maximum of all
+	 * documents are taken from the first key of an index on the field when possible, otherwise the query is
+	 * executed with only the aggregated fields selected, so the values are taken from the keys of a covering
+	 * index or only these fields are read from the records. The keys only hold one value of a field, so all
+	 * values of a multi valued field are always read from the records.
+	 * @param groupByField The field to group the documents by, null for a single group of all documents
+	 * @return The aggregated values per group, ordered by the group value
+	 * @throws JasDBStorageException If unable to execute the query
+	 */
+	public AggregationResult aggregate(BlockOperation blockOperation, String groupByField, List<Aggregation> aggregations) throws JasDBStorageException {
+		if(groupByField == null) {
+			AggregationResult boundsResult = isEmptyQuery(blockOperation) ? aggregateIndexBounds(aggregations) : null;
+			if(boundsResult != null) {
+				return boundsResult;
+			}
+			if(aggregations.isEmpty()) {
+				AggregationResult result = new AggregationResult();
+				AggregateGroup group = new AggregateGroup();
+				group.setCount(count(blockOperation));
+				result.addGroup(group);
+				return result;
+			}
+		}
+
+		Set<String> selectedFields = new HashSet<>();
+		for(Aggregation aggregation : aggregations) {
+			selectedFields.add(aggregation.getField());
+		}
+		if(groupByField != null) {
+			selectedFields.add(groupByField);
+		}
+
+		Map<Object, AggregateAccumulator> groups = new HashMap<>();
+		if(groupByField == null) {
+			groups.put(null, new AggregateAccumulator(null, aggregations));
+		}
+
+		QueryResult result = search(blockOperation, new SearchLimit(), null, selectedFields);
+		try {
+			for(Entity entity : result) {
+				for(Object groupValue : getGroupValues(entity, groupByField)) {
+					groups.computeIfAbsent(groupValue, value -> new AggregateAccumulator(value, aggregations)).addEntity(entity);
 				}
-			} else if(currentLeft < leftSize) {
-				results.add(left.get(currentLeft));
-				currentLeft++;
-			} else if(currentRight < rightSize) {
-				results.add(right.get(currentRight));
-				currentRight++;
 			}
+		} finally {
+			result.close();
 		}
-		
-		return results;
+
+		List<AggregateAccumulator> accumulators = new ArrayList<>(groups.values());
+		accumulators.sort(Comparator.comparing(AggregateAccumulator::getGroupValue, AggregateAccumulator.VALUE_ORDER));
+		AggregationResult aggregationResult = new AggregationResult(groupByField);
+		for(AggregateAccumulator accumulator : accumulators) {
+			aggregationResult.addGroup(accumulator.toGroup());
+		}
+		return aggregationResult;
 	}
-	
-	private IndexSearchResultIterator ensureSortingParams(IndexSearchResultIterator results, Set<String> requiredFields) throws JasDBStorageException {
-		if(!requiredFields.isEmpty()) {
-            KeyNameMapper keyNameMapper = results.getKeyNameMapper();
-			for(Key key : results) {
-				UUIDKey documentKey = KeyUtil.getDocumentKey(results.getKeyNameMapper(), key);
-				RecordResult recordResult = recordWriter.readRecord(documentKey);
-				Entity entity = SimpleEntity.fromStream(recordResult.getStream());
-				
-				for(String requiredField : requiredFields) {
-					Property property = entity.getProperty(requiredField);
-					if(property != null) {
-                        Key propertyKey = PropertyKeyMapper.mapToKey(property);
-                        keyNameMapper.addMappedField(requiredField);
-						key.addKey(keyNameMapper, requiredField, propertyKey);
+
+	/**
+	 * A document is part of the group of every distinct value of the group by field, or of the null group if it
+	 * has no value for the field
+	 */
+	private static Set<Object> getGroupValues(Entity entity, String groupByField) {
+		Set<Object> groupValues = new LinkedHashSet<>();
+		Property property = groupByField != null ? entity.getProperty(groupByField) : null;
+		if(property != null) {
+			for(Value value : property.getValues()) {
+				groupValues.add(value.getValue());
+			}
+		}
+		if(groupValues.isEmpty()) {
+			groupValues.add(null);
+		}
+		return groupValues;
+	}
+
+	/**
+	 * The minimum and maximum of a field over all documents are the first key of an index on that field in
+	 * ascending or descending order, only long values are held exactly by an index.
+	 * @return The result with the bounds of the fields, null if any of the aggregations can not be taken from an index
+	 */
+	private AggregationResult aggregateIndexBounds(List<Aggregation> aggregations) throws JasDBStorageException {
+		if(aggregations.isEmpty()) {
+			return null;
+		}
+
+		AggregateGroup group = new AggregateGroup();
+		group.setCount(recordWriter.getSize());
+		for(Aggregation aggregation : aggregations) {
+			Long bound;
+			if(aggregation.getFunction() == AggregateFunction.MIN) {
+				bound = getIndexBound(aggregation.getField(), Order.ASCENDING);
+			} else if(aggregation.getFunction() == AggregateFunction.MAX) {
+				bound = getIndexBound(aggregation.getField(), Order.DESCENDING);
+			} else {
+				return null;
+			}
+
+			if(bound == null) {
+				return null;
+			}
+			group.setValue(aggregation, bound);
+		}
+
+		AggregationResult result = new AggregationResult();
+		result.addGroup(group);
+		return result;
+	}
+
+	/**
+	 * A long value of 0 can also be a document without a value for the field, in which case the bound is unknown
+	 * @return The first long value of an index with the field as first key field, null if not available
+	 */
+	private Long getIndexBound(String field, Order order) throws JasDBStorageException {
+		for(Index index : indexManager.getIndexes(bagName).values()) {
+			List<String> keyFields = index.getKeyInfo().getKeyFields();
+			RangeCondition condition = new RangeCondition(null, true, null, true);
+			if(!keyFields.get(0).equals(field) || !index.supportsCondition(condition)) {
+				continue;
+			}
+
+			KeyCursor keys = index.searchCursor(condition, order);
+			try {
+				if(keys.hasNext()) {
+					Key key = keys.next();
+					Key value = keyFields.size() == 1 ? key : getSortValue(key, field, keys.getKeyNameMapper());
+					if(value instanceof LongKey && ((LongKey) value).getKey() != 0) {
+						return ((LongKey) value).getKey();
 					}
 				}
+			} finally {
+				keys.close();
 			}
-			
-			results.reset();
 		}
-		
-		return results;
+		return null;
+	}
+
+	private static boolean isEmptyQuery(BlockOperation blockOperation) {
+		if(!blockOperation.getConditions().isEmpty()) {
+			return false;
+		}
+		for(BlockOperation childBlock : blockOperation.getChildBlocks()) {
+			if(!isEmptyQuery(childBlock)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private long explainStage(String stage, long stageStart) {
+		if(queryExplain != null) {
+			queryExplain.addStageTime(stage, toMicros(stageStart));
+		}
+		return System.nanoTime();
+	}
+
+	private void explainSortMethod(String sortMethod) {
+		if(queryExplain != null) {
+			queryExplain.setSortMethod(sortMethod);
+		}
+	}
+
+	private static long toMicros(long startNanos) {
+		return (System.nanoTime() - startNanos) / 1000;
+	}
+
+	/**
+	 * Sorts the keys of the results, the fields to sort on that are not present in the keys are loaded
+	 * from the records. The keys are copied before adding these fields as the keys can be owned by an index.
+	 *
+	 * When the results are limited only the keys up to the end of the requested page are kept, in a heap that
+	 * has the worst of these keys on top.
+	 */
+	private KeyCursor doSort(KeyCursor results, List<SortParameter> params, SearchLimit limit) throws JasDBStorageException {
+		KeyNameMapper sourceMapper = results.getKeyNameMapper();
+		KeyNameMapper keyNameMapper = sourceMapper.clone();
+		Set<String> requiredFields = new HashSet<>();
+		for(SortParameter sortParam : params) {
+			String paramField = sortParam.getField();
+			if(!keyNameMapper.isMapped(paramField)) {
+				LOG.debug("Sorting field: {} not present in index results following keys present: {}", paramField, keyNameMapper);
+				requiredFields.add(paramField);
+				keyNameMapper.addMappedField(paramField);
+			}
+		}
+
+		Comparator<Key> comparator = sortComparator(params, keyNameMapper);
+		long topK = (long) limit.getBegin() + limit.getMax();
+		List<Key> keys;
+		try {
+			if(limit.getBegin() >= 0 && limit.getMax() > 0 && topK < Integer.MAX_VALUE) {
+				explainSortMethod(QueryExplain.SORT_TOP_K);
+				keys = doTopKSort(results, sourceMapper, keyNameMapper, requiredFields, comparator, (int) topK);
+			} else {
+				explainSortMethod(QueryExplain.SORT_FULL);
+				keys = new ArrayList<>();
+				while(results.hasNext()) {
+					keys.add(ensureSortingParams(results.next(), sourceMapper, keyNameMapper, requiredFields));
+				}
+				keys.sort(comparator);
+			}
+		} finally {
+			results.close();
+		}
+
+		return new IteratorKeyCursor(keys.iterator(), keyNameMapper);
+	}
+
+	/**
+	 * Keeps the best K keys of the results, a document only keeps its best key so the keys are of K distinct
+	 * documents. Keys that compare equal keep the order in which they were produced.
+	 */
+	private List<Key> doTopKSort(KeyCursor results, KeyNameMapper sourceMapper, KeyNameMapper keyNameMapper, Set<String> requiredFields,
+								 Comparator<Key> comparator, int topK) throws JasDBStorageException {
+		Comparator<SortEntry> entryComparator = Comparator.<SortEntry, Key>comparing(entry -> entry.key, comparator)
+				.thenComparingLong(entry -> entry.sequence);
+		PriorityQueue<SortEntry> heap = new PriorityQueue<>(entryComparator.reversed());
+		Map<UUIDKey, SortEntry> heapDocuments = new HashMap<>();
+
+		long sequence = 0;
+		while(results.hasNext()) {
+			Key key = ensureSortingParams(results.next(), sourceMapper, keyNameMapper, requiredFields);
+			SortEntry entry = new SortEntry(key, KeyUtil.getDocumentKey(keyNameMapper, key), sequence++);
+
+			SortEntry replacedEntry = heapDocuments.get(entry.documentKey);
+			boolean replacesHead = false;
+			if(replacedEntry == null && heap.size() == topK) {
+				replacedEntry = heap.peek();
+				replacesHead = true;
+			}
+
+			if(replacedEntry == null || entryComparator.compare(entry, replacedEntry) < 0) {
+				if(replacesHead) {
+					heap.poll();
+					heapDocuments.remove(replacedEntry.documentKey);
+				} else if(replacedEntry != null) {
+					//a document can be produced again with a different sort key, its entry can be anywhere in the heap
+					heap.remove(replacedEntry);
+					heapDocuments.remove(replacedEntry.documentKey);
+				}
+				heap.add(entry);
+				heapDocuments.put(entry.documentKey, entry);
+			}
+		}
+
+		List<SortEntry> entries = new ArrayList<>(heap);
+		entries.sort(entryComparator);
+		List<Key> keys = new ArrayList<>(entries.size());
+		for(SortEntry entry : entries) {
+			keys.add(entry.key);
+		}
+		return keys;
+	}
+
+	/**
+	 * The sort parameters are applied as subsequent stable sorts, so the last sort parameter determines the order
+	 * first and the previous parameters only order the keys that are equal on the parameters after them.
+	 */
+	private static Comparator<Key> sortComparator(List<SortParameter> params, KeyNameMapper keyNameMapper) {
+		Comparator<Key> comparator = null;
+		for(int i = params.size() - 1; i >= 0; i--) {
+			SortParameter sortParam = params.get(i);
+			Comparator<Key> paramComparator = sortComparator(sortParam.getField(), sortParam.getOrder(), keyNameMapper);
+			comparator = comparator == null ? paramComparator : comparator.thenComparing(paramComparator);
+		}
+		return comparator;
+	}
+
+	/**
+	 * Compares the keys on the value of the given field, keys without a value for the field are sorted last
+	 */
+	private static Comparator<Key> sortComparator(String field, Order order, KeyNameMapper keyNameMapper) {
+		Comparator<Key> valueComparator = order == Order.DESCENDING ? Comparator.reverseOrder() : Comparator.naturalOrder();
+		return Comparator.comparing(key -> getSortValue(key, field, keyNameMapper), Comparator.nullsLast(valueComparator));
+	}
+
+	private static Key getSortValue(Key key, String field, KeyNameMapper keyNameMapper) {
+		int index = keyNameMapper.getIndexForField(field);
+		Key[] values = key.getKeys();
+		return values != null && index < values.length ? values[index] : null;
+	}
+
+	private Key ensureSortingParams(Key key, KeyNameMapper sourceMapper, KeyNameMapper keyNameMapper, Set<String> requiredFields) throws JasDBStorageException {
+		if(requiredFields.isEmpty()) {
+			return key;
+		}
+
+		UUIDKey documentKey = KeyUtil.getDocumentKey(sourceMapper, key);
+		RecordResult recordResult = recordWriter.readRecord(documentKey);
+		recordsFetched++;
+		Key sortKey = key.cloneKey(true);
+		if(recordResult.isRecordFound()) {
+			Entity entity = SimpleEntity.fromStream(recordResult.getStream());
+
+			for(String requiredField : requiredFields) {
+				Property property = entity.getProperty(requiredField);
+				if(property != null) {
+					sortKey.addKey(keyNameMapper, requiredField, PropertyKeyMapper.mapToKey(property));
+				}
+			}
+		}
+		return sortKey;
 	}
 	
-	private IndexSearchResultIteratorCollection doBlockHierarchy(BlockOperation blockOperation, SearchLimit limit) throws JasDBStorageException {
+	/**
+	 * Evaluates the block and its child blocks, when a sort parameter is given the keys of a block without child
+	 * blocks are searched in the sort order if the index allows so.
+	 */
+	private KeyCursor doBlockHierarchy(BlockOperation blockOperation, BlockExplain parentExplain, SortParameter sortParam) throws JasDBStorageException {
+		BlockExplain blockExplain = explainBlock(blockOperation, parentExplain);
+
 		StatRecord record = StatisticsMonitor.createRecord("bag:search:blockoperation");
-		IndexSearchResultIteratorCollection results = doBlockOperation(blockOperation, limit, blockOperation.getFields(), null);
+		KeyCursor results = doBlockOperation(blockOperation, blockExplain,
+				blockOperation.getChildBlocks().isEmpty() ? sortParam : null);
 		record.stop();
 		
 		record = StatisticsMonitor.createRecord("bag:search:childblockMerge");
 		BlockMerger merger = blockOperation.getMerger();
 		for(BlockOperation childBlock : blockOperation.getChildBlocks()) {
-			IndexSearchResultIteratorCollection childResults = doBlockHierarchy(childBlock, limit);
-			if(results != null) {
-				results = merger.mergeIterators(results, childResults);
-			} else {
+			KeyCursor childResults = doBlockHierarchy(childBlock, blockExplain, null);
+			if(results != null && childResults != null) {
+				results = explainStep(blockExplain, new ExplainStep(ExplainStep.CHILD_MERGE), -1, merger.mergeCursors(results, childResults));
+			} else if(childResults != null) {
 				results = childResults;
 			}
 		}
 		record.stop();
+
+		if(blockExplain != null && results != null) {
+			results = new ExplainKeyCursor(results, blockExplain::setActualKeys, blockExplain::setTime);
+		}
 		
 		return results;
 	}
+
+	private BlockExplain explainBlock(BlockOperation blockOperation, BlockExplain parentExplain) {
+		if(queryExplain == null) {
+			return null;
+		}
+
+		BlockExplain blockExplain = new BlockExplain(blockOperation instanceof OrBlock ? BlockType.OR.name() : BlockType.AND.name());
+		for(Map.Entry<String, Set<SearchCondition>> fieldConditions : blockOperation.getConditions().entrySet()) {
+			List<String> conditions = new ArrayList<>();
+			for(SearchCondition condition : fieldConditions.getValue()) {
+				conditions.add(String.valueOf(condition));
+			}
+			blockExplain.getConditions().put(fieldConditions.getKey(), conditions);
+		}
+
+		if(parentExplain != null) {
+			parentExplain.addChildBlock(blockExplain);
+		} else {
+			queryExplain.setRootBlock(blockExplain);
+		}
+		return blockExplain;
+	}
+
+	/**
+	 * Adds the step to the explain of the block, the keys and time of the step are tracked as keys are pulled
+	 * through the returned cursor
+	 */
+	private KeyCursor explainStep(BlockExplain blockExplain, ExplainStep step, long estimatedKeys, KeyCursor results) {
+		if(blockExplain != null) {
+			step.setEstimatedKeys(estimatedKeys);
+			blockExplain.addStep(step);
+			return new ExplainKeyCursor(results, step::setActualKeys, step::setTime);
+		}
+		return results;
+	}
 	
-	private IndexSearchResultIteratorCollection doBlockOperation(BlockOperation blockOperation, SearchLimit limit,
-																 Set<String> fields,
-																 IndexSearchResultIteratorCollection currentResults)
-			throws JasDBStorageException {
-		if(!fields.isEmpty()) {
-			Index bestIndexMatch = indexManager.getBestMatchingIndex(bagName, fields);
-			
-			if(bestIndexMatch != null) {
-				Set<String> remainingFields = new HashSet<>(fields);
-				remainingFields.removeAll(bestIndexMatch.getKeyInfo().getKeyFields());
-				
-				IndexSearchResultIteratorCollection results = null;
-				BlockMerger merger = blockOperation.getMerger();
-				
-				Set<SearchCondition> conditions = getSearchConditions(blockOperation, bestIndexMatch);
-				for(SearchCondition condition : conditions) {
-					StatRecord record = StatisticsMonitor.createRecord("bag:search:indexcondition");
-					IndexSearchResultIteratorCollection indexResults = bestIndexMatch.searchIndex(condition, limit);
-					record.stop();
-					
-					if(results != null) {
-						StatRecord recordMerge = StatisticsMonitor.createRecord("bag:search:blockoperation:merge");
-						results = merger.mergeIterators(results, indexResults);
-						recordMerge.stop();
-					} else {
-						results = indexResults;
-					}
+	private KeyCursor doBlockOperation(BlockOperation blockOperation, BlockExplain blockExplain, SortParameter sortParam) throws JasDBStorageException {
+		BlockPlan plan = queryPlanner.planBlock(blockOperation);
+		LOG.debug("Executing block plan: {}", plan);
+		if(blockExplain != null) {
+			blockExplain.setAccessType(plan.getAccessType().name());
+			blockExplain.setEstimatedKeys(plan.getEstimatedRows());
+			blockExplain.setEstimatedCost(plan.getCost());
+		}
+
+		switch(plan.getAccessType()) {
+			case FIND_ALL:
+				return explainStep(blockExplain, new ExplainStep(ExplainStep.FIND_ALL), plan.getEstimatedRows(), tableScanOperation.doTableScanFindAll());
+			case TABLE_SCAN:
+				return explainStep(blockExplain, new ExplainStep(ExplainStep.TABLE_SCAN), -1, tableScanOperation.doTableScan(blockOperation, plan.getFilterFields()));
+			case INDEX:
+				return doIndexPlan(blockOperation, plan, blockExplain, getIndexOrder(plan, sortParam));
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * The keys of the plan are in the order of the sort parameter when a single condition is searched in an index
+	 * that has the sort field as first key field, the record filter keeps the order of the keys.
+	 * @return The order to search the index in, null if the keys can not be searched in the sort order
+	 */
+	private static Order getIndexOrder(BlockPlan plan, SortParameter sortParam) {
+		if(sortParam != null && plan.getIndexSteps().size() == 1) {
+			IndexStep indexStep = plan.getIndexSteps().get(0);
+			if(indexStep.getConditions().size() == 1 && indexStep.getIndex().supportsKeyOrder()
+					&& indexStep.getIndex().getKeyInfo().getKeyFields().get(0).equals(sortParam.getField())) {
+				return sortParam.getOrder();
+			}
+		}
+		return null;
+	}
+
+	private KeyCursor doIndexPlan(BlockOperation blockOperation, BlockPlan plan, BlockExplain blockExplain, Order indexOrder) throws JasDBStorageException {
+		BlockMerger merger = blockOperation.getMerger();
+		KeyCursor results = null;
+		for(IndexStep indexStep : plan.getIndexSteps()) {
+			for(SearchCondition condition : indexStep.getConditions()) {
+				StatRecord record = StatisticsMonitor.createRecord("bag:search:indexcondition");
+				KeyCursor indexResults = indexOrder != null ? indexStep.getIndex().searchCursor(condition, indexOrder)
+						: indexStep.getIndex().searchCursor(condition);
+				record.stop();
+				if(blockExplain != null) {
+					ExplainStep step = new ExplainStep(ExplainStep.INDEX_SEARCH);
+					step.setIndex(indexStep.getIndex().getName());
+					step.setCondition(String.valueOf(condition));
+					indexResults = explainStep(blockExplain, step, indexStep.getEstimatedMatches(condition), indexResults);
 				}
 
-				if(!remainingFields.isEmpty()) {
-					results = merger.mergeIterators(results, doBlockOperation(blockOperation, limit, remainingFields, results));
+				if(results != null) {
+					results = explainStep(blockExplain, new ExplainStep(ExplainStep.INDEX_MERGE), -1, merger.mergeCursors(results, indexResults));
+				} else {
+					results = indexResults;
 				}
-				
-				return results;
-			} else {
-				return new TableScanOperation(recordWriter).doTableScan(blockOperation, fields, currentResults);
 			}
-		} else if(blockOperation.isEmpty()) {
-            return new TableScanOperation(recordWriter).doTableScanFindAll();
-		} else {
-            return null;
-        }
+		}
+
+		sortedByIndex = indexOrder != null;
+		if(results != null && !plan.getFilterFields().isEmpty()) {
+			ExplainStep step = new ExplainStep(ExplainStep.RECORD_FILTER);
+			step.setCondition(String.valueOf(plan.getFilterFields()));
+			results = explainStep(blockExplain, step, plan.getEstimatedRows(),
+					tableScanOperation.doTableScanFilter(blockOperation, plan.getFilterFields(), results));
+		}
+
+		return results;
 	}
 
-	private Set<SearchCondition> getSearchConditions(BlockOperation blockOperation, Index index) {
-		KeyInfo keyInfo = index.getKeyInfo();
-		return blockOperation.getConditions(keyInfo.getKeyNameMapper(), keyInfo.getKeyFields());
+	private static final class SortEntry {
+		private final Key key;
+		private final UUIDKey documentKey;
+		private final long sequence;
+
+		private SortEntry(Key key, UUIDKey documentKey, long sequence) {
+			this.key = key;
+			this.documentKey = documentKey;
+			this.sequence = sequence;
+		}
 	}
 }
@@ -2,7 +2,8 @@ package com.oberasoftware.jasdb.engine.search;
 
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import com.oberasoftware.jasdb.api.index.keys.Key;
-import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIteratorCollection;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
 import com.oberasoftware.jasdb.api.index.query.SearchCondition;
 import com.oberasoftware.jasdb.api.session.Entity;
 import com.oberasoftware.jasdb.api.session.Property;
@@ -10,17 +11,26 @@ import com.oberasoftware.jasdb.api.storage.RecordIterator;
 import com.oberasoftware.jasdb.api.storage.RecordResult;
 import com.oberasoftware.jasdb.api.storage.RecordWriter;
 import com.oberasoftware.jasdb.core.SimpleEntity;
+import com.oberasoftware.jasdb.core.index.keys.CompositeKey;
 import com.oberasoftware.jasdb.core.index.keys.KeyUtil;
 import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
-import com.oberasoftware.jasdb.core.index.query.IndexSearchResultIteratorImpl;
+import com.oberasoftware.jasdb.core.index.query.AbstractKeyCursor;
+import com.oberasoftware.jasdb.engine.TableScanExecutor;
 import com.oberasoftware.jasdb.engine.query.operators.BlockMerger;
 import com.oberasoftware.jasdb.engine.query.operators.BlockOperation;
 import org.slf4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.oberasoftware.jasdb.engine.BagOperationUtil.*;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -31,54 +41,163 @@ import static org.slf4j.LoggerFactory.getLogger;
 public class TableScanOperation {
     private static final Logger LOG = getLogger(TableScanOperation.class);
 
+    /**
+     * The amount of qualifying keys a segment scan buffers ahead of the consumer of the keys
+     */
+    private static final int SEGMENT_BUFFER_SIZE = 1024;
+    private static final long BUFFER_WAIT_MILLIS = 100;
+
+    private static final Key END_OF_SEGMENT = new CompositeKey();
+
     private final RecordWriter<UUIDKey> recordWriter;
+    private final TableScanExecutor scanExecutor;
+    private final AtomicLong recordsRead = new AtomicLong();
 
     public TableScanOperation(RecordWriter<UUIDKey> recordWriter) {
-        this.recordWriter = recordWriter;
+        this(recordWriter, null);
     }
 
-    public IndexSearchResultIteratorCollection doTableScanFindAll() throws JasDBStorageException {
-        List<Key> keys = new ArrayList<>();
-        RecordIterator recordIterator = recordWriter.readAllRecords();
-        recordIterator.forEach(r -> keys.add(recordToKey(r)));
+    public TableScanOperation(RecordWriter<UUIDKey> recordWriter, TableScanExecutor scanExecutor) {
+        this.recordWriter = recordWriter;
+        this.scanExecutor = scanExecutor;
+    }
 
-        return new IndexSearchResultIteratorImpl(keys, DEFAULT_DOC_ID_MAPPER.clone());
+    /**
+     * @return The amount of records read by the scans done by this operation
+     */
+    public long getRecordsRead() {
+        return recordsRead.get();
     }
 
-    public IndexSearchResultIteratorCollection doTableScan(BlockOperation operation, Set<String> fields, IndexSearchResultIteratorCollection currentResults) throws JasDBStorageException {
-        BlockMerger merger = operation.getMerger();
-        List<Key> foundKeys = new ArrayList<>();
+    public KeyCursor doTableScanFindAll() throws JasDBStorageException {
+        Set<String> idField = Collections.singleton(SimpleEntity.DOCUMENT_ID);
+        return new RecordScanCursor(recordWriter.readAllRecords(),
+                result -> entityToKey(SimpleEntity.fromStream(result.getStream(), idField, (entity, field) -> true)));
+    }
 
+    public KeyCursor doTableScan(BlockOperation operation, Set<String> fields) throws JasDBStorageException {
         Set<String> payloadFields = new HashSet<>(fields);
         payloadFields.add(SimpleEntity.DOCUMENT_ID);
 
         payloadFields.removeIf(field -> !operation.hasConditions(field));
 
-        if(currentResults != null) {
-            LOG.debug("Doing table scan for fields: {} with limited set: {}", fields, currentResults.size());
-            for(Key key : currentResults) {
-                RecordResult result = recordWriter.readRecord(KeyUtil.getDocumentKey(currentResults.getKeyNameMapper(), key));
-                doTableScanConditions(operation, merger, foundKeys, result, fields);
-            }
+        //only the top level fields of the conditions are deserialized, nested fields are evaluated once their top
+        //level field has been deserialized
+        Map<String, List<String>> fieldsByTopLevel = new HashMap<>();
+        for(String field : payloadFields) {
+            fieldsByTopLevel.computeIfAbsent(getTopLevelField(field), f -> new ArrayList<>()).add(field);
+        }
+        Set<String> readFields = new HashSet<>(fieldsByTopLevel.keySet());
+        readFields.add(SimpleEntity.DOCUMENT_ID);
+
+        RecordEvaluator evaluator = result -> {
+            ConditionEvaluation evaluation = new ConditionEvaluation(operation);
+            Entity entity = SimpleEntity.fromStream(result.getStream(), readFields, (partialEntity, topLevelField) -> {
+                for(String field : fieldsByTopLevel.getOrDefault(topLevelField, Collections.emptyList())) {
+                    if(!evaluation.evaluate(partialEntity, field)) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+            return entity != null && evaluation.evaluateMissing(entity, payloadFields) ? entityToKey(entity) : null;
+        };
+
+        int segments = scanExecutor != null ? scanExecutor.getSegments(recordWriter.getDiskSize()) : 1;
+        if(segments > 1) {
+            LOG.debug("Doing a parallel table scan in: {} segments for fields: {}", segments, fields);
+            return new ParallelScanCursor(recordWriter.readRecordSegments(segments), evaluator);
         } else {
             LOG.debug("Doing a full table scan for fields: {}", fields);
-            RecordIterator recordIterator = recordWriter.readAllRecords();
+            return new RecordScanCursor(recordWriter.readAllRecords(), evaluator);
+        }
+    }
+
+    /**
+     * Filters the keys of the current results by evaluating the conditions of the given fields against the records
+     * of the keys, the records are only read for the keys that are pulled from the produced cursor.
+     */
+    public KeyCursor doTableScanFilter(BlockOperation operation, Set<String> fields, KeyCursor currentResults) {
+        LOG.debug("Doing table scan filter for fields: {}", fields);
+        return new AbstractKeyCursor() {
+            @Override
+            public KeyNameMapper getKeyNameMapper() {
+                return currentResults.getKeyNameMapper();
+            }
+
+            @Override
+            public boolean isDocumentOrdered() {
+                return currentResults.isDocumentOrdered();
+            }
 
-            for(RecordResult result : recordIterator) {
-                doTableScanConditions(operation, merger, foundKeys, result, payloadFields);
+            @Override
+            protected Key computeNext() throws JasDBStorageException {
+                return filter(currentResults.hasNext() ? currentResults.next() : null);
+            }
+
+            @Override
+            protected Key computeSkipTo(Key documentKey) throws JasDBStorageException {
+                return filter(currentResults.skipTo(documentKey));
+            }
+
+            private Key filter(Key key) throws JasDBStorageException {
+                while(key != null) {
+                    RecordResult result = recordWriter.readRecord(KeyUtil.getDocumentKey(currentResults.getKeyNameMapper(), key));
+                    recordsRead.incrementAndGet();
+                    if(result.isRecordFound() && matchesConditions(operation, SimpleEntity.fromStream(result.getStream()), fields)) {
+                        return key;
+                    }
+                    key = currentResults.hasNext() ? currentResults.next() : null;
+                }
+                return null;
+            }
+
+            @Override
+            protected void release() {
+                currentResults.close();
+            }
+        };
+    }
+
+    private boolean matchesConditions(BlockOperation operation, Entity entity, Set<String> fields) throws JasDBStorageException {
+        ConditionEvaluation evaluation = new ConditionEvaluation(operation);
+        for(String field : fields) {
+            if(!evaluation.evaluate(entity, field)) {
+                return false;
             }
         }
+        return evaluation.isMatch();
+    }
+
+    private static String getTopLevelField(String field) {
+        int separator = field.indexOf('.');
+        return separator != -1 ? field.substring(0, separator) : field;
+    }
 
-        return new IndexSearchResultIteratorImpl(foundKeys, DEFAULT_DOC_ID_MAPPER.clone());
+    private boolean checkCondition(SearchCondition condition, Set<Key> keys) {
+        return condition.keysQualify(keys);
     }
 
-    private void doTableScanConditions(BlockOperation operation, BlockMerger merger, List<Key> foundKeys, RecordResult result, Set<String> fields) throws JasDBStorageException {
-        Entity entity = SimpleEntity.fromStream(result.getStream());
+    /**
+     * Evaluates the conditions of a block against the fields of an entity one field at a time, combining the
+     * results of the conditions using the merger of the block
+     */
+    private class ConditionEvaluation {
+        private final BlockOperation operation;
+        private final BlockMerger merger;
 
-        boolean first = true;
-        boolean match = false;
+        private boolean first = true;
+        private boolean match = false;
 
-        for(String field : fields) {
+        private ConditionEvaluation(BlockOperation operation) {
+            this.operation = operation;
+            this.merger = operation.getMerger();
+        }
+
+        /**
+         * @return True if the evaluation should continue with the next field, False if the entity can no longer match
+         */
+        private boolean evaluate(Entity entity, String field) throws JasDBStorageException {
             Property property = entity.getProperty(field);
             if(property != null) {
                 Set<Key> keys = PropertyKeyMapper.mapToKeys(property);
@@ -92,27 +211,220 @@ public class TableScanOperation {
                     first = false;
 
                     if (!merger.continueEvaluation(match)) {
-                        return;
+                        return false;
                     }
                 }
-            } else if(!merger.continueEvaluation(false)) {
+                return true;
+            } else {
                 //in this case when no property we should stop evaluating
-                return;
+                return merger.continueEvaluation(false);
+            }
+        }
+
+        /**
+         * Evaluates the fields that were not present in the partially deserialized entity
+         * @return True if the entity matches the conditions of the block
+         */
+        private boolean evaluateMissing(Entity entity, Set<String> fields) throws JasDBStorageException {
+            for(String field : fields) {
+                if(entity.getProperty(field) == null && !evaluate(entity, field)) {
+                    return false;
+                }
             }
+            return match;
         }
 
-        if(match) {
-            foundKeys.add(entityToKey(entity));
+        private boolean isMatch() {
+            return match;
         }
     }
 
+    /**
+     * Evaluates a record of the scan, this can be called from the threads of the scan executor
+     */
+    private interface RecordEvaluator {
+        /**
+         * @return The key of the record if it qualifies, null if the record does not qualify
+         */
+        Key evaluate(RecordResult result) throws JasDBStorageException;
+    }
 
-    private boolean checkCondition(SearchCondition condition, Set<Key> keys) {
-        for(Key key : keys) {
-            boolean match = condition.keyQualifies(key);
+    /**
+     * Reads the records of the bag one at a time, only as far as keys are pulled from the cursor
+     */
+    private class RecordScanCursor extends AbstractKeyCursor {
+        private final RecordIterator recordIterator;
+        private final RecordEvaluator evaluator;
+        private final KeyNameMapper keyNameMapper = DEFAULT_DOC_ID_MAPPER.clone();
+
+        private RecordScanCursor(RecordIterator recordIterator, RecordEvaluator evaluator) {
+            this.recordIterator = recordIterator;
+            this.evaluator = evaluator;
+        }
+
+        @Override
+        public KeyNameMapper getKeyNameMapper() {
+            return keyNameMapper;
+        }
+
+        @Override
+        protected Key computeNext() throws JasDBStorageException {
+            while(recordIterator.hasNext()) {
+                RecordResult result = recordIterator.next();
+                recordsRead.incrementAndGet();
+                Key key = evaluator.evaluate(result);
+                if(key != null) {
+                    return key;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        protected void release() {
+            recordIterator.close();
+        }
+    }
+
+    /**
+     * Scans the segments of the records on the threads of the scan executor. The segments are consumed one after
+     * the other so the keys are produced in record order. Only as many segments as there are scan threads are
+     * scanned ahead of the segment being consumed, and every segment only buffers a limited amount of keys.
+     */
+    private class ParallelScanCursor extends AbstractKeyCursor {
+        private final List<SegmentScan> segmentScans = new ArrayList<>();
+        private final KeyNameMapper keyNameMapper = DEFAULT_DOC_ID_MAPPER.clone();
+
+        private int consumedSegment = 0;
+        private int scheduledSegments = 0;
+
+        private ParallelScanCursor(List<RecordIterator> segments, RecordEvaluator evaluator) {
+            for(RecordIterator segment : segments) {
+                segmentScans.add(new SegmentScan(segment, evaluator));
+            }
+        }
+
+        @Override
+        public KeyNameMapper getKeyNameMapper() {
+            return keyNameMapper;
+        }
+
+        @Override
+        protected Key computeNext() throws JasDBStorageException {
+            while(consumedSegment < segmentScans.size()) {
+                while(scheduledSegments < segmentScans.size() && scheduledSegments <= consumedSegment + scanExecutor.getThreads()) {
+                    scanExecutor.execute(segmentScans.get(scheduledSegments++));
+                }
+
+                Key key = segmentScans.get(consumedSegment).take();
+                if(key != null) {
+                    return key;
+                }
+                consumedSegment++;
+            }
+            return null;
+        }
+
+        @Override
+        protected void release() {
+            for(SegmentScan segmentScan : segmentScans) {
+                segmentScan.cancel();
+            }
+        }
+    }
+
+    private class SegmentScan implements Runnable {
+        private final RecordIterator recordIterator;
+        private final RecordEvaluator evaluator;
+        private final BlockingQueue<Key> keys = new ArrayBlockingQueue<>(SEGMENT_BUFFER_SIZE);
+
+        private volatile boolean started = false;
+        private volatile boolean finished = false;
+        private volatile boolean cancelled = false;
+        private volatile Exception failure;
+
+        private SegmentScan(RecordIterator recordIterator, RecordEvaluator evaluator) {
+            this.recordIterator = recordIterator;
+            this.evaluator = evaluator;
+        }
+
+        @Override
+        public void run() {
+            started = true;
+            long segmentRecords = 0;
+            try {
+                while(!cancelled && recordIterator.hasNext()) {
+                    RecordResult result = recordIterator.next();
+                    segmentRecords++;
+                    Key key = evaluator.evaluate(result);
+                    if(key != null) {
+                        put(key);
+                    }
+                }
+            } catch(JasDBStorageException | RuntimeException e) {
+                failure = e;
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+            } finally {
+                recordsRead.addAndGet(segmentRecords);
+                recordIterator.close();
+
+                //when the buffer is full the consumer detects the end of the segment using the finished flag
+                finished = true;
+                keys.offer(END_OF_SEGMENT);
+            }
+        }
+
+        /**
+         * Waits for room in the buffer, gives up when the scan is cancelled by closing the cursor or when the keys
+         * are not consumed within the consumer timeout of the executor
+         */
+        private void put(Key key) throws InterruptedException, JasDBStorageException {
+            long deadline = System.currentTimeMillis() + scanExecutor.getConsumerTimeout();
+            while(!cancelled) {
+                if(keys.offer(key, BUFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                if(System.currentTimeMillis() > deadline) {
+                    throw new JasDBStorageException("Keys of record segment were not consumed within: " +
+                            scanExecutor.getConsumerTimeout() + " ms, stopping scan");
+                }
+            }
+        }
+
+        /**
+         * @return The next qualifying key of the segment, null if the segment has been scanned completely
+         */
+        private Key take() throws JasDBStorageException {
+            try {
+                while(true) {
+                    Key key = keys.poll(BUFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                    if(key == null && finished) {
+                        key = keys.poll();
+                        key = key != null ? key : END_OF_SEGMENT;
+                    }
+
+                    if(key == END_OF_SEGMENT) {
+                        if(failure != null) {
+                            throw new JasDBStorageException("Unable to scan record segment", failure);
+                        }
+                        return null;
+                    } else if(key != null) {
+                        return key;
+                    } else if(!started && scanExecutor.isShutdown()) {
+                        throw new JasDBStorageException("Scan executor was shut down before the record segment was scanned");
+                    }
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JasDBStorageException("Interrupted while waiting for scan of record segment", e);
+            }
+        }
 
-            if(match) return true;
+        private void cancel() {
+            cancelled = true;
+            keys.clear();
         }
-        return false;
     }
 }
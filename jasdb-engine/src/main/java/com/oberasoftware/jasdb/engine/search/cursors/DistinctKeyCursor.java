@@ -0,0 +1,66 @@
+package com.oberasoftware.jasdb.engine.search.cursors;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
+import com.oberasoftware.jasdb.core.index.keys.KeyUtil;
+import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+import com.oberasoftware.jasdb.core.index.query.AbstractKeyCursor;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Only produces the first key of every document, only the document ids of the produced keys are remembered.
+ * Cursors in document id order produce every document once, so their keys are passed on as is.
+ *
+ * @author Renze de Vries
+ */
+public class DistinctKeyCursor extends AbstractKeyCursor {
+    private final KeyCursor source;
+    private Set<UUIDKey> documentKeys = new HashSet<>();
+
+    public DistinctKeyCursor(KeyCursor source) {
+        this.source = source;
+    }
+
+    @Override
+    public KeyNameMapper getKeyNameMapper() {
+        return source.getKeyNameMapper();
+    }
+
+    @Override
+    public boolean isDocumentOrdered() {
+        return source.isDocumentOrdered();
+    }
+
+    @Override
+    protected Key computeNext() throws JasDBStorageException {
+        if(source.isDocumentOrdered()) {
+            return source.hasNext() ? source.next() : null;
+        }
+
+        while(source.hasNext()) {
+            Key key = source.next();
+            if(documentKeys.add(KeyUtil.getDocumentKey(source.getKeyNameMapper(), key))) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected Key computeSkipTo(Key documentKey) throws JasDBStorageException {
+        if(source.isDocumentOrdered()) {
+            return source.skipTo(documentKey);
+        }
+        return super.computeSkipTo(documentKey);
+    }
+
+    @Override
+    protected void release() {
+        documentKeys = null;
+        source.close();
+    }
+}
@@ -0,0 +1,67 @@
+package com.oberasoftware.jasdb.engine.search.cursors;
+
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
+import com.oberasoftware.jasdb.core.index.query.AbstractKeyCursor;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Profiles the keys pulled through a cursor, reporting the amount of keys produced and the time in microseconds
+ * spent producing them, which includes the time spent in the cursors it pulls from.
+ *
+ * @author Renze de Vries
+ */
+public class ExplainKeyCursor extends AbstractKeyCursor {
+    private final KeyCursor source;
+    private final LongConsumer keysListener;
+    private final LongConsumer timeListener;
+
+    private long keys = 0;
+    private long time = 0;
+
+    public ExplainKeyCursor(KeyCursor source, LongConsumer keysListener, LongConsumer timeListener) {
+        this.source = source;
+        this.keysListener = keysListener;
+        this.timeListener = timeListener;
+    }
+
+    @Override
+    public KeyNameMapper getKeyNameMapper() {
+        return source.getKeyNameMapper();
+    }
+
+    @Override
+    public boolean isDocumentOrdered() {
+        return source.isDocumentOrdered();
+    }
+
+    @Override
+    protected Key computeNext() {
+        long start = System.nanoTime();
+        return profile(start, source.hasNext() ? source.next() : null);
+    }
+
+    @Override
+    protected Key computeSkipTo(Key documentKey) {
+        long start = System.nanoTime();
+        return profile(start, source.skipTo(documentKey));
+    }
+
+    private Key profile(long start, Key key) {
+        time += System.nanoTime() - start;
+
+        if(key != null) {
+            keys++;
+            keysListener.accept(keys);
+        }
+        timeListener.accept(time / 1000);
+        return key;
+    }
+
+    @Override
+    protected void release() {
+        source.close();
+    }
+}
@@ -0,0 +1,156 @@
+package com.oberasoftware.jasdb.engine.search.cursors;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
+import com.oberasoftware.jasdb.core.index.keys.KeyUtil;
+import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+import com.oberasoftware.jasdb.core.index.query.AbstractKeyCursor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Produces the keys of the driving cursor that have a document present in the other cursor, the fields of the
+ * other cursor are added to the produced keys.
+ *
+ * When both cursors are in document id order they are merged by letting each cursor skip ahead to the document
+ * id of the other one, without loading either of them. Otherwise the document ids of the other cursor are
+ * loaded when the first key is pulled and the driving cursor is streamed.
+ *
+ * @author Renze de Vries
+ */
+public class IntersectKeyCursor extends AbstractKeyCursor {
+    private final KeyCursor driver;
+    private final KeyCursor other;
+    private final KeyNameMapper keyNameMapper;
+    private final Set<String> mergedFields;
+    private final boolean sortedMerge;
+
+    private Map<UUIDKey, Key> otherKeys;
+    private Key pendingOtherKey;
+
+    public IntersectKeyCursor(KeyCursor driver, KeyCursor other) {
+        this.driver = driver;
+        this.other = other;
+        this.sortedMerge = driver.isDocumentOrdered() && other.isDocumentOrdered();
+
+        this.keyNameMapper = driver.getKeyNameMapper().clone();
+        this.mergedFields = other.getKeyNameMapper().getFieldSet();
+        this.mergedFields.removeAll(keyNameMapper.getFieldSet());
+        for(String mergedField : mergedFields) {
+            keyNameMapper.addMappedField(mergedField);
+        }
+    }
+
+    @Override
+    public KeyNameMapper getKeyNameMapper() {
+        return keyNameMapper;
+    }
+
+    @Override
+    public boolean isDocumentOrdered() {
+        return driver.isDocumentOrdered();
+    }
+
+    @Override
+    protected Key computeNext() throws JasDBStorageException {
+        return intersect(driver.hasNext() ? driver.next() : null);
+    }
+
+    @Override
+    protected Key computeSkipTo(Key documentKey) throws JasDBStorageException {
+        if(driver.isDocumentOrdered()) {
+            return intersect(driver.skipTo(documentKey));
+        } else {
+            return super.computeSkipTo(documentKey);
+        }
+    }
+
+    /**
+     * Finds the first key of the driving cursor, starting at the given key, that is present in the other cursor
+     */
+    private Key intersect(Key key) throws JasDBStorageException {
+        return sortedMerge ? mergeIntersect(key) : hashIntersect(key);
+    }
+
+    private Key mergeIntersect(Key key) throws JasDBStorageException {
+        while(key != null) {
+            UUIDKey documentKey = KeyUtil.getDocumentKey(driver.getKeyNameMapper(), key);
+
+            Key otherKey = pendingOtherKey;
+            pendingOtherKey = null;
+            if(otherKey == null || getOtherDocument(otherKey).compareTo(documentKey) < 0) {
+                otherKey = other.skipTo(documentKey);
+            }
+            if(otherKey == null) {
+                return null;
+            }
+
+            UUIDKey otherDocument = getOtherDocument(otherKey);
+            if(otherDocument.compareTo(documentKey) == 0) {
+                return mergeKeys(key, otherKey);
+            }
+
+            //the other cursor is ahead, its key can still match the key the driver skips to
+            pendingOtherKey = otherKey;
+            key = driver.skipTo(otherDocument);
+        }
+        return null;
+    }
+
+    private Key hashIntersect(Key key) throws JasDBStorageException {
+        if(otherKeys == null) {
+            loadOtherKeys();
+        }
+
+        while(key != null) {
+            Key otherKey = otherKeys.get(KeyUtil.getDocumentKey(driver.getKeyNameMapper(), key));
+            if(otherKey != null) {
+                return mergeKeys(key, otherKey);
+            }
+            key = driver.hasNext() ? driver.next() : null;
+        }
+        return null;
+    }
+
+    private UUIDKey getOtherDocument(Key otherKey) throws JasDBStorageException {
+        return KeyUtil.getDocumentKey(other.getKeyNameMapper(), otherKey);
+    }
+
+    private void loadOtherKeys() throws JasDBStorageException {
+        otherKeys = new HashMap<>();
+        while(other.hasNext()) {
+            Key otherKey = other.next();
+            otherKeys.put(getOtherDocument(otherKey), otherKey);
+        }
+        other.close();
+    }
+
+    private Key mergeKeys(Key key, Key otherKey) {
+        if(mergedFields.isEmpty()) {
+            return key;
+        }
+
+        //the keys can be owned by an index, so the merged fields are added to a copy
+        Key mergedKey = key.cloneKey(true);
+        KeyNameMapper otherMapper = other.getKeyNameMapper();
+        for(String mergedField : mergedFields) {
+            Key value = otherKey.getKey(otherMapper, mergedField);
+            if(value != null) {
+                mergedKey.addKey(keyNameMapper, mergedField, value);
+            }
+        }
+        return mergedKey;
+    }
+
+    @Override
+    protected void release() {
+        otherKeys = null;
+        pendingOtherKey = null;
+        driver.close();
+        other.close();
+    }
+}
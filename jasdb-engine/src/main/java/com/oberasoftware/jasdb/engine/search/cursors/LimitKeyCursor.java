@@ -0,0 +1,55 @@
+package com.oberasoftware.jasdb.engine.search.cursors;
+
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
+import com.oberasoftware.jasdb.core.index.query.AbstractKeyCursor;
+
+/**
+ * Skips the keys before the start of the page and stops pulling keys from the source once the page is full
+ *
+ * @author Renze de Vries
+ */
+public class LimitKeyCursor extends AbstractKeyCursor {
+    private final KeyCursor source;
+    private final int begin;
+    private final int max;
+
+    private int skipped = 0;
+    private int produced = 0;
+
+    public LimitKeyCursor(KeyCursor source, int begin, int max) {
+        this.source = source;
+        this.begin = begin;
+        this.max = max;
+    }
+
+    @Override
+    public KeyNameMapper getKeyNameMapper() {
+        return source.getKeyNameMapper();
+    }
+
+    @Override
+    public boolean isDocumentOrdered() {
+        return source.isDocumentOrdered();
+    }
+
+    @Override
+    protected Key computeNext() {
+        while(skipped < begin && source.hasNext()) {
+            source.next();
+            skipped++;
+        }
+
+        if(produced < max && source.hasNext()) {
+            produced++;
+            return source.next();
+        }
+        return null;
+    }
+
+    @Override
+    protected void release() {
+        source.close();
+    }
+}
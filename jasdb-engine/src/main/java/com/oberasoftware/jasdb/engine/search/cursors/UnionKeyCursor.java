@@ -0,0 +1,128 @@
+package com.oberasoftware.jasdb.engine.search.cursors;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
+import com.oberasoftware.jasdb.core.SimpleEntity;
+import com.oberasoftware.jasdb.core.index.keys.CompositeKey;
+import com.oberasoftware.jasdb.core.index.keys.KeyUtil;
+import com.oberasoftware.jasdb.core.index.query.AbstractKeyCursor;
+
+import static com.oberasoftware.jasdb.engine.BagOperationUtil.DEFAULT_DOC_ID_MAPPER;
+
+/**
+ * Produces the keys of both cursors. When both cursors are in document id order they are merged on document id,
+ * producing every document once and keeping the document id order. Otherwise the keys of the first cursor are
+ * followed by the keys of the second cursor, producing documents present in both cursors twice.
+ *
+ * When the cursors have keys with a different layout only the document ids of the keys are produced.
+ *
+ * @author Renze de Vries
+ */
+public class UnionKeyCursor extends AbstractKeyCursor {
+    private final KeyCursor first;
+    private final KeyCursor second;
+    private final KeyNameMapper keyNameMapper;
+    private final boolean documentKeysOnly;
+    private final boolean sortedMerge;
+
+    private Key firstKey;
+    private Key secondKey;
+
+    public UnionKeyCursor(KeyCursor first, KeyCursor second) {
+        this.first = first;
+        this.second = second;
+        this.sortedMerge = first.isDocumentOrdered() && second.isDocumentOrdered();
+
+        this.documentKeysOnly = !first.getKeyNameMapper().getMappings().equals(second.getKeyNameMapper().getMappings());
+        this.keyNameMapper = documentKeysOnly ? DEFAULT_DOC_ID_MAPPER.clone() : first.getKeyNameMapper();
+    }
+
+    @Override
+    public KeyNameMapper getKeyNameMapper() {
+        return keyNameMapper;
+    }
+
+    @Override
+    public boolean isDocumentOrdered() {
+        return sortedMerge;
+    }
+
+    @Override
+    protected Key computeNext() throws JasDBStorageException {
+        if(sortedMerge) {
+            if(firstKey == null && first.hasNext()) {
+                firstKey = first.next();
+            }
+            if(secondKey == null && second.hasNext()) {
+                secondKey = second.next();
+            }
+            return mergeUnion();
+        }
+
+        KeyCursor cursor = first.hasNext() ? first : second;
+        if(cursor.hasNext()) {
+            return toUnionKey(cursor, cursor.next());
+        }
+        return null;
+    }
+
+    @Override
+    protected Key computeSkipTo(Key documentKey) throws JasDBStorageException {
+        if(!sortedMerge) {
+            return super.computeSkipTo(documentKey);
+        }
+
+        if(firstKey == null || KeyUtil.getDocumentKey(first.getKeyNameMapper(), firstKey).compareTo(documentKey) < 0) {
+            firstKey = first.skipTo(documentKey);
+        }
+        if(secondKey == null || KeyUtil.getDocumentKey(second.getKeyNameMapper(), secondKey).compareTo(documentKey) < 0) {
+            secondKey = second.skipTo(documentKey);
+        }
+        return mergeUnion();
+    }
+
+    /**
+     * Produces the key with the lowest document id of the current keys of both cursors, when both keys are of the
+     * same document the key of the second cursor is dropped
+     */
+    private Key mergeUnion() throws JasDBStorageException {
+        int compare;
+        if(firstKey == null || secondKey == null) {
+            compare = firstKey == null ? 1 : -1;
+        } else {
+            compare = KeyUtil.getDocumentKey(first.getKeyNameMapper(), firstKey)
+                    .compareTo(KeyUtil.getDocumentKey(second.getKeyNameMapper(), secondKey));
+        }
+
+        Key key;
+        if(compare <= 0) {
+            key = toUnionKey(first, firstKey);
+            firstKey = null;
+            if(compare == 0) {
+                secondKey = null;
+            }
+        } else {
+            key = toUnionKey(second, secondKey);
+            secondKey = null;
+        }
+        return key;
+    }
+
+    private Key toUnionKey(KeyCursor cursor, Key key) throws JasDBStorageException {
+        if(key != null && documentKeysOnly) {
+            return new CompositeKey().addKey(keyNameMapper, SimpleEntity.DOCUMENT_ID,
+                    KeyUtil.getDocumentKey(cursor.getKeyNameMapper(), key));
+        }
+        return key;
+    }
+
+    @Override
+    protected void release() {
+        firstKey = null;
+        secondKey = null;
+        first.close();
+        second.close();
+    }
+}
@@ -0,0 +1,201 @@
+package com.oberasoftware.jasdb.engine;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.storage.ClonableDataStream;
+import com.oberasoftware.jasdb.api.storage.RecordIterator;
+import com.oberasoftware.jasdb.api.storage.RecordResult;
+import com.oberasoftware.jasdb.api.storage.RecordWriter;
+import com.oberasoftware.jasdb.core.caching.GlobalCachingMemoryManager;
+import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+import com.oberasoftware.jasdb.core.utils.RecordStreamUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Renze de Vries
+ */
+public class CachedRecordWriterTest {
+    @Test
+    public void testReadRecords() throws JasDBStorageException {
+        MockWriter recordWriter = new MockWriter();
+        CachedRecordWriter cachedRecordWriter = new CachedRecordWriter("bag", recordWriter, 1024 * 1024);
+        cachedRecordWriter.openWriter();
+        try {
+            List<UUIDKey> keys = writeRecords(cachedRecordWriter, 100);
+
+            for(int i=0; i<keys.size(); i++) {
+                assertEquals("record" + i, RecordStreamUtil.toString(cachedRecordWriter.readRecord(keys.get(i))));
+            }
+            assertThat(recordWriter.getReads(), is(100));
+
+            for(int i=0; i<keys.size(); i++) {
+                UUIDKey key = new UUIDKey(keys.get(i).getLeastSignificant(), keys.get(i).getMostSignificant());
+                assertEquals("record" + i, RecordStreamUtil.toString(cachedRecordWriter.readRecord(key)));
+            }
+            assertThat(recordWriter.getReads(), is(100));
+
+            UUIDKey missingKey = new UUIDKey(UUID.randomUUID());
+            assertFalse(cachedRecordWriter.readRecord(missingKey).isRecordFound());
+            assertFalse(cachedRecordWriter.readRecord(missingKey).isRecordFound());
+            assertThat(recordWriter.getReads(), is(102));
+        } finally {
+            cachedRecordWriter.closeWriter();
+        }
+    }
+
+    @Test
+    public void testInvalidation() throws JasDBStorageException {
+        MockWriter recordWriter = new MockWriter();
+        CachedRecordWriter cachedRecordWriter = new CachedRecordWriter("bag", recordWriter, 1024 * 1024);
+        cachedRecordWriter.openWriter();
+        try {
+            List<UUIDKey> keys = writeRecords(cachedRecordWriter, 2);
+            assertEquals("record0", RecordStreamUtil.toString(cachedRecordWriter.readRecord(keys.get(0))));
+            assertEquals("record1", RecordStreamUtil.toString(cachedRecordWriter.readRecord(keys.get(1))));
+
+            cachedRecordWriter.updateRecord(keys.get(0), RecordStreamUtil.toStream("updated0"));
+            assertEquals("updated0", RecordStreamUtil.toString(cachedRecordWriter.readRecord(keys.get(0))));
+
+            cachedRecordWriter.removeRecord(keys.get(1));
+            assertFalse(cachedRecordWriter.readRecord(keys.get(1)).isRecordFound());
+            assertThat(recordWriter.getReads(), is(4));
+        } finally {
+            cachedRecordWriter.closeWriter();
+        }
+    }
+
+    @Test
+    public void testBoundedMemory() throws JasDBStorageException {
+        MockWriter recordWriter = new MockWriter();
+        long maxMemory = 16 * 1024;
+        CachedRecordWriter cachedRecordWriter = new CachedRecordWriter("boundedBag", recordWriter, maxMemory);
+        cachedRecordWriter.openWriter();
+        try {
+            assertTrue(GlobalCachingMemoryManager.getGlobalInstance().getRegions().stream()
+                    .anyMatch(r -> r.name().equals("RecordCache_boundedBag")));
+
+            List<UUIDKey> keys = writeRecords(cachedRecordWriter, 1000);
+            for(UUIDKey key : keys) {
+                cachedRecordWriter.readRecord(key);
+            }
+            assertTrue(GlobalCachingMemoryManager.getGlobalInstance().calculateMemorySize() <= maxMemory);
+
+            for(int i=0; i<keys.size(); i++) {
+                assertEquals("record" + i, RecordStreamUtil.toString(cachedRecordWriter.readRecord(keys.get(i))));
+            }
+        } finally {
+            cachedRecordWriter.closeWriter();
+        }
+
+        assertFalse(GlobalCachingMemoryManager.getGlobalInstance().getRegions().stream()
+                .anyMatch(r -> r.name().equals("RecordCache_boundedBag")));
+    }
+
+    private static List<UUIDKey> writeRecords(CachedRecordWriter writer, int amount) throws JasDBStorageException {
+        List<UUIDKey> keys = new ArrayList<>();
+        for(int i=0; i<amount; i++) {
+            UUIDKey key = new UUIDKey(UUID.randomUUID());
+            writer.writeRecord(key, RecordStreamUtil.toStream("record" + i));
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    private static class MockWriter implements RecordWriter<UUIDKey> {
+        private final Map<UUIDKey, String> records = new ConcurrentHashMap<>();
+        private final AtomicInteger reads = new AtomicInteger();
+
+        public int getReads() {
+            return reads.get();
+        }
+
+        @Override
+        public long getDiskSize() throws JasDBStorageException {
+            return 0;
+        }
+
+        @Override
+        public long getSize() throws JasDBStorageException {
+            return records.size();
+        }
+
+        @Override
+        public void openWriter() throws JasDBStorageException {
+
+        }
+
+        @Override
+        public void closeWriter() throws JasDBStorageException {
+
+        }
+
+        @Override
+        public void flush() throws JasDBStorageException {
+
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public RecordIterator readAllRecords() throws JasDBStorageException {
+            return null;
+        }
+
+        @Override
+        public RecordIterator readAllRecords(int limit) throws JasDBStorageException {
+            return null;
+        }
+
+        @Override
+        public RecordResult readRecord(UUIDKey key) throws JasDBStorageException {
+            reads.incrementAndGet();
+            String record = records.get(key);
+            return new RecordResult() {
+                @Override
+                public ClonableDataStream getStream() throws JasDBStorageException {
+                    return RecordStreamUtil.toStream(record);
+                }
+
+                @Override
+                public long getRecordSize() {
+                    return record != null ? record.length() : 0;
+                }
+
+                @Override
+                public boolean isRecordFound() {
+                    return record != null;
+                }
+            };
+        }
+
+        @Override
+        public void writeRecord(UUIDKey documentId, ClonableDataStream dataStream) throws JasDBStorageException {
+            records.put(documentId, RecordStreamUtil.toString(dataStream));
+        }
+
+        @Override
+        public void removeRecord(UUIDKey documentId) throws JasDBStorageException {
+            records.remove(documentId);
+        }
+
+        @Override
+        public void updateRecord(UUIDKey documentId, ClonableDataStream dataStream) throws JasDBStorageException {
+            records.put(documentId, RecordStreamUtil.toString(dataStream));
+        }
+    }
+}
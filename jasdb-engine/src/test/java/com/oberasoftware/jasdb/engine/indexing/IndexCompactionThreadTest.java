@@ -0,0 +1,98 @@
+package com.oberasoftware.jasdb.engine.indexing;
+
+import com.oberasoftware.jasdb.api.engine.IndexManager;
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.Index;
+import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
+import com.oberasoftware.jasdb.api.index.query.SearchLimit;
+import com.oberasoftware.jasdb.core.index.btreeplus.BTreeIndex;
+import com.oberasoftware.jasdb.core.index.keys.LongKey;
+import com.oberasoftware.jasdb.core.index.keys.keyinfo.KeyInfoImpl;
+import com.oberasoftware.jasdb.core.index.keys.types.LongKeyType;
+import com.oberasoftware.jasdb.core.index.query.EqualsCondition;
+import com.oberasoftware.jasdb.core.index.query.SimpleIndexField;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Renze de Vries
+ */
+public class IndexCompactionThreadTest {
+    private static final int INTERVAL = 100;
+    private static final int THRESHOLD = 30;
+    private static final int NR_KEYS = 20000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCompactIndexesAboveThreshold() throws Exception {
+        File sparseFile = new File(temporaryFolder.getRoot(), "sparse.idx");
+        File denseFile = new File(temporaryFolder.getRoot(), "dense.idx");
+        Index sparseIndex = createIndex(sparseFile, NR_KEYS / 10);
+        Index denseIndex = createIndex(denseFile, NR_KEYS - NR_KEYS / 10);
+
+        IndexManager indexManager = mock(IndexManager.class);
+        when(indexManager.getLoadedIndexes()).thenReturn(Arrays.asList(sparseIndex, denseIndex));
+        Map<String, IndexManager> indexManagers = new HashMap<>();
+        indexManagers.put("default", indexManager);
+
+        long sparseSize = sparseFile.length();
+        long denseSize = denseFile.length();
+        assertTrue(sparseIndex.getFreeBlockRatio() * 100 >= THRESHOLD);
+        assertTrue(denseIndex.getFreeBlockRatio() * 100 < THRESHOLD);
+
+        IndexCompactionThread compactionThread = new IndexCompactionThread(indexManagers, INTERVAL, THRESHOLD);
+        compactionThread.start();
+        try {
+            long timeout = System.currentTimeMillis() + 10000;
+            while(sparseIndex.getFreeBlockRatio() > 0 && System.currentTimeMillis() < timeout) {
+                Thread.sleep(INTERVAL);
+            }
+        } finally {
+            compactionThread.stop();
+        }
+
+        try {
+            assertTrue("Sparse index should be compacted", sparseFile.length() < sparseSize);
+            assertThat(denseFile.length(), is(denseSize));
+            assertKeys(sparseIndex, NR_KEYS / 10);
+            assertKeys(denseIndex, NR_KEYS - NR_KEYS / 10);
+        } finally {
+            sparseIndex.close();
+            denseIndex.close();
+        }
+    }
+
+    private Index createIndex(File indexFile, int remainingKeys) throws JasDBStorageException {
+        KeyInfo keyInfo = new KeyInfoImpl(new SimpleIndexField("field", new LongKeyType()), new SimpleIndexField("RECORD_POINTER", new LongKeyType()));
+        Index index = new BTreeIndex(indexFile, keyInfo);
+        for(int i=0; i<NR_KEYS; i++) {
+            index.insertIntoIndex(new LongKey(i).addKey(keyInfo.getKeyNameMapper(), "RECORD_POINTER", new LongKey(i)));
+        }
+        for(int i=remainingKeys; i<NR_KEYS; i++) {
+            index.removeFromIndex(new LongKey(i));
+        }
+        index.flushIndex();
+        return index;
+    }
+
+    private static void assertKeys(Index index, int keys) throws JasDBStorageException {
+        assertThat(index.count(), is((long) keys));
+        for(int i=0; i<NR_KEYS; i++) {
+            assertThat(index.searchIndex(new EqualsCondition(new LongKey(i)), new SearchLimit()).size(), is(i < keys ? 1 : 0));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.oberasoftware.jasdb.engine.query;
+
+import com.oberasoftware.jasdb.api.session.Entity;
+import com.oberasoftware.jasdb.core.SimpleEntity;
+import com.oberasoftware.jasdb.core.concurrency.ResourceLockManager;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Renze de Vries
+ */
+public class LeasedQueryResultTest {
+    @Test
+    public void testReleasedOnClose() {
+        ResourceLockManager lockManager = new ResourceLockManager();
+        LeasedQueryResult result = createResult(lockManager, 3);
+
+        assertThat(result.next().getProperty("nr").getFirstValueObject(), is(0L));
+        assertTrue(result.isLeased());
+        assertThat(lockManager.getSharedLocks(), is(1));
+
+        result.close();
+        result.close();
+        assertFalse(result.isLeased());
+        assertThat(lockManager.getSharedLocks(), is(0));
+    }
+
+    @Test
+    public void testReleasedOnLastEntity() {
+        ResourceLockManager lockManager = new ResourceLockManager();
+        LeasedQueryResult result = createResult(lockManager, 3);
+
+        result.next();
+        result.next();
+        assertThat(lockManager.getSharedLocks(), is(1));
+
+        result.next();
+        assertFalse(result.isLeased());
+        assertThat(lockManager.getSharedLocks(), is(0));
+
+        assertFalse(result.hasNext());
+        result.close();
+        assertThat(lockManager.getSharedLocks(), is(0));
+    }
+
+    @Test
+    public void testReleasedOnEmptyResult() {
+        ResourceLockManager lockManager = new ResourceLockManager();
+        LeasedQueryResult result = createResult(lockManager, 0);
+
+        for(Entity ignored : result) {
+            throw new AssertionError("Result should be empty");
+        }
+        assertThat(lockManager.getSharedLocks(), is(0));
+    }
+
+    @Test
+    public void testReleasedOnSize() {
+        ResourceLockManager lockManager = new ResourceLockManager();
+        LeasedQueryResult result = createResult(lockManager, 3);
+
+        assertThat(result.size(), is(3L));
+        assertThat(lockManager.getSharedLocks(), is(0));
+        assertTrue(result.hasNext());
+    }
+
+    @Test
+    public void testExclusiveLockWaitsForLease() throws Exception {
+        ResourceLockManager lockManager = new ResourceLockManager();
+        LeasedQueryResult result = createResult(lockManager, 3);
+
+        Thread flushThread = new Thread(() -> {
+            lockManager.exclusiveLock();
+            lockManager.exclusiveUnlock();
+        });
+        flushThread.start();
+        flushThread.join(500);
+        assertTrue("Exclusive lock should wait for the result", flushThread.isAlive());
+
+        result.close();
+        flushThread.join(5000);
+        assertFalse(flushThread.isAlive());
+    }
+
+    private static LeasedQueryResult createResult(ResourceLockManager lockManager, int entities) {
+        List<Entity> entityList = new ArrayList<>();
+        for(int i=0; i<entities; i++) {
+            entityList.add(new SimpleEntity().addProperty("nr", (long) i));
+        }
+
+        lockManager.sharedLock();
+        return new LeasedQueryResult(new EntityQueryResult(entityList), lockManager);
+    }
+}
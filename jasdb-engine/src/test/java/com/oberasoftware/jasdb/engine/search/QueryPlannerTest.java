@@ -0,0 +1,188 @@
+package com.oberasoftware.jasdb.engine.search;
+
+import com.google.common.collect.Lists;
+import com.oberasoftware.jasdb.api.engine.IndexManager;
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.Index;
+import com.oberasoftware.jasdb.api.index.IndexField;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
+import com.oberasoftware.jasdb.api.index.keys.KeyType;
+import com.oberasoftware.jasdb.api.storage.RecordWriter;
+import com.oberasoftware.jasdb.core.SimpleEntity;
+import com.oberasoftware.jasdb.core.index.btreeplus.BTreeIndex;
+import com.oberasoftware.jasdb.core.index.keys.CompositeKey;
+import com.oberasoftware.jasdb.core.index.keys.LongKey;
+import com.oberasoftware.jasdb.core.index.keys.StringKey;
+import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+import com.oberasoftware.jasdb.core.index.keys.keyinfo.KeyInfoImpl;
+import com.oberasoftware.jasdb.core.index.keys.types.LongKeyType;
+import com.oberasoftware.jasdb.core.index.keys.types.StringKeyType;
+import com.oberasoftware.jasdb.core.index.keys.types.UUIDKeyType;
+import com.oberasoftware.jasdb.core.index.query.EqualsCondition;
+import com.oberasoftware.jasdb.core.index.query.NotEqualsCondition;
+import com.oberasoftware.jasdb.core.index.query.RangeCondition;
+import com.oberasoftware.jasdb.core.index.query.SimpleIndexField;
+import com.oberasoftware.jasdb.engine.query.operators.AndBlock;
+import com.oberasoftware.jasdb.engine.query.operators.BlockOperation;
+import com.oberasoftware.jasdb.engine.query.operators.OrBlock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Renze de Vries
+ */
+public class QueryPlannerTest {
+    private static final String TESTBAG = "testbag";
+    private static final int RECORDS = 10000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Index cityIndex;
+    private Index ageIndex;
+    private QueryPlanner queryPlanner;
+
+    @Before
+    public void setup() throws Exception {
+        cityIndex = createIndex("city", new StringKeyType());
+        ageIndex = createIndex("age", new LongKeyType());
+        for(int i=0; i<RECORDS; i++) {
+            UUIDKey documentId = new UUIDKey(0, i);
+            insertKey(cityIndex, "city", new StringKey("city" + (i % 10)), documentId);
+            insertKey(ageIndex, "age", new LongKey(i % 1000), documentId);
+        }
+
+        Map<String, Index> indexes = new HashMap<>();
+        indexes.put(cityIndex.getKeyInfo().getKeyName(), cityIndex);
+        indexes.put(ageIndex.getKeyInfo().getKeyName(), ageIndex);
+
+        IndexManager indexManager = mock(IndexManager.class);
+        when(indexManager.getIndexes(TESTBAG)).thenReturn(indexes);
+        @SuppressWarnings("unchecked")
+        RecordWriter<UUIDKey> recordWriter = mock(RecordWriter.class);
+        when(recordWriter.getSize()).thenReturn((long) RECORDS);
+
+        queryPlanner = new QueryPlanner(TESTBAG, indexManager, recordWriter);
+    }
+
+    @After
+    public void tearDown() throws JasDBStorageException {
+        cityIndex.close();
+        ageIndex.close();
+    }
+
+    @Test
+    public void testMostSelectiveIndexFirst() throws JasDBStorageException {
+        BlockOperation block = new AndBlock();
+        block.addCondition("city", new EqualsCondition(new StringKey("city5")));
+        block.addCondition("age", new EqualsCondition(new LongKey(5)));
+
+        BlockPlan plan = queryPlanner.planBlock(block);
+        assertThat(plan.getAccessType(), is(BlockPlan.AccessType.INDEX));
+        assertThat(plan.getIndexSteps().get(0).getIndex(), is(ageIndex));
+        assertTrue(plan.getEstimatedRows() < 100);
+    }
+
+    @Test
+    public void testUnselectiveConditionScans() throws JasDBStorageException {
+        BlockOperation block = new AndBlock();
+        block.addCondition("city", new NotEqualsCondition(new StringKey("city5")));
+        block.addCondition("name", new EqualsCondition(new StringKey("unknown")));
+
+        BlockPlan plan = queryPlanner.planBlock(block);
+        assertThat(plan.getAccessType(), is(BlockPlan.AccessType.TABLE_SCAN));
+        assertTrue(plan.getIndexSteps().isEmpty());
+    }
+
+    @Test
+    public void testRangeEstimates() throws JasDBStorageException {
+        BlockOperation narrowRange = new AndBlock();
+        narrowRange.addCondition("age", new RangeCondition(new LongKey(10), true, new LongKey(14), true));
+        BlockPlan plan = queryPlanner.planBlock(narrowRange);
+        assertThat(plan.getAccessType(), is(BlockPlan.AccessType.INDEX));
+        assertThat(plan.getIndexSteps().get(0).getIndex(), is(ageIndex));
+
+        BlockOperation wideRange = new AndBlock();
+        wideRange.addCondition("age", new RangeCondition(new LongKey(0), true, new LongKey(899), true));
+        wideRange.addCondition("name", new EqualsCondition(new StringKey("unknown")));
+        assertThat(queryPlanner.planBlock(wideRange).getAccessType(), is(BlockPlan.AccessType.TABLE_SCAN));
+    }
+
+    @Test
+    public void testUnion() throws JasDBStorageException {
+        BlockOperation indexedBlock = new OrBlock();
+        indexedBlock.addCondition("city", new EqualsCondition(new StringKey("city1")));
+        indexedBlock.addCondition("age", new EqualsCondition(new LongKey(5)));
+
+        BlockPlan plan = queryPlanner.planBlock(indexedBlock);
+        assertThat(plan.getAccessType(), is(BlockPlan.AccessType.INDEX));
+        assertThat(plan.getIndexSteps().size(), is(2));
+        assertThat(plan.getIndexSteps().get(0).getIndex(), is(ageIndex));
+
+        BlockOperation unindexedBlock = new OrBlock();
+        unindexedBlock.addCondition("age", new EqualsCondition(new LongKey(5)));
+        unindexedBlock.addCondition("name", new EqualsCondition(new StringKey("unknown")));
+        assertThat(queryPlanner.planBlock(unindexedBlock).getAccessType(), is(BlockPlan.AccessType.TABLE_SCAN));
+    }
+
+    @Test
+    public void testPlanFollowsChangedIndex() throws Exception {
+        BlockOperation block = new AndBlock();
+        block.addCondition("city", new EqualsCondition(new StringKey("city5")));
+        block.addCondition("name", new EqualsCondition(new StringKey("unknown")));
+        assertThat(queryPlanner.planBlock(block).getAccessType(), is(BlockPlan.AccessType.INDEX));
+
+        //almost every record moves to the same city, once the statistics are refreshed the index is no longer used
+        for(int i=0; i<RECORDS; i++) {
+            if(i % 10 != 5) {
+                UUIDKey documentId = new UUIDKey(0, i);
+                removeKey(cityIndex, "city", new StringKey("city" + (i % 10)), documentId);
+                insertKey(cityIndex, "city", new StringKey("city5"), documentId);
+            }
+        }
+
+        BlockPlan plan = queryPlanner.planBlock(block);
+        long timeout = System.currentTimeMillis() + 10000;
+        while(plan.getAccessType() != BlockPlan.AccessType.TABLE_SCAN && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+            plan = queryPlanner.planBlock(block);
+        }
+        assertThat(plan.getAccessType(), is(BlockPlan.AccessType.TABLE_SCAN));
+    }
+
+    private Index createIndex(String field, KeyType keyType) throws JasDBStorageException {
+        List<IndexField> keyFields = Lists.newArrayList(new SimpleIndexField(field, keyType),
+                new SimpleIndexField(SimpleEntity.DOCUMENT_ID, new UUIDKeyType()));
+        KeyInfo keyInfo = new KeyInfoImpl(keyFields, new ArrayList<>());
+        return new BTreeIndex(new File(temporaryFolder.getRoot(), field + ".idx"), keyInfo);
+    }
+
+    private static void insertKey(Index index, String field, Key value, UUIDKey documentId) throws JasDBStorageException {
+        index.insertIntoIndex(createKey(index, field, value, documentId));
+    }
+
+    private static void removeKey(Index index, String field, Key value, UUIDKey documentId) throws JasDBStorageException {
+        index.removeFromIndex(createKey(index, field, value, documentId));
+    }
+
+    private static Key createKey(Index index, String field, Key value, UUIDKey documentId) {
+        return new CompositeKey().addKey(index.getKeyInfo().getKeyNameMapper(), field, value)
+                .addKey(index.getKeyInfo().getKeyNameMapper(), SimpleEntity.DOCUMENT_ID, documentId);
+    }
+}
@@ -0,0 +1,280 @@
+package com.oberasoftware.jasdb.engine.search;
+
+import com.oberasoftware.jasdb.api.engine.IndexManager;
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.Index;
+import com.oberasoftware.jasdb.api.index.query.SearchLimit;
+import com.oberasoftware.jasdb.api.session.Entity;
+import com.oberasoftware.jasdb.api.session.query.AggregateGroup;
+import com.oberasoftware.jasdb.api.session.query.Aggregation;
+import com.oberasoftware.jasdb.api.session.query.AggregationResult;
+import com.oberasoftware.jasdb.api.session.query.Order;
+import com.oberasoftware.jasdb.api.session.query.QueryBuilder;
+import com.oberasoftware.jasdb.api.session.query.QueryResult;
+import com.oberasoftware.jasdb.api.session.query.SortParameter;
+import com.oberasoftware.jasdb.core.SimpleEntity;
+import com.oberasoftware.jasdb.core.index.btreeplus.BTreeIndex;
+import com.oberasoftware.jasdb.core.index.keys.KeyUtil;
+import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+import com.oberasoftware.jasdb.core.index.keys.keyinfo.KeyInfoImpl;
+import com.oberasoftware.jasdb.core.index.keys.types.LongKeyType;
+import com.oberasoftware.jasdb.core.index.keys.types.UUIDKeyType;
+import com.oberasoftware.jasdb.core.index.query.SimpleIndexField;
+import com.oberasoftware.jasdb.engine.BagOperationUtil;
+import com.oberasoftware.jasdb.engine.query.BuilderTransformer;
+import com.oberasoftware.jasdb.writer.transactional.TransactionalRecordWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Renze de Vries
+ */
+public class QuerySearchOperationTest {
+    private static final String TESTBAG = "testbag";
+    private static final int ENTITIES = 1000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private TransactionalRecordWriter recordWriter;
+    private Map<String, Index> indexes = new HashMap<>();
+    private IndexManager indexManager;
+    private List<SimpleEntity> entities = new ArrayList<>();
+
+    @Before
+    public void setup() throws Exception {
+        recordWriter = new TransactionalRecordWriter(new File(temporaryFolder.getRoot(), TESTBAG + ".pjs"));
+        recordWriter.openWriter();
+        createIndex("age");
+        createIndex("tag");
+
+        for(int i=0; i<ENTITIES; i++) {
+            SimpleEntity entity = new SimpleEntity(new UUID(i, 0).toString());
+            entity.addProperty("age", (long) (i % 50));
+            //every entity has a different score, in a different order than the ages
+            entity.addProperty("score", (long) ((i * 37) % ENTITIES));
+            entity.addProperty("tag", true, (long) (i % 10 + 1));
+            if(i % 100 == 0) {
+                entity.addProperty("tag", true, (long) (ENTITIES + i));
+            }
+            addEntity(entity);
+        }
+
+        indexManager = mock(IndexManager.class);
+        when(indexManager.getIndexes(TESTBAG)).thenReturn(indexes);
+    }
+
+    @After
+    public void tearDown() throws JasDBStorageException {
+        for(Index index : indexes.values()) {
+            index.close();
+        }
+        recordWriter.closeWriter();
+    }
+
+    @Test
+    public void testSortWithLimit() throws JasDBStorageException {
+        QueryBuilder query = QueryBuilder.createBuilder().field("age").smallerThan(25);
+        List<SimpleEntity> expected = entities.stream().filter(e -> getLong(e, "age") < 25)
+                .sorted(Comparator.comparingLong((SimpleEntity e) -> getLong(e, "score")).reversed())
+                .collect(Collectors.toList());
+
+        List<SortParameter> sortParameters = Collections.singletonList(new SortParameter("score", Order.DESCENDING));
+        assertIds(expected.subList(0, 20), search(query, new SearchLimit(0, 20), sortParameters));
+        assertIds(expected.subList(40, 60), search(query, new SearchLimit(40, 20), sortParameters));
+        assertIds(expected.subList(expected.size() - 5, expected.size()), search(query, new SearchLimit(expected.size() - 5, 20), sortParameters));
+        assertIds(expected, search(query, new SearchLimit(), sortParameters));
+    }
+
+    @Test
+    public void testSortByIndexWithLimit() throws JasDBStorageException {
+        QueryBuilder query = QueryBuilder.createBuilder().field("age").greaterThanOrEquals(10);
+        List<SortParameter> sortParameters = Collections.singletonList(new SortParameter("age", Order.DESCENDING));
+
+        List<Long> expectedAges = entities.stream().map(e -> getLong(e, "age")).filter(age -> age >= 10)
+                .sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        List<Long> ages = new ArrayList<>();
+        for(Entity entity : search(query, new SearchLimit(100, 50), sortParameters)) {
+            ages.add(getLong(entity, "age"));
+        }
+        assertEquals(expectedAges.subList(100, 150), ages);
+    }
+
+    @Test
+    public void testLimitWithoutSort() throws JasDBStorageException {
+        QueryBuilder query = QueryBuilder.createBuilder().field("age").value(7);
+
+        List<Entity> page = search(query, new SearchLimit(5, 10), null);
+        assertThat(page.size(), is(10));
+        for(Entity entity : page) {
+            assertThat(getLong(entity, "age"), is(7L));
+        }
+        assertThat(search(query, new SearchLimit(15, 10), null).size(), is(5));
+    }
+
+    @Test
+    public void testSelectSingleValuedFields() throws JasDBStorageException {
+        QueryBuilder query = QueryBuilder.createBuilder().field("age").value(7);
+
+        List<Entity> results = search(query, new SearchLimit(), null, Collections.singleton("age"));
+        assertThat(results.size(), is(ENTITIES / 50));
+        for(Entity entity : results) {
+            assertThat(getLong(entity, "age"), is(7L));
+            assertNull(entity.getProperty("score"));
+        }
+    }
+
+    @Test
+    public void testSelectMultiValuedField() throws JasDBStorageException {
+        //the index holds a key for every value of a document, the key found by the query only holds one of them
+        QueryBuilder query = QueryBuilder.createBuilder().field("tag").value(1);
+
+        List<Entity> results = search(query, new SearchLimit(), null, Collections.singleton("tag"));
+        assertThat(results.size(), is(ENTITIES / 10));
+        for(Entity entity : results) {
+            SimpleEntity expected = entities.stream().filter(e -> e.getInternalId().equals(entity.getInternalId())).findFirst().get();
+            assertEquals(expected.getProperty("tag").getValueObjects(), entity.getProperty("tag").getValueObjects());
+        }
+        assertTrue(results.stream().anyMatch(entity -> entity.getProperty("tag").getValues().size() == 2));
+    }
+
+    @Test
+    public void testAggregateMultiValuedField() throws JasDBStorageException {
+        QueryBuilder query = QueryBuilder.createBuilder().field("tag").value(1);
+        List<Long> tags = entities.stream().filter(e -> e.getProperty("tag").getValueObjects().contains(1L))
+                .flatMap(e -> e.getProperty("tag").<Long>getValueObjects().stream()).collect(Collectors.toList());
+
+        QuerySearchOperation searchOperation = new QuerySearchOperation(TESTBAG, indexManager, recordWriter);
+        AggregationResult result = searchOperation.aggregate(BuilderTransformer.transformBuilder(query), null,
+                Arrays.asList(Aggregation.sum("tag"), Aggregation.avg("tag"), Aggregation.min("tag"), Aggregation.max("tag")));
+        AggregateGroup group = result.getGroups().get(0);
+        assertThat(group.getCount(), is((long) ENTITIES / 10));
+        assertThat(((Number) group.getValue(Aggregation.sum("tag"))).longValue(), is(tags.stream().mapToLong(Long::longValue).sum()));
+        assertThat(((Number) group.getValue(Aggregation.avg("tag"))).doubleValue(), is(tags.stream().mapToLong(Long::longValue).average().getAsDouble()));
+        assertThat(((Number) group.getValue(Aggregation.min("tag"))).longValue(), is(1L));
+        assertThat(((Number) group.getValue(Aggregation.max("tag"))).longValue(), is(Collections.max(tags)));
+
+        //a document is part of the group of every value of the group by field
+        result = new QuerySearchOperation(TESTBAG, indexManager, recordWriter).aggregate(BuilderTransformer.transformBuilder(query),
+                "tag", Collections.singletonList(Aggregation.max("age")));
+        assertThat(result.getGroups().size(), is(1 + ENTITIES / 100));
+        assertThat(result.getGroup(1L).getCount(), is((long) ENTITIES / 10));
+        assertThat(result.getGroup((long) ENTITIES + 100).getCount(), is(1L));
+    }
+
+    @Test
+    public void testSelectMultiValuedFieldMissingFromOtherDocument() throws JasDBStorageException {
+        //a document with two values and a document without a value have as many keys in the index as records
+        String bagName = "mixedbag";
+        TransactionalRecordWriter mixedRecordWriter = new TransactionalRecordWriter(new File(temporaryFolder.getRoot(), bagName + ".pjs"));
+        mixedRecordWriter.openWriter();
+        Index tagIndex = new BTreeIndex(new File(temporaryFolder.getRoot(), bagName + "_tag.idx"), new KeyInfoImpl(
+                new ArrayList<>(Arrays.asList(new SimpleIndexField("tag", new LongKeyType()), new SimpleIndexField("age", new LongKeyType()))),
+                new ArrayList<>(Collections.singletonList(new SimpleIndexField(SimpleEntity.DOCUMENT_ID, new UUIDKeyType())))));
+        IndexManager mixedIndexManager = mock(IndexManager.class);
+        when(mixedIndexManager.getIndexes(bagName)).thenReturn(Collections.singletonMap(tagIndex.getKeyInfo().getKeyName(), tagIndex));
+        try {
+            SimpleEntity tagged = new SimpleEntity(new UUID(1, 1).toString());
+            tagged.addProperty("tag", true, 1L);
+            tagged.addProperty("tag", true, 2L);
+            tagged.addProperty("age", 30L);
+            SimpleEntity untagged = new SimpleEntity(new UUID(2, 1).toString());
+            untagged.addProperty("score", 1L);
+            insertEntity(mixedRecordWriter, Collections.singletonList(tagIndex), tagged);
+            insertEntity(mixedRecordWriter, Collections.singletonList(tagIndex), untagged);
+            assertThat(tagIndex.count(), is(mixedRecordWriter.getSize()));
+            assertThat(tagIndex.getMultiValuedCount(), is(1L));
+
+            QueryBuilder query = QueryBuilder.createBuilder().field("tag").value(1);
+            List<Entity> results = new ArrayList<>();
+            try(QueryResult result = new QuerySearchOperation(bagName, mixedIndexManager, mixedRecordWriter)
+                    .search(BuilderTransformer.transformBuilder(query), new SearchLimit(), null, Collections.singleton("tag"))) {
+                for(Entity entity : result) {
+                    results.add(entity);
+                }
+            }
+            assertThat(results.size(), is(1));
+            assertEquals(Arrays.asList(1L, 2L), results.get(0).getProperty("tag").getValueObjects());
+
+            AggregationResult aggregation = new QuerySearchOperation(bagName, mixedIndexManager, mixedRecordWriter)
+                    .aggregate(BuilderTransformer.transformBuilder(query), null, Collections.singletonList(Aggregation.sum("tag")));
+            assertThat(((Number) aggregation.getGroups().get(0).getValue(Aggregation.sum("tag"))).longValue(), is(3L));
+        } finally {
+            tagIndex.close();
+            mixedRecordWriter.closeWriter();
+        }
+    }
+
+    private List<Entity> search(QueryBuilder query, SearchLimit limit, List<SortParameter> sortParameters) throws JasDBStorageException {
+        return search(query, limit, sortParameters, null);
+    }
+
+    private List<Entity> search(QueryBuilder query, SearchLimit limit, List<SortParameter> sortParameters,
+                                Set<String> selectedFields) throws JasDBStorageException {
+        QuerySearchOperation searchOperation = new QuerySearchOperation(TESTBAG, indexManager, recordWriter);
+        List<Entity> results = new ArrayList<>();
+        try(QueryResult result = searchOperation.search(BuilderTransformer.transformBuilder(query), limit, sortParameters, selectedFields)) {
+            for(Entity entity : result) {
+                results.add(entity);
+            }
+        }
+        return results;
+    }
+
+    private void createIndex(String field) throws JasDBStorageException {
+        Index index = new BTreeIndex(new File(temporaryFolder.getRoot(), field + ".idx"), new KeyInfoImpl(
+                new ArrayList<>(Arrays.asList(new SimpleIndexField(field, new LongKeyType()),
+                        new SimpleIndexField(SimpleEntity.DOCUMENT_ID, new UUIDKeyType()))), new ArrayList<>()));
+        indexes.put(index.getKeyInfo().getKeyName(), index);
+    }
+
+    private void addEntity(SimpleEntity entity) throws JasDBStorageException {
+        insertEntity(recordWriter, indexes.values(), entity);
+        entities.add(entity);
+    }
+
+    private static void insertEntity(TransactionalRecordWriter recordWriter, Collection<Index> indexes, SimpleEntity entity) throws JasDBStorageException {
+        recordWriter.writeRecord(new UUIDKey(entity.getInternalId()), BagOperationUtil.toStream(entity));
+        for(Index index : indexes) {
+            if(KeyUtil.isAnyDataPresent(entity, index)) {
+                if(BagOperationUtil.isMultiValued(entity, index)) {
+                    index.updateMultiValuedCount(1);
+                }
+                BagOperationUtil.doIndexInsert(BagOperationUtil.createEntityKeys(entity, index), index);
+            }
+        }
+    }
+
+    private static long getLong(Entity entity, String field) {
+        return (Long) entity.getProperty(field).getFirstValueObject();
+    }
+
+    private static void assertIds(List<? extends Entity> expected, List<Entity> actual) {
+        assertEquals(expected.stream().map(Entity::getInternalId).collect(Collectors.toList()),
+                actual.stream().map(Entity::getInternalId).collect(Collectors.toList()));
+    }
+}
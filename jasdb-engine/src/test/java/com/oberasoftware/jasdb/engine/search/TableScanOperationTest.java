@@ -0,0 +1,160 @@
+package com.oberasoftware.jasdb.engine.search;
+
+import com.oberasoftware.jasdb.api.exceptions.ConfigurationException;
+import com.oberasoftware.jasdb.api.exceptions.CoreConfigException;
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.exceptions.RuntimeJasDBException;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
+import com.oberasoftware.jasdb.core.SimpleEntity;
+import com.oberasoftware.jasdb.core.index.keys.KeyUtil;
+import com.oberasoftware.jasdb.core.index.keys.LongKey;
+import com.oberasoftware.jasdb.core.index.keys.StringKey;
+import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+import com.oberasoftware.jasdb.core.index.query.EqualsCondition;
+import com.oberasoftware.jasdb.core.utils.configuration.XMLConfiguration;
+import com.oberasoftware.jasdb.engine.BagOperationUtil;
+import com.oberasoftware.jasdb.engine.TableScanExecutor;
+import com.oberasoftware.jasdb.engine.query.operators.AndBlock;
+import com.oberasoftware.jasdb.engine.query.operators.BlockOperation;
+import com.oberasoftware.jasdb.writer.transactional.TransactionalRecordWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Renze de Vries
+ */
+public class TableScanOperationTest {
+    private static final int RECORDS = 10000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private TransactionalRecordWriter recordWriter;
+    private TableScanExecutor scanExecutor;
+
+    @Before
+    public void setup() throws Exception {
+        recordWriter = new TransactionalRecordWriter(new File(temporaryFolder.getRoot(), "testbag.pjs"));
+        recordWriter.openWriter();
+        for(int i=0; i<RECORDS; i++) {
+            SimpleEntity entity = new SimpleEntity(new UUID(i, 0).toString());
+            entity.addProperty("type", "scan");
+            entity.addProperty("age", (long) (i % 50));
+            recordWriter.writeRecord(new UUIDKey(entity.getInternalId()), BagOperationUtil.toStream(entity));
+        }
+
+        scanExecutor = new TableScanExecutor(() -> {
+            try {
+                return XMLConfiguration.loadConfiguration("jasdb-tablescan.xml");
+            } catch(CoreConfigException e) {
+                throw new ConfigurationException("Unable to load table scan configuration", e);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws JasDBStorageException {
+        scanExecutor.shutdown();
+        recordWriter.closeWriter();
+    }
+
+    @Test
+    public void testParallelScan() throws JasDBStorageException {
+        assertTrue(scanExecutor.getSegments(recordWriter.getDiskSize()) > 1);
+
+        BlockOperation ageBlock = createBlock("age", new LongKey(7));
+        TableScanOperation parallelScan = new TableScanOperation(recordWriter, scanExecutor);
+        List<UUIDKey> documents = getDocuments(parallelScan.doTableScan(ageBlock, Collections.singleton("age")));
+        assertThat(documents.size(), is(RECORDS / 50));
+        assertThat(parallelScan.getRecordsRead(), is((long) RECORDS));
+
+        //the segments are consumed in record order, so the keys are the same as the keys of a single threaded scan
+        TableScanOperation scan = new TableScanOperation(recordWriter);
+        assertEquals(getDocuments(scan.doTableScan(ageBlock, Collections.singleton("age"))), documents);
+
+        BlockOperation allBlock = createBlock("type", new StringKey("scan"));
+        assertEquals(getDocuments(scan.doTableScan(allBlock, Collections.singleton("type"))),
+                getDocuments(new TableScanOperation(recordWriter, scanExecutor).doTableScan(allBlock, Collections.singleton("type"))));
+    }
+
+    @Test(timeout = 30000)
+    public void testClosedScanReleasesThreads() throws JasDBStorageException {
+        KeyCursor cursor = scanAll();
+        assertTrue(cursor.hasNext());
+        cursor.next();
+        cursor.close();
+
+        assertThat(getDocuments(scanAll()).size(), is(RECORDS));
+    }
+
+    @Test(timeout = 30000)
+    public void testAbandonedScanReleasesThreads() throws JasDBStorageException {
+        //the segments buffer less keys than they produce, the scans of an abandoned cursor give up after the timeout
+        KeyCursor abandoned = scanAll();
+        assertTrue(abandoned.hasNext());
+        abandoned.next();
+
+        assertThat(getDocuments(scanAll()).size(), is(RECORDS));
+        assertScanFails(abandoned);
+    }
+
+    @Test(timeout = 30000)
+    public void testShutdownDuringScan() throws JasDBStorageException {
+        KeyCursor cursor = scanAll();
+        assertTrue(cursor.hasNext());
+        cursor.next();
+
+        scanExecutor.shutdown();
+        assertScanFails(cursor);
+    }
+
+    private KeyCursor scanAll() throws JasDBStorageException {
+        return new TableScanOperation(recordWriter, scanExecutor)
+                .doTableScan(createBlock("type", new StringKey("scan")), Collections.singleton("type"));
+    }
+
+    private static void assertScanFails(KeyCursor cursor) {
+        try {
+            while(cursor.hasNext()) {
+                cursor.next();
+            }
+            fail("The scan should not complete");
+        } catch(RuntimeJasDBException e) {
+            assertTrue(e.getCause() instanceof JasDBStorageException);
+        }
+    }
+
+    private static BlockOperation createBlock(String field, Key value) {
+        BlockOperation block = new AndBlock();
+        block.addCondition(field, new EqualsCondition(value));
+        return block;
+    }
+
+    private static List<UUIDKey> getDocuments(KeyCursor cursor) throws JasDBStorageException {
+        List<UUIDKey> documents = new ArrayList<>();
+        try {
+            while(cursor.hasNext()) {
+                documents.add(KeyUtil.getDocumentKey(cursor.getKeyNameMapper(), cursor.next()));
+            }
+        } finally {
+            cursor.close();
+        }
+        return documents;
+    }
+}
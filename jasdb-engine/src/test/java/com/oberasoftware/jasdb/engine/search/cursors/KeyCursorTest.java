@@ -0,0 +1,300 @@
+package com.oberasoftware.jasdb.engine.search.cursors;
+
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
+import com.oberasoftware.jasdb.api.index.query.IteratorKeyCursor;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
+import com.oberasoftware.jasdb.core.SimpleEntity;
+import com.oberasoftware.jasdb.core.index.keys.CompositeKey;
+import com.oberasoftware.jasdb.core.index.keys.KeyUtil;
+import com.oberasoftware.jasdb.core.index.keys.LongKey;
+import com.oberasoftware.jasdb.core.index.keys.StringKey;
+import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+import com.oberasoftware.jasdb.core.index.keys.keyinfo.KeyNameMapperImpl;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Renze de Vries
+ */
+public class KeyCursorTest {
+    private static final String CITY = "city";
+    private static final String AGE = "age";
+
+    @Test
+    public void testIntersect() throws Exception {
+        KeyCursor driver = createCursor(CITY, 5, 1, 3, 7);
+        KeyCursor other = createCursor(AGE, 3, 9, 5);
+
+        IntersectKeyCursor cursor = new IntersectKeyCursor(driver, other);
+        assertFalse(cursor.isDocumentOrdered());
+        assertTrue(cursor.getKeyNameMapper().isMapped(AGE));
+
+        List<Key> keys = toList(cursor);
+        assertEquals(Arrays.asList(5, 3), getDocuments(cursor.getKeyNameMapper(), keys));
+        for(Key key : keys) {
+            long document = KeyUtil.getDocumentKey(cursor.getKeyNameMapper(), key).getMostSignificant();
+            assertEquals(new StringKey(CITY + document), key.getKey(cursor.getKeyNameMapper(), CITY));
+            assertEquals(new LongKey(document), key.getKey(cursor.getKeyNameMapper(), AGE));
+        }
+
+        assertFalse(new IntersectKeyCursor(createCursor(CITY, 1, 2), createCursor(AGE)).hasNext());
+        assertFalse(new IntersectKeyCursor(createCursor(CITY), createCursor(AGE, 1, 2)).hasNext());
+    }
+
+    @Test
+    public void testIntersectDoesNotChangeSourceKeys() throws Exception {
+        KeyCursor driver = createCursor(CITY, 1);
+        Key driverKey = createKey(driver.getKeyNameMapper(), CITY, 1);
+        KeyCursor sourceCursor = new IteratorKeyCursor(Arrays.asList(driverKey).iterator(), driver.getKeyNameMapper());
+
+        IntersectKeyCursor cursor = new IntersectKeyCursor(sourceCursor, createCursor(AGE, 1));
+        Key merged = cursor.next();
+        assertEquals(new LongKey(1), merged.getKey(cursor.getKeyNameMapper(), AGE));
+        //the fields of the other cursor are not added to the key of the driving cursor
+        assertThat(driverKey.getKeys().length, is(2));
+    }
+
+    @Test
+    public void testUnion() throws Exception {
+        UnionKeyCursor cursor = new UnionKeyCursor(createCursor(CITY, 1, 2), createCursor(CITY, 2, 3));
+        assertFalse(cursor.isDocumentOrdered());
+        assertEquals(Arrays.asList(1, 2, 2, 3), getDocuments(cursor.getKeyNameMapper(), toList(cursor)));
+
+        DistinctKeyCursor distinct = new DistinctKeyCursor(new UnionKeyCursor(createCursor(CITY, 1, 2), createCursor(CITY, 2, 3)));
+        assertEquals(Arrays.asList(1, 2, 3), getDocuments(distinct.getKeyNameMapper(), toList(distinct)));
+
+        UnionKeyCursor empty = new UnionKeyCursor(createCursor(CITY), createCursor(CITY));
+        assertFalse(empty.hasNext());
+    }
+
+    @Test
+    public void testUnionDifferentFields() throws Exception {
+        UnionKeyCursor cursor = new UnionKeyCursor(createCursor(CITY, 1), createCursor(AGE, 2));
+        List<Key> keys = toList(cursor);
+
+        assertEquals(Arrays.asList(1, 2), getDocuments(cursor.getKeyNameMapper(), keys));
+        assertFalse(cursor.getKeyNameMapper().isMapped(CITY));
+        assertFalse(cursor.getKeyNameMapper().isMapped(AGE));
+    }
+
+    @Test
+    public void testMergeIntersect() throws Exception {
+        IntersectKeyCursor cursor = new IntersectKeyCursor(createOrderedCursor(CITY, 1, 3, 5, 7, 9, 11),
+                createOrderedCursor(AGE, 2, 3, 4, 9, 10, 11, 12));
+        assertTrue(cursor.isDocumentOrdered());
+        List<Key> keys = toList(cursor);
+        assertEquals(Arrays.asList(3, 9, 11), getDocuments(cursor.getKeyNameMapper(), keys));
+        for(Key key : keys) {
+            long document = KeyUtil.getDocumentKey(cursor.getKeyNameMapper(), key).getMostSignificant();
+            assertEquals(new LongKey(document), key.getKey(cursor.getKeyNameMapper(), AGE));
+        }
+
+        //the other cursor is ahead of the driver and its key still matches after the driver skips ahead
+        assertIntersect(Arrays.asList(8), new int[] {1, 2, 8}, new int[] {3, 8});
+        assertIntersect(Arrays.asList(5, 6), new int[] {5, 6}, new int[] {1, 5, 6});
+        assertIntersect(Arrays.asList(1, 2, 3), new int[] {1, 2, 3}, new int[] {1, 2, 3});
+        assertIntersect(Collections.emptyList(), new int[] {1, 3, 5}, new int[] {2, 4, 6});
+        assertIntersect(Collections.emptyList(), new int[] {}, new int[] {1, 2});
+        assertIntersect(Collections.emptyList(), new int[] {1, 2}, new int[] {});
+        assertIntersect(Collections.emptyList(), new int[] {}, new int[] {});
+    }
+
+    @Test
+    public void testMergeIntersectSkipTo() throws Exception {
+        IntersectKeyCursor cursor = new IntersectKeyCursor(createOrderedCursor(CITY, 1, 3, 5, 7, 9, 11),
+                createOrderedCursor(AGE, 1, 3, 4, 9, 10, 11));
+        assertEquals(new UUIDKey(0, 9), KeyUtil.getDocumentKey(cursor.getKeyNameMapper(), cursor.skipTo(new UUIDKey(0, 4))));
+        assertEquals(Arrays.asList(11), getDocuments(cursor.getKeyNameMapper(), toList(cursor)));
+
+        IntersectKeyCursor exhausted = new IntersectKeyCursor(createOrderedCursor(CITY, 1, 3), createOrderedCursor(AGE, 1, 3));
+        assertEquals(null, exhausted.skipTo(new UUIDKey(0, 4)));
+    }
+
+    @Test
+    public void testMergeUnion() throws Exception {
+        UnionKeyCursor cursor = new UnionKeyCursor(createOrderedCursor(CITY, 1, 3, 5), createOrderedCursor(CITY, 2, 3, 6));
+        assertTrue(cursor.isDocumentOrdered());
+        assertEquals(Arrays.asList(1, 2, 3, 5, 6), getDocuments(cursor.getKeyNameMapper(), toList(cursor)));
+
+        assertUnion(Arrays.asList(1, 2, 3), new int[] {1, 2, 3}, new int[] {1, 2, 3});
+        assertUnion(Arrays.asList(1, 2, 3, 4), new int[] {3, 4}, new int[] {1, 2});
+        assertUnion(Arrays.asList(1, 2), new int[] {}, new int[] {1, 2});
+        assertUnion(Arrays.asList(1, 2), new int[] {1, 2}, new int[] {});
+        assertUnion(Collections.emptyList(), new int[] {}, new int[] {});
+
+        UnionKeyCursor differentFields = new UnionKeyCursor(createOrderedCursor(CITY, 1, 4), createOrderedCursor(AGE, 2, 4));
+        assertTrue(differentFields.isDocumentOrdered());
+        assertEquals(Arrays.asList(1, 2, 4), getDocuments(differentFields.getKeyNameMapper(), toList(differentFields)));
+    }
+
+    @Test
+    public void testMergeUnionSkipTo() throws Exception {
+        UnionKeyCursor cursor = new UnionKeyCursor(createOrderedCursor(CITY, 1, 3, 5, 9), createOrderedCursor(CITY, 2, 4, 5, 8));
+        assertEquals(new UUIDKey(0, 4), KeyUtil.getDocumentKey(cursor.getKeyNameMapper(), cursor.skipTo(new UUIDKey(0, 4))));
+        assertEquals(Arrays.asList(5, 8, 9), getDocuments(cursor.getKeyNameMapper(), toList(cursor)));
+    }
+
+    @Test
+    public void testMergeRandomInputs() throws Exception {
+        Random random = new Random(42);
+        for(int i=0; i<200; i++) {
+            TreeSet<Integer> first = randomDocuments(random);
+            TreeSet<Integer> second = randomDocuments(random);
+
+            TreeSet<Integer> intersection = new TreeSet<>(first);
+            intersection.retainAll(second);
+            assertIntersect(new ArrayList<>(intersection), toArray(first), toArray(second));
+
+            TreeSet<Integer> union = new TreeSet<>(first);
+            union.addAll(second);
+            assertUnion(new ArrayList<>(union), toArray(first), toArray(second));
+
+            //the union of overlapping ordered cursors produces every document once
+            DistinctKeyCursor distinct = new DistinctKeyCursor(new UnionKeyCursor(createOrderedCursor(CITY, toArray(first)),
+                    createOrderedCursor(CITY, toArray(second))));
+            assertEquals(new ArrayList<>(union), getDocuments(distinct.getKeyNameMapper(), toList(distinct)));
+        }
+    }
+
+    @Test
+    public void testLimit() throws Exception {
+        AtomicInteger pulled = new AtomicInteger();
+        LimitKeyCursor cursor = new LimitKeyCursor(createCountingCursor(pulled, 100), 3, 4);
+        assertEquals(Arrays.asList(3, 4, 5, 6), getDocuments(cursor.getKeyNameMapper(), toList(cursor)));
+
+        //the source is not pulled beyond the end of the page
+        assertThat(pulled.get(), is(7));
+
+        LimitKeyCursor beyondEnd = new LimitKeyCursor(createCursor(CITY, 1, 2), 5, 10);
+        assertFalse(beyondEnd.hasNext());
+    }
+
+    @Test
+    public void testDistinct() throws Exception {
+        DistinctKeyCursor cursor = new DistinctKeyCursor(createCursor(CITY, 4, 1, 4, 2, 1));
+        assertEquals(Arrays.asList(4, 1, 2), getDocuments(cursor.getKeyNameMapper(), toList(cursor)));
+
+        KeyNameMapper mapper = createMapper(CITY);
+        DistinctKeyCursor orderedDistinct = new DistinctKeyCursor(new IteratorKeyCursor(createKeys(mapper, CITY, 1, 2, 3).iterator(), mapper, true));
+        assertTrue(orderedDistinct.isDocumentOrdered());
+        assertEquals(new UUIDKey(0, 2), KeyUtil.getDocumentKey(mapper, orderedDistinct.skipTo(new UUIDKey(0, 2))));
+        assertEquals(Arrays.asList(3), getDocuments(mapper, toList(orderedDistinct)));
+    }
+
+    @Test
+    public void testDistinctLimit() throws Exception {
+        AtomicInteger pulled = new AtomicInteger();
+        KeyCursor duplicates = new UnionKeyCursor(createCountingCursor(pulled, 10), createCursor(CITY, 0, 1, 2));
+        LimitKeyCursor cursor = new LimitKeyCursor(new DistinctKeyCursor(duplicates), 8, 5);
+
+        assertEquals(Arrays.asList(8, 9), getDocuments(cursor.getKeyNameMapper(), toList(cursor)));
+        assertThat(pulled.get(), is(10));
+    }
+
+    private static void assertIntersect(List<Integer> expected, int[] driver, int[] other) throws Exception {
+        IntersectKeyCursor cursor = new IntersectKeyCursor(createOrderedCursor(CITY, driver), createOrderedCursor(AGE, other));
+        assertEquals(expected, getDocuments(cursor.getKeyNameMapper(), toList(cursor)));
+    }
+
+    private static void assertUnion(List<Integer> expected, int[] first, int[] second) throws Exception {
+        UnionKeyCursor cursor = new UnionKeyCursor(createOrderedCursor(CITY, first), createOrderedCursor(CITY, second));
+        assertEquals(expected, getDocuments(cursor.getKeyNameMapper(), toList(cursor)));
+    }
+
+    private static TreeSet<Integer> randomDocuments(Random random) {
+        TreeSet<Integer> documents = new TreeSet<>();
+        int amount = random.nextInt(20);
+        for(int i=0; i<amount; i++) {
+            documents.add(random.nextInt(40));
+        }
+        return documents;
+    }
+
+    private static int[] toArray(TreeSet<Integer> documents) {
+        return documents.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static KeyCursor createOrderedCursor(String field, int... documents) {
+        KeyNameMapper mapper = createMapper(field);
+        return new IteratorKeyCursor(createKeys(mapper, field, documents).iterator(), mapper, true);
+    }
+
+    private static KeyCursor createCountingCursor(AtomicInteger pulled, int documents) {
+        KeyNameMapper mapper = createMapper(CITY);
+        int[] documentIds = new int[documents];
+        for(int i=0; i<documents; i++) {
+            documentIds[i] = i;
+        }
+        Iterator<Key> keys = createKeys(mapper, CITY, documentIds).iterator();
+        return new IteratorKeyCursor(new Iterator<Key>() {
+            @Override
+            public boolean hasNext() {
+                return keys.hasNext();
+            }
+
+            @Override
+            public Key next() {
+                pulled.incrementAndGet();
+                return keys.next();
+            }
+        }, mapper);
+    }
+
+    private static KeyCursor createCursor(String field, int... documents) {
+        KeyNameMapper mapper = createMapper(field);
+        return new IteratorKeyCursor(createKeys(mapper, field, documents).iterator(), mapper);
+    }
+
+    private static KeyNameMapper createMapper(String field) {
+        KeyNameMapperImpl mapper = new KeyNameMapperImpl();
+        mapper.addMappedField(field);
+        mapper.addMappedField(SimpleEntity.DOCUMENT_ID);
+        return mapper;
+    }
+
+    private static List<Key> createKeys(KeyNameMapper mapper, String field, int... documents) {
+        List<Key> keys = new ArrayList<>();
+        for(int document : documents) {
+            keys.add(createKey(mapper, field, document));
+        }
+        return keys;
+    }
+
+    private static Key createKey(KeyNameMapper mapper, String field, int document) {
+        Key value = field.equals(AGE) ? new LongKey(document) : new StringKey(field + document);
+        return new CompositeKey().addKey(mapper, field, value)
+                .addKey(mapper, SimpleEntity.DOCUMENT_ID, new UUIDKey(0, document));
+    }
+
+    private static List<Key> toList(KeyCursor cursor) {
+        List<Key> keys = new ArrayList<>();
+        while(cursor.hasNext()) {
+            keys.add(cursor.next());
+        }
+        cursor.close();
+        return keys;
+    }
+
+    private static List<Integer> getDocuments(KeyNameMapper mapper, List<Key> keys) throws Exception {
+        List<Integer> documents = new ArrayList<>();
+        for(Key key : keys) {
+            documents.add((int) KeyUtil.getDocumentKey(mapper, key).getMostSignificant());
+        }
+        return documents;
+    }
+}
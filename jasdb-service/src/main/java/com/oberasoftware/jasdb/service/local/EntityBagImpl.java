@@ -23,6 +23,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class EntityBagImpl implements EntityBag {
@@ -95,6 +97,13 @@ public class EntityBagImpl implements EntityBag {
 		return entity;
 	}
 	
+	@Override
+	public List<Entity> addEntities(Collection<Entity> entities) throws JasDBStorageException {
+		List<Entity> batch = new ArrayList<>(entities);
+		this.storageService.insertEntities(getContext(), batch);
+		return batch;
+	}
+
 	@Override
 	public Entity updateEntity(Entity entity) throws JasDBStorageException {
         this.storageService.updateEntity(getContext(), entity);
@@ -193,6 +202,11 @@ public class EntityBagImpl implements EntityBag {
         storageService.ensureIndex(indexField, isUnique, valueFields);
 	}
 
+    @Override
+    public void ensureInvertedIndex(IndexField indexField) throws JasDBStorageException {
+        storageService.ensureInvertedIndex(indexField);
+    }
+
     @Override
     public void removeIndex(String indexKeyName) throws JasDBStorageException {
         storageService.removeIndex(indexKeyName);
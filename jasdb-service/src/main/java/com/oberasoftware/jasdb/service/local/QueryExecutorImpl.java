@@ -12,16 +12,25 @@ import com.oberasoftware.jasdb.engine.StorageServiceFactory;
 import com.oberasoftware.jasdb.engine.query.BuilderTransformer;
 import com.oberasoftware.jasdb.engine.query.operators.BlockOperation;
 import com.oberasoftware.jasdb.core.context.RequestContext;
+import com.oberasoftware.jasdb.api.session.query.Aggregation;
+import com.oberasoftware.jasdb.api.session.query.AggregationResult;
 import com.oberasoftware.jasdb.api.session.query.QueryBuilder;
 import com.oberasoftware.jasdb.api.session.query.QueryExecutor;
+import com.oberasoftware.jasdb.api.session.query.QueryExplain;
 import com.oberasoftware.jasdb.api.session.query.QueryResult;
 import com.oberasoftware.jasdb.api.exceptions.ConfigurationException;
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import com.oberasoftware.jasdb.api.index.query.SearchLimit;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 public class QueryExecutorImpl implements QueryExecutor {
 	private QueryBuilder queryBuilder;
 	private SearchLimit limit;
+	private Set<String> selectedFields;
+	private String groupByField;
 	private String bagName;
 	private String instanceId;
 
@@ -47,20 +56,52 @@ public class QueryExecutorImpl implements QueryExecutor {
 		return this;
 	}
 
+	@Override
+	public QueryExecutor select(String... fields) {
+		this.selectedFields = new HashSet<>(Arrays.asList(fields));
+		return this;
+	}
+
 	@Override
 	public QueryResult execute() throws JasDBStorageException {
 		BlockOperation parentSearchCondition = BuilderTransformer.transformBuilder(queryBuilder);
 
+		return getStorageService().search(requestContext, parentSearchCondition, limit, queryBuilder.getSortParams(), selectedFields);
+	}
+
+	@Override
+	public QueryExplain explain() throws JasDBStorageException {
+		BlockOperation parentSearchCondition = BuilderTransformer.transformBuilder(queryBuilder);
+
+		return getStorageService().explain(requestContext, parentSearchCondition, limit, queryBuilder.getSortParams());
+	}
+
+	@Override
+	public long count() throws JasDBStorageException {
+		BlockOperation parentSearchCondition = BuilderTransformer.transformBuilder(queryBuilder);
+
+		return getStorageService().count(requestContext, parentSearchCondition);
+	}
+
+	@Override
+	public QueryExecutor groupBy(String field) {
+		this.groupByField = field;
+		return this;
+	}
+
+	@Override
+	public AggregationResult aggregate(Aggregation... aggregations) throws JasDBStorageException {
+		BlockOperation parentSearchCondition = BuilderTransformer.transformBuilder(queryBuilder);
+
+		return getStorageService().aggregate(requestContext, parentSearchCondition, groupByField, Arrays.asList(aggregations));
+	}
+
+	private StorageService getStorageService() throws JasDBStorageException {
 		try {
 			StorageServiceFactory serviceFactory = ApplicationContextProvider.getApplicationContext().getBean(StorageServiceFactory.class);
-			StorageService storageService = serviceFactory.getOrCreateStorageService(instanceId, bagName);
-			
-			return storageService.search(requestContext, parentSearchCondition, limit, queryBuilder.getSortParams());
+			return serviceFactory.getOrCreateStorageService(instanceId, bagName);
 		} catch(ConfigurationException e) {
 			throw new JasDBStorageException("Unable to execute query due to configuration error", e);
 		}
-		
 	}
-	
-
 }
@@ -3,6 +3,7 @@ package com.oberasoftware.jasdb.acl;
 import com.oberasoftware.jasdb.engine.StorageService;
 import com.oberasoftware.jasdb.engine.metadata.Constants;
 import com.oberasoftware.jasdb.api.engine.Configuration;
+import com.oberasoftware.jasdb.api.session.Entity;
 import com.oberasoftware.jasdb.core.SimpleEntity;
 import com.oberasoftware.jasdb.api.security.AccessMode;
 import com.oberasoftware.jasdb.api.security.UserManager;
@@ -18,6 +19,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.util.List;
 
 /**
  * @author Renze de Vries
@@ -58,6 +60,19 @@ public class AuthorizationServiceWrapper {
         jp.proceed();
     }
 
+    @Around("execution(* com.oberasoftware.jasdb.engine.StorageService.insertEntities(..)) && args(context, entities) && target(storageService)")
+    public void insertEntities(ProceedingJoinPoint jp, RequestContext context, List<Entity> entities, StorageService storageService) throws Throwable {
+        if(securityEnabled) {
+            LOG.debug("Batch insert aspect invoked with context: {}", context);
+
+            userManager.authorize(context.getUserSession(), getObjectName(storageService), AccessMode.WRITE);
+
+            LOG.debug("Authorization done on insert of: {} entities, proceeding for context: {}", entities.size(), context);
+        }
+
+        jp.proceed();
+    }
+
     private String getObjectName(StorageService storageService) {
         return Constants.OBJECT_SEPARATOR + storageService.getInstanceId() + "/bags/" + storageService.getBagName();
     }
@@ -122,6 +137,21 @@ public class AuthorizationServiceWrapper {
         return doReadCheck(context, storageService, jp);
     }
 
+    @Around("execution(* com.oberasoftware.jasdb.engine.StorageService.explain(..)) && args(context, ..) && target(storageService)")
+    public Object explain(ProceedingJoinPoint jp, RequestContext context, StorageService storageService) throws Throwable {
+        return doReadCheck(context, storageService, jp);
+    }
+
+    @Around("execution(* com.oberasoftware.jasdb.engine.StorageService.count(..)) && args(context, ..) && target(storageService)")
+    public Object count(ProceedingJoinPoint jp, RequestContext context, StorageService storageService) throws Throwable {
+        return doReadCheck(context, storageService, jp);
+    }
+
+    @Around("execution(* com.oberasoftware.jasdb.engine.StorageService.aggregate(..)) && args(context, ..) && target(storageService)")
+    public Object aggregate(ProceedingJoinPoint jp, RequestContext context, StorageService storageService) throws Throwable {
+        return doReadCheck(context, storageService, jp);
+    }
+
     private Object doReadCheck(RequestContext requestContext, StorageService storageService, ProceedingJoinPoint jp) throws Throwable {
         if(securityEnabled) {
             LOG.debug("Read aspect invoked with context: {}", requestContext);
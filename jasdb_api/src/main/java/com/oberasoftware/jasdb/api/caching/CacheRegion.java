@@ -5,7 +5,7 @@ import java.util.Collection;
 /**
  * @author Renze de Vries
  */
-public interface CacheRegion<T extends Comparable<T>, X extends CacheEntry> {
+public interface CacheRegion<T extends Comparable<? super T>, X extends CacheEntry> {
     String name();
 
     long lastRegionAccess();
@@ -20,6 +20,12 @@ public interface CacheRegion<T extends Comparable<T>, X extends CacheEntry> {
 
     X getEntry(T key);
 
+    /**
+     * Looks up an entry without counting it as an access to the region, meant for internal bookkeeping such as
+     * releasing an entry that was already retrieved
+     */
+    X peekEntry(T key);
+
     Collection<X> values();
 
     int size();
@@ -27,4 +33,25 @@ public interface CacheRegion<T extends Comparable<T>, X extends CacheEntry> {
     boolean removeEntry(T key);
 
     void clear();
+
+    /**
+     * The amount of lookups that found an entry in the region
+     */
+    default long hits() {
+        return 0;
+    }
+
+    /**
+     * The amount of lookups that did not find an entry in the region
+     */
+    default long misses() {
+        return 0;
+    }
+
+    /**
+     * The amount of entries evicted from the region to reduce its memory size
+     */
+    default long evictions() {
+        return 0;
+    }
 }
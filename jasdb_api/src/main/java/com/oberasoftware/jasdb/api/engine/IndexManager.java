@@ -29,5 +29,16 @@ public interface IndexManager {
 
 	Index createIndex(String bagName, IndexField indexField, boolean unique, IndexField... valueFields) throws JasDBStorageException;
 
+	/**
+	 * Creates an inverted index on the terms of the values of a field, if not present yet. The index shares its
+	 * name with a unique index on the same field, so only one of them can exist.
+	 *
+	 * @param bagName The name of the bag
+	 * @param indexField The field of which the terms are indexed
+	 * @return The inverted index on the field
+	 * @throws JasDBStorageException If unable to create the index or another type of index exists with the same name
+	 */
+	Index createInvertedIndex(String bagName, IndexField indexField) throws JasDBStorageException;
+
     void removeIndex(String bagName, String keyName) throws JasDBStorageException;
 }
\ No newline at end of file
@@ -14,11 +14,18 @@ import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import com.oberasoftware.jasdb.api.index.keys.Key;
 import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
 import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIteratorCollection;
+import com.oberasoftware.jasdb.api.index.query.IteratorKeyCursor;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
 import com.oberasoftware.jasdb.api.index.query.SearchCondition;
 import com.oberasoftware.jasdb.api.index.query.SearchLimit;
 import com.oberasoftware.jasdb.api.session.IndexableItem;
+import com.oberasoftware.jasdb.api.session.query.Order;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -60,6 +67,34 @@ public interface Index extends AutoCloseable {
     long count();
 
     boolean hasUniqueConstraint();
+
+    /**
+     * Returns the amount of documents of which the key fields hold more than one value, these documents have a
+     * key in the index for every value.
+     * @return The amount of multi valued documents, -1 if the index does not keep track of them
+     * @throws JasDBStorageException If unable to open the index
+     */
+    default long getMultiValuedCount() throws JasDBStorageException {
+        return -1;
+    }
+
+    /**
+     * Registers documents of which the key fields hold more than one value being added to or removed from the index
+     * @param delta The change in the amount of multi valued documents
+     * @throws JasDBStorageException If unable to open the index
+     */
+    default void updateMultiValuedCount(long delta) throws JasDBStorageException {
+    }
+
+    /**
+     * Returns the statistics about the keys in the index, these are used to estimate the cost of searching
+     * the index
+     * @return The index statistics, null if the index does not maintain statistics
+     * @throws JasDBStorageException If unable to load the statistics
+     */
+    default IndexStatistics getStatistics() throws JasDBStorageException {
+        return null;
+    }
 	
 	/**
  	 * Determines how close the gives fields match the index descriptor. The scale is on 0-200. This would
@@ -72,6 +107,25 @@ public interface Index extends AutoCloseable {
  	*/
 	int match(Set<String> fields);
 	
+	/**
+	 * Determines if the index can be searched with the given condition, indexes only support the conditions
+	 * that fit the way they store their keys.
+	 *
+	 * @param searchCondition The searchcondition to apply to only this index
+	 * @return True if the index can be searched with the condition
+	 */
+	default boolean supportsCondition(SearchCondition searchCondition) {
+		return true;
+	}
+
+	/**
+	 * Indicates if the keys matching a condition can be searched in the order of the first key field of the index
+	 * @return True if the index can produce its keys in key order
+	 */
+	default boolean supportsKeyOrder() {
+		return true;
+	}
+	
 	/**
 	 * Do a search operation of the index given the searchcondition. The searchCondition is based on a specific search in this
 	 * index and only applies to the given index. The searchlimit determines the maximum results to be retrieved.
@@ -83,6 +137,39 @@ public interface Index extends AutoCloseable {
 	 */
 	IndexSearchResultIteratorCollection searchIndex(SearchCondition searchCondition, SearchLimit searchLimit) throws JasDBStorageException;
 
+	/**
+	 * Opens a cursor over the keys matching the search condition, the index is only searched as far as keys are
+	 * pulled from the cursor. Indexes that do not support searching lazily return a cursor over the results
+	 * of a full search.
+	 *
+	 * @param searchCondition The searchcondition to apply to only this index
+	 * @return The cursor over the matching keys, needs to be closed when no longer used
+	 * @throws JasDBStorageException If unable to open the cursor on the index
+	 */
+	default KeyCursor searchCursor(SearchCondition searchCondition) throws JasDBStorageException {
+		IndexSearchResultIteratorCollection results = searchIndex(searchCondition, NO_SEARCH_LIMIT);
+		return new IteratorKeyCursor(results.getKeys().iterator(), results.getKeyNameMapper());
+	}
+
+	/**
+	 * Opens a cursor over the keys matching the search condition in the given key order. Indexes that can not
+	 * search in descending key order return a cursor over the reversed results of a full search.
+	 *
+	 * @param searchCondition The searchcondition to apply to only this index
+	 * @param order The order in which the keys are produced by the cursor
+	 * @return The cursor over the matching keys, needs to be closed when no longer used
+	 * @throws JasDBStorageException If unable to open the cursor on the index
+	 */
+	default KeyCursor searchCursor(SearchCondition searchCondition, Order order) throws JasDBStorageException {
+		if(order == Order.DESCENDING) {
+			IndexSearchResultIteratorCollection results = searchIndex(searchCondition, NO_SEARCH_LIMIT);
+			List<Key> keys = new ArrayList<>(results.getKeys());
+			Collections.reverse(keys);
+			return new IteratorKeyCursor(keys.iterator(), results.getKeyNameMapper());
+		}
+		return searchCursor(searchCondition);
+	}
+
     /**
      * This gets an iterator which allows iterating over the full index collection
      * @return The index iterator
@@ -98,6 +185,29 @@ public interface Index extends AutoCloseable {
 	 * @throws JasDBStorageException If unable to persist the key in the index
 	 */
 	void insertIntoIndex(Key key) throws JasDBStorageException;
+
+	/**
+	 * Inserts a batch of keys into the index, indexes can override this to insert the keys in key order and
+	 * share the work of locating the position of adjacent keys. Either all keys are inserted or, when a key
+	 * can not be inserted, the keys of the batch that were already inserted are removed again.
+	 *
+	 * @param keys The keys to be persisted to the index
+	 * @throws JasDBStorageException If unable to persist the keys in the index
+	 */
+	default void insertIntoIndex(Collection<Key> keys) throws JasDBStorageException {
+		List<Key> insertedKeys = new ArrayList<>(keys.size());
+		try {
+			for(Key key : keys) {
+				insertIntoIndex(key);
+				insertedKeys.add(key);
+			}
+		} catch(JasDBStorageException e) {
+			for(Key insertedKey : insertedKeys) {
+				removeFromIndex(insertedKey);
+			}
+			throw e;
+		}
+	}
 	
 	/**
 	 * Remove the given key and its values from the index. The key only requires the key part to be populated, value fields
@@ -171,6 +281,25 @@ public interface Index extends AutoCloseable {
 	 * @throws JasDBStorageException If unable to rebuild the index
 	 */
 	void rebuildIndex(Iterator<IndexableItem> indexableItems) throws JasDBStorageException;
+
+	/**
+	 * Rewrites the index from its own keys into a new file, releasing the disk space of removed keys. Indexes
+	 * that do not hold on to the space of removed keys do not need to do anything.
+	 *
+	 * @throws JasDBStorageException If unable to compact the index
+	 */
+	default void compactIndex() throws JasDBStorageException {
+	}
+
+	/**
+	 * Returns the fraction of the index file that is held by free blocks, these are released by compacting the index
+	 *
+	 * @return The free block ratio between 0 and 1, 0 for indexes that do not hold on to the space of removed keys
+	 * @throws JasDBStorageException If unable to determine the free blocks
+	 */
+	default double getFreeBlockRatio() throws JasDBStorageException {
+		return 0;
+	}
 	
 	/**
 	 * This is the memory manager of the index, this is used to determine vital memory parameters.
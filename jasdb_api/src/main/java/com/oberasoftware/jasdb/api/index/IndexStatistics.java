@@ -0,0 +1,28 @@
+package com.oberasoftware.jasdb.api.index;
+
+import com.oberasoftware.jasdb.api.index.query.SearchCondition;
+
+/**
+ * Statistics about the keys stored in an index, used by the query planner to estimate how many keys a search
+ * on the index will produce.
+ *
+ * @author Renze de Vries
+ */
+public interface IndexStatistics {
+    /**
+     * @return The amount of keys in the index
+     */
+    long getKeyCount();
+
+    /**
+     * @return The estimated amount of distinct values of the first key field of the index
+     */
+    long getDistinctValues();
+
+    /**
+     * Estimates the amount of keys in the index that match the search condition
+     * @param condition The search condition
+     * @return The estimated amount of matching keys
+     */
+    long estimateMatches(SearchCondition condition);
+}
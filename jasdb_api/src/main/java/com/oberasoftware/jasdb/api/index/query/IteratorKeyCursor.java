@@ -0,0 +1,56 @@
+package com.oberasoftware.jasdb.api.index.query;
+
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Cursor over keys that are already available, for example the materialized results of an index search
+ *
+ * @author Renze de Vries
+ */
+public class IteratorKeyCursor implements KeyCursor {
+    private final Iterator<Key> keys;
+    private final KeyNameMapper keyNameMapper;
+    private final boolean documentOrdered;
+
+    public IteratorKeyCursor(Iterator<Key> keys, KeyNameMapper keyNameMapper) {
+        this(keys, keyNameMapper, false);
+    }
+
+    public IteratorKeyCursor(Iterator<Key> keys, KeyNameMapper keyNameMapper, boolean documentOrdered) {
+        this.keys = keys;
+        this.keyNameMapper = keyNameMapper;
+        this.documentOrdered = documentOrdered;
+    }
+
+    @Override
+    public KeyNameMapper getKeyNameMapper() {
+        return keyNameMapper;
+    }
+
+    @Override
+    public boolean isDocumentOrdered() {
+        return documentOrdered;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return keys.hasNext();
+    }
+
+    @Override
+    public Key next() {
+        if(!keys.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return keys.next();
+    }
+
+    @Override
+    public void close() {
+
+    }
+}
@@ -0,0 +1,55 @@
+package com.oberasoftware.jasdb.api.index.query;
+
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
+import com.oberasoftware.jasdb.api.session.Entity;
+
+import java.util.Iterator;
+
+/**
+ * A lazily evaluated stream of keys, a cursor only does the work needed to produce the next key when that key
+ * is pulled from it. Cursors can be stacked on top of each other to evaluate a query without materializing
+ * the intermediate results.
+ *
+ * @author Renze de Vries
+ */
+public interface KeyCursor extends Iterator<Key>, AutoCloseable {
+    /**
+     * Maps from field names to key indexes
+     * @return The key name mapper to map indexes to field names of the produced keys
+     */
+    KeyNameMapper getKeyNameMapper();
+
+    /**
+     * Indicates if the keys are produced in ascending order of their document id, with every document produced
+     * at most once. Cursors in document order can be merged without loading either of them in memory.
+     * @return True if the keys are produced in document id order
+     */
+    default boolean isDocumentOrdered() {
+        return false;
+    }
+
+    /**
+     * Skips ahead to the first key with a document id equal to or bigger than the given document id, the returned
+     * key and the keys before it are consumed. Cursors in document order can skip ahead without visiting all the
+     * keys in between.
+     * @param documentKey The document id to skip ahead to
+     * @return The first key with a document id equal to or bigger than the given document id, null if there is none
+     */
+    default Key skipTo(Key documentKey) {
+        while(hasNext()) {
+            Key key = next();
+            Key keyDocument = key.getKey(getKeyNameMapper(), Entity.DOCUMENT_ID);
+            if(keyDocument != null && keyDocument.compareTo(documentKey) >= 0) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Releases the resources held by the cursor, no further keys can be pulled after closing
+     */
+    @Override
+    void close();
+}
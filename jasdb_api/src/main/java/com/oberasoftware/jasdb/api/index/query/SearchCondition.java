@@ -10,8 +10,25 @@ package com.oberasoftware.jasdb.api.index.query;
 import com.oberasoftware.jasdb.api.index.keys.Key;
 import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
 
+import java.util.Collection;
+
 public interface SearchCondition {
 	boolean keyQualifies(Key key);
 
+    /**
+     * Determines if the values of a field qualify for the condition, a field with multiple values qualifies when
+     * any of its values qualifies. Conditions on all the values of a field together override this.
+     * @param keys The keys of the values of the field
+     * @return True if the values qualify for the condition
+     */
+    default boolean keysQualify(Collection<Key> keys) {
+        for(Key key : keys) {
+            if(keyQualifies(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     SearchCondition mergeCondition(KeyNameMapper nameMapper, String sourceField, String mergeField, SearchCondition condition);
 }
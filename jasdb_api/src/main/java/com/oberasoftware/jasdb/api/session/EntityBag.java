@@ -12,6 +12,9 @@ import com.oberasoftware.jasdb.api.index.CompositeIndexField;
 import com.oberasoftware.jasdb.api.index.IndexField;
 import com.oberasoftware.jasdb.api.session.query.*;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -57,6 +60,46 @@ public interface EntityBag {
 	 * @throws JasDBStorageException If unable to persist the entity into the bag
 	 */
 	Entity addEntity(Entity entity) throws JasDBStorageException;
+
+	/**
+	 * Adds a batch of entities to the bag of entities, the entities are written as a single group and their index
+	 * keys are inserted per index as a single batch
+	 * @param entities The entities to add to the bag
+	 * @return The persisted entities
+	 * @throws JasDBStorageException If unable to persist the entities into the bag
+	 */
+	default List<Entity> addEntities(Collection<Entity> entities) throws JasDBStorageException {
+		List<Entity> persistedEntities = new ArrayList<>(entities.size());
+		for(Entity entity : entities) {
+			persistedEntities.add(addEntity(entity));
+		}
+		return persistedEntities;
+	}
+
+	/**
+	 * Adds all entities provided by the iterator to the bag of entities, the entities are added in batches so
+	 * the iterator can stream an amount of entities that does not fit in memory
+	 * @param entities The iterator providing the entities to add to the bag
+	 * @param batchSize The amount of entities to add per batch
+	 * @return The amount of entities added to the bag
+	 * @throws JasDBStorageException If unable to persist the entities into the bag or the batch size is below 1
+	 */
+	default long addEntities(Iterator<Entity> entities, int batchSize) throws JasDBStorageException {
+		if(batchSize < 1) {
+			throw new JasDBStorageException("Invalid batch size: " + batchSize + ", needs to be at least 1");
+		}
+
+		long added = 0;
+		List<Entity> batch = new ArrayList<>(batchSize);
+		while(entities.hasNext()) {
+			batch.add(entities.next());
+			if(batch.size() >= batchSize || !entities.hasNext()) {
+				added += addEntities(batch).size();
+				batch.clear();
+			}
+		}
+		return added;
+	}
 	
 	/**
 	 * Updates an entity in the bag of entities
@@ -118,6 +161,15 @@ public interface EntityBag {
 	 */
 	void ensureIndex(CompositeIndexField indexField, boolean isUnique, IndexField... valueFields) throws JasDBStorageException;
 
+    /**
+     * Ensures there is an inverted index present on the terms of a field in this bag, will create if not existent.
+     * The inverted index allows searching multi-valued and text fields for the documents containing terms.
+     *
+     * @param indexField The field of which the terms are indexed
+     * @throws JasDBStorageException If unable to ensure the index
+     */
+    void ensureInvertedIndex(IndexField indexField) throws JasDBStorageException;
+
     /**
      * Gets a list of all the index names on this bag
      * @return The list of all the index names
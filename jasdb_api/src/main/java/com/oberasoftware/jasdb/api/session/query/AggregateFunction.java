@@ -0,0 +1,13 @@
+package com.oberasoftware.jasdb.api.session.query;
+
+/**
+ * The functions that can be calculated over the values of a field by an aggregation
+ *
+ * @author Renze de Vries
+ */
+public enum AggregateFunction {
+    SUM,
+    AVG,
+    MIN,
+    MAX
+}
@@ -0,0 +1,78 @@
+package com.oberasoftware.jasdb.api.session.query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The aggregated values of the entities that have the same value for the group by field. The values are stored
+ * by the textual form of the aggregation, for example sum(age).
+ *
+ * @author Renze de Vries
+ */
+public class AggregateGroup {
+    private Object groupValue;
+    private long count;
+    private Map<String, Object> values = new LinkedHashMap<>();
+
+    public AggregateGroup() {
+
+    }
+
+    public AggregateGroup(Object groupValue) {
+        this.groupValue = groupValue;
+    }
+
+    /**
+     * @return The value of the group by field of the entities in this group, null for the entities without a value
+     * or when the aggregation is not grouped
+     */
+    public Object getGroupValue() {
+        return groupValue;
+    }
+
+    public void setGroupValue(Object groupValue) {
+        this.groupValue = groupValue;
+    }
+
+    /**
+     * @return The amount of entities in this group
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public Map<String, Object> getValues() {
+        return values;
+    }
+
+    public void setValues(Map<String, Object> values) {
+        this.values = values;
+    }
+
+    /**
+     * Gets the value of an aggregation, sums are longs and averages are doubles, the minimum and maximum have the
+     * type of the field values. Remote results can return other number types.
+     * @param aggregation The aggregation
+     * @return The value of the aggregation, null if none of the entities in the group has a value for the field
+     */
+    public Object getValue(Aggregation aggregation) {
+        return values.get(aggregation.toString());
+    }
+
+    public void setValue(Aggregation aggregation, Object value) {
+        values.put(aggregation.toString(), value);
+    }
+
+    @Override
+    public String toString() {
+        return "AggregateGroup{" +
+                "groupValue=" + groupValue +
+                ", count=" + count +
+                ", values=" + values +
+                '}';
+    }
+}
@@ -0,0 +1,70 @@
+package com.oberasoftware.jasdb.api.session.query;
+
+/**
+ * A function calculated over all the values of a field of the entities matching a query, the values of multi
+ * valued fields are all included.
+ *
+ * @author Renze de Vries
+ */
+public final class Aggregation {
+    private final AggregateFunction function;
+    private final String field;
+
+    public Aggregation(AggregateFunction function, String field) {
+        this.function = function;
+        this.field = field;
+    }
+
+    /**
+     * The sum of the numeric values of the field, values that are not numbers are ignored
+     * @param field The field to sum
+     * @return The aggregation
+     */
+    public static Aggregation sum(String field) {
+        return new Aggregation(AggregateFunction.SUM, field);
+    }
+
+    /**
+     * The average of the numeric values of the field, values that are not numbers are ignored
+     * @param field The field to average
+     * @return The aggregation
+     */
+    public static Aggregation avg(String field) {
+        return new Aggregation(AggregateFunction.AVG, field);
+    }
+
+    public static Aggregation min(String field) {
+        return new Aggregation(AggregateFunction.MIN, field);
+    }
+
+    public static Aggregation max(String field) {
+        return new Aggregation(AggregateFunction.MAX, field);
+    }
+
+    public AggregateFunction getFunction() {
+        return function;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) return true;
+        if(o == null || getClass() != o.getClass()) return false;
+
+        Aggregation that = (Aggregation) o;
+        return function == that.function && field.equals(that.field);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * function.hashCode() + field.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return function.name().toLowerCase() + "(" + field + ")";
+    }
+}
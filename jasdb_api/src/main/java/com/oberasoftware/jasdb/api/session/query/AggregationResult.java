@@ -0,0 +1,69 @@
+package com.oberasoftware.jasdb.api.session.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The result of an aggregation, a single group with all matching entities when the aggregation is not grouped,
+ * otherwise a group for every value of the group by field ordered by that value.
+ *
+ * @author Renze de Vries
+ */
+public class AggregationResult {
+    private String groupField;
+    private List<AggregateGroup> groups = new ArrayList<>();
+
+    public AggregationResult() {
+
+    }
+
+    public AggregationResult(String groupField) {
+        this.groupField = groupField;
+    }
+
+    /**
+     * @return The field the entities are grouped by, null if the aggregation is not grouped
+     */
+    public String getGroupField() {
+        return groupField;
+    }
+
+    public void setGroupField(String groupField) {
+        this.groupField = groupField;
+    }
+
+    public List<AggregateGroup> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(List<AggregateGroup> groups) {
+        this.groups = groups;
+    }
+
+    public void addGroup(AggregateGroup group) {
+        groups.add(group);
+    }
+
+    /**
+     * Gets the group of entities with the given value for the group by field
+     * @param groupValue The value of the group by field, null for the entities without a value
+     * @return The group, null if there is no group for the value
+     */
+    public AggregateGroup getGroup(Object groupValue) {
+        for(AggregateGroup group : groups) {
+            if(Objects.equals(group.getGroupValue(), groupValue)) {
+                return group;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "AggregationResult{" +
+                "groupField='" + groupField + '\'' +
+                ", groups=" + groups +
+                '}';
+    }
+}
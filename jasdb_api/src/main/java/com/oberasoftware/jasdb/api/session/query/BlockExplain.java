@@ -0,0 +1,129 @@
+package com.oberasoftware.jasdb.api.session.query;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes how a single block of the query was evaluated, containing the conditions of the block, the access
+ * path the planner chose with its estimates and the steps that were actually executed. Times are in microseconds
+ * and include the time spent in the child blocks.
+ *
+ * @author Renze de Vries
+ */
+public class BlockExplain {
+    private String blockType;
+    private Map<String, List<String>> conditions = new LinkedHashMap<>();
+    private String accessType;
+    private long estimatedKeys;
+    private double estimatedCost;
+    private long actualKeys;
+    private long time;
+    private List<ExplainStep> steps = new ArrayList<>();
+    private List<BlockExplain> childBlocks = new ArrayList<>();
+
+    public BlockExplain() {
+
+    }
+
+    public BlockExplain(String blockType) {
+        this.blockType = blockType;
+    }
+
+    public String getBlockType() {
+        return blockType;
+    }
+
+    public void setBlockType(String blockType) {
+        this.blockType = blockType;
+    }
+
+    public Map<String, List<String>> getConditions() {
+        return conditions;
+    }
+
+    public void setConditions(Map<String, List<String>> conditions) {
+        this.conditions = conditions;
+    }
+
+    public String getAccessType() {
+        return accessType;
+    }
+
+    public void setAccessType(String accessType) {
+        this.accessType = accessType;
+    }
+
+    public long getEstimatedKeys() {
+        return estimatedKeys;
+    }
+
+    public void setEstimatedKeys(long estimatedKeys) {
+        this.estimatedKeys = estimatedKeys;
+    }
+
+    public double getEstimatedCost() {
+        return estimatedCost;
+    }
+
+    public void setEstimatedCost(double estimatedCost) {
+        this.estimatedCost = estimatedCost;
+    }
+
+    /**
+     * @return The amount of keys produced by the block including the results of its child blocks
+     */
+    public long getActualKeys() {
+        return actualKeys;
+    }
+
+    public void setActualKeys(long actualKeys) {
+        this.actualKeys = actualKeys;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    public List<ExplainStep> getSteps() {
+        return steps;
+    }
+
+    public void setSteps(List<ExplainStep> steps) {
+        this.steps = steps;
+    }
+
+    public void addStep(ExplainStep step) {
+        this.steps.add(step);
+    }
+
+    public List<BlockExplain> getChildBlocks() {
+        return childBlocks;
+    }
+
+    public void setChildBlocks(List<BlockExplain> childBlocks) {
+        this.childBlocks = childBlocks;
+    }
+
+    public void addChildBlock(BlockExplain childBlock) {
+        this.childBlocks.add(childBlock);
+    }
+
+    @Override
+    public String toString() {
+        return "BlockExplain{" +
+                "blockType='" + blockType + '\'' +
+                ", conditions=" + conditions +
+                ", accessType='" + accessType + '\'' +
+                ", estimatedKeys=" + estimatedKeys +
+                ", actualKeys=" + actualKeys +
+                ", steps=" + steps +
+                ", childBlocks=" + childBlocks +
+                '}';
+    }
+}
@@ -0,0 +1,94 @@
+package com.oberasoftware.jasdb.api.session.query;
+
+/**
+ * A single step executed to evaluate a query block, for example searching an index or merging results. Times are
+ * in microseconds and include the time spent in the steps the keys were pulled from.
+ *
+ * @author Renze de Vries
+ */
+public class ExplainStep {
+    public static final String INDEX_SEARCH = "INDEX_SEARCH";
+    public static final String INDEX_MERGE = "INDEX_MERGE";
+    public static final String RECORD_FILTER = "RECORD_FILTER";
+    public static final String TABLE_SCAN = "TABLE_SCAN";
+    public static final String FIND_ALL = "FIND_ALL";
+    public static final String CHILD_MERGE = "CHILD_MERGE";
+
+    private String operation;
+    private String index;
+    private String condition;
+    private long estimatedKeys = -1;
+    private long actualKeys;
+    private long time;
+
+    public ExplainStep() {
+
+    }
+
+    public ExplainStep(String operation) {
+        this.operation = operation;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public void setIndex(String index) {
+        this.index = index;
+    }
+
+    public String getCondition() {
+        return condition;
+    }
+
+    public void setCondition(String condition) {
+        this.condition = condition;
+    }
+
+    /**
+     * @return The amount of keys the planner expected this step to produce, -1 if not estimated
+     */
+    public long getEstimatedKeys() {
+        return estimatedKeys;
+    }
+
+    public void setEstimatedKeys(long estimatedKeys) {
+        this.estimatedKeys = estimatedKeys;
+    }
+
+    public long getActualKeys() {
+        return actualKeys;
+    }
+
+    public void setActualKeys(long actualKeys) {
+        this.actualKeys = actualKeys;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    @Override
+    public String toString() {
+        return "ExplainStep{" +
+                "operation='" + operation + '\'' +
+                ", index='" + index + '\'' +
+                ", condition='" + condition + '\'' +
+                ", estimatedKeys=" + estimatedKeys +
+                ", actualKeys=" + actualKeys +
+                ", time=" + time +
+                '}';
+    }
+}
@@ -7,6 +7,10 @@
  */
 package com.oberasoftware.jasdb.api.session.query;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 public class FieldBuilder {
 	private QueryBuilder builder;
 	private String field;
@@ -76,6 +80,54 @@ public class FieldBuilder {
         return this.builder;
     }
 	
+    public QueryBuilder in(String... values) {
+        builder.addQueryField(new QueryField(field, Arrays.asList(values), QueryFieldOperator.IN));
+        return this.builder;
+    }
+
+    public QueryBuilder in(long... values) {
+        List<Long> longValues = new ArrayList<>(values.length);
+        for(long value : values) {
+            longValues.add(value);
+        }
+        builder.addQueryField(new QueryField(field, longValues, QueryFieldOperator.IN));
+        return this.builder;
+    }
+
+    public QueryBuilder between(String from, String to) {
+        builder.addQueryField(new QueryField(field, Arrays.asList(from, to), QueryFieldOperator.BETWEEN));
+        return this.builder;
+    }
+
+    public QueryBuilder between(long from, long to) {
+        builder.addQueryField(new QueryField(field, Arrays.asList(from, to), QueryFieldOperator.BETWEEN));
+        return this.builder;
+    }
+
+    public QueryBuilder startsWith(String prefix) {
+        builder.addQueryField(new QueryField(field, prefix, QueryFieldOperator.STARTS_WITH));
+        return this.builder;
+    }
+
+    /**
+     * Matches the values of the field containing all the terms of the text, terms are the words of a value
+     * regardless of their case
+     */
+    public QueryBuilder contains(String text) {
+        builder.addQueryField(new QueryField(field, text, QueryFieldOperator.CONTAINS));
+        return this.builder;
+    }
+
+    public QueryBuilder containsAny(String... terms) {
+        builder.addQueryField(new QueryField(field, Arrays.asList(terms), QueryFieldOperator.CONTAINS_ANY));
+        return this.builder;
+    }
+
+    public QueryBuilder containsAll(String... terms) {
+        builder.addQueryField(new QueryField(field, Arrays.asList(terms), QueryFieldOperator.CONTAINS_ALL));
+        return this.builder;
+    }
+
 	public QueryBuilder operation(QueryFieldOperator operator, String value) {
 		builder.addQueryField(new QueryField(field, value, operator));
 		return this.builder;
@@ -12,6 +12,47 @@ import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 public interface QueryExecutor {
 	QueryExecutor limit(int limit);
 	QueryExecutor paging(int start, int max);
+
+	/**
+	 * Limits the entities of the query result to the given fields and the document id. When an index holds the
+	 * values of all selected fields the entities are created from the index without reading the documents. An index
+	 * holds a single value of a multi valued field, so multi valued fields should not be selected from an index
+	 * that holds them. Remote executors can return complete entities.
+	 * @param fields The fields to select
+	 * @return The query executor
+	 */
+	QueryExecutor select(String... fields);
 	
 	QueryResult execute() throws JasDBStorageException;
+
+	/**
+	 * Executes the query and describes how it was evaluated instead of returning the results
+	 * @return The profile of the executed query
+	 * @throws JasDBStorageException If unable to execute the query
+	 */
+	QueryExplain explain() throws JasDBStorageException;
+
+	/**
+	 * Counts the entities matching the query without loading the entities, the limit of the query is ignored
+	 * @return The amount of entities matching the query
+	 * @throws JasDBStorageException If unable to execute the query
+	 */
+	long count() throws JasDBStorageException;
+
+	/**
+	 * Groups the aggregations by the values of the given field, an entity is part of the group of every value of
+	 * a multi valued field
+	 * @param field The field to group the entities by
+	 * @return The query executor
+	 */
+	QueryExecutor groupBy(String field);
+
+	/**
+	 * Calculates the aggregations over the entities matching the query, the limit and sorting of the query are
+	 * ignored. When possible the values are taken from the indexes instead of the entities.
+	 * @param aggregations The aggregations to calculate
+	 * @return The aggregated values, per group if the query is grouped
+	 * @throws JasDBStorageException If unable to execute the query
+	 */
+	AggregationResult aggregate(Aggregation... aggregations) throws JasDBStorageException;
 }
@@ -0,0 +1,101 @@
+package com.oberasoftware.jasdb.api.session.query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The profile of an executed query, describing how every block of the query was evaluated, how many records had
+ * to be fetched from the record storage while evaluating the query and the time spent in every stage of the
+ * query. The query is evaluated lazily, the blocks stage only covers opening the cursors of the blocks, the keys are
+ * pulled through the blocks during the sort stage or otherwise during the evaluate stage. Times are in microseconds.
+ *
+ * @author Renze de Vries
+ */
+public class QueryExplain {
+    public static final String STAGE_BLOCKS = "blocks";
+    public static final String STAGE_SORT = "sort";
+    public static final String STAGE_EVALUATE = "evaluate";
+
+    public static final String SORT_INDEX = "INDEX";
+    public static final String SORT_TOP_K = "TOP_K";
+    public static final String SORT_FULL = "FULL";
+
+    private BlockExplain rootBlock;
+    private long recordsFetched;
+    private long resultSize;
+    private long totalTime;
+    private String sortMethod;
+    private Map<String, Long> stageTimes = new LinkedHashMap<>();
+
+    public BlockExplain getRootBlock() {
+        return rootBlock;
+    }
+
+    public void setRootBlock(BlockExplain rootBlock) {
+        this.rootBlock = rootBlock;
+    }
+
+    /**
+     * @return The amount of records loaded from the record storage to evaluate conditions or sort the results, this
+     * does not include loading the entities of the result
+     */
+    public long getRecordsFetched() {
+        return recordsFetched;
+    }
+
+    public void setRecordsFetched(long recordsFetched) {
+        this.recordsFetched = recordsFetched;
+    }
+
+    public long getResultSize() {
+        return resultSize;
+    }
+
+    public void setResultSize(long resultSize) {
+        this.resultSize = resultSize;
+    }
+
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    public void setTotalTime(long totalTime) {
+        this.totalTime = totalTime;
+    }
+
+    /**
+     * @return How the results were sorted, either in the key order of the searched index, by keeping only the
+     * first results of the page in a heap or by sorting all results. Null if the query is not sorted
+     */
+    public String getSortMethod() {
+        return sortMethod;
+    }
+
+    public void setSortMethod(String sortMethod) {
+        this.sortMethod = sortMethod;
+    }
+
+    public Map<String, Long> getStageTimes() {
+        return stageTimes;
+    }
+
+    public void setStageTimes(Map<String, Long> stageTimes) {
+        this.stageTimes = stageTimes;
+    }
+
+    public void addStageTime(String stage, long time) {
+        this.stageTimes.put(stage, time);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryExplain{" +
+                "rootBlock=" + rootBlock +
+                ", recordsFetched=" + recordsFetched +
+                ", resultSize=" + resultSize +
+                ", totalTime=" + totalTime +
+                ", sortMethod=" + sortMethod +
+                ", stageTimes=" + stageTimes +
+                '}';
+    }
+}
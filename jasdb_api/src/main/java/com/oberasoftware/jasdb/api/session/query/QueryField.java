@@ -7,6 +7,8 @@
  */
 package com.oberasoftware.jasdb.api.session.query;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 
@@ -45,6 +47,14 @@ public final class QueryField {
 		this(field, (Object)value, operator);
 	}
 
+	/**
+	 * Creates a query field for an operator with multiple values, the values to match for the IN operator, the
+	 * lower and upper bound for the BETWEEN operator or the terms for the CONTAINS_ANY and CONTAINS_ALL operators
+	 */
+	public QueryField(String field, List<?> values, QueryFieldOperator operator) {
+		this(field, (Object)new ArrayList<>(values), operator);
+	}
+
 	public String getField() {
 		return field;
 	}
@@ -13,5 +13,11 @@ public enum QueryFieldOperator {
 	SMALLER_THAN,
 	SMALLER_THAN_OR_EQUALS,
 	EQUALS,
-    NOT_EQUALS
+    NOT_EQUALS,
+    IN,
+    BETWEEN,
+    STARTS_WITH,
+    CONTAINS,
+    CONTAINS_ANY,
+    CONTAINS_ALL
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.oberasoftware.jasdb.api.storage;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+
+/**
+ * A record writer that supports online compaction, this rewrites all live records into a new storage
+ * so the space of removed and updated records is returned to the filesystem.
+ *
+ * @author Renze de Vries
+ */
+public interface CompactableRecordWriter<T> extends RecordWriter<T> {
+    /**
+     * Gets the amount of bytes occupied by removed and updated records that a compaction would reclaim
+     * @return The reclaimable size in bytes
+     */
+    long getReclaimableSize();
+
+    /**
+     * Compacts the record storage, the writer remains available for reads and writes during most of the
+     * compaction and is only blocked while switching to the compacted storage.
+     * @return The report of the finished compaction
+     * @throws JasDBStorageException If unable to compact the record storage
+     */
+    CompactionReport compact() throws JasDBStorageException;
+
+    /**
+     * Gets the report of the running or last compaction
+     * @return The compaction report
+     */
+    CompactionReport getCompactionReport();
+}
@@ -0,0 +1,38 @@
+package com.oberasoftware.jasdb.api.storage;
+
+/**
+ * Describes the progress and result of the compaction of a record storage
+ *
+ * @author Renze de Vries
+ */
+public interface CompactionReport {
+    /**
+     * Indicates if the compaction is currently running
+     * @return True if the compaction is running, False if not
+     */
+    boolean isRunning();
+
+    /**
+     * The time the last compaction finished
+     * @return The finish time in milliseconds since epoch, 0 if no compaction finished yet
+     */
+    long getLastCompaction();
+
+    /**
+     * The progress of the running or last compaction
+     * @return The progress as a percentage between 0 and 100
+     */
+    int getProgress();
+
+    /**
+     * The amount of live records copied by the running or last compaction
+     * @return The amount of records copied
+     */
+    long getRecordsCopied();
+
+    /**
+     * The amount of bytes the last compaction returned to the filesystem
+     * @return The reclaimed bytes
+     */
+    long getBytesReclaimed();
+}
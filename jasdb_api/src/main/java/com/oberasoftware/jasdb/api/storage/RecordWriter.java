@@ -10,6 +10,10 @@ package com.oberasoftware.jasdb.api.storage;
 
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 /**
  * This is the interface that any record writers need to implement. Main goal of any record writer is to persist data
  * streams to a persistent storage medium. Any guarantees about transactionality, disk flushing strategy is up to the implementation
@@ -74,6 +78,18 @@ public interface RecordWriter<T> {
 	 * @throws JasDBStorageException If unable to return an iterator, channel is closed or not accessible
 	 */
 	RecordIterator readAllRecords(int limit) throws JasDBStorageException;
+
+	/**
+	 * This splits all persisted records into segments that can be iterated independently of each other, for
+	 * example by different threads. Writers that can not split their records return a single segment.
+	 *
+	 * @param segments The amount of segments requested, fewer segments are returned when there are not enough records
+	 * @return The record iterators over the segments, together iterating over all the persisted records
+	 * @throws JasDBStorageException If unable to return the iterators, channel is closed or not accessible
+	 */
+	default List<RecordIterator> readRecordSegments(int segments) throws JasDBStorageException {
+		return Collections.singletonList(readAllRecords());
+	}
 	
 	/**
 	 * This reads a specific record at the indicated record position
@@ -94,6 +110,19 @@ public interface RecordWriter<T> {
 	 */
 	void writeRecord(T documentId, ClonableDataStream dataStream) throws JasDBStorageException;
 
+	/**
+	 * This writes a batch of records to storage, record writers can override this to write the batch as a single
+	 * group instead of record by record.
+	 *
+	 * @param records The document key identifiers and the datastreams to be written to storage, in write order
+	 * @throws JasDBStorageException If unable to write the records to the storage
+	 */
+	default void writeRecords(Map<T, ClonableDataStream> records) throws JasDBStorageException {
+		for(Map.Entry<T, ClonableDataStream> record : records.entrySet()) {
+			writeRecord(record.getKey(), record.getValue());
+		}
+	}
+
 	/**
 	 * This will command the writer to remove the indicated record from storage.
 	 * 
@@ -1,5 +1,6 @@
 package com.oberasoftware.jasdb.api.storage;
 
+import com.oberasoftware.jasdb.api.engine.Configuration;
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 
 import java.io.File;
@@ -24,4 +25,15 @@ public interface RecordWriterFactory<T> {
      * @throws JasDBStorageException If unable to create a record writer
      */
     RecordWriter<T> createWriter(File file) throws JasDBStorageException;
+
+    /**
+     * Creates a record writer for the given file location using the record writer configuration
+     * @param file The file on which to create a record writer
+     * @param configuration The record writer configuration, can be null if not configured
+     * @return The record writer
+     * @throws JasDBStorageException If unable to create a record writer
+     */
+    default RecordWriter<T> createWriter(File file, Configuration configuration) throws JasDBStorageException {
+        return createWriter(file);
+    }
 }
@@ -116,6 +116,11 @@ public final class RemoteEntityBag implements EntityBag {
                 new IndexDefinition(keyInfo.getKeyName(), keyInfo.keyAsHeader(), keyInfo.valueAsHeader(), -1), isUnique);
     }
 
+    @Override
+    public void ensureInvertedIndex(IndexField indexField) throws JasDBStorageException {
+        throw new JasDBStorageException("Creating an inverted index is not supported on a remote bag");
+    }
+
     @Override
     public void removeIndex(String indexKeyName) throws JasDBStorageException {
         BagConnector connector = RemoteConnectorFactory.createConnector(nodeInformation, BagConnector.class);
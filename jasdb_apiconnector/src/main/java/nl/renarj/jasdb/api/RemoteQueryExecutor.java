@@ -7,8 +7,11 @@
  */
 package nl.renarj.jasdb.api;
 
+import com.oberasoftware.jasdb.api.session.query.Aggregation;
+import com.oberasoftware.jasdb.api.session.query.AggregationResult;
 import com.oberasoftware.jasdb.api.session.query.QueryBuilder;
 import com.oberasoftware.jasdb.api.session.query.QueryExecutor;
+import com.oberasoftware.jasdb.api.session.query.QueryExplain;
 import com.oberasoftware.jasdb.api.session.query.QueryResult;
 import com.oberasoftware.jasdb.api.session.query.SortParameter;
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
@@ -20,6 +23,7 @@ import nl.renarj.jasdb.remote.RemotingContext;
 import com.oberasoftware.jasdb.engine.query.BuilderTransformer;
 import com.oberasoftware.jasdb.engine.query.operators.BlockOperation;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -35,6 +39,7 @@ public class RemoteQueryExecutor implements QueryExecutor {
     private BlockOperation blockOperation;
     private List<SortParameter> sortParameters;
     private SearchLimit limit = new SearchLimit();
+    private String groupByField;
     private RemotingContext context;
 
     protected RemoteQueryExecutor(String instance, RemotingContext context, String bag, NodeInformation nodeInformation, QueryBuilder parentBuilder) {
@@ -59,9 +64,41 @@ public class RemoteQueryExecutor implements QueryExecutor {
         return this;
     }
 
+    /**
+     * The remote connectors do not support selecting fields yet, the results contain the complete entities
+     */
+    @Override
+    public QueryExecutor select(String... fields) {
+        return this;
+    }
+
     @Override
     public QueryResult execute() throws JasDBStorageException {
         EntityConnector connector = RemoteConnectorFactory.createConnector(nodeInformation, EntityConnector.class);
         return connector.find(context, instance, bag, blockOperation, limit, sortParameters);
     }
+
+    @Override
+    public QueryExplain explain() throws JasDBStorageException {
+        EntityConnector connector = RemoteConnectorFactory.createConnector(nodeInformation, EntityConnector.class);
+        return connector.explain(context, instance, bag, blockOperation, limit, sortParameters);
+    }
+
+    @Override
+    public long count() throws JasDBStorageException {
+        EntityConnector connector = RemoteConnectorFactory.createConnector(nodeInformation, EntityConnector.class);
+        return connector.count(context, instance, bag, blockOperation);
+    }
+
+    @Override
+    public QueryExecutor groupBy(String field) {
+        this.groupByField = field;
+        return this;
+    }
+
+    @Override
+    public AggregationResult aggregate(Aggregation... aggregations) throws JasDBStorageException {
+        EntityConnector connector = RemoteConnectorFactory.createConnector(nodeInformation, EntityConnector.class);
+        return connector.aggregate(context, instance, bag, blockOperation, groupByField, Arrays.asList(aggregations));
+    }
 }
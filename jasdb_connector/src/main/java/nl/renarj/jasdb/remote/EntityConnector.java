@@ -1,6 +1,9 @@
 package nl.renarj.jasdb.remote;
 
 import com.oberasoftware.jasdb.api.session.Entity;
+import com.oberasoftware.jasdb.api.session.query.Aggregation;
+import com.oberasoftware.jasdb.api.session.query.AggregationResult;
+import com.oberasoftware.jasdb.api.session.query.QueryExplain;
 import com.oberasoftware.jasdb.api.session.query.QueryResult;
 import com.oberasoftware.jasdb.api.index.query.SearchLimit;
 import com.oberasoftware.jasdb.api.session.query.SortParameter;
@@ -23,6 +26,12 @@ public interface EntityConnector extends  RemoteConnector {
     /* All entity retrieval operations */
     QueryResult find(RemotingContext context, String instance, String bag, BlockOperation blockOperation, SearchLimit limit, List<SortParameter> params) throws RemoteException;
 
+    QueryExplain explain(RemotingContext context, String instance, String bag, BlockOperation blockOperation, SearchLimit limit, List<SortParameter> params) throws RemoteException;
+
+    long count(RemotingContext context, String instance, String bag, BlockOperation blockOperation) throws RemoteException;
+
+    AggregationResult aggregate(RemotingContext context, String instance, String bag, BlockOperation blockOperation, String groupByField, List<Aggregation> aggregations) throws RemoteException;
+
     QueryResult find(RemotingContext context, String instance, String bag) throws RemoteException;
 
     QueryResult find(RemotingContext context, String instance, String bag, int max) throws RemoteException;
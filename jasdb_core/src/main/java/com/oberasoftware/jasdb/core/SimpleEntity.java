@@ -9,12 +9,14 @@
 package com.oberasoftware.jasdb.core;
 
 import com.oberasoftware.jasdb.api.caching.CachableItem;
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import com.oberasoftware.jasdb.api.exceptions.MetadataParseException;
 import com.oberasoftware.jasdb.api.session.Entity;
 import com.oberasoftware.jasdb.api.session.Property;
 import com.oberasoftware.jasdb.api.session.Value;
 import com.oberasoftware.jasdb.core.properties.*;
 import com.oberasoftware.jasdb.core.serializer.EntityDeserializer;
+import com.oberasoftware.jasdb.core.serializer.EntityFieldListener;
 import com.oberasoftware.jasdb.core.serializer.EntitySerializer;
 import com.oberasoftware.jasdb.core.serializer.json.JsonEntityDeserializer;
 import com.oberasoftware.jasdb.core.serializer.json.JsonEntitySerializer;
@@ -464,6 +466,19 @@ public class SimpleEntity implements Serializable, CachableItem, Entity {
         return deserializer.deserializeEntity(inputStream);
     }
 
+    /**
+     * Deserialize only the given top level fields of the entity from the json inputstream, the other fields are
+     * skipped without being materialized.
+     * @param inputStream The inputstream containing json data
+     * @param fields The top level fields to deserialize
+     * @param listener The listener notified of every deserialized field, which can stop the deserialization
+     * @return The partially deserialized entity, null if the listener stopped the deserialization
+     * @throws JasDBStorageException If unable to deserialize the json or if the listener failed
+     */
+    public static Entity fromStream(InputStream inputStream, Set<String> fields, EntityFieldListener listener) throws JasDBStorageException {
+        return deserializer.deserializeFields(inputStream, fields, listener);
+    }
+
     /**
      * Serialize the entity into json format
      * @param entity The entity to serialize into json
@@ -24,6 +24,7 @@ public class GlobalCachingMemoryManager {
     private static final GlobalCachingMemoryManager INSTANCE = new GlobalCachingMemoryManager();
 
     private static final String DEFAULT_MONITOR_INTERVAL = "10s";
+    private static final long EVICTION_TARGET_PCT = 90;
 
     private ConcurrentHashMap<String, CacheRegion<? extends Comparable, ? extends CacheEntry>> regionMap =
             new ConcurrentHashMap<>();
@@ -74,24 +75,31 @@ public class GlobalCachingMemoryManager {
         }
     }
 
+    /**
+     * Checks if the cached memory exceeds the maximum, if so the least used regions are reduced in a single batch
+     * down to the eviction target below the maximum so the next checks do not immediately evict again.
+     */
     public void checkMemoryState(Set<CacheRegion> ignoreRegions) {
         long memorySize = calculateMemorySize();
         if(memorySize > maximumMemory) {
             LOG.debug("Current memory size: {}", memorySize);
             LOG.debug("Maximum memory: {}", maximumMemory);
-            long reduceSize = memorySize - maximumMemory;
-            LOG.info("Memory overflow: {} bytes more than allowed limit", reduceSize);
-            CacheRegion<? extends Comparable, ?> leastUsed = getLeastUsedRegion(ignoreRegions);
-            if(leastUsed != null) {
+            long reduceSize = memorySize - (maximumMemory * EVICTION_TARGET_PCT / 100);
+            LOG.info("Memory overflow: {} bytes more than allowed limit, reducing by: {} bytes", memorySize - maximumMemory, reduceSize);
+            while(reduceSize > 0) {
+                CacheRegion<? extends Comparable, ?> leastUsed = getLeastUsedRegion(ignoreRegions);
+                if(leastUsed == null) {
+                    LOG.warn("Could not reduce memory footprint further, no more reducable regions available, current memory footprint: {}", calculateMemorySize());
+                    break;
+                }
+
                 long actualReduce = leastUsed.reduceBy(reduceSize);
                 LOG.debug("Reduced region: {} by: {} bytes", leastUsed, actualReduce);
                 if(actualReduce < reduceSize) {
                     ignoreRegions.add(leastUsed);
                     LOG.debug("Reduce was not sufficient to meet reduce size: {} was actually: {}", reduceSize, actualReduce);
-                    checkMemoryState(ignoreRegions);
                 }
-            } else {
-                LOG.warn("Could not reduce memory footprint further, no more reducable regions available, current memory footprint: {}", calculateMemorySize());
+                reduceSize -= actualReduce;
             }
         }
     }
@@ -111,10 +119,13 @@ public class GlobalCachingMemoryManager {
     }
 
 
-    public <T extends Comparable<T>> void registerRegion(CacheRegion<T, ? extends CacheEntry> region) {
+    public <T extends Comparable<? super T>> void registerRegion(CacheRegion<T, ? extends CacheEntry> region) {
         regionMap.putIfAbsent(region.name(), region);
     }
 
+    /**
+     * Calculates the total cached memory, every region maintains its own memory size so this only sums the regions
+     */
     public long calculateMemorySize() {
         long total = 0;
         for(CacheRegion<? extends Comparable, ?> region: regionMap.values()) {
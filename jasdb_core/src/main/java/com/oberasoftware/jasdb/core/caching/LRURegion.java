@@ -1,40 +1,53 @@
 package com.oberasoftware.jasdb.core.caching;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Collections2;
 import com.oberasoftware.jasdb.api.caching.CacheEntry;
 import com.oberasoftware.jasdb.api.caching.CacheRegion;
-import com.oberasoftware.jasdb.core.collections.OrderedBalancedTree;
 import com.oberasoftware.jasdb.api.exceptions.RuntimeJasDBException;
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * Cache region that approximates least recently used eviction with the CLOCK algorithm. Lookups are lock-free
+ * and only mark an entry as referenced, eviction walks the entries in insertion order and gives referenced
+ * entries a second chance before evicting them. The memory size of the region is maintained incrementally, the
+ * size of an entry is accounted when it is added and reconciled whenever the entry is accessed.
+ *
  * @author Renze de Vries
  */
-public class LRURegion<T extends CacheEntry> implements CacheRegion<Long, T> {
+public class LRURegion<K extends Comparable<? super K>, T extends CacheEntry> implements CacheRegion<K, T> {
     private static final Logger LOG = LoggerFactory.getLogger(LRURegion.class);
 
-    protected final OrderedBalancedTree<Long, EntryWrapper> cachedBlocks;
-    protected final OrderedBalancedTree<Long, Long> blockAccessTime;
+    protected final ConcurrentHashMap<K, EntryWrapper> cachedBlocks = new ConcurrentHashMap<>();
+    private final Queue<EntryWrapper> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger removedInClock = new AtomicInteger(0);
 
-    private long entryCounter = 0;
-    private long lastAccess = System.currentTimeMillis();
+    private final LongAdder memorySize = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
 
-    private Lock lock = new ReentrantLock();
+    private volatile long lastAccess = System.currentTimeMillis();
+
+    private final Lock evictionLock = new ReentrantLock();
 
     private String name;
 
     public LRURegion(String name) {
-        this.cachedBlocks = new OrderedBalancedTree<>();
-        this.blockAccessTime = new OrderedBalancedTree<>();
         this.name = name;
     }
 
@@ -50,134 +63,193 @@ public class LRURegion<T extends CacheEntry> implements CacheRegion<Long, T> {
 
     @Override
     public long memorySize() {
-        lock.lock();
-        try {
-            long memorySize = 0;
-            for(EntryWrapper entryWrapper : cachedBlocks.values()) {
-                memorySize += entryWrapper.getEntry().memorySize();
-            }
-            return memorySize;
-        } finally {
-            lock.unlock();
-        }
+        return memorySize.sum();
+    }
+
+    @Override
+    public long hits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long evictions() {
+        return evictions.sum();
     }
 
     private void updateAccess() {
-        lastAccess = System.currentTimeMillis();
+        //avoid writing the shared access time on every lookup
+        long now = System.currentTimeMillis();
+        if(now != lastAccess) {
+            lastAccess = now;
+        }
     }
 
     @Override
     public long reduceBy(long reduceSize) {
-        long initialMemory = memorySize();
-        LOG.debug("initial memory: {}", initialMemory);
-        long targetMemory = initialMemory - reduceSize;
-        targetMemory = targetMemory > 0 ? targetMemory : 0; //should never be negative
-        LOG.debug("Target memory: {}", targetMemory);
-        Set<Long> checkedKeys = new HashSet<>();
-        while(memorySize() > targetMemory) {
-            Long key = blockAccessTime.first();
-
-            if(!checkedKeys.contains(key)) {
-                LOG.debug("Removing key: {}", key);
-                removeEntry(key);
-                checkedKeys.add(key);
-            } else {
-                LOG.debug("Cannot reduce memory footprint of region: {} further, key: {} cannot be found", this, key);
-                break;
+        evictionLock.lock();
+        try {
+            long initialMemory = memorySize();
+            LOG.debug("initial memory: {}", initialMemory);
+            long targetMemory = initialMemory - reduceSize;
+            targetMemory = targetMemory > 0 ? targetMemory : 0; //should never be negative
+            LOG.debug("Target memory: {}", targetMemory);
+
+            long currentMemory = initialMemory;
+            //every entry can be given a second chance once before we stop trying
+            long remainingChecks = 2L * cachedBlocks.size();
+            while(currentMemory > targetMemory && remainingChecks-- > 0) {
+                EntryWrapper entryWrapper = clock.poll();
+                if(entryWrapper == null) {
+                    break;
+                } else if(entryWrapper.isRemoved()) {
+                    removedInClock.decrementAndGet();
+                    remainingChecks++;
+                } else if(entryWrapper.clearReferenced() || entryWrapper.getEntry().isInUse()) {
+                    clock.offer(entryWrapper);
+                } else {
+                    long entrySize = evict(entryWrapper);
+                    if(entrySize >= 0) {
+                        LOG.debug("Removed key: {}", entryWrapper.getKey());
+                        evictions.increment();
+                        currentMemory -= entrySize;
+                    }
+                }
+            }
+
+            if(currentMemory > targetMemory) {
+                LOG.debug("Cannot reduce memory footprint of region: {} further", this);
             }
+            LOG.debug("After size: {}", currentMemory);
+            return initialMemory - currentMemory;
+        } finally {
+            evictionLock.unlock();
         }
-        long afterSize = memorySize();
-        LOG.debug("After size: {}", afterSize);
-        return initialMemory - memorySize();
+    }
+
+    /**
+     * Removes the entry from the region and releases it
+     * @return The accounted memory size of the removed entry, -1 if the entry was already removed
+     */
+    private long evict(EntryWrapper entryWrapper) {
+        long entrySize = entryWrapper.markRemoved();
+        if(entrySize >= 0) {
+            LOG.debug("Removing entry: {}", entryWrapper);
+            memorySize.add(-entrySize);
+            cachedBlocks.remove(entryWrapper.getKey(), entryWrapper);
+            try {
+                entryWrapper.getEntry().release();
+            } catch(JasDBStorageException e) {
+                throw new RuntimeJasDBException("Unable to cleanly close index memory block", e);
+            }
+            updateAccess();
+        }
+        return entrySize;
     }
 
     @Override
-    public T putEntry(Long key, T entry) {
-        lock.lock();
+    public T putEntry(K key, T entry) {
         try {
-            EntryWrapper wrapper = cachedBlocks.get(key);
-            if(wrapper == null) {
-                cachedBlocks.put(key, new EntryWrapper(entry, entryCounter));
-                blockAccessTime.put(entryCounter, key);
-                entryCounter++;
+            EntryWrapper wrapper = new EntryWrapper(key, entry);
+            EntryWrapper existing = cachedBlocks.putIfAbsent(key, wrapper);
+            if(existing == null) {
+                memorySize.add(wrapper.getAccountedSize());
+                clock.offer(wrapper);
                 return entry;
             } else {
-                return wrapper.getEntry();
+                existing.markReferenced();
+                existing.reconcile();
+                return existing.getEntry();
             }
         } finally {
             updateAccess();
-            lock.unlock();
         }
     }
 
     @Override
-    public boolean contains(Long key) {
-        return cachedBlocks.contains(key);
+    public boolean contains(K key) {
+        return cachedBlocks.containsKey(key);
     }
 
     @Override
-    public T getEntry(Long key) {
-        lock.lock();
+    public T getEntry(K key) {
         try {
             EntryWrapper entryWrapper = cachedBlocks.get(key);
             if(entryWrapper != null) {
-                updateEntryId(key, entryWrapper);
+                hits.increment();
+                entryWrapper.markReferenced();
+                entryWrapper.reconcile();
                 return entryWrapper.getEntry();
             } else {
+                misses.increment();
                 return null;
             }
         } finally {
             updateAccess();
-            lock.unlock();
         }
     }
 
+    /**
+     * Looks up the entry without counting a hit or miss and without marking it as referenced, the memory size
+     * of the entry is still reconciled.
+     */
     @Override
-    public boolean removeEntry(Long key) {
-        lock.lock();
-        try {
-            EntryWrapper entryWrapper = cachedBlocks.get(key);
-            if(!entryWrapper.getEntry().isInUse()) {
-                LOG.debug("Removing entry: {}", entryWrapper);
-                try {
-                    entryWrapper.getEntry().release();
-                } catch(JasDBStorageException e) {
-                    throw new RuntimeJasDBException("Unable to cleanly close index memory block", e);
-                }
+    public T peekEntry(K key) {
+        EntryWrapper entryWrapper = cachedBlocks.get(key);
+        if(entryWrapper != null) {
+            entryWrapper.reconcile();
+            return entryWrapper.getEntry();
+        }
+        return null;
+    }
 
-                cachedBlocks.remove(key);
-                blockAccessTime.remove(entryWrapper.getEntryId());
-                updateAccess();
+    @Override
+    public boolean removeEntry(K key) {
+        EntryWrapper entryWrapper = cachedBlocks.get(key);
+        if(entryWrapper == null) {
+            return false;
+        } else if(!entryWrapper.getEntry().isInUse()) {
+            if(evict(entryWrapper) >= 0) {
+                removedInClock.incrementAndGet();
+                purgeRemoved();
                 return true;
-            } else {
-                updateEntryId(key, entryWrapper);
-                return false;
             }
-        } finally {
-            lock.unlock();
+            return false;
+        } else {
+            entryWrapper.markReferenced();
+            return false;
         }
     }
 
-    private void updateEntryId(Long key, EntryWrapper entryWrapper) {
-        blockAccessTime.remove(entryWrapper.getEntryId());
-        entryWrapper.setEntryId(entryCounter);
-        blockAccessTime.put(entryWrapper.getEntryId(), key);
-        entryCounter++;
+    /**
+     * Removed entries are left in the clock until eviction passes them, once they outnumber the cached entries
+     * the clock is cleaned up.
+     */
+    private void purgeRemoved() {
+        if(removedInClock.get() > cachedBlocks.size() + 64 && evictionLock.tryLock()) {
+            try {
+                removedInClock.set(0);
+                clock.removeIf(EntryWrapper::isRemoved);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
     }
 
     @Override
     public Collection<T> values() {
-        lock.lock();
-        try {
-            return Collections2.transform(cachedBlocks.values(), new Function<EntryWrapper, T>() {
-                @Override
-                public T apply(EntryWrapper entryWrapper) {
-                    return entryWrapper.getEntry();
-                }
-            });
-        } finally {
-            lock.unlock();
+        List<Map.Entry<K, EntryWrapper>> entries = new ArrayList<>(cachedBlocks.entrySet());
+        entries.sort(Map.Entry.comparingByKey());
+
+        List<T> values = new ArrayList<>(entries.size());
+        for(Map.Entry<K, EntryWrapper> entry : entries) {
+            values.add(entry.getValue().getEntry());
         }
+        return Collections.unmodifiableList(values);
     }
 
     @Override
@@ -187,12 +259,19 @@ public class LRURegion<T extends CacheEntry> implements CacheRegion<Long, T> {
 
     @Override
     public void clear() {
-        lock.lock();
+        evictionLock.lock();
         try {
-            cachedBlocks.reset();
-            blockAccessTime.reset();
+            for(EntryWrapper entryWrapper : cachedBlocks.values()) {
+                long entrySize = entryWrapper.markRemoved();
+                if(entrySize > 0) {
+                    memorySize.add(-entrySize);
+                }
+            }
+            cachedBlocks.clear();
+            clock.clear();
+            removedInClock.set(0);
         } finally {
-            lock.unlock();
+            evictionLock.unlock();
         }
     }
 
@@ -204,31 +283,81 @@ public class LRURegion<T extends CacheEntry> implements CacheRegion<Long, T> {
     }
 
     private class EntryWrapper {
-        private T entry;
-        private Long entryId;
+        private final K key;
+        private final T entry;
+        private volatile boolean referenced = false;
 
-        private EntryWrapper(T entry, Long entryId) {
+        /**
+         * The memory size of the entry as accounted in the region, -1 once the entry is removed
+         */
+        private final AtomicLong accountedSize;
+
+        private EntryWrapper(K key, T entry) {
+            this.key = key;
             this.entry = entry;
-            this.entryId = entryId;
+            this.accountedSize = new AtomicLong(entry.memorySize());
+        }
+
+        public long getAccountedSize() {
+            return accountedSize.get();
+        }
+
+        /**
+         * Accounts any change in the memory size of the entry since it was last accounted
+         */
+        public void reconcile() {
+            long currentSize = entry.memorySize();
+            long previousSize;
+            do {
+                previousSize = accountedSize.get();
+                if(previousSize < 0 || previousSize == currentSize) {
+                    return;
+                }
+            } while(!accountedSize.compareAndSet(previousSize, currentSize));
+            memorySize.add(currentSize - previousSize);
+        }
+
+        public K getKey() {
+            return key;
         }
 
         public T getEntry() {
             return entry;
         }
 
-        public Long getEntryId() {
-            return entryId;
+        public void markReferenced() {
+            //only write when needed to keep concurrent lookups from contending on the same cache line
+            if(!referenced) {
+                referenced = true;
+            }
+        }
+
+        public boolean clearReferenced() {
+            if(referenced) {
+                referenced = false;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Marks the entry as removed
+         * @return The accounted memory size of the entry, -1 if it was already removed
+         */
+        public long markRemoved() {
+            return accountedSize.getAndSet(-1);
         }
 
-        public void setEntryId(Long entryId) {
-            this.entryId = entryId;
+        public boolean isRemoved() {
+            return accountedSize.get() < 0;
         }
 
         @Override
         public String toString() {
             return "EntryWrapper{" +
-                    "entry=" + entry +
-                    ", entryId=" + entryId +
+                    "key=" + key +
+                    ", entry=" + entry +
+                    ", referenced=" + referenced +
                     '}';
         }
     }
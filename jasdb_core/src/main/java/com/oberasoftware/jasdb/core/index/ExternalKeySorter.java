@@ -0,0 +1,232 @@
+package com.oberasoftware.jasdb.core.index;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
+import com.oberasoftware.jasdb.api.index.keys.KeyLoadResult;
+import com.oberasoftware.jasdb.api.storage.DataBlock;
+import com.oberasoftware.jasdb.core.storage.DataBlockFactoryImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts index keys using a bounded amount of memory. Keys are collected in memory until the memory limit is
+ * reached, the collected keys are then sorted and spilled as a sorted run to a temporary file. The sorted keys are
+ * produced by merging all the spilled runs, when no run was spilled the keys are sorted fully in memory.
+ *
+ * @author Renze de Vries
+ */
+public class ExternalKeySorter implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(ExternalKeySorter.class);
+
+    private static final int DATA_BLOCK_SIZE = 65536;
+
+    private final KeyInfo keyInfo;
+    private final File sortDirectory;
+    private final String sortPrefix;
+    private final long maxMemory;
+
+    private List<Key> buffer = new ArrayList<>();
+    private long bufferMemory = 0;
+    private long size = 0;
+
+    private final List<SortedRun> runs = new ArrayList<>();
+
+    /**
+     * @param keyInfo The key information used to write and load the spilled keys
+     * @param sortDirectory The directory to create the spilled runs in
+     * @param sortPrefix The prefix of the spilled run files
+     * @param maxMemory The approximate amount of memory the keys kept in memory may use
+     */
+    public ExternalKeySorter(KeyInfo keyInfo, File sortDirectory, String sortPrefix, long maxMemory) {
+        this.keyInfo = keyInfo;
+        this.sortDirectory = sortDirectory;
+        this.sortPrefix = sortPrefix;
+        this.maxMemory = maxMemory;
+    }
+
+    public void add(Key key) throws JasDBStorageException {
+        buffer.add(key);
+        bufferMemory += key.size();
+        size++;
+
+        if(bufferMemory >= maxMemory) {
+            spill();
+        }
+    }
+
+    /**
+     * @return The total amount of keys added to the sorter
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return The amount of sorted runs spilled to disk
+     */
+    public int getSpilledRuns() {
+        return runs.size();
+    }
+
+    /**
+     * Hands all the added keys in ascending key order to the collector
+     * @param keyCollector The collector receiving the sorted keys
+     * @throws JasDBStorageException If unable to load the spilled keys or the collector fails
+     */
+    public void sortedKeys(IndexRebuildUtil.KeyCollector keyCollector) throws JasDBStorageException {
+        if(runs.isEmpty()) {
+            buffer.sort(null);
+            for(Key key : buffer) {
+                keyCollector.collect(key);
+            }
+        } else {
+            if(!buffer.isEmpty()) {
+                spill();
+            }
+
+            LOG.debug("Merging {} sorted runs with {} keys", runs.size(), size);
+            PriorityQueue<SortedRun> mergeQueue = new PriorityQueue<>(runs.size(),
+                    (r1, r2) -> r1.getCurrent().compareTo(r2.getCurrent()));
+            for(SortedRun run : runs) {
+                if(run.next()) {
+                    mergeQueue.add(run);
+                }
+            }
+
+            while(!mergeQueue.isEmpty()) {
+                SortedRun run = mergeQueue.poll();
+                keyCollector.collect(run.getCurrent());
+
+                if(run.next()) {
+                    mergeQueue.add(run);
+                }
+            }
+        }
+    }
+
+    private void spill() throws JasDBStorageException {
+        buffer.sort(null);
+
+        SortedRun run = new SortedRun(new File(sortDirectory, sortPrefix + "_" + runs.size() + ".sort"));
+        runs.add(run);
+        run.write(buffer);
+        LOG.debug("Spilled sorted run: {} with: {} keys", run, buffer.size());
+
+        buffer = new ArrayList<>();
+        bufferMemory = 0;
+    }
+
+    @Override
+    public void close() throws JasDBStorageException {
+        buffer = new ArrayList<>();
+        bufferMemory = 0;
+
+        JasDBStorageException closeException = null;
+        for(SortedRun run : runs) {
+            try {
+                run.close();
+            } catch(JasDBStorageException e) {
+                closeException = e;
+            }
+        }
+        runs.clear();
+
+        if(closeException != null) {
+            throw closeException;
+        }
+    }
+
+    private class SortedRun {
+        private final File runFile;
+
+        private RandomAccessFile randomAccess;
+        private DataBlockFactoryImpl dataBlockFactory;
+        private long firstBlock;
+        private long amount;
+
+        private DataBlock currentBlock;
+        private int offset;
+        private long loaded;
+        private Key current;
+
+        private SortedRun(File runFile) {
+            this.runFile = runFile;
+        }
+
+        private void write(List<Key> sortedKeys) throws JasDBStorageException {
+            try {
+                randomAccess = new RandomAccessFile(runFile, "rw");
+                randomAccess.setLength(0);
+                FileChannel channel = randomAccess.getChannel();
+                dataBlockFactory = new DataBlockFactoryImpl(runFile, channel, DATA_BLOCK_SIZE);
+                dataBlockFactory.open();
+            } catch(IOException e) {
+                throw new JasDBStorageException("Unable to create sorted run: " + runFile, e);
+            }
+
+            DataBlock dataBlock = dataBlockFactory.getBlockWithSpace(false);
+            firstBlock = dataBlock.getPosition();
+            for(Key key : sortedKeys) {
+                dataBlock = keyInfo.writeKey(key, dataBlock);
+            }
+            amount = sortedKeys.size();
+        }
+
+        private boolean next() throws JasDBStorageException {
+            if(loaded < amount) {
+                if(currentBlock == null) {
+                    currentBlock = dataBlockFactory.loadBlock(firstBlock);
+                }
+
+                KeyLoadResult loadResult = keyInfo.loadKey(offset, currentBlock);
+                current = loadResult.getLoadedKey();
+                currentBlock = loadResult.getEndBlock();
+                offset = loadResult.getNextOffset();
+                loaded++;
+
+                return true;
+            } else {
+                current = null;
+                return false;
+            }
+        }
+
+        private Key getCurrent() {
+            return current;
+        }
+
+        private void close() throws JasDBStorageException {
+            try {
+                if(dataBlockFactory != null) {
+                    dataBlockFactory.close();
+                }
+                if(randomAccess != null) {
+                    randomAccess.close();
+                }
+            } catch(IOException e) {
+                throw new JasDBStorageException("Unable to close sorted run: " + runFile, e);
+            } finally {
+                if(runFile.exists() && !runFile.delete()) {
+                    runFile.deleteOnExit();
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "SortedRun{" +
+                    "runFile=" + runFile +
+                    ", amount=" + amount +
+                    '}';
+        }
+    }
+}
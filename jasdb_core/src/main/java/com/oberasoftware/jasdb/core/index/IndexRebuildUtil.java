@@ -21,6 +21,19 @@ public class IndexRebuildUtil {
     private static final Logger LOG = LoggerFactory.getLogger(IndexRebuildUtil.class);
 
     public static void bulkInsertIndex(Index index, KeyInfo keyInfo, Iterator<IndexableItem> indexableItems) throws JasDBStorageException {
+        collectKeys(index, keyInfo, indexableItems, index::insertIntoIndex);
+    }
+
+    /**
+     * Creates the index keys for all the indexable items and hands them to the collector
+     * @param index The index to create the keys for
+     * @param keyInfo The key information of the index
+     * @param indexableItems The items to create the keys for
+     * @param keyCollector The collector receiving all the created keys
+     * @return The amount of indexable items processed
+     * @throws JasDBStorageException If unable to create the keys or the collector fails
+     */
+    public static long collectKeys(Index index, KeyInfo keyInfo, Iterator<IndexableItem> indexableItems, KeyCollector keyCollector) throws JasDBStorageException {
         KeyFactory keyFactory = keyInfo.getKeyFactory();
         long counter = 0;
         int interval = 0;
@@ -29,13 +42,14 @@ public class IndexRebuildUtil {
             IndexableItem indexableItem = indexableItems.next();
             if(keyFactory.isMultiValueKey(indexableItem)) {
                 Set<Key> keys = keyFactory.createMultivalueKeys(indexableItem);
+                index.updateMultiValuedCount(1);
                 for(Key key : keys) {
-                    index.insertIntoIndex(key);
+                    keyCollector.collect(key);
                 }
             } else {
                 if(KeyUtil.isAnyDataPresent(indexableItem, index)) {
                     Key key = keyFactory.createKey(indexableItem);
-                    index.insertIntoIndex(key);
+                    keyCollector.collect(key);
                 }
             }
             interval++;
@@ -47,5 +61,10 @@ public class IndexRebuildUtil {
         }
         long end = System.currentTimeMillis();
         LOG.info("Finished rebuild for: {} items in: {}", counter, (end - start));
+        return counter;
+    }
+
+    public interface KeyCollector {
+        void collect(Key key) throws JasDBStorageException;
     }
 }
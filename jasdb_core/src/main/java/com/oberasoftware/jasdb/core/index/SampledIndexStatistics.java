@@ -0,0 +1,293 @@
+package com.oberasoftware.jasdb.core.index;
+
+import com.oberasoftware.jasdb.api.index.IndexStatistics;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.query.SearchCondition;
+import com.oberasoftware.jasdb.core.index.keys.CompositeKey;
+import com.oberasoftware.jasdb.core.index.query.EqualsCondition;
+import com.oberasoftware.jasdb.core.index.query.InCondition;
+import com.oberasoftware.jasdb.core.index.query.NotEqualsCondition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Index statistics based on a uniform random sample of the keys in the index. The sample is maintained as a
+ * reservoir from the inserted keys, removed keys are only counted. Once the index has changed too much since the
+ * sample was taken the statistics report themselves as stale and the index should provide a fresh sample, the
+ * current sample remains in use until then.
+ *
+ * Match estimates are the fraction of the sample matching the condition scaled to the amount of keys in the index,
+ * values that are not present in the sample are estimated from the amount of distinct values in the index. The
+ * estimate for a list of values is the sum of the estimates of the individual values.
+ *
+ * @author Renze de Vries
+ */
+public class SampledIndexStatistics implements IndexStatistics {
+    public static final int DEFAULT_SAMPLE_SIZE = 1024;
+
+    private static final int STALE_CHANGE_PCT = 20;
+
+    private final int sampleSize;
+    private final boolean uniqueValues;
+    private final LongSupplier keyCount;
+
+    private final Key[] sample;
+    private int sampled = 0;
+    private final AtomicLong reservoirSeen = new AtomicLong(0);
+    private final AtomicLong changes = new AtomicLong(0);
+
+    /**
+     * Only when the sample covers all the keys in the index can it be maintained from the inserted keys
+     */
+    private volatile boolean sampleComplete;
+
+    private volatile SampleSummary summary;
+
+    /**
+     * @param sampleSize The maximum amount of sampled keys
+     * @param uniqueValues True if every key in the index has a different value for the first key field
+     * @param keyCount Supplies the current amount of keys in the index
+     */
+    public SampledIndexStatistics(int sampleSize, boolean uniqueValues, LongSupplier keyCount) {
+        this.sampleSize = sampleSize;
+        this.uniqueValues = uniqueValues;
+        this.keyCount = keyCount;
+        this.sample = new Key[sampleSize];
+        this.sampleComplete = keyCount.getAsLong() == 0;
+    }
+
+    public void recordInsert(Key key) {
+        changes.incrementAndGet();
+        if(!sampleComplete) {
+            return;
+        }
+
+        long seen = reservoirSeen.incrementAndGet();
+        if(seen <= sampleSize) {
+            addSample(key);
+        } else {
+            //every inserted key has the same chance of being part of the sample
+            long slot = ThreadLocalRandom.current().nextLong(seen);
+            if(slot < sampleSize) {
+                replaceSample((int) slot, key);
+            }
+        }
+    }
+
+    public void recordRemove(Key key) {
+        changes.incrementAndGet();
+    }
+
+    /**
+     * Replaces the sample with a sample that was taken from the index
+     * @param sampledKeys The keys sampled from the index
+     */
+    public synchronized void resample(List<Key> sampledKeys) {
+        Arrays.fill(sample, null);
+        sampled = Math.min(sampledKeys.size(), sampleSize);
+        for(int i=0; i<sampled; i++) {
+            sample[i] = sampledKeys.get(i);
+        }
+        reservoirSeen.set(keyCount.getAsLong());
+        changes.set(0);
+        summary = null;
+        sampleComplete = true;
+    }
+
+    /**
+     * @return True if the index changed too much since the keys were sampled and the index should be sampled again
+     */
+    public boolean isStale() {
+        return !sampleComplete || changes.get() > Math.max(sampleSize, keyCount.getAsLong() * STALE_CHANGE_PCT / 100);
+    }
+
+    /**
+     * @return True if the statistics are based on a sample of the keys in the index
+     */
+    public boolean hasSample() {
+        return sampleComplete;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    private synchronized void addSample(Key key) {
+        if(sampled < sampleSize) {
+            sample[sampled++] = key;
+            summary = null;
+        }
+    }
+
+    private synchronized void replaceSample(int slot, Key key) {
+        if(slot < sampled) {
+            sample[slot] = key;
+            summary = null;
+        }
+    }
+
+    private SampleSummary getSummary() {
+        SampleSummary currentSummary = summary;
+        if(currentSummary == null) {
+            Key[] sampledKeys;
+            synchronized (this) {
+                sampledKeys = Arrays.copyOf(sample, sampled);
+            }
+            currentSummary = new SampleSummary(sampledKeys);
+            summary = currentSummary;
+        }
+        return currentSummary;
+    }
+
+    @Override
+    public long getKeyCount() {
+        return keyCount.getAsLong();
+    }
+
+    @Override
+    public long getDistinctValues() {
+        long count = keyCount.getAsLong();
+        if(uniqueValues) {
+            return count;
+        }
+        return getSummary().estimateDistinct(count);
+    }
+
+    @Override
+    public long estimateMatches(SearchCondition condition) {
+        long count = keyCount.getAsLong();
+        SampleSummary sampleSummary = getSummary();
+        int sampledKeys = sampleSummary.keys.length;
+        if(count == 0) {
+            return 0;
+        } else if(sampledKeys == 0) {
+            return count;
+        }
+
+        if(condition instanceof NotEqualsCondition) {
+            return Math.max(0, count - estimateEquals(((EqualsCondition) condition).getKey(), sampleSummary, count));
+        } else if(condition instanceof EqualsCondition) {
+            return estimateEquals(((EqualsCondition) condition).getKey(), sampleSummary, count);
+        } else if(condition instanceof InCondition) {
+            long matches = 0;
+            for(Key value : ((InCondition) condition).getKeys()) {
+                matches += estimateEquals(value, sampleSummary, count);
+                if(matches >= count) {
+                    return count;
+                }
+            }
+            return matches;
+        } else {
+            int matches = 0;
+            for(Key key : sampleSummary.keys) {
+                if(condition.keyQualifies(key)) {
+                    matches++;
+                }
+            }
+            if(matches > 0) {
+                return scale(matches, sampledKeys, count);
+            } else {
+                //the range falls in between the sampled keys
+                return Math.max(1, count / (2L * sampledKeys));
+            }
+        }
+    }
+
+    private long estimateEquals(Key value, SampleSummary sampleSummary, long count) {
+        if(uniqueValues) {
+            return 1;
+        }
+
+        int sampledKeys = sampleSummary.keys.length;
+        int matches = 0;
+        for(Key key : sampleSummary.keys) {
+            if(key.compareTo(value) == 0) {
+                matches++;
+            }
+        }
+
+        if(matches > 0) {
+            return scale(matches, sampledKeys, count);
+        } else {
+            //a value not present in the sample is less frequent than any value that is in the sample
+            long distinct = sampleSummary.estimateDistinct(count);
+            return Math.max(1, Math.min(count / Math.max(1, distinct), count / sampledKeys));
+        }
+    }
+
+    private static long scale(int matches, int sampledKeys, long count) {
+        return Math.max(1, Math.round((double) matches / sampledKeys * count));
+    }
+
+    @Override
+    public String toString() {
+        return "SampledIndexStatistics{" +
+                "keyCount=" + keyCount.getAsLong() +
+                ", sampled=" + getSummary().keys.length +
+                ", changes=" + changes.get() +
+                '}';
+    }
+
+    private static Key firstValue(Key key) {
+        if(key instanceof CompositeKey) {
+            Key[] keys = key.getKeys();
+            return keys != null && keys.length > 0 ? keys[0] : key;
+        }
+        return key;
+    }
+
+    private static class SampleSummary {
+        private final Key[] keys;
+
+        /**
+         * Amount of values seen exactly once in the sample and amount of values seen more than once
+         */
+        private final int singleValues;
+        private final int repeatedValues;
+
+        private SampleSummary(Key[] keys) {
+            this.keys = keys;
+
+            List<Key> values = new ArrayList<>(keys.length);
+            for(Key key : keys) {
+                values.add(firstValue(key));
+            }
+            values.sort(null);
+
+            int singles = 0;
+            int repeated = 0;
+            int i = 0;
+            while(i < values.size()) {
+                int j = i + 1;
+                while(j < values.size() && values.get(j).compareTo(values.get(i)) == 0) {
+                    j++;
+                }
+                if(j - i == 1) {
+                    singles++;
+                } else {
+                    repeated++;
+                }
+                i = j;
+            }
+            this.singleValues = singles;
+            this.repeatedValues = repeated;
+        }
+
+        /**
+         * Guaranteed error estimator, values seen once in the sample are scaled up by the square root of the
+         * sampling ratio
+         */
+        private long estimateDistinct(long count) {
+            if(keys.length == 0) {
+                return count;
+            }
+            double estimate = Math.sqrt((double) count / keys.length) * singleValues + repeatedValues;
+            return Math.max(singleValues + repeatedValues, Math.min(count, Math.round(estimate)));
+        }
+    }
+}
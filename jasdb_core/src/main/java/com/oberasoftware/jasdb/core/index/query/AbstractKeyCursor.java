@@ -0,0 +1,115 @@
+package com.oberasoftware.jasdb.core.index.query;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.exceptions.RuntimeJasDBException;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
+import com.oberasoftware.jasdb.core.index.keys.KeyUtil;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Base for cursors that produce their keys one at a time, the next key is only computed when the cursor is
+ * asked whether it has a next key.
+ *
+ * @author Renze de Vries
+ */
+public abstract class AbstractKeyCursor implements KeyCursor {
+    private Key nextKey;
+    private boolean finished = false;
+
+    /**
+     * Computes the next key of the cursor
+     * @return The next key, or null if there are no more keys
+     * @throws JasDBStorageException If unable to compute the next key
+     */
+    protected abstract Key computeNext() throws JasDBStorageException;
+
+    /**
+     * Computes the first key with a document id equal to or bigger than the given document id, by default by
+     * computing the next keys until one is found. Cursors that can skip ahead faster override this.
+     * @param documentKey The document id to skip ahead to
+     * @return The first key with a document id equal to or bigger than the given document id, null if none
+     * @throws JasDBStorageException If unable to compute the key
+     */
+    protected Key computeSkipTo(Key documentKey) throws JasDBStorageException {
+        Key key;
+        while((key = computeNext()) != null) {
+            if(compareDocument(key, documentKey) >= 0) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compares the document id of the key to the given document id
+     */
+    protected int compareDocument(Key key, Key documentKey) throws JasDBStorageException {
+        return KeyUtil.getDocumentKey(getKeyNameMapper(), key).compareTo(documentKey);
+    }
+
+    /**
+     * Releases the resources of the cursor, called once when the cursor is exhausted or closed
+     */
+    protected void release() {
+
+    }
+
+    @Override
+    public boolean hasNext() {
+        if(nextKey == null && !finished) {
+            try {
+                nextKey = computeNext();
+            } catch(JasDBStorageException e) {
+                close();
+                throw new RuntimeJasDBException("Unable to compute next key of cursor", e);
+            }
+            if(nextKey == null) {
+                close();
+            }
+        }
+        return nextKey != null;
+    }
+
+    @Override
+    public Key next() {
+        if(!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Key key = nextKey;
+        nextKey = null;
+        return key;
+    }
+
+    @Override
+    public Key skipTo(Key documentKey) {
+        try {
+            if(nextKey != null) {
+                Key key = nextKey;
+                nextKey = null;
+                if(compareDocument(key, documentKey) >= 0) {
+                    return key;
+                }
+            }
+
+            Key key = finished ? null : computeSkipTo(documentKey);
+            if(key == null) {
+                close();
+            }
+            return key;
+        } catch(JasDBStorageException e) {
+            close();
+            throw new RuntimeJasDBException("Unable to skip ahead in cursor", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        nextKey = null;
+        if(!finished) {
+            finished = true;
+            release();
+        }
+    }
+}
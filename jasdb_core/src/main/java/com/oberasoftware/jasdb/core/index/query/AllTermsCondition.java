@@ -0,0 +1,24 @@
+package com.oberasoftware.jasdb.core.index.query;
+
+import java.util.Collection;
+
+/**
+ * Condition matching the values of a field that contain all the terms of the texts
+ *
+ * @author Renze de Vries
+ */
+public class AllTermsCondition extends TermsCondition {
+    public AllTermsCondition(Collection<String> texts) {
+        super(texts);
+    }
+
+    @Override
+    public boolean isMatchAll() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "ContainsAll: " + getTerms();
+    }
+}
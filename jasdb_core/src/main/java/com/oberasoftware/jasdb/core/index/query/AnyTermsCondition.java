@@ -0,0 +1,24 @@
+package com.oberasoftware.jasdb.core.index.query;
+
+import java.util.Collection;
+
+/**
+ * Condition matching the values of a field that contain any of the terms of the texts
+ *
+ * @author Renze de Vries
+ */
+public class AnyTermsCondition extends TermsCondition {
+    public AnyTermsCondition(Collection<String> texts) {
+        super(texts);
+    }
+
+    @Override
+    public boolean isMatchAll() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ContainsAny: " + getTerms();
+    }
+}
@@ -12,6 +12,9 @@ import com.oberasoftware.jasdb.api.index.query.SearchCondition;
 import com.oberasoftware.jasdb.core.index.keys.CompositeKey;
 import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class EqualsCondition implements SearchCondition {
 	private Key key;
 	
@@ -54,6 +57,14 @@ public class EqualsCondition implements SearchCondition {
                         .addKey(nameMapper, mergeField, rangeCondition.getEnd());
             }
             return new RangeCondition(startKey, rangeCondition.isStartIncluded(), endKey, rangeCondition.isEndIncluded());
+        } else if(condition instanceof InCondition) {
+            List<Key> compositeKeys = new ArrayList<>();
+            for(Key inKey : ((InCondition) condition).getKeys()) {
+                compositeKeys.add(new CompositeKey()
+                        .addKey(nameMapper, sourceField, key)
+                        .addKey(nameMapper, mergeField, inKey));
+            }
+            return new InCondition(compositeKeys);
         }
 
         return null;
@@ -0,0 +1,84 @@
+package com.oberasoftware.jasdb.core.index.query;
+
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
+import com.oberasoftware.jasdb.api.index.query.SearchCondition;
+import com.oberasoftware.jasdb.core.index.keys.CompositeKey;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Condition matching any of a list of key values, the values are kept sorted and without duplicates so an index
+ * can find all of them in a single pass over its keys.
+ *
+ * @author Renze de Vries
+ */
+public class InCondition implements SearchCondition {
+    private final List<Key> keys;
+
+    public InCondition(Collection<Key> keys) {
+        List<Key> sortedKeys = new ArrayList<>(keys);
+        sortedKeys.sort(null);
+
+        this.keys = new ArrayList<>(sortedKeys.size());
+        for(Key key : sortedKeys) {
+            if(this.keys.isEmpty() || this.keys.get(this.keys.size() - 1).compareTo(key) != 0) {
+                this.keys.add(key);
+            }
+        }
+    }
+
+    /**
+     * @return The key values in ascending order
+     */
+    public List<Key> getKeys() {
+        return Collections.unmodifiableList(keys);
+    }
+
+    @Override
+    public boolean keyQualifies(Key key) {
+        if(keys.isEmpty()) {
+            return false;
+        } else if(keys.get(0).getClass() == key.getClass()) {
+            return Collections.binarySearch(keys, key) >= 0;
+        } else {
+            //keys of a different type do not compare in the same order as the values
+            for(Key value : keys) {
+                if(value.compareTo(key) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public SearchCondition mergeCondition(KeyNameMapper nameMapper, String sourceField, String mergeField, SearchCondition condition) {
+        if(condition instanceof EqualsCondition && !(condition instanceof NotEqualsCondition)) {
+            Key mergeKey = ((EqualsCondition) condition).getKey();
+
+            List<Key> compositeKeys = new ArrayList<>(keys.size());
+            for(Key key : keys) {
+                CompositeKey compositeKey;
+                if(key instanceof CompositeKey) {
+                    compositeKey = (CompositeKey) key.cloneKey();
+                } else {
+                    compositeKey = new CompositeKey();
+                    compositeKey.addKey(nameMapper, sourceField, key);
+                }
+                compositeKeys.add(compositeKey.addKey(nameMapper, mergeField, mergeKey));
+            }
+            return new InCondition(compositeKeys);
+        }
+
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "In: " + keys;
+    }
+}
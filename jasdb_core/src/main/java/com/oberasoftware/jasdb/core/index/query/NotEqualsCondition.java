@@ -35,4 +35,8 @@ public class NotEqualsCondition extends EqualsCondition {
         return null;
     }
 
+    @Override
+    public String toString() {
+        return "NotEquals: " + getKey();
+    }
 }
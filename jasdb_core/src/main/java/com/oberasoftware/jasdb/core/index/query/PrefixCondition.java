@@ -0,0 +1,46 @@
+package com.oberasoftware.jasdb.core.index.query;
+
+import com.oberasoftware.jasdb.core.index.keys.StringKey;
+
+import java.util.Arrays;
+
+/**
+ * Condition matching the string keys starting with a prefix. The prefix is searched as the range of keys from the
+ * prefix up to the first key that no longer has the prefix, which is the prefix with its last byte incremented.
+ *
+ * @author Renze de Vries
+ */
+public class PrefixCondition extends RangeCondition {
+    private static final int BIT_MASK = 0xff;
+
+    private final StringKey prefix;
+
+    public PrefixCondition(StringKey prefix) {
+        super(prefix, true, createUpperBound(prefix), false);
+        this.prefix = prefix;
+    }
+
+    public StringKey getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return The smallest key bigger than all keys starting with the prefix, null if there is no such key
+     */
+    private static StringKey createUpperBound(StringKey prefix) {
+        byte[] bytes = prefix.getUnicodeBytes();
+        for(int i = bytes.length - 1; i >= 0; i--) {
+            if((bytes[i] & BIT_MASK) != BIT_MASK) {
+                byte[] upperBytes = Arrays.copyOf(bytes, i + 1);
+                upperBytes[i]++;
+                return new StringKey(upperBytes);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "StartsWith: " + prefix;
+    }
+}
@@ -0,0 +1,26 @@
+package com.oberasoftware.jasdb.core.index.query;
+
+import java.util.Collections;
+
+/**
+ * Condition matching the values of a field that contain a single term
+ *
+ * @author Renze de Vries
+ */
+public class TermCondition extends AllTermsCondition {
+    public TermCondition(String term) {
+        super(Collections.singletonList(term));
+        if(getTerms().size() != 1) {
+            throw new IllegalArgumentException("Expected a single term but was: " + term);
+        }
+    }
+
+    public String getTerm() {
+        return getTerms().get(0);
+    }
+
+    @Override
+    public String toString() {
+        return "Contains: " + getTerm();
+    }
+}
@@ -0,0 +1,45 @@
+package com.oberasoftware.jasdb.core.index.query;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Splits text into the terms used by the inverted index and the term conditions. A term is a sequence of letters
+ * and digits, every other character separates terms, and terms are lower cased so matching ignores the case.
+ *
+ * @author Renze de Vries
+ */
+public final class TermTokenizer {
+    private TermTokenizer() {
+
+    }
+
+    /**
+     * Splits the text into its distinct terms
+     * @param text The text to split
+     * @return The distinct terms in order of their first occurrence, empty if the text has no terms
+     */
+    public static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if(text == null) {
+            return terms;
+        }
+
+        StringBuilder term = new StringBuilder();
+        int offset = 0;
+        while(offset < text.length()) {
+            int codePoint = text.codePointAt(offset);
+            if(Character.isLetterOrDigit(codePoint)) {
+                term.appendCodePoint(Character.toLowerCase(codePoint));
+            } else if(term.length() > 0) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+            offset += Character.charCount(codePoint);
+        }
+        if(term.length() > 0) {
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,82 @@
+package com.oberasoftware.jasdb.core.index.query;
+
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
+import com.oberasoftware.jasdb.api.index.query.SearchCondition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Condition matching the values of a field by the terms they contain, the terms of the condition are taken from
+ * the given texts using the same tokenization as the inverted index. The terms of all the values of a multi-valued
+ * field are matched together, a condition without any terms matches nothing.
+ *
+ * @author Renze de Vries
+ */
+public abstract class TermsCondition implements SearchCondition {
+    private final List<String> terms;
+
+    protected TermsCondition(Collection<String> texts) {
+        Set<String> sortedTerms = new TreeSet<>();
+        for(String text : texts) {
+            sortedTerms.addAll(TermTokenizer.tokenize(text));
+        }
+        this.terms = new ArrayList<>(sortedTerms);
+    }
+
+    /**
+     * @return The distinct terms of the condition in ascending order
+     */
+    public List<String> getTerms() {
+        return Collections.unmodifiableList(terms);
+    }
+
+    /**
+     * @return True if a value needs to contain all the terms, False if any of the terms is enough
+     */
+    public abstract boolean isMatchAll();
+
+    @Override
+    public boolean keyQualifies(Key key) {
+        return keysQualify(Collections.singleton(key));
+    }
+
+    @Override
+    public boolean keysQualify(Collection<Key> keys) {
+        Set<String> valueTerms = new HashSet<>();
+        for(Key key : keys) {
+            Object value = key.getValue();
+            if(value != null) {
+                valueTerms.addAll(TermTokenizer.tokenize(value.toString()));
+            }
+        }
+
+        if(terms.isEmpty()) {
+            return false;
+        } else if(isMatchAll()) {
+            return valueTerms.containsAll(terms);
+        } else {
+            for(String term : terms) {
+                if(valueTerms.contains(term)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Terms can only be searched in an inverted index on the field, they can not be combined with the conditions
+     * of other fields
+     */
+    @Override
+    public SearchCondition mergeCondition(KeyNameMapper nameMapper, String sourceField, String mergeField, SearchCondition condition) {
+        return null;
+    }
+}
@@ -1,9 +1,11 @@
 package com.oberasoftware.jasdb.core.serializer;
 
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import com.oberasoftware.jasdb.api.exceptions.MetadataParseException;
 import com.oberasoftware.jasdb.api.session.Entity;
 
 import java.io.InputStream;
+import java.util.Set;
 
 /**
  * @author Renze de Vries
@@ -12,4 +14,15 @@ public interface EntityDeserializer {
     Entity deserializeEntity(String entity) throws MetadataParseException;
 
     Entity deserializeEntity(InputStream stream) throws MetadataParseException;
+
+    /**
+     * Deserializes only the given top level fields of the entity, the values of all other fields are skipped
+     * without being materialized. Deserialization stops as soon as all given fields have been deserialized.
+     * @param stream The stream containing the entity
+     * @param fields The top level fields to deserialize
+     * @param listener The listener that is notified of every deserialized field and can stop the deserialization
+     * @return The partially deserialized entity, null if the listener stopped the deserialization
+     * @throws JasDBStorageException If unable to deserialize the entity or if the listener failed
+     */
+    Entity deserializeFields(InputStream stream, Set<String> fields, EntityFieldListener listener) throws JasDBStorageException;
 }
@@ -0,0 +1,20 @@
+package com.oberasoftware.jasdb.core.serializer;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.session.Entity;
+
+/**
+ * Listens to the fields of an entity that is only partially deserialized
+ *
+ * @author Renze de Vries
+ */
+public interface EntityFieldListener {
+    /**
+     * Called when one of the requested top level fields has been deserialized into the entity
+     * @param entity The entity containing the fields deserialized so far
+     * @param field The name of the top level field that was deserialized
+     * @return True to continue the deserialization, False to stop the deserialization
+     * @throws JasDBStorageException If unable to handle the field
+     */
+    boolean fieldDeserialized(Entity entity, String field) throws JasDBStorageException;
+}
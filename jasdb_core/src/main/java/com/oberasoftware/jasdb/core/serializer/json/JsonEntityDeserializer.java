@@ -8,10 +8,13 @@ import com.oberasoftware.jasdb.core.utils.StringUtils;
 import com.oberasoftware.jasdb.core.EmbeddedEntity;
 import com.oberasoftware.jasdb.core.SimpleEntity;
 import com.oberasoftware.jasdb.core.serializer.EntityDeserializer;
+import com.oberasoftware.jasdb.core.serializer.EntityFieldListener;
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import com.oberasoftware.jasdb.api.exceptions.MetadataParseException;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Set;
 
 /**
  * @author Renze de Vries
@@ -56,39 +59,78 @@ public class JsonEntityDeserializer implements EntityDeserializer {
         }
     }
 
-    private Entity handleProperties(JsonParser parser, Entity entity) throws IOException, MetadataParseException {
-        JsonToken token = parser.getCurrentToken() == JsonToken.START_OBJECT ? parser.getCurrentToken() : parser.nextToken();
-        if(token == JsonToken.START_OBJECT) {
-            token = parser.nextToken();
-            while(token != JsonToken.END_OBJECT) {
+    @Override
+    public Entity deserializeFields(InputStream stream, Set<String> fields, EntityFieldListener listener) throws JasDBStorageException {
+        try(JsonParser parser = factory.createParser(stream)) {
+            assertToken(JsonToken.START_OBJECT, parser.nextToken());
+
+            Entity entity = new SimpleEntity();
+            int remainingFields = fields.size();
+            JsonToken token = parser.nextToken();
+            while(token != JsonToken.END_OBJECT && remainingFields > 0) {
                 assertToken(JsonToken.FIELD_NAME, token);
                 String fieldName = parser.getCurrentName();
 
-                if(SimpleEntity.DOCUMENT_ID.equals(fieldName)) {
-                    token = parser.nextToken();
-                    if(token != JsonToken.VALUE_NULL) {
-                        String id = parser.getText();
-                        entity.setInternalId(id);
+                if(fields.contains(fieldName)) {
+                    handleField(parser, fieldName, entity);
+                    remainingFields--;
+
+                    if(!listener.fieldDeserialized(entity, fieldName)) {
+                        return null;
                     }
-                    parser.nextToken();
                 } else {
-                    token = parser.nextToken(); // start values
-                    if(token == JsonToken.START_ARRAY) { //multivalues
-                        parser.nextToken(); //we need to advance by one for first value
-                        handleValues(parser, fieldName, true, entity);
-                        parser.nextToken();
-                    } else {
-                        handleValues(parser, fieldName, false, entity);
-                    }
+                    //skips over the value without materializing it, for objects and arrays up to the closing token
+                    parser.nextToken();
+                    parser.skipChildren();
+                    parser.nextToken();
                 }
                 token = parser.getCurrentToken();
             }
             return entity;
+        } catch(IOException e) {
+            throw new MetadataParseException("Unable to parse entity", e);
+        }
+    }
+
+    private Entity handleProperties(JsonParser parser, Entity entity) throws IOException, MetadataParseException {
+        JsonToken token = parser.getCurrentToken() == JsonToken.START_OBJECT ? parser.getCurrentToken() : parser.nextToken();
+        if(token == JsonToken.START_OBJECT) {
+            token = parser.nextToken();
+            while(token != JsonToken.END_OBJECT) {
+                assertToken(JsonToken.FIELD_NAME, token);
+                handleField(parser, parser.getCurrentName(), entity);
+                token = parser.getCurrentToken();
+            }
+            return entity;
         } else {
             return null;
         }
     }
 
+    /**
+     * Deserializes the value of the field the parser is positioned on, leaves the parser positioned on the token
+     * following the value
+     */
+    private void handleField(JsonParser parser, String fieldName, Entity entity) throws IOException, MetadataParseException {
+        if(SimpleEntity.DOCUMENT_ID.equals(fieldName)) {
+            JsonToken token = parser.nextToken();
+            if(token != JsonToken.VALUE_NULL) {
+                String id = parser.getText();
+                entity.setInternalId(id);
+            }
+            parser.nextToken();
+        } else {
+            JsonToken token = parser.nextToken(); // start values
+            if(token == JsonToken.START_ARRAY) { //multivalues
+                parser.nextToken(); //we need to advance by one for first value
+                handleValues(parser, fieldName, true, entity);
+                parser.nextToken();
+            } else {
+                handleValues(parser, fieldName, false, entity);
+            }
+        }
+    }
+
     private void handleValues(JsonParser parser, String field, boolean isCollection, Entity entity) throws IOException, MetadataParseException {
         JsonToken token = parser.getCurrentToken();
         while(token != JsonToken.END_ARRAY && token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
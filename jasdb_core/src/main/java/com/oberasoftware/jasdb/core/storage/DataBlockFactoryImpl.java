@@ -25,7 +25,7 @@ public class DataBlockFactoryImpl implements DataBlockFactory {
     private int blockSize;
     private long initialPosition = 0;
 
-    private LRURegion<BlockEntry<DataBlock>> activeBlockRegion;
+    private LRURegion<Long, BlockEntry<DataBlock>> activeBlockRegion;
     private AtomicLong nextPosition = new AtomicLong(initialPosition);
 
     private FileChannel fileChannel;
@@ -121,7 +121,7 @@ public class DataBlockFactoryImpl implements DataBlockFactory {
 
     @Override
     public void releaseBlock(long position) throws JasDBStorageException {
-        activeBlockRegion.getEntry(position).decrementBlockCount();
+        activeBlockRegion.peekEntry(position).decrementBlockCount();
     }
 
     @Override
@@ -261,6 +261,8 @@ public class DataBlockImpl implements DataBlock {
             WriteResult result = dataBlock.writeDataStream(stream, true);
             long bytesWritten = result.bytesWritten();
             byte[] byteValue = convertLong(bytesWritten);
+            //an empty stream written before does not move the buffer position, so position on the marker
+            mappedByteBuffer.position(header.markerWithHeader());
             mappedByteBuffer.put(Arrays.copyOf(byteValue, available()));
 
             MappedByteBuffer buffer = dataBlock.getBuffer();
@@ -5,6 +5,7 @@ import com.oberasoftware.jasdb.api.storage.RecordResult;
 import com.oberasoftware.jasdb.core.storage.ClonableByteArrayInputStream;
 import com.oberasoftware.jasdb.api.storage.ClonableDataStream;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
@@ -37,6 +38,24 @@ public class RecordStreamUtil {
         return stringBuilder.toString();
     }
 
+    public static byte[] toBytes(RecordResult result) throws JasDBStorageException {
+        int expectedSize = (int) Math.max(0, Math.min(result.getRecordSize(), Integer.MAX_VALUE - 8));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(expectedSize > 0 ? expectedSize : 4096);
+
+        InputStream inputStream = result.getStream();
+        int read;
+        byte[] buffer = new byte[4096];
+        try {
+            while((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+        } catch(IOException e) {
+            throw new JasDBStorageException("Unable to read record stream", e);
+        }
+
+        return outputStream.toByteArray();
+    }
+
     public static ClonableDataStream toStream(String data) {
         return new ClonableByteArrayInputStream(data.getBytes(Charset.forName(UTF_8)));
     }
@@ -9,6 +9,7 @@ package com.oberasoftware.jasdb.core;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import com.oberasoftware.jasdb.api.exceptions.MetadataParseException;
 import com.oberasoftware.jasdb.api.session.Entity;
 import com.oberasoftware.jasdb.api.session.Property;
@@ -19,6 +20,8 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static org.hamcrest.CoreMatchers.containsString;
@@ -110,6 +113,40 @@ public class SimpleEntityTest {
         assertEquals("emValue3", embeddedEntity.getProperty("embeddedMultivalue").getValues().get(2).getValue());
     }
 
+    @Test
+    public void testDeserializeFields() throws JasDBStorageException {
+        SimpleEntity entity = new SimpleEntity("SomeId");
+        entity.setProperty("skipped", "value1", "value2");
+        entity.setProperty("age", 30L);
+        EmbeddedEntity embeddedEntity = new EmbeddedEntity();
+        embeddedEntity.setProperty("city", "Amsterdam");
+        embeddedEntity.setProperty("street", "Damrak");
+        entity.addEntity("address", embeddedEntity);
+        entity.setProperty("name", "Renze");
+        String serializedEntity = SimpleEntity.toJson(entity);
+
+        List<String> deserializedFields = new ArrayList<>();
+        Entity partialEntity = SimpleEntity.fromStream(toStream(serializedEntity),
+                new HashSet<>(Arrays.asList(SimpleEntity.DOCUMENT_ID, "address", "age")), (e, field) -> deserializedFields.add(field));
+        assertNotNull(partialEntity);
+        assertThat(partialEntity.getInternalId(), is("SomeId"));
+        assertThat(partialEntity.getValue("age"), is(30L));
+        assertThat(partialEntity.getValue("address.city"), is("Amsterdam"));
+        assertFalse(partialEntity.hasProperty("skipped"));
+        assertFalse(partialEntity.hasProperty("name"));
+        assertThat(deserializedFields.size(), is(3));
+        assertThat(deserializedFields, hasItems(SimpleEntity.DOCUMENT_ID, "address", "age"));
+
+        deserializedFields.clear();
+        assertNull(SimpleEntity.fromStream(toStream(serializedEntity), new HashSet<>(Arrays.asList("age", "name")),
+                (e, field) -> !deserializedFields.add(field)));
+        assertThat(deserializedFields.size(), is(1));
+    }
+
+    private static ByteArrayInputStream toStream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
     @Test
     public void testMultiValueEmbedded() throws MetadataParseException {
         Entity entity = new SimpleEntity();
@@ -4,17 +4,23 @@ import com.oberasoftware.jasdb.api.caching.CacheEntry;
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 public class LRURegionTest {
     @Test
     public void testLastRegionAccess() {
-        LRURegion<MockCacheEntry<Long>> region = new LRURegion<>("region");
+        LRURegion<Long, MockCacheEntry<Long>> region = new LRURegion<>("region");
         long lastAccess = region.lastRegionAccess();
         int testSize = 100000;
         for(int i=0; i<testSize; i++) {
@@ -29,7 +35,7 @@ public class LRURegionTest {
     public void testRegionPut() {
         int testSize = 100000;
         long blockSize = 9999;
-        LRURegion<MockCacheEntry<Long>> region = new LRURegion<>("region");
+        LRURegion<Long, MockCacheEntry<Long>> region = new LRURegion<>("region");
         for(int i=0; i<testSize; i++) {
             region.putEntry((long)i, new MockCacheEntry<>(blockSize, (long)i * 2));
 
@@ -41,7 +47,7 @@ public class LRURegionTest {
     @Test
     public void testRegionGet() {
         int testSize = 100000;
-        LRURegion<MockCacheEntry<Long>> region = new LRURegion<>("region");
+        LRURegion<Long, MockCacheEntry<Long>> region = new LRURegion<>("region");
         for(int i=0; i<testSize; i++) {
             region.putEntry((long)i, new MockCacheEntry<>(9999, (long)i * 2));
         }
@@ -55,7 +61,7 @@ public class LRURegionTest {
     @Test
     public void testRegionRemove() {
         int testSize = 100000;
-        LRURegion<MockCacheEntry<Long>> region = new LRURegion<>("region");
+        LRURegion<Long, MockCacheEntry<Long>> region = new LRURegion<>("region");
         for(int i=0; i<testSize; i++) {
             region.putEntry((long)i, new MockCacheEntry<>(9999, (long)i * 2));
         }
@@ -75,7 +81,7 @@ public class LRURegionTest {
     @Test
     public void testRegionClear() {
         int testSize = 100000;
-        LRURegion<MockCacheEntry<Long>> region = new LRURegion<>("region");
+        LRURegion<Long, MockCacheEntry<Long>> region = new LRURegion<>("region");
         for(int i=0; i<testSize; i++) {
             region.putEntry((long)i, new MockCacheEntry<>(9999, (long)i * 2));
         }
@@ -93,7 +99,7 @@ public class LRURegionTest {
     public void testReduceBy() {
         int testSize = 100000;
         long blockSize = 9999;
-        LRURegion<MockCacheEntry<Long>> region = new LRURegion<>("region");
+        LRURegion<Long, MockCacheEntry<Long>> region = new LRURegion<>("region");
         for(int i=0; i<testSize; i++) {
             region.putEntry((long)i, new MockCacheEntry<>(blockSize, (long)i * 2));
         }
@@ -108,7 +114,7 @@ public class LRURegionTest {
     public void testReduceMoreThanAvailable() {
         int testSize = 100;
         long blockSize = 9999;
-        LRURegion<MockCacheEntry<Long>> region = new LRURegion<>("region");
+        LRURegion<Long, MockCacheEntry<Long>> region = new LRURegion<>("region");
         for(int i=0; i<testSize; i++) {
             region.putEntry((long)i, new MockCacheEntry<>(blockSize, (long)i * 2));
         }
@@ -123,7 +129,7 @@ public class LRURegionTest {
     public void testReduceBlocksInUse() {
         int testSize = 100;
         long blockSize = 9999;
-        LRURegion<MockCacheEntry<Long>> region = new LRURegion<>("region");
+        LRURegion<Long, MockCacheEntry<Long>> region = new LRURegion<>("region");
         for(int i=0; i<testSize; i++) {
             region.putEntry((long)i, new MockCacheEntry<>(blockSize, (long)i, true));
         }
@@ -138,7 +144,7 @@ public class LRURegionTest {
     public void testValues() {
         int testSize = 100000;
         long blockSize = 9999;
-        LRURegion<MockCacheEntry<Long>> region = new LRURegion<>("region");
+        LRURegion<Long, MockCacheEntry<Long>> region = new LRURegion<>("region");
         for(int i=0; i<testSize; i++) {
             region.putEntry((long)i, new MockCacheEntry<>(blockSize, (long)i));
         }
@@ -152,6 +158,111 @@ public class LRURegionTest {
         }
     }
 
+    @Test
+    public void testReduceGivesReferencedEntriesSecondChance() {
+        int testSize = 100;
+        long blockSize = 9999;
+        LRURegion<Long, MockCacheEntry<Long>> region = new LRURegion<>("region");
+        for(int i=0; i<testSize; i++) {
+            region.putEntry((long)i, new MockCacheEntry<>(blockSize, (long)i));
+        }
+        region.getEntry(0L);
+        region.getEntry(1L);
+
+        region.reduceBy(10 * blockSize);
+
+        assertThat(region.size(), is(testSize - 10));
+        assertTrue(region.contains(0L));
+        assertTrue(region.contains(1L));
+        assertFalse(region.contains(2L));
+        assertFalse(region.contains(11L));
+        assertTrue(region.contains(12L));
+    }
+
+    @Test
+    public void testPeekEntryNotCounted() {
+        long blockSize = 9999;
+        LRURegion<Long, MockCacheEntry<Long>> region = new LRURegion<>("region");
+        MockCacheEntry<Long> growingEntry = new MockCacheEntry<>(blockSize, 0L);
+        region.putEntry(0L, growingEntry);
+        region.putEntry(1L, new MockCacheEntry<>(blockSize, 1L));
+
+        growingEntry.size = 2 * blockSize;
+        assertThat(region.peekEntry(0L).getValue(), is(0L));
+        assertThat(region.peekEntry(2L), nullValue());
+        assertThat(region.memorySize(), is(3 * blockSize));
+        assertThat(region.hits(), is(0L));
+        assertThat(region.misses(), is(0L));
+
+        //a peeked entry is not given a second chance
+        region.reduceBy(blockSize);
+        assertFalse(region.contains(0L));
+        assertTrue(region.contains(1L));
+    }
+
+    @Test
+    public void testMemoryAccounting() {
+        long blockSize = 9999;
+        LRURegion<Long, MockCacheEntry<Long>> region = new LRURegion<>("region");
+        MockCacheEntry<Long> growingEntry = new MockCacheEntry<>(blockSize, 1L);
+        region.putEntry(1L, growingEntry);
+        region.putEntry(2L, new MockCacheEntry<>(blockSize, 2L));
+        assertThat(region.memorySize(), is(2 * blockSize));
+
+        growingEntry.size = 3 * blockSize;
+        region.getEntry(1L);
+        assertThat(region.memorySize(), is(4 * blockSize));
+        assertThat(region.getEntry(3L), nullValue());
+
+        assertThat(region.hits(), is(1L));
+        assertThat(region.misses(), is(1L));
+
+        region.removeEntry(1L);
+        assertThat(region.memorySize(), is(blockSize));
+        region.reduceBy(blockSize);
+        assertThat(region.memorySize(), is(0L));
+        assertThat(region.evictions(), is(1L));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        int threads = 8;
+        int testSize = 10000;
+        long blockSize = 100;
+        LRURegion<Long, MockCacheEntry<Long>> region = new LRURegion<>("region");
+
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int t=0; t<threads; t++) {
+                futures.add(executorService.submit(() -> {
+                    for(int i=0; i<testSize; i++) {
+                        long key = i % 1000;
+                        MockCacheEntry<Long> entry = region.getEntry(key);
+                        if(entry == null) {
+                            entry = region.putEntry(key, new MockCacheEntry<>(blockSize, key));
+                        }
+                        assertThat(entry.getValue(), is(key));
+                        if(i % 100 == 0) {
+                            region.reduceBy(50 * blockSize);
+                        } else if(i % 10 == 0) {
+                            region.removeEntry(key);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for(Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertThat(region.memorySize(), is(region.size() * blockSize));
+        assertThat(region.values().size(), is(region.size()));
+    }
+
     private class MockCacheEntry<T> implements CacheEntry<T> {
         private long size;
         private T value;
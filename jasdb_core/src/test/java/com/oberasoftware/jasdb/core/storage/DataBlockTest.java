@@ -196,6 +196,40 @@ public class DataBlockTest {
         }
     }
 
+    @Test
+    public void testWriteEmptyBytesAcrossBlocks() throws IOException, JasDBStorageException {
+        File file = temporaryFolder.newFile();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        FileChannel channel = raf.getChannel();
+
+        DataBlockFactory blockFactory = new DataBlockFactoryImpl(file, channel, BLOCK_SIZE);
+        try {
+            DataBlock firstBlock = blockFactory.getBlockWithSpace(false);
+            DataBlock dataBlock = firstBlock;
+            int values = 1000;
+            for(int i=0; i<values; i++) {
+                dataBlock = dataBlock.writeBytes(new byte[0]).getDataBlock();
+                dataBlock = dataBlock.writeLong(i).getDataBlock();
+            }
+
+            dataBlock = firstBlock;
+            int offset = 0;
+            for(int i=0; i<values; i++) {
+                DataBlockResult<byte[]> emptyResult = dataBlock.loadBytes(offset);
+                assertEquals(0, emptyResult.getValue().length);
+
+                DataBlockResult<Long> longResult = emptyResult.getEndBlock().loadLong(emptyResult.getNextOffset());
+                assertEquals(i, (long) longResult.getValue());
+
+                dataBlock = longResult.getEndBlock();
+                offset = longResult.getNextOffset();
+            }
+        } finally {
+            channel.close();
+            raf.close();
+        }
+    }
+
     private DataBlock.WriteResult writeResource(String resource, DataBlock dataBlock) throws JasDBStorageException {
         InputStream stream = this.getClass().getResourceAsStream(resource);
         CheckedInputStream checkedInputStream = new CheckedInputStream(stream, new CRC32());
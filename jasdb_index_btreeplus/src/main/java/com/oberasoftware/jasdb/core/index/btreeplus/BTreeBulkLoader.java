@@ -0,0 +1,309 @@
+/*
+ * The JASDB software and code is Copyright protected 2012 and owned by Renze de Vries
+ *
+ * All the code and design principals in the codebase are also Copyright 2012
+ * protected and owned Renze de Vries. Any unauthorized usage of the code or the
+ * design and principals as in this code is prohibited.
+ */
+package com.oberasoftware.jasdb.core.index.btreeplus;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.core.index.btreeplus.locking.LockManager;
+import com.oberasoftware.jasdb.core.index.btreeplus.persistence.BlockTypes;
+import com.oberasoftware.jasdb.core.index.btreeplus.persistence.BtreePlusBlockPersister;
+import com.oberasoftware.jasdb.core.index.btreeplus.persistence.RootBlockFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds a btree bottom-up from keys that are offered in ascending order into an empty index. Because the total
+ * amount of keys is known upfront the shape of the tree is calculated before any block is written, all node
+ * blocks are allocated first so the leave blocks can be written fully packed and sequentially with their final
+ * parent and sibling pointers. Leave and node blocks are persisted and evicted from the block cache as soon as
+ * they are complete.
+ *
+ * Blocks are filled up to the maximum amount of keys, only the last two blocks of a level are balanced to make
+ * sure the last block does not underflow.
+ *
+ * @author Renze de Vries
+ */
+public class BTreeBulkLoader {
+    private static final Logger LOG = LoggerFactory.getLogger(BTreeBulkLoader.class);
+
+    private final BtreePlusBlockPersister persister;
+    private final LockManager lockManager;
+    private final RootBlock rootBlock;
+    private final long expectedKeys;
+
+    private final boolean rootLeave;
+    private final LevelLayout leaveLayout;
+    private NodeLevel leaveParentLevel;
+
+    private LeaveBlockImpl currentLeave;
+    private long leaveIndex = 0;
+    private Key previousKey;
+    private long loadedKeys = 0;
+
+    /**
+     * @param persister The persister of the index that is being loaded
+     * @param rootBlock The root of the index, the index needs to be empty
+     * @param expectedKeys The exact amount of keys that are going to be loaded
+     * @throws JasDBStorageException If unable to create the node blocks of the index
+     */
+    public BTreeBulkLoader(BtreePlusBlockPersister persister, RootBlock rootBlock, long expectedKeys) throws JasDBStorageException {
+        if(rootBlock.size() > 0 || !rootBlock.isLeave()) {
+            throw new JasDBStorageException("Unable to bulk load keys into a non empty index");
+        }
+
+        this.persister = persister;
+        this.lockManager = persister.getLockManager();
+        this.rootBlock = rootBlock;
+        this.expectedKeys = expectedKeys;
+
+        int maxKeys = persister.getMaxKeys();
+        int minKeys = persister.getMinKeys();
+        this.rootLeave = expectedKeys <= maxKeys;
+        this.leaveLayout = new LevelLayout(expectedKeys, maxKeys, minKeys);
+
+        if(!rootLeave) {
+            createNodeLevels(maxKeys, minKeys);
+        }
+    }
+
+    private void createNodeLevels(int maxKeys, int minKeys) throws JasDBStorageException {
+        //every node block holds one node less than the amount of child blocks it points to
+        List<LevelLayout> nodeLayouts = new ArrayList<>();
+        long childBlocks = leaveLayout.getBlocks();
+        while(childBlocks > maxKeys + 1) {
+            LevelLayout layout = new LevelLayout(childBlocks, maxKeys + 1, minKeys + 1);
+            nodeLayouts.add(layout);
+            childBlocks = layout.getBlocks();
+        }
+
+        rootBlock.setLeave(false);
+        rootBlock.setModified(true);
+        RootBlockFactory.writeHeader(rootBlock.getDataBlock(), false);
+
+        List<TreeBlock> rootBlocks = new ArrayList<>(1);
+        rootBlocks.add(rootBlock);
+        NodeLevel parentLevel = new NodeLevel(rootBlocks, new LevelLayout(childBlocks, (int) childBlocks, 1), null);
+
+        //node blocks are allocated top down, this way every block knows its parent when it is created
+        for(int i=nodeLayouts.size() - 1; i>=0; i--) {
+            LevelLayout layout = nodeLayouts.get(i);
+            List<TreeBlock> levelBlocks = new ArrayList<>((int) layout.getBlocks());
+
+            int parentIndex = 0;
+            int parentChildren = 0;
+            for(long j=0; j<layout.getBlocks(); j++) {
+                if(parentChildren == parentLevel.layout.getBlockSize(parentIndex)) {
+                    parentIndex++;
+                    parentChildren = 0;
+                }
+                levelBlocks.add((TreeBlock) createBlock(BlockTypes.NODEBLOCK, parentLevel.blocks.get(parentIndex).getPosition()));
+                parentChildren++;
+            }
+
+            parentLevel = new NodeLevel(levelBlocks, layout, parentLevel);
+        }
+        leaveParentLevel = parentLevel;
+
+        LOG.debug("Bulk loading: {} keys into: {} leave blocks and: {} node levels", expectedKeys, leaveLayout.getBlocks(), nodeLayouts.size() + 1);
+    }
+
+    public void addKey(Key key) throws JasDBStorageException {
+        if(previousKey != null) {
+            int compare = previousKey.compareTo(key);
+            if(compare == 0) {
+                throw new JasDBStorageException("Key: " + key + " already exists in index");
+            } else if(compare > 0) {
+                throw new JasDBStorageException("Unable to bulk load key: " + key + ", keys are not in ascending order");
+            }
+        }
+        if(loadedKeys == expectedKeys) {
+            throw new JasDBStorageException("Unable to bulk load key: " + key + ", expected only: " + expectedKeys + " keys");
+        }
+        previousKey = key;
+        loadedKeys++;
+
+        if(rootLeave) {
+            rootBlock.insertKey(key);
+        } else {
+            if(currentLeave == null || currentLeave.size() == leaveLayout.getBlockSize(leaveIndex)) {
+                startLeave();
+            }
+            currentLeave.addKey(key);
+        }
+    }
+
+    private void startLeave() throws JasDBStorageException {
+        LeaveBlockImpl previousLeave = currentLeave;
+        if(previousLeave != null) {
+            leaveParentLevel.addChild(previousLeave.getLast(), previousLeave.getPosition());
+            leaveIndex++;
+        }
+
+        currentLeave = (LeaveBlockImpl) createBlock(BlockTypes.LEAVEBLOCK, leaveParentLevel.getNextChildParent());
+        if(previousLeave != null) {
+            previousLeave.setNext(currentLeave.getPosition());
+            currentLeave.setPrevious(previousLeave.getPosition());
+
+            completeBlock(previousLeave);
+        }
+    }
+
+    /**
+     * Completes the load, all remaining blocks are persisted except the root block
+     * @throws JasDBStorageException If less keys were loaded than expected or unable to persist the blocks
+     */
+    public void finish() throws JasDBStorageException {
+        if(loadedKeys != expectedKeys) {
+            throw new JasDBStorageException("Unable to complete bulk load, loaded: " + loadedKeys + " keys but expected: " + expectedKeys);
+        }
+
+        if(currentLeave != null) {
+            leaveParentLevel.addChild(currentLeave.getLast(), currentLeave.getPosition());
+            completeBlock(currentLeave);
+            currentLeave = null;
+
+            leaveParentLevel.finish();
+        }
+    }
+
+    private void completeBlock(IndexBlock block) throws JasDBStorageException {
+        if(block instanceof LeaveBlockImpl) {
+            ((LeaveBlockImpl) block).recalculateMemorySize();
+        }
+        persister.flushAndCloseBlock(block);
+    }
+
+    private IndexBlock createBlock(BlockTypes blockType, long parentBlock) throws JasDBStorageException {
+        //the lock chain releases the usage token of the block so it can be evicted once it is complete
+        lockManager.startLockChain();
+        try {
+            return persister.createBlock(blockType, parentBlock);
+        } finally {
+            lockManager.releaseLockChain();
+        }
+    }
+
+    /**
+     * The node blocks of one level of the tree, child blocks are added in key order and every node points to the
+     * child block on its left and right.
+     */
+    private class NodeLevel {
+        private final List<TreeBlock> blocks;
+        private final LevelLayout layout;
+        private final NodeLevel parentLevel;
+
+        private int currentBlock = 0;
+        private int children = 0;
+
+        private Key pendingKey;
+        private long pendingPointer;
+
+        private NodeLevel(List<TreeBlock> blocks, LevelLayout layout, NodeLevel parentLevel) {
+            this.blocks = blocks;
+            this.layout = layout;
+            this.parentLevel = parentLevel;
+        }
+
+        private long getNextChildParent() {
+            if(children == layout.getBlockSize(currentBlock)) {
+                return blocks.get(currentBlock + 1).getPosition();
+            } else {
+                return blocks.get(currentBlock).getPosition();
+            }
+        }
+
+        /**
+         * Adds a child block to this level
+         * @param maxKey The largest key stored in the child block or any of its descendants
+         * @param blockPointer The position of the child block
+         */
+        private void addChild(Key maxKey, long blockPointer) throws JasDBStorageException {
+            if(children == layout.getBlockSize(currentBlock)) {
+                closeBlock();
+                currentBlock++;
+                children = 0;
+            }
+
+            if(children > 0) {
+                blocks.get(currentBlock).addKey(new TreeNode(pendingKey, pendingPointer, blockPointer));
+            }
+            pendingKey = maxKey;
+            pendingPointer = blockPointer;
+            children++;
+        }
+
+        private void closeBlock() throws JasDBStorageException {
+            TreeBlock block = blocks.get(currentBlock);
+
+            //the largest key of the last child is the separator between this block and the next block
+            parentLevel.addChild(pendingKey, block.getPosition());
+            completeBlock(block);
+        }
+
+        private void finish() throws JasDBStorageException {
+            if(parentLevel != null) {
+                closeBlock();
+                parentLevel.finish();
+            }
+        }
+    }
+
+    /**
+     * Calculates how many items are stored in every block of a level, all blocks are filled up to the capacity
+     * and the last two blocks are balanced when the last block would have less than the minimum amount of items.
+     */
+    private static class LevelLayout {
+        private final long items;
+        private final long blocks;
+        private final int capacity;
+        private final int secondLastSize;
+        private final int lastSize;
+
+        private LevelLayout(long items, int capacity, int minimum) {
+            this.items = items;
+            this.capacity = capacity;
+            this.blocks = items > 0 ? (items + capacity - 1) / capacity : 0;
+
+            int remainder = (int) (items - (blocks - 1) * capacity);
+            if(blocks > 1 && remainder < minimum) {
+                int combined = capacity + remainder;
+                this.lastSize = combined / 2;
+                this.secondLastSize = combined - lastSize;
+            } else {
+                this.lastSize = remainder;
+                this.secondLastSize = capacity;
+            }
+        }
+
+        private long getBlocks() {
+            return blocks;
+        }
+
+        private int getBlockSize(long index) {
+            if(index == blocks - 1) {
+                return lastSize;
+            } else if(index == blocks - 2) {
+                return secondLastSize;
+            } else {
+                return capacity;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "LevelLayout{" +
+                    "items=" + items +
+                    ", blocks=" + blocks +
+                    ", capacity=" + capacity +
+                    '}';
+        }
+    }
+}
@@ -16,26 +16,33 @@ import com.oberasoftware.jasdb.api.engine.Configuration;
 import com.oberasoftware.jasdb.api.session.IndexableItem;
 import com.oberasoftware.jasdb.api.caching.MemoryAware;
 import com.oberasoftware.jasdb.api.exceptions.ConfigurationException;
+import com.oberasoftware.jasdb.api.exceptions.CoreConfigException;
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.exceptions.LockingException;
 import com.oberasoftware.jasdb.api.storage.DataBlock;
 import com.oberasoftware.jasdb.api.storage.DataBlockFactory;
 import com.oberasoftware.jasdb.core.storage.DataBlockFactoryImpl;
+import com.oberasoftware.jasdb.core.utils.conversion.ValueConverterUtil;
 import com.oberasoftware.jasdb.core.index.btreeplus.locking.LockIntentType;
 import com.oberasoftware.jasdb.core.index.btreeplus.locking.LockManager;
 import com.oberasoftware.jasdb.core.index.btreeplus.persistence.BlockTypes;
 import com.oberasoftware.jasdb.core.index.btreeplus.persistence.BtreePlusBlockPersister;
 import com.oberasoftware.jasdb.core.index.btreeplus.search.EqualsSearchOperation;
+import com.oberasoftware.jasdb.core.index.btreeplus.search.InSearchOperation;
 import com.oberasoftware.jasdb.core.index.btreeplus.search.NotEqualsSearchOperation;
 import com.oberasoftware.jasdb.core.index.btreeplus.search.RangeSearchOperation;
 import com.oberasoftware.jasdb.core.index.btreeplus.search.SearchOperation;
 import com.oberasoftware.jasdb.api.index.keys.Key;
 import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
 import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIteratorCollection;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
 import com.oberasoftware.jasdb.api.index.query.SearchLimit;
 import com.oberasoftware.jasdb.core.index.query.EqualsCondition;
+import com.oberasoftware.jasdb.core.index.query.InCondition;
 import com.oberasoftware.jasdb.core.index.query.NotEqualsCondition;
 import com.oberasoftware.jasdb.core.index.query.RangeCondition;
 import com.oberasoftware.jasdb.api.index.query.SearchCondition;
+import com.oberasoftware.jasdb.api.session.query.Order;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,11 +51,21 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * @author Renze de Vries
@@ -57,21 +74,37 @@ public class BTreeIndex implements Index {
     private static final Logger LOG = LoggerFactory.getLogger(BTreeIndex.class);
 
     private static final String PAGE_SIZE_CONF = "pageSize";
+    private static final String REBUILD_SORT_MEMORY_CONF = "rebuildSortMemory";
 
     private static final int DATA_BLOCK_SIZE = 8192;
     private static final int DEFAULT_PAGE_SIZE = 512;
+    private static final String COMPACT_EXTENSION = ".indexcompact";
+    private static final String DEFAULT_REBUILD_SORT_MEMORY = "64m";
+    private static final long DEFAULT_REBUILD_SORT_MEMORY_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * The maximum amount of random descents per sampled key, descents into sparse blocks are mostly rejected
+     */
+    private static final int MAX_SAMPLE_ATTEMPTS = 32;
+
+    private static final ExecutorService STATISTICS_SAMPLER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jasdb-index-statistics");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private FileLock fileLock;
 
     private KeyInfo keyInfo;
     private final File indexLocation;
     private int pageSize = DEFAULT_PAGE_SIZE;
+    private long rebuildSortMemory = DEFAULT_REBUILD_SORT_MEMORY_BYTES;
 
     private FileChannel channel;
     private RandomAccessFile randomAccess;
     private boolean closed = false;
 
-    private BlockPersister persister;
+    private BtreePlusBlockPersister persister;
     private DataBlockFactory dataBlockFactory;
 
     private RootBlock rootBlock;
@@ -80,14 +113,24 @@ public class BTreeIndex implements Index {
     private SearchOperation equalsSearchOperation;
     private SearchOperation rangeSearchOperation;
     private SearchOperation notEqualsSearchOperation;
+    private SearchOperation inSearchOperation;
 
     private IndexState state;
     private IndexScanReport scanReport;
 
     private Lock fullLock = new ReentrantLock();
     private AtomicLong recordCount = new AtomicLong(0);
+    private AtomicLong multiValuedCount = new AtomicLong(-1);
+    private SampledIndexStatistics statistics;
+    private final AtomicBoolean resampling = new AtomicBoolean(false);
     private ResourceLockManager resourceLockManager = new ResourceLockManager();
 
+    /**
+     * Inserts that split blocks only lock the part of the tree they change and can run concurrently, removes that
+     * merge or borrow from sibbling blocks change blocks that are not on their path and run exclusively.
+     */
+    private ReentrantReadWriteLock structureLock = new ReentrantReadWriteLock();
+
     public BTreeIndex(File indexLocation, KeyInfo keyInfo) {
         LOG.debug("Opening index at location: {}", indexLocation);
         this.indexLocation = indexLocation;
@@ -98,6 +141,11 @@ public class BTreeIndex implements Index {
     @Override
     public void configure(Configuration configuration) throws ConfigurationException {
         pageSize = configuration.getAttribute(PAGE_SIZE_CONF, DEFAULT_PAGE_SIZE);
+        try {
+            rebuildSortMemory = ValueConverterUtil.convertToBytes(configuration.getAttribute(REBUILD_SORT_MEMORY_CONF, DEFAULT_REBUILD_SORT_MEMORY));
+        } catch(CoreConfigException e) {
+            throw new ConfigurationException("Invalid rebuild sort memory for index: " + keyInfo.getKeyName(), e);
+        }
     }
 
     @Override
@@ -135,6 +183,21 @@ public class BTreeIndex implements Index {
         return recordCount.get();
     }
 
+    @Override
+    public long getMultiValuedCount() throws JasDBStorageException {
+        openIndex();
+        return multiValuedCount.get();
+    }
+
+    /**
+     * The amount is only kept when it was known when the index was opened
+     */
+    @Override
+    public void updateMultiValuedCount(long delta) throws JasDBStorageException {
+        openIndex();
+        multiValuedCount.updateAndGet(count -> count < 0 ? count : count + delta);
+    }
+
     @Override
     public int getPageSize() {
         return pageSize;
@@ -150,9 +213,15 @@ public class BTreeIndex implements Index {
         return keyInfo.match(fields);
     }
 
+    @Override
+    public boolean supportsCondition(SearchCondition searchCondition) {
+        return searchCondition instanceof RangeCondition || searchCondition instanceof EqualsCondition
+                || searchCondition instanceof InCondition;
+    }
+
     private void initializeIndex() throws JasDBStorageException {
         if(this.rootBlock == null) {
-            IndexHeader indexHeader;
+            BtreeIndexHeader indexHeader;
             boolean createNew;
 
             try {
@@ -167,20 +236,32 @@ public class BTreeIndex implements Index {
 
                 if(headerBlock.getHeader().marker() == 0) {
                     indexHeader = BtreeIndexHeader.createHeader(headerBlock, pageSize, 0, keyInfo);
+                    multiValuedCount.set(0);
                     createNew = true;
                 } else {
                     createNew = false;
                     indexHeader = BtreeIndexHeader.loadAndValidateHeader(headerBlock, keyInfo);
                     recordCount.set(indexHeader.count());
+                    multiValuedCount.set(indexHeader.getMultiValuedCount());
                 }
+                //the amount of multi valued documents is only known again after the index is closed cleanly
+                BtreeIndexHeader.writeMultiValuedCount(headerBlock, -1);
 
                 this.persister = new BtreePlusBlockPersister(dataBlockFactory, indexHeader.getPageSize(), keyInfo);
                 this.lockManager = persister.getLockManager();
+
+                if(indexHeader.getFirstFreeBlock() != BtreePlusBlockPersister.NO_FREE_BLOCK) {
+                    //the open index owns the free blocks, after a crash they are lost instead of handed out twice
+                    persister.loadFreeBlocks(indexHeader.getFirstFreeBlock());
+                    BtreeIndexHeader.writeFirstFreeBlock(headerBlock, BtreePlusBlockPersister.NO_FREE_BLOCK);
+                }
             } catch(ConfigurationException | IOException e) {
                 state = IndexState.INVALID;
                 throw new JasDBStorageException("Unable to open index", e);
             }
 
+            statistics = new SampledIndexStatistics(SampledIndexStatistics.DEFAULT_SAMPLE_SIZE,
+                    keyInfo.getKeyFields().size() == 1, recordCount::get);
             if(createNew) {
                 this.rootBlock = (RootBlock) persister.createBlock(BlockTypes.ROOTBLOCK, -1);
                 this.rootBlock.setModified(true);
@@ -190,6 +271,7 @@ public class BTreeIndex implements Index {
             rangeSearchOperation = new RangeSearchOperation(lockManager, persister, rootBlock, keyInfo);
             equalsSearchOperation = new EqualsSearchOperation(lockManager, rootBlock, keyInfo);
             notEqualsSearchOperation = new NotEqualsSearchOperation(lockManager, keyInfo, rootBlock, persister);
+            inSearchOperation = new InSearchOperation(lockManager, persister, rootBlock, keyInfo);
 
             state = IndexState.OK;
         }
@@ -199,22 +281,8 @@ public class BTreeIndex implements Index {
     public IndexSearchResultIteratorCollection searchIndex(SearchCondition searchCondition, SearchLimit searchLimit) throws JasDBStorageException {
         openIndex();
 
-        SearchOperation searchOperation;
-        SearchCondition condition = searchCondition;
-        if(searchCondition instanceof RangeCondition) {
-            searchOperation = rangeSearchOperation;
-        } else if(searchCondition instanceof NotEqualsCondition) {
-            searchOperation = notEqualsSearchOperation;
-        } else if(searchCondition instanceof EqualsCondition){
-            condition = handleEqualsToRange((EqualsCondition) searchCondition);
-            if(condition == searchCondition) {
-                searchOperation = equalsSearchOperation;
-            } else {
-                searchOperation = rangeSearchOperation;
-            }
-        } else {
-            throw new JasDBStorageException("Search Condition is not supported by Btree");
-        }
+        SearchCondition condition = prepareCondition(searchCondition);
+        SearchOperation searchOperation = getSearchOperation(condition);
 
         StatRecord searchRecord = StatisticsMonitor.createRecord("btree:search");
         resourceLockManager.sharedLock();
@@ -226,6 +294,52 @@ public class BTreeIndex implements Index {
         }
     }
 
+    @Override
+    public KeyCursor searchCursor(SearchCondition searchCondition) throws JasDBStorageException {
+        return searchCursor(searchCondition, Order.ASCENDING);
+    }
+
+    @Override
+    public KeyCursor searchCursor(SearchCondition searchCondition, Order order) throws JasDBStorageException {
+        openIndex();
+
+        SearchCondition condition = prepareCondition(searchCondition);
+        SearchOperation searchOperation = getSearchOperation(condition);
+
+        StatRecord searchRecord = StatisticsMonitor.createRecord("btree:cursor");
+        resourceLockManager.sharedLock();
+        try {
+            if(order == Order.DESCENDING) {
+                return searchOperation.openReverseCursor(condition);
+            }
+            return searchOperation.openCursor(condition);
+        } finally {
+            resourceLockManager.sharedUnlock();
+            searchRecord.stop();
+        }
+    }
+
+    private SearchCondition prepareCondition(SearchCondition searchCondition) {
+        if(searchCondition instanceof EqualsCondition && !(searchCondition instanceof NotEqualsCondition)) {
+            return handleEqualsToRange((EqualsCondition) searchCondition);
+        }
+        return searchCondition;
+    }
+
+    private SearchOperation getSearchOperation(SearchCondition condition) throws JasDBStorageException {
+        if(condition instanceof RangeCondition) {
+            return rangeSearchOperation;
+        } else if(condition instanceof NotEqualsCondition) {
+            return notEqualsSearchOperation;
+        } else if(condition instanceof EqualsCondition) {
+            return equalsSearchOperation;
+        } else if(condition instanceof InCondition) {
+            return inSearchOperation;
+        } else {
+            throw new JasDBStorageException("Search Condition is not supported by Btree");
+        }
+    }
+
     private SearchCondition handleEqualsToRange(EqualsCondition equalsCondition) {
         int nrOfKeys = keyInfo.getKeyFields().size();
         if(nrOfKeys > 1) {
@@ -236,6 +350,98 @@ public class BTreeIndex implements Index {
         }
     }
 
+    /**
+     * Provides the statistics of the keys in the index. When the index changed too much since the last sample the
+     * keys are sampled again in the background, until then the current statistics are used. Only an index that
+     * has not been sampled at all since it was opened is sampled before returning.
+     */
+    @Override
+    public IndexStatistics getStatistics() throws JasDBStorageException {
+        openIndex();
+
+        if(!statistics.hasSample()) {
+            resampleStatistics();
+        } else if(statistics.isStale() && resampling.compareAndSet(false, true)) {
+            STATISTICS_SAMPLER.execute(() -> {
+                try {
+                    resampleStatistics();
+                } catch(JasDBStorageException e) {
+                    LOG.error("Unable to sample statistics of index: " + indexLocation, e);
+                } catch(LockingException e) {
+                    LOG.debug("Index: {} was closed before its statistics were sampled", indexLocation);
+                } finally {
+                    resampling.set(false);
+                }
+            });
+        }
+        return statistics;
+    }
+
+    private void resampleStatistics() throws JasDBStorageException {
+        StatRecord sampleRecord = StatisticsMonitor.createRecord("btree:sample");
+        resourceLockManager.sharedLock();
+        try {
+            if(!closed) {
+                statistics.resample(sampleKeys(statistics.getSampleSize()));
+            }
+        } finally {
+            resourceLockManager.sharedUnlock();
+            sampleRecord.stop();
+        }
+    }
+
+    /**
+     * Samples keys by descending the tree along randomly chosen child blocks, small indexes are read entirely.
+     *
+     * A random descent favours the keys in sparsely filled blocks, so a sampled key is only accepted with a
+     * probability proportional to the fan-out of the blocks along its path. This makes every key in the index
+     * equally likely to be sampled.
+     */
+    private List<Key> sampleKeys(int sampleSize) throws JasDBStorageException {
+        List<Key> sampledKeys = new ArrayList<>(sampleSize);
+        if(recordCount.get() <= sampleSize) {
+            IndexIterator indexIterator = new FullIndexIterator(rootBlock, lockManager, persister);
+            try {
+                while(indexIterator.hasNext()) {
+                    sampledKeys.add(indexIterator.next());
+                }
+            } finally {
+                indexIterator.close();
+            }
+            return sampledKeys;
+        }
+
+        Random random = new Random();
+        int maxKeys = persister.getMaxKeys();
+        long maxAttempts = (long) sampleSize * MAX_SAMPLE_ATTEMPTS;
+        for(long attempt=0; attempt<maxAttempts && sampledKeys.size() < sampleSize; attempt++) {
+            lockManager.startLockChain();
+            lockManager.acquireLock(LockIntentType.READ, rootBlock);
+            try {
+                IndexBlock block = rootBlock;
+                double acceptance = 1.0;
+                while(block instanceof TreeBlock && !(block == rootBlock && rootBlock.isLeave())) {
+                    List<TreeNode> nodes = ((TreeBlock) block).getNodes().values();
+                    int child = random.nextInt(nodes.size() + 1);
+                    long blockPointer = child < nodes.size() ? nodes.get(child).getLeft() : nodes.get(nodes.size() - 1).getRight();
+                    acceptance *= (double) (nodes.size() + 1) / (maxKeys + 1);
+
+                    block = persister.loadBlock(blockPointer);
+                    lockManager.acquireLock(LockIntentType.READ, block);
+                }
+
+                List<Key> leaveKeys = ((LeaveBlock) block).getValues();
+                acceptance *= (double) leaveKeys.size() / maxKeys;
+                if(!leaveKeys.isEmpty() && random.nextDouble() < acceptance) {
+                    sampledKeys.add(leaveKeys.get(random.nextInt(leaveKeys.size())));
+                }
+            } finally {
+                lockManager.releaseLockChain();
+            }
+        }
+        return sampledKeys;
+    }
+
     @Override
     public IndexIterator getIndexIterator() throws JasDBStorageException {
         openIndex();
@@ -254,11 +460,17 @@ public class BTreeIndex implements Index {
             LeaveBlock leaveBlock = rootBlock.findLeaveBlock(LockIntentType.LEAVELOCK_OPTIMISTIC, key);
             if(leaveBlock.size() == persister.getMaxKeys()) {
                 lockManager.releaseLockChain();
-                lockManager.startLockChain();
-                lockManager.acquireLock(LockIntentType.WRITE_EXCLUSIVE, rootBlock);
-
-                leaveBlock = rootBlock.findLeaveBlock(LockIntentType.WRITE_EXCLUSIVE, key);
-                doLeaveBlockInsert(leaveBlock, key);
+                structureLock.readLock().lock();
+                try {
+                    lockManager.startLockChain();
+                    lockManager.acquireLock(LockIntentType.WRITE_INSERT, rootBlock);
+
+                    leaveBlock = rootBlock.findLeaveBlock(LockIntentType.WRITE_INSERT, key);
+                    doLeaveBlockInsert(leaveBlock, key);
+                } finally {
+                    lockManager.releaseLockChain();
+                    structureLock.readLock().unlock();
+                }
             } else {
                 //no overflow, we can just write into the leave
                 doLeaveBlockInsert(leaveBlock, key);
@@ -270,12 +482,104 @@ public class BTreeIndex implements Index {
         }
     }
 
+    /**
+     * Inserts the keys in key order, the tree is descended once for every run of keys that belongs to the
+     * same leave block instead of once for every key. When a key can not be inserted the keys that were already
+     * inserted are removed again.
+     */
+    @Override
+    public void insertIntoIndex(Collection<Key> keys) throws JasDBStorageException {
+        openIndex();
+
+        List<Key> sortedKeys = new ArrayList<>(keys);
+        sortedKeys.sort(null);
+        for(int i=1; i<sortedKeys.size(); i++) {
+            if(sortedKeys.get(i - 1).compareTo(sortedKeys.get(i)) == 0) {
+                throw new JasDBStorageException("Key: " + sortedKeys.get(i) + " is inserted more than once");
+            }
+        }
+
+        StatRecord btreeInsertRecord = StatisticsMonitor.createRecord("btree:batchInsert");
+        List<Key> insertedKeys = new ArrayList<>(sortedKeys.size());
+        JasDBStorageException failure = null;
+        resourceLockManager.sharedLock();
+        try {
+            int position = 0;
+            while(position < sortedKeys.size()) {
+                position = insertLeaveBlockRun(sortedKeys, position, insertedKeys);
+            }
+        } catch(JasDBStorageException e) {
+            failure = e;
+        } finally {
+            resourceLockManager.sharedUnlock();
+            btreeInsertRecord.stop();
+        }
+
+        if(failure != null) {
+            LOG.debug("Batch insert failed, removing {} inserted keys", insertedKeys.size());
+            for(Key insertedKey : insertedKeys) {
+                removeFromIndex(insertedKey);
+            }
+            throw failure;
+        }
+    }
+
+    /**
+     * Inserts the key at the given position and all following keys that belong to the same leave block
+     * @return The position of the first key that was not inserted
+     */
+    private int insertLeaveBlockRun(List<Key> sortedKeys, int position, List<Key> insertedKeys) throws JasDBStorageException {
+        Key firstKey = sortedKeys.get(position);
+        boolean structureLocked = false;
+        lockManager.startLockChain();
+        lockManager.acquireLock(LockIntentType.LEAVELOCK_OPTIMISTIC, rootBlock);
+        try {
+            LeaveBlock leaveBlock = rootBlock.findLeaveBlock(LockIntentType.LEAVELOCK_OPTIMISTIC, firstKey);
+            if(leaveBlock.size() == persister.getMaxKeys()) {
+                lockManager.releaseLockChain();
+                structureLock.readLock().lock();
+                structureLocked = true;
+                lockManager.startLockChain();
+                lockManager.acquireLock(LockIntentType.WRITE_INSERT, rootBlock);
+
+                leaveBlock = rootBlock.findLeaveBlock(LockIntentType.WRITE_INSERT, firstKey);
+            }
+            doLeaveBlockInsert(leaveBlock, firstKey);
+            insertedKeys.add(firstKey);
+            position++;
+
+            //keep inserting as long as the leave block does not overflow and the next key is routed to it
+            while(position < sortedKeys.size() && leaveBlock.size() < persister.getMaxKeys()
+                    && belongsToLeaveBlock(leaveBlock, sortedKeys.get(position))) {
+                doLeaveBlockInsert(leaveBlock, sortedKeys.get(position));
+                insertedKeys.add(sortedKeys.get(position));
+                position++;
+            }
+            return position;
+        } finally {
+            lockManager.releaseLockChain();
+            if(structureLocked) {
+                structureLock.readLock().unlock();
+            }
+        }
+    }
+
+    private boolean belongsToLeaveBlock(LeaveBlock leaveBlock, Key key) {
+        if(key.compareTo(leaveBlock.getFirst()) > 0 && key.compareTo(leaveBlock.getLast()) < 0) {
+            return true;
+        }
+
+        //any key beyond the last key of the right most leave block is routed to that block
+        return leaveBlock.getProperties().getNextBlock() == -1 && key.compareTo(leaveBlock.getLast()) > 0;
+    }
+
     private void doLeaveBlockInsert(LeaveBlock leaveBlock, Key key) throws JasDBStorageException {
         StatRecord leaveBlockInsert = StatisticsMonitor.createRecord("btree:insert:doBlockInsert");
         try {
             if(!leaveBlock.contains(key)) {
                 recordCount.incrementAndGet();
                 leaveBlock.insertKey(key);
+                statistics.recordInsert(key);
             } else {
                 throw new JasDBStorageException("Key: " + key + " already exists in index");
             }
@@ -295,11 +599,17 @@ public class BTreeIndex implements Index {
             LeaveBlock leaveBlock = rootBlock.findLeaveBlock(LockIntentType.LEAVELOCK_OPTIMISTIC, key);
             if(leaveBlock.size() == persister.getMinKeys()) {
                 lockManager.releaseLockChain();
-                lockManager.startLockChain();
-                lockManager.acquireLock(LockIntentType.WRITE_EXCLUSIVE, rootBlock);
-                leaveBlock = rootBlock.findLeaveBlock(LockIntentType.WRITE_EXCLUSIVE, key);
-
-                doLeaveBlockRemove(leaveBlock, key);
+                structureLock.writeLock().lock();
+                try {
+                    lockManager.startLockChain();
+                    lockManager.acquireLock(LockIntentType.WRITE_EXCLUSIVE, rootBlock);
+                    leaveBlock = rootBlock.findLeaveBlock(LockIntentType.WRITE_EXCLUSIVE, key);
+
+                    doLeaveBlockRemove(leaveBlock, key);
+                } finally {
+                    lockManager.releaseLockChain();
+                    structureLock.writeLock().unlock();
+                }
             } else {
                 doLeaveBlockRemove(leaveBlock, key);
             }
@@ -313,6 +623,7 @@ public class BTreeIndex implements Index {
         if(leaveBlock.contains(key)) {
             recordCount.decrementAndGet();
             leaveBlock.removeKey(key);
+            statistics.recordRemove(key);
         } else {
             throw new JasDBStorageException("Key: " + key + " cannot be removed, does not exist in index");
         }
@@ -397,6 +708,8 @@ public class BTreeIndex implements Index {
                 BtreeIndexHeader.createHeader(dataBlockFactory.getHeaderBlock(), pageSize, recordCount.get(), keyInfo);
 
                 persister.close();
+                BtreeIndexHeader.writeFirstFreeBlock(dataBlockFactory.getHeaderBlock(), persister.persistFreeBlocks());
+                BtreeIndexHeader.writeMultiValuedCount(dataBlockFactory.getHeaderBlock(), multiValuedCount.get());
                 dataBlockFactory.close();
 
                 this.fileLock.release();
@@ -443,7 +756,7 @@ public class BTreeIndex implements Index {
             resetIndex();
 
             state = IndexState.REBUILDING;
-            IndexRebuildUtil.bulkInsertIndex(this, keyInfo, indexableItems);
+            bulkLoadIndex(indexableItems);
             flushIndex();
             state = IndexState.OK;
         } finally {
@@ -452,6 +765,127 @@ public class BTreeIndex implements Index {
         }
     }
 
+    /**
+     * Sorts all the keys, spilling to disk when they do not fit in the sort memory, and builds the empty
+     * index bottom-up from the sorted keys.
+     */
+    private void bulkLoadIndex(Iterator<IndexableItem> indexableItems) throws JasDBStorageException {
+        openIndex();
+
+        StatRecord bulkLoadRecord = StatisticsMonitor.createRecord("btree:bulkLoad");
+        ExternalKeySorter keySorter = new ExternalKeySorter(keyInfo, indexLocation.getAbsoluteFile().getParentFile(),
+                indexLocation.getName(), rebuildSortMemory);
+        try {
+            IndexRebuildUtil.collectKeys(this, keyInfo, indexableItems, keySorter::add);
+            LOG.info("Sorted: {} keys for index: {} using: {} spilled runs", keySorter.size(), indexLocation, keySorter.getSpilledRuns());
+
+            BTreeBulkLoader bulkLoader = new BTreeBulkLoader(persister, rootBlock, keySorter.size());
+            keySorter.sortedKeys(key -> {
+                bulkLoader.addKey(key);
+                statistics.recordInsert(key);
+            });
+            bulkLoader.finish();
+            recordCount.set(keySorter.size());
+        } finally {
+            keySorter.close();
+            bulkLoadRecord.stop();
+        }
+    }
+
+    /**
+     * Bulk loads the keys of the index into a new index file without any free blocks and swaps it with the
+     * current index file. The index remains open but is exclusively locked while compacting.
+     */
+    @Override
+    public void compactIndex() throws JasDBStorageException {
+        openIndex();
+
+        fullLock.lock();
+        resourceLockManager.exclusiveLock();
+        StatRecord compactRecord = StatisticsMonitor.createRecord("btree:compact");
+        File compactLocation = new File(indexLocation + COMPACT_EXTENSION);
+        try {
+            if(compactLocation.exists() && !compactLocation.delete()) {
+                throw new JasDBStorageException("Unable to remove old compacted index: " + compactLocation);
+            }
+
+            long keys = countKeys();
+            long sizeBefore = indexLocation.length();
+            BTreeIndex compactIndex = new BTreeIndex(compactLocation, keyInfo);
+            compactIndex.pageSize = pageSize;
+            compactIndex.openIndex();
+            try {
+                BTreeBulkLoader bulkLoader = new BTreeBulkLoader(compactIndex.persister, compactIndex.rootBlock, keys);
+                IndexIterator indexIterator = new FullIndexIterator(rootBlock, lockManager, persister);
+                try {
+                    for(Key key : indexIterator) {
+                        bulkLoader.addKey(key);
+                    }
+                } finally {
+                    indexIterator.close();
+                }
+                bulkLoader.finish();
+                compactIndex.recordCount.set(keys);
+                compactIndex.multiValuedCount.set(multiValuedCount.get());
+            } finally {
+                compactIndex.close();
+            }
+
+            closeIndexResources();
+            try {
+                Files.move(compactLocation.toPath(), indexLocation.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                //reopens the compacted index, or the old index if the swap failed
+                closed = false;
+                rootBlock = null;
+                initializeIndex();
+            }
+
+            LOG.info("Compacted index: {} from: {} to: {} bytes", indexLocation, sizeBefore, indexLocation.length());
+        } catch(IOException e) {
+            throw new JasDBStorageException("Unable to swap compacted index: " + compactLocation, e);
+        } finally {
+            if(compactLocation.exists() && !compactLocation.delete()) {
+                LOG.warn("Unable to remove compacted index: {}", compactLocation);
+            }
+            compactRecord.stop();
+            resourceLockManager.exclusiveUnlock();
+            fullLock.unlock();
+        }
+    }
+
+    /**
+     * The free block ratio is the amount of data blocks held by the free list, including the data blocks
+     * chained to the free blocks, against all data blocks in the index file.
+     */
+    @Override
+    public double getFreeBlockRatio() throws JasDBStorageException {
+        openIndex();
+
+        resourceLockManager.sharedLock();
+        try {
+            //the first block of the file holds the index header
+            long dataBlocks = indexLocation.length() / dataBlockFactory.getBlockSize() - 1;
+            return dataBlocks > 0 ? Math.min(1.0, (double) persister.getFreeDataBlocks() / dataBlocks) : 0;
+        } finally {
+            resourceLockManager.sharedUnlock();
+        }
+    }
+
+    private long countKeys() throws JasDBStorageException {
+        long keys = 0;
+        IndexIterator indexIterator = new FullIndexIterator(rootBlock, lockManager, persister);
+        try {
+            while(indexIterator.hasNext()) {
+                indexIterator.next();
+                keys++;
+            }
+        } finally {
+            indexIterator.close();
+        }
+        return keys;
+    }
+
     private void resetIndex() throws JasDBStorageException {
         //we close so the old index can be removed and reopened with a new fresh file
         if(!closed) {
@@ -22,6 +22,8 @@ public interface BlockPersister extends MemoryAware {
 
     void markDeleted(IndexBlock block) throws JasDBStorageException;
 
+    boolean isDeleted(long position);
+
     void flush() throws JasDBStorageException;
 
     void close() throws JasDBStorageException;
@@ -6,6 +6,7 @@ import com.oberasoftware.jasdb.api.storage.DataBlockHeader;
 import com.oberasoftware.jasdb.api.storage.DataBlockResult;
 import com.oberasoftware.jasdb.api.index.IndexHeader;
 import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
+import com.oberasoftware.jasdb.core.index.btreeplus.persistence.BtreePlusBlockPersister;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -25,6 +26,8 @@ public class BtreeIndexHeader implements IndexHeader {
     private static final int VERSION_HEADER_INDEX = 4;
     private static final int PAGE_SIZE_INDEX = 8;
     private static final int COUNT_INDEX = 12;
+    private static final int FIRST_FREE_BLOCK_INDEX = 20;
+    private static final int MULTI_VALUED_INDEX = 28;
 
 
     private KeyInfo keyInfo;
@@ -32,21 +35,29 @@ public class BtreeIndexHeader implements IndexHeader {
     private int pageSize;
     private int headerSize;
     private long count;
+    private long firstFreeBlock;
+    private long multiValuedCount = -1;
 
     public BtreeIndexHeader(int indexVersion, int pageSize, int headerSize, KeyInfo keyInfo, long count) {
+        this(indexVersion, pageSize, headerSize, keyInfo, count, BtreePlusBlockPersister.NO_FREE_BLOCK);
+    }
+
+    public BtreeIndexHeader(int indexVersion, int pageSize, int headerSize, KeyInfo keyInfo, long count, long firstFreeBlock) {
         this.keyInfo = keyInfo;
         this.pageSize = pageSize;
         this.headerSize = headerSize;
         this.indexVersion = indexVersion;
         this.count = count;
+        this.firstFreeBlock = firstFreeBlock;
     }
 
-    public static IndexHeader loadAndValidateHeader(DataBlock dataBlock, KeyInfo keyInfo) throws JasDBStorageException, IOException {
+    public static BtreeIndexHeader loadAndValidateHeader(DataBlock dataBlock, KeyInfo keyInfo) throws JasDBStorageException, IOException {
         DataBlockHeader dataBlockHeader = dataBlock.getHeader();
         int version = dataBlockHeader.getInt(VERSION_HEADER_INDEX);
         int type = dataBlockHeader.getInt(TYPE_HEADER_INDEX);
         int pageSize = dataBlockHeader.getInt(PAGE_SIZE_INDEX);
         long count = dataBlockHeader.getLong(COUNT_INDEX);
+        long firstFreeBlock = dataBlockHeader.getLong(FIRST_FREE_BLOCK_INDEX);
 
         DataBlockResult<byte[]> keyResult = dataBlock.loadBytes(0);
         DataBlockResult<byte[]> keyValueResult = dataBlock.loadBytes(keyResult.getNextOffset());
@@ -60,11 +71,13 @@ public class BtreeIndexHeader implements IndexHeader {
         } else if(!keyInfo.valueAsHeader().equals(new String(keyValueResult.getValue()))) {
             throw new JasDBStorageException("Key information in index does not match specification on the storage metadata");
         } else {
-            return new BtreeIndexHeader(version, pageSize, dataBlock.size(), keyInfo, count);
+            BtreeIndexHeader indexHeader = new BtreeIndexHeader(version, pageSize, dataBlock.size(), keyInfo, count, firstFreeBlock);
+            indexHeader.multiValuedCount = dataBlockHeader.getLong(MULTI_VALUED_INDEX) - 1;
+            return indexHeader;
         }
     }
 
-    public static IndexHeader createHeader(DataBlock headerBlock, int pageSize, long count, KeyInfo keyInfo) throws JasDBStorageException, IOException {
+    public static BtreeIndexHeader createHeader(DataBlock headerBlock, int pageSize, long count, KeyInfo keyInfo) throws JasDBStorageException, IOException {
         String headerInfo = keyInfo.keyAsHeader();
         byte[] headerInfoBytes = headerInfo.getBytes();
 
@@ -85,11 +98,43 @@ public class BtreeIndexHeader implements IndexHeader {
         return new BtreeIndexHeader(INDEX_VERSION, pageSize, headerBlock.size(), keyInfo, count);
     }
 
+    /**
+     * Stores the start of the free block chain of the index, indexes written before the free list existed
+     * have no value stored here and start without free blocks.
+     * @param headerBlock The header block of the index
+     * @param firstFreeBlock The position of the first free block or BtreePlusBlockPersister.NO_FREE_BLOCK
+     * @throws JasDBStorageException If unable to write the header
+     */
+    public static void writeFirstFreeBlock(DataBlock headerBlock, long firstFreeBlock) throws JasDBStorageException {
+        headerBlock.getHeader().putLong(FIRST_FREE_BLOCK_INDEX, firstFreeBlock);
+        headerBlock.flush();
+    }
+
+    /**
+     * Stores the amount of multi valued documents in the index, this is stored incremented by one so indexes written
+     * before the amount was kept and indexes that were not closed cleanly have no known amount.
+     * @param headerBlock The header block of the index
+     * @param multiValuedCount The amount of multi valued documents, -1 if not known
+     * @throws JasDBStorageException If unable to write the header
+     */
+    public static void writeMultiValuedCount(DataBlock headerBlock, long multiValuedCount) throws JasDBStorageException {
+        headerBlock.getHeader().putLong(MULTI_VALUED_INDEX, multiValuedCount + 1);
+        headerBlock.flush();
+    }
+
+    public long getFirstFreeBlock() {
+        return firstFreeBlock;
+    }
+
     @Override
     public long count() {
         return count;
     }
 
+    public long getMultiValuedCount() {
+        return multiValuedCount;
+    }
+
     @Override
     public KeyInfo getKeyInfo() {
         return keyInfo;
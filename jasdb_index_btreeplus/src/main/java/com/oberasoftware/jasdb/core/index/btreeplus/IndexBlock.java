@@ -30,6 +30,7 @@ public interface IndexBlock extends Block {
     void setParentPointer(long blockPointer);
 
     LeaveBlock findFirstLeaveBlock(LockIntentType intent) throws JasDBStorageException;
+    LeaveBlock findLastLeaveBlock(LockIntentType intent) throws JasDBStorageException;
     LeaveBlock findLeaveBlock(LockIntentType intent, Key key) throws JasDBStorageException;
 
     ReadWriteLock getLockManager();
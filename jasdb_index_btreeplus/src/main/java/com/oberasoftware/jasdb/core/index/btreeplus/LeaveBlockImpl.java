@@ -7,7 +7,6 @@
  */
 package com.oberasoftware.jasdb.core.index.btreeplus;
 
-import com.oberasoftware.jasdb.core.collections.OrderedBalancedTree;
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import com.oberasoftware.jasdb.api.storage.DataBlock;
 import com.oberasoftware.jasdb.api.concurrency.ReadWriteLock;
@@ -25,7 +24,7 @@ import java.util.List;
 public class LeaveBlockImpl implements LeaveBlock {
     private static final Logger log = LoggerFactory.getLogger(LeaveBlockImpl.class);
 
-    private OrderedBalancedTree<Key, Key> leaves;
+    private SortedKeyArray leaves;
     private BlockPersister persister;
 
     private LeaveBlockProperties leaveProperties;
@@ -35,7 +34,7 @@ public class LeaveBlockImpl implements LeaveBlock {
     private long memorySize;
 
     public LeaveBlockImpl(BlockPersister persister, DataBlock dataBlock, long parentBlock, boolean modified) {
-        this.leaves = new OrderedBalancedTree<>();
+        this.leaves = new SortedKeyArray();
         this.leaveProperties = new LeaveBlockProperties(dataBlock, -1, -1, parentBlock);
         this.leaveProperties.setModified(modified);
         this.lockManager = new ReadWriteLock();
@@ -75,8 +74,13 @@ public class LeaveBlockImpl implements LeaveBlock {
         return this;
     }
 
+    @Override
+    public LeaveBlock findLastLeaveBlock(LockIntentType intentType) throws JasDBStorageException {
+        return this;
+    }
+
     public void insertKey(Key key) throws JasDBStorageException {
-        leaves.put(key, key);
+        leaves.put(key);
         memorySize += key.size();
         leaveProperties.setModified(true);
 
@@ -88,29 +92,31 @@ public class LeaveBlockImpl implements LeaveBlock {
             List<Key>[] splittedKeys = leaves.split();
             this.leaves.reset();
 
-            /* this block keeps representing the right half, the last current block key == max right */
-            List<Key> rightKeys = splittedKeys[1];
-            addKeys(rightKeys);
-
+            /* this block keeps the left half, keys only move to the right so forward walks never miss a key */
             List<Key> leftKeys = splittedKeys[0];
-            long currentPrevious = leaveProperties.getPreviousBlock();
-            LeaveBlockImpl leftLeaveBlock = (LeaveBlockImpl) persister.createBlock(BlockTypes.LEAVEBLOCK, leaveProperties.getParentPointer());
-            leftLeaveBlock.setPrevious(currentPrevious);
-            leftLeaveBlock.setNext(getPosition());
-            leftLeaveBlock.addKeys(leftKeys);
+            addKeys(leftKeys);
+
+            List<Key> rightKeys = splittedKeys[1];
+            long currentNext = leaveProperties.getNextBlock();
+            LeaveBlockImpl rightLeaveBlock = (LeaveBlockImpl) persister.createBlock(BlockTypes.LEAVEBLOCK, leaveProperties.getParentPointer());
+            persister.getLockManager().acquireLock(LockIntentType.WRITE_EXCLUSIVE, rightLeaveBlock);
+            rightLeaveBlock.setPrevious(getPosition());
+            rightLeaveBlock.setNext(currentNext);
+            rightLeaveBlock.addKeys(rightKeys);
 
             this.recalculateMemorySize();
-            leftLeaveBlock.recalculateMemorySize();
+            rightLeaveBlock.recalculateMemorySize();
 
-            if(currentPrevious != -1) {
-                //we need to relink, there is a previous block present
-                LeaveBlockImpl previousBlock = (LeaveBlockImpl) persister.loadBlock(currentPrevious);
-                previousBlock.setNext(leftLeaveBlock.getPosition());
+            if(currentNext != -1) {
+                //we need to relink, there is a next block present which is not locked by this operation yet
+                LeaveBlockImpl nextBlock = (LeaveBlockImpl) persister.loadBlock(currentNext);
+                persister.getLockManager().acquireLock(LockIntentType.WRITE_EXCLUSIVE, nextBlock);
+                nextBlock.setPrevious(rightLeaveBlock.getPosition());
             }
-            leaveProperties.setPreviousBlock(leftLeaveBlock.getPosition());
+            leaveProperties.setNextBlock(rightLeaveBlock.getPosition());
 
             TreeBlock parentBlock = (TreeBlock) persister.loadBlock(leaveProperties.getParentPointer());
-            parentBlock.insertBlock(leftLeaveBlock.getLast(), leftLeaveBlock, this);
+            parentBlock.insertBlock(getLast(), this, rightLeaveBlock);
         }
     }
 
@@ -148,6 +154,9 @@ public class LeaveBlockImpl implements LeaveBlock {
             if(leaveProperties.getNextBlock() != -1) {
                 rightLeave = (LeaveBlockImpl) persister.loadBlock(leaveProperties.getNextBlock());
             }
+            lockSibbling(leftLeave);
+            lockSibbling(rightLeave);
+            persister.getLockManager().registerRebalance();
 
             TreeBlock parentBlock = (TreeBlock) persister.loadBlock(leaveProperties.getParentPointer());
             if(leftLeave != null && leftLeave.getParentPointer() == getParentPointer() && leftLeave.size() > persister.getMinKeys()) {
@@ -155,7 +164,7 @@ public class LeaveBlockImpl implements LeaveBlock {
                 //we can borrow from left
                 Key borrowKey = leftLeave.getLast();
                 leftLeave.removeKeyInternal(borrowKey);
-                leaves.put(borrowKey, borrowKey);
+                leaves.put(borrowKey);
                 leftLeave.recalculateMemorySize();
 
                 parentBlock.updateBlockPointer(leftLeave.getLast(), leftLeave.getPosition(), getPosition());
@@ -164,7 +173,7 @@ public class LeaveBlockImpl implements LeaveBlock {
                 //we can borrow from right
                 Key borrowKey = rightLeave.getFirst();
                 rightLeave.removeKeyInternal(borrowKey);
-                leaves.put(borrowKey, borrowKey);
+                leaves.put(borrowKey);
                 rightLeave.recalculateMemorySize();
 
                 parentBlock.updateBlockPointer(borrowKey, getPosition(), rightLeave.getPosition());
@@ -174,6 +183,15 @@ public class LeaveBlockImpl implements LeaveBlock {
         }
     }
 
+    /**
+     * Locks a sibbling leave that is modified, cursors read leaves without holding a lock on the tree above them
+     */
+    private void lockSibbling(LeaveBlockImpl sibbling) {
+        if(sibbling != null) {
+            persister.getLockManager().acquireLock(LockIntentType.WRITE_EXCLUSIVE, sibbling);
+        }
+    }
+
     private void mergeLeaves(TreeBlock parentBlock, LeaveBlockImpl leftLeave, LeaveBlockImpl rightLeave) throws JasDBStorageException {
         //lets remove the block and update the admin above
         Key removeKey;
@@ -208,12 +226,21 @@ public class LeaveBlockImpl implements LeaveBlock {
     }
 
     public void addKey(Key key) {
-        leaves.put(key, key);
+        leaves.put(key);
+    }
+
+    /**
+     * Sets the keys of the block by their positions in key order, the keys are only loaded when they are needed
+     * @param positions The positions of the keys of the block
+     * @param keyLoader The loader of the key stored at a position
+     */
+    public void loadKeyPositions(long[] positions, LeaveKeyLoader keyLoader) {
+        leaves.loadPositions(positions, keyLoader);
     }
 
     private void addKeys(List<Key> keys) {
         for(Key key : keys) {
-            leaves.put(key, key);
+            leaves.put(key);
         }
     }
 
@@ -0,0 +1,19 @@
+package com.oberasoftware.jasdb.core.index.btreeplus;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+
+/**
+ * Loads a single key of a leave block from the position it is stored at in the index, this allows the keys of a
+ * leave to be loaded only when they are compared or returned.
+ *
+ * @author Renze de Vries
+ */
+public interface LeaveKeyLoader {
+    /**
+     * @param position The position the key is stored at
+     * @return The loaded key
+     * @throws JasDBStorageException If unable to load the key
+     */
+    Key loadKey(long position) throws JasDBStorageException;
+}
@@ -85,6 +85,15 @@ public class RootBlock extends TreeBlock implements LeaveBlock {
         }
     }
 
+    @Override
+    public LeaveBlock findLastLeaveBlock(LockIntentType intentType) throws JasDBStorageException {
+        if(isLeave) {
+            return this;
+        } else {
+            return super.findLastLeaveBlock(intentType);
+        }
+    }
+
     @Override
     public void insertKey(Key key) throws JasDBStorageException {
         if(isLeave) {
@@ -0,0 +1,246 @@
+/*
+ * The JASDB software and code is Copyright protected 2012 and owned by Renze de Vries
+ *
+ * All the code and design principals in the codebase are also Copyright 2012
+ * protected and owned Renze de Vries. Any unauthorized usage of the code or the
+ * design and principals as in this code is prohibited.
+ */
+package com.oberasoftware.jasdb.core.index.btreeplus;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.exceptions.RuntimeJasDBException;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds the keys of a leave block in a single sorted array, lookups are done using a binary search over the
+ * slots of the array. Keys are loaded from disk in order, so loading a block only appends to the end of the array.
+ *
+ * Comparisons are always done as searchKey.compareTo(storedKey), composite search keys can contain less fields
+ * than the stored keys and are only able to compare themselves against the stored keys.
+ *
+ * The slots of a block loaded from the slotted layout only hold the position of their key, a key is loaded the
+ * first time it is compared or returned. Loading a key can happen concurrently for readers of the block, so it is
+ * done while holding the lock of the array, once all keys are loaded the positions are dropped.
+ *
+ * @author Renze de Vries
+ */
+final class SortedKeyArray {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Key[] keys;
+    private int size;
+
+    private long[] positions;
+    private LeaveKeyLoader keyLoader;
+    private volatile int unloaded;
+
+    SortedKeyArray() {
+        this.keys = new Key[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Replaces the keys of the array by the positions of the keys in key order, the keys are loaded when needed
+     * @param positions The positions of the keys
+     * @param keyLoader The loader of the key at a position
+     */
+    void loadPositions(long[] positions, LeaveKeyLoader keyLoader) {
+        reset();
+        this.keys = new Key[Math.max(INITIAL_CAPACITY, positions.length)];
+        this.positions = Arrays.copyOf(positions, keys.length);
+        this.keyLoader = keyLoader;
+        this.size = positions.length;
+        this.unloaded = positions.length;
+        if(unloaded == 0) {
+            this.positions = null;
+        }
+    }
+
+    /**
+     * @return The amount of keys of which only the position is known
+     */
+    int unloaded() {
+        return unloaded;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Key first() {
+        return size > 0 ? key(0) : null;
+    }
+
+    Key last() {
+        return size > 0 ? key(size - 1) : null;
+    }
+
+    Key get(Key key) {
+        int slot = indexOf(key);
+        return slot >= 0 ? key(slot) : null;
+    }
+
+    boolean contains(Key key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Inserts the key after any equal key already present
+     */
+    void put(Key key) {
+        int slot = size > 0 && key.compareTo(key(size - 1)) >= 0 ? size : upperBound(key);
+        ensureCapacity(size + 1);
+        if(slot < size) {
+            System.arraycopy(keys, slot, keys, slot + 1, size - slot);
+            if(positions != null) {
+                System.arraycopy(positions, slot, positions, slot + 1, size - slot);
+            }
+        }
+        keys[slot] = key;
+        size++;
+    }
+
+    void remove(Key key) {
+        int slot = indexOf(key);
+        if(slot >= 0) {
+            int moved = size - slot - 1;
+            if(moved > 0) {
+                System.arraycopy(keys, slot + 1, keys, slot, moved);
+                if(positions != null) {
+                    System.arraycopy(positions, slot + 1, positions, slot, moved);
+                }
+            }
+            keys[--size] = null;
+        }
+    }
+
+    List<Key> range(Key start, boolean includeStart, Key end, boolean includeEnd) {
+        int from = 0;
+        if(start != null) {
+            from = includeStart ? lowerBound(start) : upperBound(start);
+        }
+
+        List<Key> values = new ArrayList<>();
+        for(int i = from; i < size; i++) {
+            if(end != null) {
+                int compareEnd = end.compareTo(key(i));
+                if(compareEnd < 0 || (compareEnd == 0 && !includeEnd)) {
+                    break;
+                }
+            }
+            values.add(key(i));
+        }
+        return values;
+    }
+
+    List<Key> values() {
+        loadAll();
+        return new ArrayList<>(Arrays.asList(keys).subList(0, size));
+    }
+
+    /**
+     * Splits the keys in two halves, the first half contains size / 2 keys
+     */
+    @SuppressWarnings("unchecked")
+    List<Key>[] split() {
+        loadAll();
+        int half = size / 2;
+        List<Key> firstValues = new ArrayList<>(Arrays.asList(keys).subList(0, half));
+        List<Key> secondValues = new ArrayList<>(Arrays.asList(keys).subList(half, size));
+        return new List[]{firstValues, secondValues};
+    }
+
+    void reset() {
+        Arrays.fill(keys, 0, size, null);
+        size = 0;
+        positions = null;
+        keyLoader = null;
+        unloaded = 0;
+    }
+
+    private Key key(int slot) {
+        return unloaded == 0 ? keys[slot] : loadKey(slot);
+    }
+
+    private synchronized Key loadKey(int slot) {
+        Key key = keys[slot];
+        if(key == null) {
+            try {
+                key = keyLoader.loadKey(positions[slot]);
+            } catch(JasDBStorageException e) {
+                throw new RuntimeJasDBException("Unable to load key of leave block", e);
+            }
+            keys[slot] = key;
+            if(--unloaded == 0) {
+                positions = null;
+                keyLoader = null;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Loads all keys of the array, needed before the keys are written or moved to another block
+     */
+    private void loadAll() {
+        for(int i = 0; i < size && unloaded > 0; i++) {
+            key(i);
+        }
+    }
+
+    private int indexOf(Key key) {
+        int slot = lowerBound(key);
+        return slot < size && key.compareTo(key(slot)) == 0 ? slot : -1;
+    }
+
+    /**
+     * @return The first slot of which the stored key is equal or bigger than the given key
+     */
+    private int lowerBound(Key key) {
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(key.compareTo(key(mid)) > 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return The first slot of which the stored key is bigger than the given key
+     */
+    private int upperBound(Key key) {
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(key.compareTo(key(mid)) >= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity > keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(capacity, keys.length + (keys.length >> 1)));
+            if(positions != null) {
+                positions = Arrays.copyOf(positions, keys.length);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return unloaded > 0 ? "SortedKeyArray{size=" + size + ", unloaded=" + unloaded + "}" : Arrays.toString(Arrays.copyOf(keys, size));
+    }
+}
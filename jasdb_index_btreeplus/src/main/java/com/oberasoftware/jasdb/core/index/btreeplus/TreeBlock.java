@@ -84,6 +84,15 @@ public class TreeBlock implements IndexBlock {
         return block.findFirstLeaveBlock(intentType);
     }
 
+    @Override
+    public LeaveBlock findLastLeaveBlock(LockIntentType intentType) throws JasDBStorageException {
+        TreeNode lastNode = treeNodes.last();
+
+        IndexBlock block = persister.loadBlock(lastNode.getRight());
+        persister.getLockManager().acquireLock(intentType, block);
+        return block.findLastLeaveBlock(intentType);
+    }
+
     protected void insertBlock(Key key, IndexBlock leftChildBlock, IndexBlock rightChildBlock) throws JasDBStorageException {
         TreeNode node = new TreeNode(key, leftChildBlock.getPosition(), rightChildBlock.getPosition());
         treeNodes.put(key, node);
@@ -1,11 +0,0 @@
-package com.oberasoftware.jasdb.core.index.btreeplus.locking;
-
-/**
-* @author Renze de Vries
-* Date: 6-6-12
-* Time: 20:30
-*/
-public enum LOCK_TYPE {
-    WRITE,
-    READ
-}
@@ -10,4 +10,12 @@ import com.oberasoftware.jasdb.core.index.btreeplus.IndexBlock;
 */
 public interface LockIntent {
     public boolean requiresWriteLock(BlockPersister persister, IndexBlock block);
+
+    /**
+     * Indicates if the locks taken before the given block can be released once the block is locked, which is
+     * the case when the operation can never modify any of the blocks above it.
+     */
+    default boolean releasesParents(BlockPersister persister, IndexBlock block) {
+        return false;
+    }
 }
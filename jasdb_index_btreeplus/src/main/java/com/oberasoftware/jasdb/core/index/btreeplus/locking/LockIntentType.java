@@ -8,6 +8,7 @@ package com.oberasoftware.jasdb.core.index.btreeplus.locking;
 public enum LockIntentType {
     READ(new ReadIntent()),
     WRITE_EXCLUSIVE(new WriteIntentExclusive()),
+    WRITE_INSERT(new WriteIntentInsert()),
     UPDATE(new UpdateIntent()),
     LEAVELOCK_OPTIMISTIC(new OptimisticLeaveLockIntent());
 
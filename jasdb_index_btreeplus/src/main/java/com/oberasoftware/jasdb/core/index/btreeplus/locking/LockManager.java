@@ -4,55 +4,76 @@ import com.oberasoftware.jasdb.api.concurrency.ReadWriteLock;
 import com.oberasoftware.jasdb.core.index.btreeplus.BlockPersister;
 import com.oberasoftware.jasdb.core.index.btreeplus.IndexBlock;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Keeps track of the block locks taken by the current thread. Every thread has a single lock chain that is reused
+ * for all its operations on the index, starting a lock chain only clears it.
+ *
  * @author Renze de Vries
  */
 public class LockManager {
-    private final ThreadLocal<LockChain> currentLockChain = new ThreadLocal<>();
+    private final ThreadLocal<LockChain> currentLockChain = ThreadLocal.withInitial(LockChain::new);
 
     private final BlockPersister persister;
 
+    private final AtomicLong rebalanceCount = new AtomicLong(0);
+
     public LockManager(BlockPersister persister) {
         this.persister = persister;
     }
 
     public void startLockChain() {
-        currentLockChain.set(new LockChain());
+        currentLockChain.get().start();
     }
 
     public void releaseLockChain() {
-        LockChain chain = currentLockChain.get();
-
-        if(chain != null) {
-            chain.release();
-            currentLockChain.remove();
-        }
+        currentLockChain.get().release();
     }
 
     public void acquireLock(LockIntentType intent, IndexBlock block) {
-        LockChain lockChain = currentLockChain.get();
-
-        lockChain.acquireLock(intent.getIntent(), block);
+        currentLockChain.get().acquireLock(intent.getIntent(), block);
     }
 
     public void registerBlockUsage(IndexBlock block) {
         LockChain lockChain = currentLockChain.get();
 
-        if(lockChain != null) {
+        if(lockChain.active) {
             lockChain.registerBlockUsage(block);
         }
     }
 
+    /**
+     * Registers that keys moved between existing leave blocks, must be called while the leaves are still locked
+     */
+    public void registerRebalance() {
+        rebalanceCount.incrementAndGet();
+    }
+
+    /**
+     * @return The amount of times keys moved between existing leave blocks, a reader that did not hold any lock in
+     * between reading two leaves can use this to detect keys could have moved past it
+     */
+    public long getRebalanceCount() {
+        return rebalanceCount.get();
+    }
+
     private class LockChain {
-        private LinkedList<LockEntry> lockEntries;
+        private final List<IndexBlock> readLocked = new ArrayList<>();
+
+        private final List<IndexBlock> writeLocked = new ArrayList<>();
 
-        private LinkedList<IndexBlock> usedBlocks;
+        private final List<IndexBlock> usedBlocks = new ArrayList<>();
 
-        private LockChain() {
-            lockEntries = new LinkedList<>();
-            usedBlocks = new LinkedList<>();
+        private boolean active = false;
+
+        public void start() {
+            readLocked.clear();
+            writeLocked.clear();
+            usedBlocks.clear();
+            active = true;
         }
 
         public void registerBlockUsage(IndexBlock block) {
@@ -60,18 +81,26 @@ public class LockManager {
         }
 
         public void release() {
-            for(LockEntry entry : lockEntries) {
-                ReadWriteLock lockManager = entry.getBlock().getLockManager();
-                if(entry.getType() == LOCK_TYPE.WRITE) {
-                    lockManager.writeUnlock();
-                } else {
-                    lockManager.readUnlock();
+            if(active) {
+                releaseLocks();
+
+                for(IndexBlock usedBlock : usedBlocks) {
+                    persister.releaseBlock(usedBlock);
                 }
+                usedBlocks.clear();
+                active = false;
             }
+        }
 
-            for(IndexBlock usedBlock : usedBlocks) {
-                persister.releaseBlock(usedBlock);
+        private void releaseLocks() {
+            for(IndexBlock block : writeLocked) {
+                block.getLockManager().writeUnlock();
             }
+            for(IndexBlock block : readLocked) {
+                block.getLockManager().readUnlock();
+            }
+            writeLocked.clear();
+            readLocked.clear();
         }
 
         public void acquireLock(LockIntent intent, IndexBlock block) {
@@ -81,9 +110,17 @@ public class LockManager {
             if(shouldWriteLock) {
                 lockManager.readUnlock();
                 lockManager.writeLock();
-                lockEntries.add(new LockEntry(block, LOCK_TYPE.WRITE));
+            }
+
+            if(intent.releasesParents(persister, block)) {
+                //the block can absorb the change, none of the blocks locked before it will be modified
+                releaseLocks();
+            }
+
+            if(shouldWriteLock) {
+                writeLocked.add(block);
             } else {
-                lockEntries.add(new LockEntry(block, LOCK_TYPE.READ));
+                readLocked.add(block);
             }
         }
     }
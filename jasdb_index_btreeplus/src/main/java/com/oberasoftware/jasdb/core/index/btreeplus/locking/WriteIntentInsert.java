@@ -0,0 +1,22 @@
+package com.oberasoftware.jasdb.core.index.btreeplus.locking;
+
+import com.oberasoftware.jasdb.core.index.btreeplus.BlockPersister;
+import com.oberasoftware.jasdb.core.index.btreeplus.IndexBlock;
+
+/**
+ * Write locks all blocks on the path of an insert that can split blocks. As soon as a block is reached that has
+ * room for one more key a split can not go beyond that block, so the locks on the blocks above it are released.
+ *
+ * @author Renze de Vries
+ */
+public class WriteIntentInsert implements LockIntent {
+    @Override
+    public boolean requiresWriteLock(BlockPersister persister, IndexBlock block) {
+        return true;
+    }
+
+    @Override
+    public boolean releasesParents(BlockPersister persister, IndexBlock block) {
+        return block.size() < persister.getMaxKeys();
+    }
+}
@@ -7,7 +7,8 @@ public enum BlockTypes {
     ROOTBLOCK(4),
     NODEBLOCK(8),
     LEAVEBLOCK(16),
-    DATA(32);
+    DATA(32),
+    FREEBLOCK(64);
 
     private int typeDef;
 
@@ -29,6 +30,8 @@ public enum BlockTypes {
             return NODEBLOCK;
         } else if(typeDef == 4){
             return ROOTBLOCK;
+        } else if(typeDef == 64) {
+            return FREEBLOCK;
         } else {
             throw new RuntimeException("Unrecognized block type");
         }
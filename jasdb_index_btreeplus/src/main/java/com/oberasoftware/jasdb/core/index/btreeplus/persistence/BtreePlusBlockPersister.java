@@ -20,17 +20,33 @@ import com.oberasoftware.jasdb.core.index.btreeplus.IndexBlock;
 import com.oberasoftware.jasdb.core.index.btreeplus.caching.IndexBlockEntry;
 import com.oberasoftware.jasdb.core.index.btreeplus.locking.LockManager;
 import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * Persists the blocks of the btree into the data blocks of the index file. Blocks that are removed from the tree
+ * are kept on a free list and handed out again when a new block is needed, the file is only extended when no
+ * freed block is available. The free list is persisted as a chain through the freed blocks themselves.
+ *
  * @author Renze de Vries
  */
 public class BtreePlusBlockPersister implements BlockPersister {
+    private static final Logger LOG = LoggerFactory.getLogger(BtreePlusBlockPersister.class);
+
     private static final int BLOCK_TYPE_HEADER_INDEX = 0;
+    private static final int NEXT_FREE_BLOCK_INDEX = 4;
+
+    public static final long NO_FREE_BLOCK = 0;
 
     private final int pageSize;
     private final KeyInfo keyInfo;
@@ -44,6 +60,9 @@ public class BtreePlusBlockPersister implements BlockPersister {
 
     private CacheRegion<Long, IndexBlockEntry> memoryRegion;
 
+    private final Deque<Long> freeBlocks = new ArrayDeque<>();
+    private final Set<Long> deletedBlocks = new HashSet<>();
+
     public BtreePlusBlockPersister(DataBlockFactory dataBlockFactory, int pageSize, KeyInfo keyInfo) {
         this.dataBlockFactory = dataBlockFactory;
         this.lockManager = new LockManager(this);
@@ -127,19 +146,155 @@ public class BtreePlusBlockPersister implements BlockPersister {
 
     @Override
     public void persistBlock(IndexBlock block) throws JasDBStorageException {
-        if(block.isModified()) {
+        if(block.isModified() && !isDeleted(block.getPosition())) {
             blockFactories.get(block.getType()).persistBlock(block);
             block.getDataBlock().flush();
         }
     }
 
+    /**
+     * Persists the block and removes it from the block cache
+     * @param block The block to flush and remove from the cache
+     * @throws JasDBStorageException If unable to persist the block
+     */
     public void flushAndCloseBlock(IndexBlock block) throws JasDBStorageException {
-        persistBlock(block);
-        memoryRegion.removeEntry(block.getPosition());
+        //a removed cache entry persists the block when it is released
+        if(!memoryRegion.removeEntry(block.getPosition())) {
+            persistBlock(block);
+        }
     }
 
+    /**
+     * Puts the block on the free list, the block is no longer persisted and can be reused for a new block as
+     * soon as it is no longer in use. Data blocks chained to the block stay attached and are reused with it.
+     */
     @Override
     public void markDeleted(IndexBlock block) throws JasDBStorageException {
+        lock.lock();
+        try {
+            if(deletedBlocks.add(block.getPosition())) {
+                freeBlocks.add(block.getPosition());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The amount of blocks on the free list
+     */
+    public int getFreeBlocks() {
+        lock.lock();
+        try {
+            return freeBlocks.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The amount of data blocks held by the blocks on the free list, including the data blocks chained to them
+     * @throws JasDBStorageException If unable to load the free blocks
+     */
+    public long getFreeDataBlocks() throws JasDBStorageException {
+        lock.lock();
+        try {
+            long dataBlocks = 0;
+            for(long position : freeBlocks) {
+                DataBlock dataBlock = dataBlockFactory.loadBlock(position);
+                dataBlocks++;
+                while(dataBlock.getHeader().getNext() > 0) {
+                    dataBlock = dataBlock.loadNext();
+                    dataBlocks++;
+                }
+            }
+            return dataBlocks;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Loads the free list that was persisted as a chain through the freed blocks
+     * @param firstFreeBlock The position of the first free block or NO_FREE_BLOCK if there are no free blocks
+     * @throws JasDBStorageException If unable to load the free blocks
+     */
+    public void loadFreeBlocks(long firstFreeBlock) throws JasDBStorageException {
+        lock.lock();
+        try {
+            long position = firstFreeBlock;
+            while(position != NO_FREE_BLOCK && !deletedBlocks.contains(position)) {
+                DataBlock dataBlock = dataBlockFactory.loadBlock(position);
+                if(dataBlock.getHeader().getInt(BLOCK_TYPE_HEADER_INDEX) != BlockTypes.FREEBLOCK.getTypeDef()) {
+                    LOG.warn("Block: {} on free list of index: {} is not a free block, ignoring rest of free list", position, keyInfo.getKeyName());
+                    break;
+                }
+
+                deletedBlocks.add(position);
+                freeBlocks.add(position);
+                position = dataBlock.getHeader().getLong(NEXT_FREE_BLOCK_INDEX);
+            }
+            LOG.debug("Loaded: {} free blocks for index: {}", freeBlocks.size(), keyInfo.getKeyName());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the free list as a chain through the freed blocks
+     * @return The position of the first free block or NO_FREE_BLOCK if there are no free blocks
+     * @throws JasDBStorageException If unable to write the free blocks
+     */
+    public long persistFreeBlocks() throws JasDBStorageException {
+        lock.lock();
+        try {
+            long nextFreeBlock = NO_FREE_BLOCK;
+            Iterator<Long> freeIterator = freeBlocks.descendingIterator();
+            while(freeIterator.hasNext()) {
+                long position = freeIterator.next();
+                DataBlock dataBlock = dataBlockFactory.loadBlock(position);
+                dataBlock.getHeader().putInt(BLOCK_TYPE_HEADER_INDEX, BlockTypes.FREEBLOCK.getTypeDef());
+                dataBlock.getHeader().putLong(NEXT_FREE_BLOCK_INDEX, nextFreeBlock);
+                dataBlock.flush();
+
+                nextFreeBlock = position;
+            }
+            return nextFreeBlock;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isDeleted(long position) {
+        lock.lock();
+        try {
+            return deletedBlocks.contains(position);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a block from the free list that is no longer in use by any reader or writer
+     * @return The data block of the free block, null if no free block is available
+     */
+    private DataBlock takeFreeBlock() throws JasDBStorageException {
+        Iterator<Long> freeIterator = freeBlocks.iterator();
+        while(freeIterator.hasNext()) {
+            long position = freeIterator.next();
+
+            //a cached block can only be reused once it is evicted, which fails if the block is still in use
+            if(!memoryRegion.contains(position) || memoryRegion.removeEntry(position)) {
+                freeIterator.remove();
+                deletedBlocks.remove(position);
+
+                DataBlock dataBlock = dataBlockFactory.loadBlock(position);
+                dataBlock.reset();
+                return dataBlock;
+            }
+        }
+        return null;
     }
 
     @Override
@@ -159,7 +314,7 @@ public class BtreePlusBlockPersister implements BlockPersister {
 
     @Override
     public void releaseBlock(IndexBlock block) {
-        memoryRegion.getEntry(block.getPosition()).releaseToken();
+        memoryRegion.peekEntry(block.getPosition()).releaseToken();
     }
 
 
@@ -168,7 +323,12 @@ public class BtreePlusBlockPersister implements BlockPersister {
         StatRecord blockCreateTimer = StatisticsMonitor.createRecord("btreeplus:persister:createblock");
         lock.lock();
         try {
-            IndexBlock block = blockFactories.get(blockType).createBlock(parentBlock, dataBlockFactory.getBlockWithSpace(false));
+            DataBlock dataBlock = takeFreeBlock();
+            if(dataBlock == null) {
+                dataBlock = dataBlockFactory.getBlockWithSpace(false);
+            }
+
+            IndexBlock block = blockFactories.get(blockType).createBlock(parentBlock, dataBlock);
             block.getDataBlock().getHeader().putInt(BLOCK_TYPE_HEADER_INDEX, blockType.getTypeDef());
 
             IndexBlockEntry entry = new IndexBlockEntry(this, block);
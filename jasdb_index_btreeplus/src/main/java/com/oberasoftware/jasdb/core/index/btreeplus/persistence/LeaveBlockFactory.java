@@ -9,35 +9,59 @@ package com.oberasoftware.jasdb.core.index.btreeplus.persistence;
 
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import com.oberasoftware.jasdb.api.storage.DataBlock;
+import com.oberasoftware.jasdb.api.storage.DataBlockFactory;
+import com.oberasoftware.jasdb.api.storage.DataBlockResult;
 import com.oberasoftware.jasdb.core.index.btreeplus.BlockPersister;
 import com.oberasoftware.jasdb.core.index.btreeplus.LeaveBlock;
 import com.oberasoftware.jasdb.core.index.btreeplus.LeaveBlockImpl;
 import com.oberasoftware.jasdb.core.index.btreeplus.LeaveBlockProperties;
+import com.oberasoftware.jasdb.core.index.btreeplus.LeaveKeyLoader;
 import com.oberasoftware.jasdb.api.index.keys.Key;
 import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
 import com.oberasoftware.jasdb.api.index.keys.KeyLoadResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
+ * Leave blocks are stored in the slotted layout, the keys are followed by a directory holding the position of
+ * every key. A loaded leave only reads the directory, the keys are loaded when they are compared or returned.
+ * Leave blocks written before the slotted layout existed have no directory and their keys are loaded at once.
+ *
  * @author Renze de Vries
  */
 public class LeaveBlockFactory implements BlockFactory<LeaveBlock> {
     private static final Logger LOG = LoggerFactory.getLogger(LeaveBlockFactory.class);
 
     private BlockPersister persister;
+    private DataBlockFactory dataBlockFactory;
     private KeyInfo keyInfo;
+    private LeaveKeyPrefix keyPrefix;
 
     private static final int PREVIOUS_LEAVE_INDEX = 4;
     private static final int NEXT_LEAVE_INDEX = 12;
     private static final int PARENT_BLOCK_INDEX = 20;
     private static final int AMOUNT_KEY_INDEX = 28;
+    private static final int KEY_PREFIX_INDEX = 32;
+    private static final int LAYOUT_INDEX = 36;
+    private static final int DIRECTORY_INDEX = 40;
+
+    private static final int NO_KEY_PREFIX = 0;
+    private static final int STRING_KEY_PREFIX = 1;
+
+    /**
+     * Marks a leave stored in the slotted layout, leaves of the sequential layout did not write this header field
+     */
+    private static final int SLOTTED_LAYOUT = 0x534c4f54;
 
     public LeaveBlockFactory(BtreePlusBlockPersister persister) {
         this.persister = persister;
+        this.dataBlockFactory = persister.getDataBlockFactory();
         this.keyInfo = persister.getKeyInfo();
+        this.keyPrefix = LeaveKeyPrefix.create(keyInfo);
     }
 
     @Override
@@ -54,12 +78,27 @@ public class LeaveBlockFactory implements BlockFactory<LeaveBlock> {
 
         int offset = 0;
         DataBlock currentBlock = dataBlock;
-        for(int i=0; i<amountOfKeys; i++) {
-            KeyLoadResult loadedKeyResult = keyInfo.loadKey(offset, currentBlock);
-            leaveBlock.addKey(loadedKeyResult.getLoadedKey());
+        byte[] prefix = null;
+        if(dataBlock.getHeader().getInt(KEY_PREFIX_INDEX) == STRING_KEY_PREFIX) {
+            DataBlockResult<byte[]> prefixResult = dataBlock.loadBytes(offset);
+            prefix = prefixResult.getValue();
+            currentBlock = prefixResult.getEndBlock();
+            offset = prefixResult.getNextOffset();
+        }
 
-            currentBlock = loadedKeyResult.getEndBlock();
-            offset = loadedKeyResult.getNextOffset();
+        if(dataBlock.getHeader().getInt(LAYOUT_INDEX) == SLOTTED_LAYOUT) {
+            long[] positions = loadDirectory(dataBlock.getHeader().getLong(DIRECTORY_INDEX), amountOfKeys);
+            byte[] keyPrefixBytes = prefix;
+            leaveBlock.loadKeyPositions(positions, position -> loadKey(position, keyPrefixBytes));
+        } else {
+            for(int i=0; i<amountOfKeys; i++) {
+                KeyLoadResult loadedKeyResult = keyInfo.loadKey(offset, currentBlock);
+                Key loadedKey = loadedKeyResult.getLoadedKey();
+                leaveBlock.addKey(prefix != null ? keyPrefix.expand(loadedKey, prefix) : loadedKey);
+
+                currentBlock = loadedKeyResult.getEndBlock();
+                offset = loadedKeyResult.getNextOffset();
+            }
         }
         properties.setNextBlock(nextBlock);
         properties.setPreviousBlock(previousBlock);
@@ -85,16 +124,61 @@ public class LeaveBlockFactory implements BlockFactory<LeaveBlock> {
             dataBlock.getHeader().putLong(PARENT_BLOCK_INDEX, leaveBlock.getParentPointer());
             dataBlock.getHeader().putInt(AMOUNT_KEY_INDEX, nrKeys);
 
-            LOG.debug("Writing amount of keys: {}", nrKeys);
+            byte[] prefix = keyPrefix != null ? keyPrefix.determinePrefix(writeKeys) : new byte[0];
+            dataBlock.getHeader().putInt(KEY_PREFIX_INDEX, prefix.length > 0 ? STRING_KEY_PREFIX : NO_KEY_PREFIX);
+            dataBlock.getHeader().putInt(LAYOUT_INDEX, SLOTTED_LAYOUT);
+
+            LOG.debug("Writing amount of keys: {} with prefix size: {}", nrKeys, prefix.length);
 
+            DataBlock headerBlock = dataBlock;
+            if(prefix.length > 0) {
+                dataBlock = dataBlock.writeBytes(prefix).getDataBlock();
+            }
+
+            ByteBuffer directory = ByteBuffer.allocate(nrKeys * Long.BYTES);
             for(Key key : writeKeys) {
-                dataBlock = keyInfo.writeKey(key, dataBlock);
+                directory.putLong(getWritePosition(dataBlock));
+                dataBlock = keyInfo.writeKey(prefix.length > 0 ? keyPrefix.truncate(key, prefix) : key, dataBlock);
             }
+
+            headerBlock.getHeader().putLong(DIRECTORY_INDEX, getWritePosition(dataBlock));
+            dataBlock.writeStream(new ByteArrayInputStream(directory.array()));
         } else if(block.isModified()) {
             throw new JasDBStorageException("Unable to store block, unexpected type");
         }
     }
 
+    /**
+     * The position of a key is the position of its block plus its offset in the data of the block, the offset can
+     * be at the end of a full block in which case the key continues in the next block of the chain.
+     * @return The position the next data of the block will be written at
+     */
+    private long getWritePosition(DataBlock dataBlock) {
+        return dataBlock.getPosition() + dataBlock.getHeader().marker();
+    }
+
+    private long[] loadDirectory(long directoryPosition, int amountOfKeys) throws JasDBStorageException {
+        ByteBuffer directory = ByteBuffer.wrap(loadBlock(directoryPosition).loadBytes(getOffset(directoryPosition)).getValue());
+        long[] positions = new long[amountOfKeys];
+        for(int i=0; i<amountOfKeys; i++) {
+            positions[i] = directory.getLong();
+        }
+        return positions;
+    }
+
+    private Key loadKey(long position, byte[] prefix) throws JasDBStorageException {
+        Key loadedKey = keyInfo.loadKey(getOffset(position), loadBlock(position)).getLoadedKey();
+        return prefix != null ? keyPrefix.expand(loadedKey, prefix) : loadedKey;
+    }
+
+    private DataBlock loadBlock(long position) throws JasDBStorageException {
+        return dataBlockFactory.loadBlockForDataPosition(position);
+    }
+
+    private int getOffset(long position) {
+        return (int) (position % dataBlockFactory.getBlockSize());
+    }
+
     @Override
     public LeaveBlockImpl createBlock(long parentBlock, DataBlock dataBlock) throws JasDBStorageException {
         LeaveBlockImpl leaveBlock = new LeaveBlockImpl(persister, dataBlock, parentBlock, true);
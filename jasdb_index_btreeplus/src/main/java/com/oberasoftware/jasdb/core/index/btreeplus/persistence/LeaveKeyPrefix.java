@@ -0,0 +1,148 @@
+/*
+ * The JASDB software and code is Copyright protected 2012 and owned by Renze de Vries
+ *
+ * All the code and design principals in the codebase are also Copyright 2012
+ * protected and owned Renze de Vries. Any unauthorized usage of the code or the
+ * design and principals as in this code is prohibited.
+ */
+package com.oberasoftware.jasdb.core.index.btreeplus.persistence;
+
+import com.oberasoftware.jasdb.api.index.MemoryConstants;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
+import com.oberasoftware.jasdb.core.index.keys.CompositeKey;
+import com.oberasoftware.jasdb.core.index.keys.StringKey;
+import com.oberasoftware.jasdb.core.index.keys.types.StringKeyType;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Truncates the prefix shared by the string values of the first key field of all keys in a leave block. Keys that
+ * are close to each other in the index often share a large part of their value, for example emails or paths. The
+ * prefix is stored once for the leave and the keys are stored with only the remainder of their string value.
+ *
+ * @author Renze de Vries
+ */
+final class LeaveKeyPrefix {
+    /**
+     * A string key consisting of only this byte is stored to represent a null value
+     */
+    private static final byte NIL_MARKER = Byte.MAX_VALUE;
+
+    private final int fieldIndex;
+
+    private LeaveKeyPrefix(int fieldIndex) {
+        this.fieldIndex = fieldIndex;
+    }
+
+    /**
+     * Creates the prefix truncation for the keys of the index
+     * @param keyInfo The key information of the index
+     * @return The prefix truncation or null if the first key field of the index is not a string
+     */
+    static LeaveKeyPrefix create(KeyInfo keyInfo) {
+        if(!keyInfo.getIndexKeyFields().get(0).getKeyType().getKeyId().equals(StringKeyType.KEY_ID)) {
+            return null;
+        }
+
+        String field = keyInfo.getKeyFields().get(0);
+        int fieldIndex = keyInfo.getKeyNameMapper().isMapped(field) ? keyInfo.getKeyNameMapper().getIndexForField(field) : -1;
+        return new LeaveKeyPrefix(fieldIndex);
+    }
+
+    /**
+     * Determines the prefix shared by all the keys
+     * @param keys The keys of the leave
+     * @return The shared prefix, empty if the keys share no prefix or the prefix is too small to save any space
+     */
+    byte[] determinePrefix(List<Key> keys) {
+        if(keys.size() < 2) {
+            return new byte[0];
+        }
+
+        byte[] first = getStringBytes(keys.get(0));
+        if(first == null) {
+            return new byte[0];
+        }
+        int prefixLength = first.length;
+        for(Key key : keys) {
+            byte[] bytes = getStringBytes(key);
+            if(bytes == null) {
+                return new byte[0];
+            }
+
+            int length = Math.min(prefixLength, bytes.length);
+            prefixLength = 0;
+            while(prefixLength < length && first[prefixLength] == bytes[prefixLength]) {
+                prefixLength++;
+            }
+            if(prefixLength == 0) {
+                return new byte[0];
+            }
+        }
+
+        //a remainder of just the nil marker would be read back as a null value
+        boolean shortened = true;
+        while(prefixLength > 0 && shortened) {
+            shortened = false;
+            for(Key key : keys) {
+                byte[] bytes = getStringBytes(key);
+                if(bytes.length == prefixLength + 1 && bytes[prefixLength] == NIL_MARKER) {
+                    prefixLength--;
+                    shortened = true;
+                }
+            }
+        }
+
+        //the prefix itself is stored with a length
+        if((long) prefixLength * (keys.size() - 1) <= MemoryConstants.LONG_BYTE_SIZE) {
+            return new byte[0];
+        }
+        return Arrays.copyOf(first, prefixLength);
+    }
+
+    /**
+     * Creates a key to store with the prefix removed from its string value
+     * @param key The key to store
+     * @param prefix The prefix shared by the keys of the leave
+     * @return The key to store
+     */
+    Key truncate(Key key, byte[] prefix) {
+        byte[] bytes = getStringBytes(key);
+        StringKey remainder = new StringKey(Arrays.copyOfRange(bytes, prefix.length, bytes.length));
+        return replaceStringKey(key, remainder);
+    }
+
+    /**
+     * Restores a key loaded from the leave by prepending the prefix to its string value
+     * @param key The loaded key
+     * @param prefix The prefix shared by the keys of the leave
+     * @return The restored key
+     */
+    Key expand(Key key, byte[] prefix) {
+        byte[] remainder = getStringBytes(key);
+        byte[] bytes = Arrays.copyOf(prefix, prefix.length + remainder.length);
+        System.arraycopy(remainder, 0, bytes, prefix.length, remainder.length);
+        return replaceStringKey(key, new StringKey(bytes));
+    }
+
+    private Key replaceStringKey(Key key, StringKey stringKey) {
+        if(key instanceof CompositeKey) {
+            Key[] children = key.getKeys().clone();
+            children[fieldIndex] = stringKey;
+            //the clone keeps the value marker of the key
+            return key.cloneKey().setKeys(children);
+        } else {
+            return stringKey.setKeys(key.getKeys());
+        }
+    }
+
+    private byte[] getStringBytes(Key key) {
+        Key stringKey = key;
+        if(key instanceof CompositeKey) {
+            stringKey = fieldIndex != -1 ? key.getKey(fieldIndex) : null;
+        }
+        return stringKey instanceof StringKey ? ((StringKey) stringKey).getUnicodeBytes() : null;
+    }
+}
@@ -15,7 +15,10 @@ import com.oberasoftware.jasdb.core.index.btreeplus.locking.LockManager;
 import com.oberasoftware.jasdb.api.index.keys.Key;
 import com.oberasoftware.jasdb.api.index.keys.KeyFactory;
 import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
+import com.oberasoftware.jasdb.api.index.Index;
 import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIteratorCollection;
+import com.oberasoftware.jasdb.api.index.query.IteratorKeyCursor;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
 import com.oberasoftware.jasdb.core.index.query.IndexSearchResultIteratorImpl;
 import com.oberasoftware.jasdb.api.index.query.SearchLimit;
 import com.oberasoftware.jasdb.core.index.query.EqualsCondition;
@@ -53,6 +56,16 @@ public class EqualsSearchOperation implements SearchOperation {
         }
     }
 
+    /**
+     * Only used for indexes with a single key field, these have at most one key for a value which makes the
+     * cursor ordered by document id
+     */
+    @Override
+    public KeyCursor openCursor(SearchCondition condition) throws JasDBStorageException {
+        IndexSearchResultIteratorCollection results = search(condition, Index.NO_SEARCH_LIMIT);
+        return new IteratorKeyCursor(results.getKeys().iterator(), results.getKeyNameMapper(), true);
+    }
+
     private IndexSearchResultIteratorCollection doLeaveSearch(LeaveBlock leaveBlock, Key desiredKey) {
         List<Key> results = new ArrayList<>(1);
 
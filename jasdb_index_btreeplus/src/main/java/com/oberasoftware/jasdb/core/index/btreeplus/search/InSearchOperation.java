@@ -0,0 +1,78 @@
+package com.oberasoftware.jasdb.core.index.btreeplus.search;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyFactory;
+import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
+import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIteratorCollection;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
+import com.oberasoftware.jasdb.api.index.query.SearchCondition;
+import com.oberasoftware.jasdb.api.index.query.SearchLimit;
+import com.oberasoftware.jasdb.core.index.btreeplus.BlockPersister;
+import com.oberasoftware.jasdb.core.index.btreeplus.RootBlock;
+import com.oberasoftware.jasdb.core.index.btreeplus.locking.LockManager;
+import com.oberasoftware.jasdb.core.index.query.InCondition;
+import com.oberasoftware.jasdb.core.index.query.IndexSearchResultIteratorImpl;
+import com.oberasoftware.jasdb.core.index.query.RangeCondition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Searches a list of key values in a single ordered pass over the leave blocks, every value is searched as a range
+ * so that indexes with multiple keys per value find all of them.
+ *
+ * @author Renze de Vries
+ */
+public class InSearchOperation implements SearchOperation {
+    private final BlockPersister persister;
+    private final RootBlock rootBlock;
+    private final KeyInfo keyInfo;
+    private final LockManager lockManager;
+
+    public InSearchOperation(LockManager lockManager, BlockPersister persister, RootBlock rootBlock, KeyInfo keyInfo) {
+        this.lockManager = lockManager;
+        this.persister = persister;
+        this.rootBlock = rootBlock;
+        this.keyInfo = keyInfo;
+    }
+
+    @Override
+    public IndexSearchResultIteratorCollection search(SearchCondition condition, SearchLimit limit) throws JasDBStorageException {
+        List<Key> results = new ArrayList<>();
+        try(KeyCursor cursor = openCursor(condition)) {
+            while(!limit.isMaxReached(results.size()) && cursor.hasNext()) {
+                results.add(cursor.next());
+            }
+        }
+        return new IndexSearchResultIteratorImpl(results, keyInfo.getKeyNameMapper().clone());
+    }
+
+    @Override
+    public KeyCursor openCursor(SearchCondition condition) throws JasDBStorageException {
+        return new MultiRangeSearchCursor(lockManager, persister, rootBlock, createRanges(condition),
+                keyInfo.getKeyNameMapper().clone());
+    }
+
+    /**
+     * Creates a range for every value, the values are converted to the key type of the index first because that
+     * can change their order
+     */
+    private List<RangeCondition> createRanges(SearchCondition condition) throws JasDBStorageException {
+        if(condition instanceof InCondition) {
+            KeyFactory factory = keyInfo.getKeyFactory();
+            List<Key> keys = new ArrayList<>();
+            for(Key key : ((InCondition) condition).getKeys()) {
+                keys.add(factory.supportsKey(key) ? key : factory.convertKey(key));
+            }
+
+            List<RangeCondition> ranges = new ArrayList<>(keys.size());
+            for(Key key : new InCondition(keys).getKeys()) {
+                ranges.add(new RangeCondition(key, true, key, true));
+            }
+            return ranges;
+        } else {
+            throw new JasDBStorageException("Invalid In condition input: " + condition);
+        }
+    }
+}
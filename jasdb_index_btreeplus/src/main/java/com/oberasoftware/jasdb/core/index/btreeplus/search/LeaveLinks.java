@@ -0,0 +1,92 @@
+package com.oberasoftware.jasdb.core.index.btreeplus.search;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.core.index.btreeplus.BlockPersister;
+import com.oberasoftware.jasdb.core.index.btreeplus.IndexBlock;
+import com.oberasoftware.jasdb.core.index.btreeplus.LeaveBlock;
+import com.oberasoftware.jasdb.core.index.btreeplus.LeaveBlockImpl;
+import com.oberasoftware.jasdb.core.index.btreeplus.locking.LockIntentType;
+import com.oberasoftware.jasdb.core.index.btreeplus.locking.LockManager;
+
+import java.util.List;
+
+/**
+ * Follows the links between leave blocks for the cursors that hold no locks in between reading the leaves. In the
+ * meantime the leave a link points to can be split, merged away or reused as a different block and keys can be
+ * borrowed between leaves. The link is only followed when the leave still links back to the leave it was reached
+ * from and no keys were moved between leaves. Otherwise the cursor has to search from the root again and skip the
+ * keys it has already read.
+ *
+ * @author Renze de Vries
+ */
+final class LeaveLinks {
+    private LeaveLinks() {
+
+    }
+
+    /**
+     * Loads and read locks the next leave in the current lock chain
+     * @param nextBlock The next block pointer of the leave that was read last
+     * @param fromBlock The position of the leave that was read last
+     * @param rebalanceCount The rebalance count of the lock manager when the leave was read last
+     * @return The next leave or null if it no longer follows the leave that was read last
+     */
+    static LeaveBlock loadNext(LockManager lockManager, BlockPersister persister, long nextBlock, long fromBlock,
+                               long rebalanceCount) throws JasDBStorageException {
+        LeaveBlockImpl leaveBlock = loadLeave(lockManager, persister, nextBlock, rebalanceCount);
+        return leaveBlock != null && leaveBlock.getProperties().getPreviousBlock() == fromBlock ? leaveBlock : null;
+    }
+
+    /**
+     * Loads and read locks the previous leave in the current lock chain
+     * @param previousBlock The previous block pointer of the leave that was read last
+     * @param fromBlock The position of the leave that was read last
+     * @param rebalanceCount The rebalance count of the lock manager when the leave was read last
+     * @return The previous leave or null if it no longer precedes the leave that was read last
+     */
+    static LeaveBlock loadPrevious(LockManager lockManager, BlockPersister persister, long previousBlock, long fromBlock,
+                                   long rebalanceCount) throws JasDBStorageException {
+        LeaveBlockImpl leaveBlock = loadLeave(lockManager, persister, previousBlock, rebalanceCount);
+        return leaveBlock != null && leaveBlock.getProperties().getNextBlock() == fromBlock ? leaveBlock : null;
+    }
+
+    private static LeaveBlockImpl loadLeave(LockManager lockManager, BlockPersister persister, long position,
+                                            long rebalanceCount) throws JasDBStorageException {
+        if(persister.isDeleted(position)) {
+            return null;
+        }
+
+        IndexBlock block = persister.loadBlock(position);
+        if(!(block instanceof LeaveBlockImpl)) {
+            return null;
+        }
+        lockManager.acquireLock(LockIntentType.READ, block);
+
+        //the block could have been removed or keys could have moved while waiting for the lock
+        boolean changed = persister.isDeleted(position) || lockManager.getRebalanceCount() != rebalanceCount;
+        return !changed ? (LeaveBlockImpl) block : null;
+    }
+
+    /**
+     * @return The keys that are bigger than the given key
+     */
+    static List<Key> keysAfter(List<Key> keys, Key key) {
+        int index = 0;
+        while(index < keys.size() && keys.get(index).compareTo(key) <= 0) {
+            index++;
+        }
+        return index > 0 ? keys.subList(index, keys.size()) : keys;
+    }
+
+    /**
+     * @return The keys that are smaller than the given key
+     */
+    static List<Key> keysBefore(List<Key> keys, Key key) {
+        int index = keys.size();
+        while(index > 0 && keys.get(index - 1).compareTo(key) >= 0) {
+            index--;
+        }
+        return index < keys.size() ? keys.subList(0, index) : keys;
+    }
+}
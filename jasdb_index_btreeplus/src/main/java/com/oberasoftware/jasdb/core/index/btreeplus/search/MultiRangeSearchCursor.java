@@ -0,0 +1,170 @@
+package com.oberasoftware.jasdb.core.index.btreeplus.search;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
+import com.oberasoftware.jasdb.core.index.btreeplus.BlockPersister;
+import com.oberasoftware.jasdb.core.index.btreeplus.LeaveBlock;
+import com.oberasoftware.jasdb.core.index.btreeplus.RootBlock;
+import com.oberasoftware.jasdb.core.index.btreeplus.locking.LockIntentType;
+import com.oberasoftware.jasdb.core.index.btreeplus.locking.LockManager;
+import com.oberasoftware.jasdb.core.index.query.AbstractKeyCursor;
+import com.oberasoftware.jasdb.core.index.query.RangeCondition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cursor over multiple ranges of keys in the btree in a single pass over the leave blocks. The ranges have to be
+ * in ascending order and may not overlap. All ranges that fall within a leave are read together, the walk then
+ * continues with the next leave when the next range starts in it and only searches from the root when the next
+ * range starts further on. No locks are held in between reading the leave blocks.
+ *
+ * @author Renze de Vries
+ */
+public class MultiRangeSearchCursor extends AbstractKeyCursor {
+    private static final long NO_BLOCK = -1;
+
+    private final LockManager lockManager;
+    private final BlockPersister persister;
+    private final RootBlock rootBlock;
+    private final List<RangeCondition> ranges;
+    private final KeyNameMapper keyNameMapper;
+
+    private int rangeIndex = 0;
+    private boolean continueRange = false;
+    private long nextBlockPointer = NO_BLOCK;
+    private long currentBlockPointer = NO_BLOCK;
+    private long rebalanceCount;
+    private Key lastKey;
+    private List<Key> leaveKeys = Collections.emptyList();
+    private int leaveIndex = 0;
+
+    public MultiRangeSearchCursor(LockManager lockManager, BlockPersister persister, RootBlock rootBlock,
+                                  List<RangeCondition> ranges, KeyNameMapper keyNameMapper) {
+        this.lockManager = lockManager;
+        this.persister = persister;
+        this.rootBlock = rootBlock;
+        this.ranges = ranges;
+        this.keyNameMapper = keyNameMapper;
+    }
+
+    @Override
+    public KeyNameMapper getKeyNameMapper() {
+        return keyNameMapper;
+    }
+
+    @Override
+    protected Key computeNext() throws JasDBStorageException {
+        while(leaveIndex == leaveKeys.size()) {
+            if(rangeIndex == ranges.size()) {
+                return null;
+            }
+            readRanges();
+        }
+        return leaveKeys.get(leaveIndex++);
+    }
+
+    private void readRanges() throws JasDBStorageException {
+        if(nextBlockPointer == NO_BLOCK || !readNextLeave()) {
+            //a range that continues is searched after the last key that was read, the leaves could have changed
+            searchLeave(continueRange && lastKey != null ? lastKey : ranges.get(rangeIndex).getStart());
+        }
+    }
+
+    /**
+     * @return False if the current range does not start in the next leave or the next leave no longer follows the
+     * leave that was read last, the range then has to be searched from the root
+     */
+    private boolean readNextLeave() throws JasDBStorageException {
+        lockManager.startLockChain();
+        try {
+            LeaveBlock leaveBlock = LeaveLinks.loadNext(lockManager, persister, nextBlockPointer, currentBlockPointer, rebalanceCount);
+            if(leaveBlock == null || (!continueRange && startsAfter(leaveBlock, ranges.get(rangeIndex)))) {
+                return false;
+            }
+
+            readLeave(leaveBlock);
+            return true;
+        } finally {
+            lockManager.releaseLockChain();
+        }
+    }
+
+    private void searchLeave(Key startKey) throws JasDBStorageException {
+        lockManager.startLockChain();
+        lockManager.acquireLock(LockIntentType.READ, rootBlock);
+        try {
+            LeaveBlock leaveBlock;
+            if(startKey != null) {
+                leaveBlock = rootBlock.findLeaveBlock(LockIntentType.READ, startKey);
+            } else {
+                leaveBlock = rootBlock.findFirstLeaveBlock(LockIntentType.READ);
+            }
+            readLeave(leaveBlock);
+        } finally {
+            lockManager.releaseLockChain();
+        }
+    }
+
+    /**
+     * Reads the keys of all the ranges that are in the leave, starting at the current range
+     */
+    private void readLeave(LeaveBlock leaveBlock) {
+        leaveIndex = 0;
+        currentBlockPointer = leaveBlock.getPosition();
+        rebalanceCount = lockManager.getRebalanceCount();
+        nextBlockPointer = leaveBlock.getProperties().getNextBlock();
+        if(leaveBlock.size() == 0) {
+            leaveKeys = Collections.emptyList();
+            continueRange = true;
+            if(nextBlockPointer == NO_BLOCK) {
+                rangeIndex = ranges.size();
+            }
+            return;
+        }
+
+        leaveKeys = new ArrayList<>();
+        Key leaveLastKey = leaveBlock.getLast();
+        while(rangeIndex < ranges.size()) {
+            RangeCondition range = ranges.get(rangeIndex);
+            if(startsAfter(leaveBlock, range)) {
+                continueRange = false;
+                break;
+            }
+
+            leaveKeys.addAll(leaveBlock.getKeyRange(range.getStart(), range.isStartIncluded(),
+                    range.getEnd(), range.isEndIncluded()));
+
+            if(range.getEnd() == null || leaveLastKey.compareTo(range.getEnd()) <= 0) {
+                //the range can continue in the next leave
+                continueRange = true;
+                break;
+            }
+            rangeIndex++;
+        }
+
+        if(lastKey != null) {
+            leaveKeys = LeaveLinks.keysAfter(leaveKeys, lastKey);
+        }
+        lastKey = leaveLastKey;
+
+        if(nextBlockPointer == NO_BLOCK) {
+            rangeIndex = ranges.size();
+        }
+    }
+
+    private static boolean startsAfter(LeaveBlock leaveBlock, RangeCondition range) {
+        return leaveBlock.size() > 0 && range.getStart() != null && leaveBlock.getLast().compareTo(range.getStart()) < 0;
+    }
+
+    @Override
+    protected void release() {
+        leaveKeys = Collections.emptyList();
+        leaveIndex = 0;
+        rangeIndex = ranges.size();
+        nextBlockPointer = NO_BLOCK;
+        currentBlockPointer = NO_BLOCK;
+    }
+}
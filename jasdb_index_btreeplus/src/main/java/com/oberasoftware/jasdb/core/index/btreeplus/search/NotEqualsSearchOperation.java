@@ -9,10 +9,14 @@ import com.oberasoftware.jasdb.core.index.btreeplus.locking.LockManager;
 import com.oberasoftware.jasdb.api.index.keys.CompareMethod;
 import com.oberasoftware.jasdb.api.index.keys.Key;
 import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
 import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIteratorCollection;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
+import com.oberasoftware.jasdb.core.index.query.AbstractKeyCursor;
 import com.oberasoftware.jasdb.core.index.query.IndexSearchResultIteratorImpl;
 import com.oberasoftware.jasdb.api.index.query.SearchLimit;
 import com.oberasoftware.jasdb.core.index.query.EqualsCondition;
+import com.oberasoftware.jasdb.core.index.query.RangeCondition;
 import com.oberasoftware.jasdb.api.index.query.SearchCondition;
 
 import java.util.LinkedList;
@@ -54,4 +58,47 @@ public class NotEqualsSearchOperation implements SearchOperation {
 
         return new IndexSearchResultIteratorImpl(results, keyInfo.getKeyNameMapper());
     }
+
+    /**
+     * Scans the leave blocks of the index one at a time, skipping the keys equal to the undesired key
+     */
+    @Override
+    public KeyCursor openCursor(SearchCondition condition) throws JasDBStorageException {
+        return filterCursor(condition, new RangeSearchCursor(lockManager, blockPersister, rootBlock,
+                new RangeCondition(null, false, null, false), keyInfo.getKeyNameMapper().clone(), false));
+    }
+
+    @Override
+    public KeyCursor openReverseCursor(SearchCondition condition) throws JasDBStorageException {
+        return filterCursor(condition, new ReverseRangeSearchCursor(lockManager, blockPersister, rootBlock,
+                new RangeCondition(null, false, null, false), keyInfo.getKeyNameMapper().clone()));
+    }
+
+    private KeyCursor filterCursor(SearchCondition condition, KeyCursor indexCursor) throws JasDBStorageException {
+        EqualsCondition equalsCondition = EqualsSearchOperation.validateCondition(keyInfo, condition);
+        Key undesiredKey = equalsCondition.getKey();
+
+        return new AbstractKeyCursor() {
+            @Override
+            protected Key computeNext() {
+                while(indexCursor.hasNext()) {
+                    Key key = indexCursor.next();
+                    if(key.compare(undesiredKey, CompareMethod.EQUALS).getCompare() != 0) {
+                        return key;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            protected void release() {
+                indexCursor.close();
+            }
+
+            @Override
+            public KeyNameMapper getKeyNameMapper() {
+                return indexCursor.getKeyNameMapper();
+            }
+        };
+    }
 }
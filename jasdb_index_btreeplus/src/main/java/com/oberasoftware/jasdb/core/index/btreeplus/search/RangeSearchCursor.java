@@ -0,0 +1,223 @@
+package com.oberasoftware.jasdb.core.index.btreeplus.search;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
+import com.oberasoftware.jasdb.api.session.Entity;
+import com.oberasoftware.jasdb.core.index.btreeplus.BlockPersister;
+import com.oberasoftware.jasdb.core.index.btreeplus.LeaveBlock;
+import com.oberasoftware.jasdb.core.index.btreeplus.RootBlock;
+import com.oberasoftware.jasdb.core.index.btreeplus.locking.LockIntentType;
+import com.oberasoftware.jasdb.core.index.btreeplus.locking.LockManager;
+import com.oberasoftware.jasdb.core.index.keys.CompositeKey;
+import com.oberasoftware.jasdb.core.index.query.AbstractKeyCursor;
+import com.oberasoftware.jasdb.core.index.query.RangeCondition;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cursor over a range of keys in the btree, the leave blocks are read one at a time when the keys of the
+ * previous leave have been consumed. No locks are held in between reading the leave blocks, when the leaves have
+ * changed in the meantime the walk continues from the root after the last key that was read.
+ *
+ * When the range is a single key value of an index that has the document id as last key field, the keys are in
+ * document id order. Skipping ahead is then done by galloping through the keys of the current leave, and by
+ * searching the leave of the document id from the root when it is beyond the current leave.
+ *
+ * @author Renze de Vries
+ */
+public class RangeSearchCursor extends AbstractKeyCursor {
+    private static final long NO_BLOCK = -1;
+
+    private final LockManager lockManager;
+    private final BlockPersister persister;
+    private final RootBlock rootBlock;
+    private final RangeCondition rangeCondition;
+    private final KeyNameMapper keyNameMapper;
+    private final boolean documentOrdered;
+
+    private boolean started = false;
+    private long nextBlockPointer = NO_BLOCK;
+    private long currentBlockPointer = NO_BLOCK;
+    private long rebalanceCount;
+    private Key lastKey;
+    private List<Key> leaveKeys = Collections.emptyList();
+    private int leaveIndex = 0;
+
+    public RangeSearchCursor(LockManager lockManager, BlockPersister persister, RootBlock rootBlock, RangeCondition rangeCondition,
+                             KeyNameMapper keyNameMapper, boolean documentOrdered) {
+        this.lockManager = lockManager;
+        this.persister = persister;
+        this.rootBlock = rootBlock;
+        this.rangeCondition = rangeCondition;
+        this.keyNameMapper = keyNameMapper;
+        this.documentOrdered = documentOrdered;
+    }
+
+    @Override
+    public KeyNameMapper getKeyNameMapper() {
+        return keyNameMapper;
+    }
+
+    @Override
+    public boolean isDocumentOrdered() {
+        return documentOrdered;
+    }
+
+    @Override
+    protected Key computeNext() throws JasDBStorageException {
+        while(leaveIndex == leaveKeys.size()) {
+            if(!started) {
+                started = true;
+                readFirstLeave();
+            } else if(nextBlockPointer != NO_BLOCK) {
+                readNextLeave();
+            } else {
+                return null;
+            }
+        }
+        return leaveKeys.get(leaveIndex++);
+    }
+
+    @Override
+    protected Key computeSkipTo(Key documentKey) throws JasDBStorageException {
+        if(!documentOrdered) {
+            return super.computeSkipTo(documentKey);
+        }
+
+        if(!started) {
+            started = true;
+            readFirstLeave();
+        }
+
+        boolean searchedFromRoot = false;
+        while(true) {
+            leaveIndex = gallop(documentKey);
+            if(leaveIndex < leaveKeys.size()) {
+                return leaveKeys.get(leaveIndex++);
+            } else if(nextBlockPointer == NO_BLOCK) {
+                return null;
+            } else if(!searchedFromRoot && !leaveKeys.isEmpty() && leaveKeys.get(0) instanceof CompositeKey) {
+                searchedFromRoot = true;
+                searchLeave(createSkipKey(leaveKeys.get(0), documentKey));
+            } else {
+                readNextLeave();
+            }
+        }
+    }
+
+    /**
+     * Finds the first key from the current position in the leave with a document id equal to or bigger than the
+     * given document id, by doubling the distance to the current position until passing it and searching the last
+     * interval binary.
+     * @return The index of the key, the amount of keys in the leave if there is none
+     */
+    private int gallop(Key documentKey) throws JasDBStorageException {
+        int size = leaveKeys.size();
+        int low = leaveIndex;
+        int high = leaveIndex;
+        int step = 1;
+        while(high < size && compareDocument(leaveKeys.get(high), documentKey) < 0) {
+            low = high + 1;
+            high = leaveIndex + step;
+            step <<= 1;
+        }
+
+        high = Math.min(high, size);
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(compareDocument(leaveKeys.get(middle), documentKey) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Creates the key to search the leave of the document id with, consisting of the key values of the range
+     * followed by the document id
+     */
+    private Key createSkipKey(Key rangeKey, Key documentKey) {
+        int documentIndex = keyNameMapper.getIndexForField(Entity.DOCUMENT_ID);
+        Key[] skipKeys = Arrays.copyOf(rangeKey.getKeys(), documentIndex + 1);
+        skipKeys[documentIndex] = documentKey;
+
+        CompositeKey skipKey = new CompositeKey();
+        skipKey.setKeys(skipKeys);
+        skipKey.setValueMarker(documentIndex + 1);
+        return skipKey;
+    }
+
+    private void readFirstLeave() throws JasDBStorageException {
+        searchLeave(rangeCondition.getStart());
+    }
+
+    private void searchLeave(Key startKey) throws JasDBStorageException {
+        lockManager.startLockChain();
+        lockManager.acquireLock(LockIntentType.READ, rootBlock);
+        try {
+            LeaveBlock leaveBlock;
+            if(startKey != null) {
+                leaveBlock = rootBlock.findLeaveBlock(LockIntentType.READ, startKey);
+            } else {
+                leaveBlock = rootBlock.findFirstLeaveBlock(LockIntentType.READ);
+            }
+            readLeave(leaveBlock);
+        } finally {
+            lockManager.releaseLockChain();
+        }
+    }
+
+    private void readNextLeave() throws JasDBStorageException {
+        lockManager.startLockChain();
+        try {
+            LeaveBlock leaveBlock = LeaveLinks.loadNext(lockManager, persister, nextBlockPointer, currentBlockPointer, rebalanceCount);
+            if(leaveBlock != null) {
+                readLeave(leaveBlock);
+                return;
+            }
+        } finally {
+            lockManager.releaseLockChain();
+        }
+
+        //the leaves changed since reading the previous leave, continue after the last key that was read
+        searchLeave(lastKey != null ? lastKey : rangeCondition.getStart());
+    }
+
+    private void readLeave(LeaveBlock leaveBlock) {
+        leaveIndex = 0;
+        currentBlockPointer = leaveBlock.getPosition();
+        rebalanceCount = lockManager.getRebalanceCount();
+        if(leaveBlock.size() == 0) {
+            leaveKeys = Collections.emptyList();
+            nextBlockPointer = leaveBlock.getProperties().getNextBlock();
+            return;
+        }
+
+        leaveKeys = leaveBlock.getKeyRange(rangeCondition.getStart(), rangeCondition.isStartIncluded(),
+                rangeCondition.getEnd(), rangeCondition.isEndIncluded());
+        if(lastKey != null) {
+            leaveKeys = LeaveLinks.keysAfter(leaveKeys, lastKey);
+        }
+        lastKey = leaveBlock.getLast();
+
+        if(rangeCondition.getEnd() != null && lastKey.compareTo(rangeCondition.getEnd()) > 0) {
+            //this block's last key is bigger than the end condition
+            nextBlockPointer = NO_BLOCK;
+        } else {
+            nextBlockPointer = leaveBlock.getProperties().getNextBlock();
+        }
+    }
+
+    @Override
+    protected void release() {
+        leaveKeys = Collections.emptyList();
+        leaveIndex = 0;
+        nextBlockPointer = NO_BLOCK;
+        currentBlockPointer = NO_BLOCK;
+    }
+}
@@ -17,6 +17,9 @@ import com.oberasoftware.jasdb.api.index.keys.Key;
 import com.oberasoftware.jasdb.api.index.keys.KeyFactory;
 import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
 import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIteratorCollection;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
+import com.oberasoftware.jasdb.api.session.Entity;
+import com.oberasoftware.jasdb.core.index.keys.CompositeKey;
 import com.oberasoftware.jasdb.core.index.query.IndexSearchResultIteratorImpl;
 import com.oberasoftware.jasdb.api.index.query.SearchLimit;
 import com.oberasoftware.jasdb.core.index.query.RangeCondition;
@@ -87,6 +90,47 @@ public class RangeSearchOperation implements SearchOperation {
         }
     }
 
+    @Override
+    public KeyCursor openCursor(SearchCondition condition) throws JasDBStorageException {
+        RangeCondition rangeCondition = validateRangeCondition(condition);
+        return new RangeSearchCursor(lockManager, persister, rootBlock, rangeCondition, keyInfo.getKeyNameMapper().clone(),
+                isDocumentOrdered(rangeCondition));
+    }
+
+    @Override
+    public KeyCursor openReverseCursor(SearchCondition condition) throws JasDBStorageException {
+        RangeCondition rangeCondition = validateRangeCondition(condition);
+        return new ReverseRangeSearchCursor(lockManager, persister, rootBlock, rangeCondition, keyInfo.getKeyNameMapper().clone());
+    }
+
+    /**
+     * The keys of a range are in document id order when the range is a single value for all key fields
+     * except for the document id as last key field
+     */
+    private boolean isDocumentOrdered(RangeCondition rangeCondition) {
+        List<String> keyFields = keyInfo.getKeyFields();
+        Key start = rangeCondition.getStart();
+        Key end = rangeCondition.getEnd();
+        if(start == null || end == null || !rangeCondition.isStartIncluded() || !rangeCondition.isEndIncluded()
+                || !keyFields.get(keyFields.size() - 1).equals(Entity.DOCUMENT_ID)) {
+            return false;
+        }
+
+        return (start == end || start.equals(end)) && getBoundFields(start) == keyFields.size() - 1;
+    }
+
+    private int getBoundFields(Key key) {
+        if(key instanceof CompositeKey) {
+            int boundFields = 0;
+            Key[] keys = key.getKeys();
+            while(boundFields < keys.length && keys[boundFields] != null) {
+                boundFields++;
+            }
+            return boundFields;
+        }
+        return 1;
+    }
+
     private void addFoundKeys(List<Key> outputList, List<Key> foundKeys, SearchLimit limit) {
         int listSize = outputList.size();
         for(Key key : foundKeys) {
@@ -0,0 +1,148 @@
+package com.oberasoftware.jasdb.core.index.btreeplus.search;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
+import com.oberasoftware.jasdb.core.index.btreeplus.BlockPersister;
+import com.oberasoftware.jasdb.core.index.btreeplus.LeaveBlock;
+import com.oberasoftware.jasdb.core.index.btreeplus.RootBlock;
+import com.oberasoftware.jasdb.core.index.btreeplus.locking.LockIntentType;
+import com.oberasoftware.jasdb.core.index.btreeplus.locking.LockManager;
+import com.oberasoftware.jasdb.core.index.query.AbstractKeyCursor;
+import com.oberasoftware.jasdb.core.index.query.RangeCondition;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cursor over a range of keys in the btree in descending key order, starting at the leave holding the end of
+ * the range and following the previous leave pointers. The leave blocks are read one at a time when the keys of
+ * the previous leave have been consumed, no locks are held in between reading the leave blocks.
+ *
+ * @author Renze de Vries
+ */
+public class ReverseRangeSearchCursor extends AbstractKeyCursor {
+    private static final long NO_BLOCK = -1;
+
+    private final LockManager lockManager;
+    private final BlockPersister persister;
+    private final RootBlock rootBlock;
+    private final RangeCondition rangeCondition;
+    private final KeyNameMapper keyNameMapper;
+
+    private boolean started = false;
+    private long previousBlockPointer = NO_BLOCK;
+    private long currentBlockPointer = NO_BLOCK;
+    private long rebalanceCount;
+    private Key firstKey;
+    private List<Key> leaveKeys = Collections.emptyList();
+    private int leaveIndex = -1;
+
+    public ReverseRangeSearchCursor(LockManager lockManager, BlockPersister persister, RootBlock rootBlock,
+                                    RangeCondition rangeCondition, KeyNameMapper keyNameMapper) {
+        this.lockManager = lockManager;
+        this.persister = persister;
+        this.rootBlock = rootBlock;
+        this.rangeCondition = rangeCondition;
+        this.keyNameMapper = keyNameMapper;
+    }
+
+    @Override
+    public KeyNameMapper getKeyNameMapper() {
+        return keyNameMapper;
+    }
+
+    @Override
+    protected Key computeNext() throws JasDBStorageException {
+        while(leaveIndex < 0) {
+            if(!started) {
+                started = true;
+                readLastLeave();
+            } else if(previousBlockPointer != NO_BLOCK) {
+                readPreviousLeave();
+            } else {
+                return null;
+            }
+        }
+        return leaveKeys.get(leaveIndex--);
+    }
+
+    private void readLastLeave() throws JasDBStorageException {
+        lockManager.startLockChain();
+        lockManager.acquireLock(LockIntentType.READ, rootBlock);
+        try {
+            LeaveBlock leaveBlock;
+            Key end = rangeCondition.getEnd();
+            if(end != null) {
+                leaveBlock = rootBlock.findLeaveBlock(LockIntentType.READ, end);
+
+                //the keys matching the end of the range can continue in the next leaves
+                while(leaveBlock.size() > 0 && leaveBlock.getLast().compareTo(end) <= 0
+                        && leaveBlock.getProperties().getNextBlock() != NO_BLOCK) {
+                    leaveBlock = (LeaveBlock) persister.loadBlock(leaveBlock.getProperties().getNextBlock());
+                    lockManager.acquireLock(LockIntentType.READ, leaveBlock);
+                }
+            } else {
+                leaveBlock = rootBlock.findLastLeaveBlock(LockIntentType.READ);
+            }
+            readLeave(leaveBlock);
+        } finally {
+            lockManager.releaseLockChain();
+        }
+    }
+
+    private void readPreviousLeave() throws JasDBStorageException {
+        lockManager.startLockChain();
+        try {
+            LeaveBlock leaveBlock = LeaveLinks.loadPrevious(lockManager, persister, previousBlockPointer, currentBlockPointer, rebalanceCount);
+            if(leaveBlock == null && firstKey != null) {
+                //the leaves changed since reading the previous leave, continue before the first key that was read
+                lockManager.acquireLock(LockIntentType.READ, rootBlock);
+                leaveBlock = rootBlock.findLeaveBlock(LockIntentType.READ, firstKey);
+            }
+
+            if(leaveBlock != null) {
+                readLeave(leaveBlock);
+                return;
+            }
+        } finally {
+            lockManager.releaseLockChain();
+        }
+
+        readLastLeave();
+    }
+
+    private void readLeave(LeaveBlock leaveBlock) {
+        currentBlockPointer = leaveBlock.getPosition();
+        rebalanceCount = lockManager.getRebalanceCount();
+        if(leaveBlock.size() == 0) {
+            leaveKeys = Collections.emptyList();
+            leaveIndex = -1;
+            previousBlockPointer = leaveBlock.getProperties().getPreviousBlock();
+            return;
+        }
+
+        leaveKeys = leaveBlock.getKeyRange(rangeCondition.getStart(), rangeCondition.isStartIncluded(),
+                rangeCondition.getEnd(), rangeCondition.isEndIncluded());
+        if(firstKey != null) {
+            leaveKeys = LeaveLinks.keysBefore(leaveKeys, firstKey);
+        }
+        leaveIndex = leaveKeys.size() - 1;
+        firstKey = leaveBlock.getFirst();
+
+        if(rangeCondition.getStart() != null && firstKey.compareTo(rangeCondition.getStart()) < 0) {
+            //this block's first key is smaller than the start condition
+            previousBlockPointer = NO_BLOCK;
+        } else {
+            previousBlockPointer = leaveBlock.getProperties().getPreviousBlock();
+        }
+    }
+
+    @Override
+    protected void release() {
+        leaveKeys = Collections.emptyList();
+        leaveIndex = -1;
+        previousBlockPointer = NO_BLOCK;
+        currentBlockPointer = NO_BLOCK;
+    }
+}
@@ -1,13 +1,41 @@
 package com.oberasoftware.jasdb.core.index.btreeplus.search;
 
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.Index;
 import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIteratorCollection;
+import com.oberasoftware.jasdb.api.index.query.IteratorKeyCursor;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
 import com.oberasoftware.jasdb.api.index.query.SearchLimit;
 import com.oberasoftware.jasdb.api.index.query.SearchCondition;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * @author Renze de Vries
  */
 public interface SearchOperation {
     IndexSearchResultIteratorCollection search(SearchCondition condition, SearchLimit limit) throws JasDBStorageException;
+
+    /**
+     * Opens a cursor that only searches the index as far as keys are pulled from it, by default the cursor is
+     * opened over the results of a full search.
+     */
+    default KeyCursor openCursor(SearchCondition condition) throws JasDBStorageException {
+        IndexSearchResultIteratorCollection results = search(condition, Index.NO_SEARCH_LIMIT);
+        return new IteratorKeyCursor(results.getKeys().iterator(), results.getKeyNameMapper());
+    }
+
+    /**
+     * Opens a cursor producing the keys in descending key order, by default the cursor is opened over the
+     * reversed results of a full search.
+     */
+    default KeyCursor openReverseCursor(SearchCondition condition) throws JasDBStorageException {
+        IndexSearchResultIteratorCollection results = search(condition, Index.NO_SEARCH_LIMIT);
+        List<Key> keys = new ArrayList<>(results.getKeys());
+        Collections.reverse(keys);
+        return new IteratorKeyCursor(keys.iterator(), results.getKeyNameMapper());
+    }
 }
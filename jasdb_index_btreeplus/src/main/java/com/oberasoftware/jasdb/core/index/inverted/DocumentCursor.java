@@ -0,0 +1,70 @@
+/*
+ * The JASDB software and code is Copyright protected 2012 and owned by Renze de Vries
+ *
+ * All the code and design principals in the codebase are also Copyright 2012
+ * protected and owned Renze de Vries. Any unauthorized usage of the code or the
+ * design and principals as in this code is prohibited.
+ */
+package com.oberasoftware.jasdb.core.index.inverted;
+
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
+import com.oberasoftware.jasdb.api.session.Entity;
+import com.oberasoftware.jasdb.core.index.keys.CompositeKey;
+import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+import com.oberasoftware.jasdb.core.index.query.AbstractKeyCursor;
+
+import java.util.Arrays;
+
+/**
+ * Cursor over the documents matching a search of the inverted index, the documents are produced in document id
+ * order so the cursor can be merged with the cursors of other indexes without loading them.
+ *
+ * @author Renze de Vries
+ */
+final class DocumentCursor extends AbstractKeyCursor {
+    private final UUIDKey[] documents;
+    private final KeyNameMapper keyNameMapper;
+    private int position = 0;
+
+    /**
+     * @param documents The matching documents in ascending order
+     */
+    DocumentCursor(UUIDKey[] documents, KeyNameMapper keyNameMapper) {
+        this.documents = documents;
+        this.keyNameMapper = keyNameMapper;
+    }
+
+    @Override
+    public KeyNameMapper getKeyNameMapper() {
+        return keyNameMapper;
+    }
+
+    @Override
+    public boolean isDocumentOrdered() {
+        return true;
+    }
+
+    @Override
+    protected Key computeNext() {
+        return position < documents.length ? createKey(documents[position++]) : null;
+    }
+
+    @Override
+    protected Key computeSkipTo(Key documentKey) throws JasDBStorageException {
+        if(!(documentKey instanceof UUIDKey)) {
+            return super.computeSkipTo(documentKey);
+        }
+
+        if(position < documents.length) {
+            int found = Arrays.binarySearch(documents, position, documents.length, documentKey);
+            position = found >= 0 ? found : -found - 1;
+        }
+        return computeNext();
+    }
+
+    private Key createKey(UUIDKey document) {
+        return new CompositeKey().addKey(keyNameMapper, Entity.DOCUMENT_ID, document);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * The JASDB software and code is Copyright protected 2012 and owned by Renze de Vries
+ *
+ * All the code and design principals in the codebase are also Copyright 2012
+ * protected and owned Renze de Vries. Any unauthorized usage of the code or the
+ * design and principals as in this code is prohibited.
+ */
+package com.oberasoftware.jasdb.core.index.inverted;
+
+import com.oberasoftware.jasdb.api.index.MemoryConstants;
+import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Numbers the documents of the inverted index, the posting lists refer to the documents by their number so the
+ * postings can be compressed. A document number is released when no posting refers to the document anymore and
+ * is reused for the next new document.
+ *
+ * @author Renze de Vries
+ */
+final class DocumentTable {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int DOCUMENT_MEMORY_SIZE = 96;
+
+    private final Map<UUIDKey, Integer> numbers = new HashMap<>();
+    private UUIDKey[] documents = new UUIDKey[INITIAL_CAPACITY];
+    private int[] references = new int[INITIAL_CAPACITY];
+    private int nextNumber = 0;
+
+    private int[] freeNumbers = new int[INITIAL_CAPACITY];
+    private int freeCount = 0;
+
+    /**
+     * @return The amount of documents in the table
+     */
+    int size() {
+        return numbers.size();
+    }
+
+    /**
+     * @return The number of the document, -1 if the document is not in the table
+     */
+    int getNumber(UUIDKey document) {
+        Integer number = numbers.get(document);
+        return number != null ? number : -1;
+    }
+
+    UUIDKey getDocument(int number) {
+        return documents[number];
+    }
+
+    /**
+     * Gets the number of the document, the document is added to the table if not present yet. A new document
+     * needs to be referenced, otherwise it remains in the table until the table is cleared.
+     * @return The number of the document
+     */
+    int addDocument(UUIDKey document) {
+        Integer number = numbers.get(document);
+        if(number != null) {
+            return number;
+        }
+
+        int newNumber = freeCount > 0 ? freeNumbers[--freeCount] : nextNumber++;
+        if(newNumber >= documents.length) {
+            documents = Arrays.copyOf(documents, documents.length * 2);
+            references = Arrays.copyOf(references, references.length * 2);
+        }
+        documents[newNumber] = document;
+        references[newNumber] = 0;
+        numbers.put(document, newNumber);
+        return newNumber;
+    }
+
+    /**
+     * Registers a posting referring to the document
+     */
+    void reference(int number) {
+        references[number]++;
+    }
+
+    /**
+     * Unregisters a posting referring to the document, the document is removed when no postings refer to it
+     */
+    void release(int number) {
+        if(--references[number] == 0) {
+            numbers.remove(documents[number]);
+            documents[number] = null;
+
+            if(freeCount == freeNumbers.length) {
+                freeNumbers = Arrays.copyOf(freeNumbers, freeNumbers.length * 2);
+            }
+            freeNumbers[freeCount++] = number;
+        }
+    }
+
+    void clear() {
+        numbers.clear();
+        documents = new UUIDKey[INITIAL_CAPACITY];
+        references = new int[INITIAL_CAPACITY];
+        nextNumber = 0;
+        freeCount = 0;
+    }
+
+    long getMemorySize() {
+        return MemoryConstants.OBJECT_BYTE_SIZE + (long) numbers.size() * DOCUMENT_MEMORY_SIZE
+                + (long) documents.length * (MemoryConstants.OBJECT_REF + MemoryConstants.INTEGER_BYTE_SIZE)
+                + (long) freeNumbers.length * MemoryConstants.INTEGER_BYTE_SIZE;
+    }
+
+    void write(DataOutput output) throws IOException {
+        output.writeInt(nextNumber);
+        output.writeInt(numbers.size());
+        for(int number = 0; number < nextNumber; number++) {
+            UUIDKey document = documents[number];
+            if(document != null) {
+                output.writeInt(number);
+                output.writeLong(document.getMostSignificant());
+                output.writeLong(document.getLeastSignificant());
+                output.writeInt(references[number]);
+            }
+        }
+    }
+
+    static DocumentTable read(DataInput input) throws IOException {
+        DocumentTable table = new DocumentTable();
+        int nextNumber = input.readInt();
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(nextNumber, 1)) * 2);
+        table.documents = new UUIDKey[capacity];
+        table.references = new int[capacity];
+        table.nextNumber = nextNumber;
+
+        int documents = input.readInt();
+        for(int i = 0; i < documents; i++) {
+            int number = input.readInt();
+            long mostSignificant = input.readLong();
+            long leastSignificant = input.readLong();
+            UUIDKey document = new UUIDKey(leastSignificant, mostSignificant);
+
+            table.documents[number] = document;
+            table.references[number] = input.readInt();
+            table.numbers.put(document, number);
+        }
+
+        for(int number = nextNumber - 1; number >= 0; number--) {
+            if(table.documents[number] == null) {
+                if(table.freeCount == table.freeNumbers.length) {
+                    table.freeNumbers = Arrays.copyOf(table.freeNumbers, table.freeNumbers.length * 2);
+                }
+                table.freeNumbers[table.freeCount++] = number;
+            }
+        }
+        return table;
+    }
+}
@@ -0,0 +1,764 @@
+/*
+ * The JASDB software and code is Copyright protected 2012 and owned by Renze de Vries
+ *
+ * All the code and design principals in the codebase are also Copyright 2012
+ * protected and owned Renze de Vries. Any unauthorized usage of the code or the
+ * design and principals as in this code is prohibited.
+ */
+package com.oberasoftware.jasdb.core.index.inverted;
+
+import com.oberasoftware.jasdb.api.caching.MemoryAware;
+import com.oberasoftware.jasdb.api.engine.Configuration;
+import com.oberasoftware.jasdb.api.exceptions.ConfigurationException;
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.Index;
+import com.oberasoftware.jasdb.api.index.IndexIterator;
+import com.oberasoftware.jasdb.api.index.IndexScanReport;
+import com.oberasoftware.jasdb.api.index.IndexState;
+import com.oberasoftware.jasdb.api.index.IndexStatistics;
+import com.oberasoftware.jasdb.api.index.MemoryConstants;
+import com.oberasoftware.jasdb.api.index.ScanIntent;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyFactory;
+import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
+import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIteratorCollection;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
+import com.oberasoftware.jasdb.api.index.query.SearchCondition;
+import com.oberasoftware.jasdb.api.index.query.SearchLimit;
+import com.oberasoftware.jasdb.api.session.Entity;
+import com.oberasoftware.jasdb.api.session.IndexableItem;
+import com.oberasoftware.jasdb.core.index.IndexRebuildUtil;
+import com.oberasoftware.jasdb.core.index.IndexScanReportImpl;
+import com.oberasoftware.jasdb.core.index.keys.CompositeKey;
+import com.oberasoftware.jasdb.core.index.keys.keyinfo.KeyNameMapperImpl;
+import com.oberasoftware.jasdb.core.index.keys.StringKey;
+import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+import com.oberasoftware.jasdb.core.index.query.IndexSearchResultIteratorImpl;
+import com.oberasoftware.jasdb.core.index.query.TermTokenizer;
+import com.oberasoftware.jasdb.core.index.query.TermsCondition;
+import com.oberasoftware.jasdb.core.statistics.StatRecord;
+import com.oberasoftware.jasdb.core.statistics.StatisticsMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index on the terms in the values of a field, every value is split into lowercase terms and for every term the
+ * index keeps the list of documents containing it. This allows finding the documents containing any or all of a
+ * set of terms in multi-valued and text fields, which cannot be done with a range search on the btree index.
+ *
+ * The terms and postings are kept in memory and written to the index file when the index is flushed or closed.
+ * While the index holds changes that are not written a dirty marker file exists next to the index file, when the
+ * marker is found on open the index file can still hold removed documents and the index scan reports the index as
+ * invalid so it is rebuilt from the bag.
+ *
+ * @author Renze de Vries
+ */
+public class InvertedIndex implements Index {
+    private static final Logger LOG = LoggerFactory.getLogger(InvertedIndex.class);
+
+    public static final int INVERTED_INDEX_TYPE_ID = 1;
+
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final String DIRTY_EXTENSION = ".dirty";
+    private static final int TERM_MEMORY_SIZE = 64;
+
+    /**
+     * Below this ratio between the size of the intersected documents and a posting list the documents are looked
+     * up in the posting list instead of decoding the complete posting list
+     */
+    private static final int LOOKUP_RATIO = 16;
+
+    private final File indexLocation;
+    private final File dirtyLocation;
+    private final KeyInfo keyInfo;
+    private final KeyNameMapperImpl documentKeyMapper = new KeyNameMapperImpl();
+
+    private final TreeMap<String, PostingList> terms = new TreeMap<>();
+    private DocumentTable documentTable = new DocumentTable();
+
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private volatile boolean opened = false;
+    private volatile boolean closed = false;
+    private boolean modified = false;
+    private boolean dirtyOnOpen = false;
+
+    private IndexState state;
+    private IndexScanReport scanReport;
+
+    public InvertedIndex(File indexLocation, KeyInfo keyInfo) {
+        LOG.debug("Opening inverted index at location: {}", indexLocation);
+        this.indexLocation = indexLocation;
+        this.dirtyLocation = new File(indexLocation.getAbsolutePath() + DIRTY_EXTENSION);
+        this.keyInfo = keyInfo;
+        this.documentKeyMapper.addMappedField(Entity.DOCUMENT_ID);
+        this.state = IndexState.NOT_INITIALIZED;
+    }
+
+    @Override
+    public void configure(Configuration configuration) throws ConfigurationException {
+        //the inverted index has no configurable settings
+    }
+
+    @Override
+    public KeyInfo getKeyInfo() {
+        return keyInfo;
+    }
+
+    @Override
+    public String getName() {
+        return keyInfo.getKeyName();
+    }
+
+    @Override
+    public long count() {
+        indexLock.readLock().lock();
+        try {
+            return documentTable.size();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int getPageSize() {
+        return 0;
+    }
+
+    @Override
+    public int getIndexType() {
+        return INVERTED_INDEX_TYPE_ID;
+    }
+
+    @Override
+    public boolean hasUniqueConstraint() {
+        return false;
+    }
+
+    @Override
+    public int match(Set<String> fields) {
+        return keyInfo.match(fields);
+    }
+
+    @Override
+    public boolean supportsCondition(SearchCondition searchCondition) {
+        return searchCondition instanceof TermsCondition;
+    }
+
+    @Override
+    public boolean supportsKeyOrder() {
+        return false;
+    }
+
+    @Override
+    public IndexSearchResultIteratorCollection searchIndex(SearchCondition searchCondition, SearchLimit searchLimit) throws JasDBStorageException {
+        StatRecord searchRecord = StatisticsMonitor.createRecord("inverted:search");
+        try {
+            UUIDKey[] documents = searchDocuments(searchCondition);
+            List<Key> keys = new ArrayList<>(documents.length);
+            for(UUIDKey document : documents) {
+                if(searchLimit.isMaxReached(keys.size())) {
+                    break;
+                }
+                keys.add(createDocumentKey(document));
+            }
+            return new IndexSearchResultIteratorImpl(keys, documentKeyMapper);
+        } finally {
+            searchRecord.stop();
+        }
+    }
+
+    @Override
+    public KeyCursor searchCursor(SearchCondition searchCondition) throws JasDBStorageException {
+        StatRecord searchRecord = StatisticsMonitor.createRecord("inverted:cursor");
+        try {
+            return new DocumentCursor(searchDocuments(searchCondition), documentKeyMapper);
+        } finally {
+            searchRecord.stop();
+        }
+    }
+
+    private UUIDKey[] searchDocuments(SearchCondition searchCondition) throws JasDBStorageException {
+        if(!supportsCondition(searchCondition)) {
+            throw new JasDBStorageException("Search condition: " + searchCondition + " is not supported by inverted index: " + getName());
+        }
+        openIndex();
+
+        TermsCondition termsCondition = (TermsCondition) searchCondition;
+        UUIDKey[] documents;
+        indexLock.readLock().lock();
+        try {
+            List<PostingList> postingLists = new ArrayList<>();
+            for(String term : termsCondition.getTerms()) {
+                PostingList postingList = terms.get(term);
+                if(postingList != null) {
+                    postingLists.add(postingList);
+                } else if(termsCondition.isMatchAll()) {
+                    return new UUIDKey[0];
+                }
+            }
+
+            int[] numbers = termsCondition.isMatchAll() ? intersect(postingLists) : union(postingLists);
+            documents = new UUIDKey[numbers.length];
+            for(int i = 0; i < numbers.length; i++) {
+                documents[i] = documentTable.getDocument(numbers[i]);
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+
+        Arrays.sort(documents);
+        return documents;
+    }
+
+    private static int[] intersect(List<PostingList> postingLists) {
+        if(postingLists.isEmpty()) {
+            return new int[0];
+        }
+
+        postingLists.sort(Comparator.comparingInt(PostingList::size));
+        int[] result = postingLists.get(0).getDocuments();
+        for(int i = 1; i < postingLists.size() && result.length > 0; i++) {
+            PostingList postingList = postingLists.get(i);
+            int found = 0;
+            if((long) result.length * LOOKUP_RATIO < postingList.size()) {
+                for(int document : result) {
+                    if(postingList.contains(document)) {
+                        result[found++] = document;
+                    }
+                }
+            } else {
+                int[] documents = postingList.getDocuments();
+                int position = 0;
+                for(int document : result) {
+                    while(position < documents.length && documents[position] < document) {
+                        position++;
+                    }
+                    if(position < documents.length && documents[position] == document) {
+                        result[found++] = document;
+                    }
+                }
+            }
+            result = Arrays.copyOf(result, found);
+        }
+        return result;
+    }
+
+    private static int[] union(List<PostingList> postingLists) {
+        if(postingLists.size() == 1) {
+            return postingLists.get(0).getDocuments();
+        }
+
+        int size = 0;
+        for(PostingList postingList : postingLists) {
+            size += postingList.size();
+        }
+        int[] result = new int[size];
+        int position = 0;
+        for(PostingList postingList : postingLists) {
+            int[] documents = postingList.getDocuments();
+            System.arraycopy(documents, 0, result, position, documents.length);
+            position += documents.length;
+        }
+
+        Arrays.sort(result);
+        int distinct = 0;
+        for(int i = 0; i < result.length; i++) {
+            if(i == 0 || result[i] != result[i - 1]) {
+                result[distinct++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, distinct);
+    }
+
+    @Override
+    public IndexStatistics getStatistics() throws JasDBStorageException {
+        openIndex();
+        return new TermStatistics();
+    }
+
+    @Override
+    public IndexIterator getIndexIterator() throws JasDBStorageException {
+        openIndex();
+
+        List<Key> keys = new ArrayList<>();
+        indexLock.readLock().lock();
+        try {
+            for(Map.Entry<String, PostingList> entry : terms.entrySet()) {
+                for(int number : entry.getValue().getDocuments()) {
+                    keys.add(new StringKey(entry.getKey()).addKey(keyInfo.getKeyNameMapper(), Entity.DOCUMENT_ID,
+                            documentTable.getDocument(number)));
+                }
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return new KeyListIterator(keys);
+    }
+
+    @Override
+    public void insertIntoIndex(Key key) throws JasDBStorageException {
+        Set<String> keyTerms = getTerms(key);
+        UUIDKey document = getDocument(key);
+        if(keyTerms.isEmpty()) {
+            //a document without terms is never referenced by a posting and would remain in the document table
+            return;
+        }
+        openIndex();
+
+        StatRecord insertRecord = StatisticsMonitor.createRecord("inverted:insert");
+        indexLock.writeLock().lock();
+        try {
+            markModified();
+            int number = documentTable.addDocument(document);
+            for(String term : keyTerms) {
+                if(terms.computeIfAbsent(term, t -> new PostingList()).add(number)) {
+                    documentTable.reference(number);
+                }
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+            insertRecord.stop();
+        }
+    }
+
+    @Override
+    public void removeFromIndex(Key key) throws JasDBStorageException {
+        Set<String> keyTerms = getTerms(key);
+        UUIDKey document = getDocument(key);
+        openIndex();
+
+        StatRecord removeRecord = StatisticsMonitor.createRecord("inverted:remove");
+        indexLock.writeLock().lock();
+        try {
+            int number = documentTable.getNumber(document);
+            if(number != -1) {
+                markModified();
+                for(String term : keyTerms) {
+                    PostingList postingList = terms.get(term);
+                    if(postingList != null && postingList.remove(number)) {
+                        if(postingList.size() == 0) {
+                            terms.remove(term);
+                        }
+                        documentTable.release(number);
+                    }
+                }
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+            removeRecord.stop();
+        }
+    }
+
+    @Override
+    public void updateKey(Key oldKey, Key newKey) throws JasDBStorageException {
+        indexLock.writeLock().lock();
+        try {
+            removeFromIndex(oldKey);
+            insertIntoIndex(newKey);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Creates the dirty marker before the first change that is not written to the index file yet
+     */
+    private void markModified() throws JasDBStorageException {
+        if(!modified) {
+            try {
+                if(!dirtyLocation.exists() && !dirtyLocation.createNewFile()) {
+                    throw new JasDBStorageException("Unable to create dirty marker for inverted index: " + indexLocation);
+                }
+            } catch(IOException e) {
+                throw new JasDBStorageException("Unable to create dirty marker for inverted index: " + indexLocation, e);
+            }
+            modified = true;
+        }
+    }
+
+    private boolean containsKey(Key key) throws JasDBStorageException {
+        Set<String> keyTerms = getTerms(key);
+        UUIDKey document = getDocument(key);
+
+        indexLock.readLock().lock();
+        try {
+            int number = documentTable.getNumber(document);
+            for(String term : keyTerms) {
+                PostingList postingList = terms.get(term);
+                if(number == -1 || postingList == null || !postingList.contains(number)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    private Set<String> getTerms(Key key) {
+        Object value = key.getValue();
+        return TermTokenizer.tokenize(value != null ? value.toString() : null);
+    }
+
+    private UUIDKey getDocument(Key key) throws JasDBStorageException {
+        Key documentKey = key.getKey(keyInfo.getKeyNameMapper(), Entity.DOCUMENT_ID);
+        if(documentKey instanceof UUIDKey) {
+            return (UUIDKey) documentKey;
+        } else {
+            throw new JasDBStorageException("Unable to index key: " + key + " it does not contain a document id");
+        }
+    }
+
+    private Key createDocumentKey(UUIDKey document) {
+        return new CompositeKey().addKey(documentKeyMapper, Entity.DOCUMENT_ID, document);
+    }
+
+    @Override
+    public void openIndex() throws JasDBStorageException {
+        if(closed) {
+            throw new JasDBStorageException("Index is closed");
+        } else if(!opened) {
+            indexLock.writeLock().lock();
+            try {
+                if(!opened) {
+                    loadIndex();
+                    opened = true;
+                    state = IndexState.OK;
+                }
+            } finally {
+                indexLock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws JasDBStorageException {
+        indexLock.writeLock().lock();
+        try {
+            if(!closed) {
+                if(opened && modified) {
+                    writeIndex();
+                }
+                clearIndex();
+                closed = true;
+                state = IndexState.CLOSED;
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeIndex() throws JasDBStorageException {
+        indexLock.writeLock().lock();
+        try {
+            clearIndex();
+            closed = true;
+            state = IndexState.CLOSED;
+            if(indexLocation.exists() && !indexLocation.delete()) {
+                indexLocation.deleteOnExit();
+            }
+            if(dirtyLocation.exists() && !dirtyLocation.delete()) {
+                dirtyLocation.deleteOnExit();
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void flushIndex() throws JasDBStorageException {
+        openIndex();
+
+        indexLock.writeLock().lock();
+        try {
+            if(modified) {
+                writeIndex();
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public IndexScanReport scan(ScanIntent intent, Iterator<IndexableItem> indexableItems) throws JasDBStorageException {
+        try {
+            openIndex();
+            if(intent == ScanIntent.RESCAN || intent == ScanIntent.DETECT_INCOMPLETE || scanReport == null) {
+                scanReport = doIndexScan(indexableItems, intent != ScanIntent.DETECT_INCOMPLETE);
+            }
+            return scanReport;
+        } catch(JasDBStorageException e) {
+            scanReport = new IndexScanReportImpl(IndexState.INVALID, System.currentTimeMillis(), 0);
+            return scanReport;
+        }
+    }
+
+    private IndexScanReport doIndexScan(Iterator<IndexableItem> indexableItems, boolean fullScan) throws JasDBStorageException {
+        if(dirtyOnOpen) {
+            LOG.info("Inverted index: {} was not cleanly written, it can contain removed documents", indexLocation);
+            return new IndexScanReportImpl(IndexState.INVALID, System.currentTimeMillis(), 0);
+        }
+
+        KeyFactory keyFactory = keyInfo.getKeyFactory();
+        String field = keyInfo.getKeyFields().get(0);
+        long indexedItems = 0;
+        long expectedItems = 0;
+
+        while(indexableItems.hasNext()) {
+            IndexableItem indexableItem = indexableItems.next();
+            if(indexableItem.hasValue(field)) {
+                boolean isInIndex = true;
+                Collection<Key> keys = keyFactory.isMultiValueKey(indexableItem) ?
+                        keyFactory.createMultivalueKeys(indexableItem) : Arrays.asList(keyFactory.createKey(indexableItem));
+                for(Key key : keys) {
+                    if(!containsKey(key)) {
+                        isInIndex = false;
+                        break;
+                    }
+                }
+
+                expectedItems++;
+                if(isInIndex) {
+                    indexedItems++;
+                } else if(!fullScan) {
+                    return new IndexScanReportImpl(IndexState.INVALID, System.currentTimeMillis(), 0);
+                }
+            }
+        }
+
+        IndexState scanState = indexedItems == expectedItems ? IndexState.OK : IndexState.INVALID;
+        LOG.info("Completed inverted index scan found: {} in index", indexedItems);
+        int completeness = expectedItems > 0 ? (int)(((double)indexedItems / (double)expectedItems) * 100) : 100;
+        return new IndexScanReportImpl(scanState, System.currentTimeMillis(), completeness);
+    }
+
+    @Override
+    public void rebuildIndex(Iterator<IndexableItem> indexableItems) throws JasDBStorageException {
+        openIndex();
+
+        StatRecord rebuildRecord = StatisticsMonitor.createRecord("inverted:rebuild");
+        indexLock.writeLock().lock();
+        try {
+            clearIndex();
+            state = IndexState.REBUILDING;
+            IndexRebuildUtil.collectKeys(this, keyInfo, indexableItems, this::insertIntoIndex);
+            modified = true;
+            flushIndex();
+            state = IndexState.OK;
+        } finally {
+            indexLock.writeLock().unlock();
+            rebuildRecord.stop();
+        }
+    }
+
+    @Override
+    public MemoryAware getMemoryManager() throws JasDBStorageException {
+        openIndex();
+        return new TermMemory();
+    }
+
+    @Override
+    public IndexState getState() {
+        return state;
+    }
+
+    private void clearIndex() {
+        terms.clear();
+        documentTable.clear();
+    }
+
+    private void loadIndex() throws JasDBStorageException {
+        dirtyOnOpen = dirtyLocation.exists();
+        if(!indexLocation.exists() || indexLocation.length() == 0) {
+            return;
+        }
+
+        StatRecord loadRecord = StatisticsMonitor.createRecord("inverted:load");
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexLocation)))) {
+            int indexType = input.readInt();
+            String keyHeader = readString(input);
+            String valueHeader = readString(input);
+            if(indexType != INVERTED_INDEX_TYPE_ID || !keyHeader.equals(keyInfo.keyAsHeader()) || !valueHeader.equals(keyInfo.valueAsHeader())) {
+                throw new JasDBStorageException("Index file: " + indexLocation + " does not match inverted index: " + keyInfo);
+            }
+
+            documentTable = DocumentTable.read(input);
+            int termCount = input.readInt();
+            for(int i = 0; i < termCount; i++) {
+                String term = readString(input);
+                terms.put(term, PostingList.read(input));
+            }
+            LOG.debug("Loaded inverted index: {} with {} terms", indexLocation, termCount);
+        } catch(IOException e) {
+            throw new JasDBStorageException("Unable to load inverted index: " + indexLocation, e);
+        } finally {
+            loadRecord.stop();
+        }
+    }
+
+    private void writeIndex() throws JasDBStorageException {
+        StatRecord writeRecord = StatisticsMonitor.createRecord("inverted:write");
+        File tempLocation = new File(indexLocation.getAbsolutePath() + TEMP_EXTENSION);
+        try {
+            try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempLocation)))) {
+                output.writeInt(INVERTED_INDEX_TYPE_ID);
+                writeString(output, keyInfo.keyAsHeader());
+                writeString(output, keyInfo.valueAsHeader());
+
+                documentTable.write(output);
+                output.writeInt(terms.size());
+                for(Map.Entry<String, PostingList> entry : terms.entrySet()) {
+                    writeString(output, entry.getKey());
+                    entry.getValue().write(output);
+                }
+            }
+
+            Files.move(tempLocation.toPath(), indexLocation.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            modified = false;
+            dirtyOnOpen = false;
+            Files.deleteIfExists(dirtyLocation.toPath());
+        } catch(IOException e) {
+            throw new JasDBStorageException("Unable to write inverted index: " + indexLocation, e);
+        } finally {
+            writeRecord.stop();
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "InvertedIndex{" +
+                "indexLocation=" + indexLocation +
+                ", keyInfo=" + keyInfo +
+                ", closed=" + closed +
+                ", state=" + state +
+                '}';
+    }
+
+    private final class TermStatistics implements IndexStatistics {
+        @Override
+        public long getKeyCount() {
+            return count();
+        }
+
+        @Override
+        public long getDistinctValues() {
+            indexLock.readLock().lock();
+            try {
+                return terms.size();
+            } finally {
+                indexLock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public long estimateMatches(SearchCondition condition) {
+            indexLock.readLock().lock();
+            try {
+                if(condition instanceof TermsCondition) {
+                    TermsCondition termsCondition = (TermsCondition) condition;
+                    long matches = termsCondition.isMatchAll() ? Long.MAX_VALUE : 0;
+                    for(String term : termsCondition.getTerms()) {
+                        PostingList postingList = terms.get(term);
+                        int documents = postingList != null ? postingList.size() : 0;
+                        matches = termsCondition.isMatchAll() ? Math.min(matches, documents) : matches + documents;
+                    }
+                    return Math.min(matches, documentTable.size());
+                }
+                return documentTable.size();
+            } finally {
+                indexLock.readLock().unlock();
+            }
+        }
+    }
+
+    private final class TermMemory implements MemoryAware {
+        @Override
+        public long getTotalMemoryUsage() {
+            indexLock.readLock().lock();
+            try {
+                long memory = documentTable.getMemorySize();
+                for(Map.Entry<String, PostingList> entry : terms.entrySet()) {
+                    memory += TERM_MEMORY_SIZE + (long) entry.getKey().length() * Character.BYTES
+                            + entry.getValue().getMemorySize();
+                }
+                return memory;
+            } finally {
+                indexLock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public long getCachedBlocks() {
+            return 0;
+        }
+    }
+
+    private static final class KeyListIterator implements IndexIterator {
+        private final List<Key> keys;
+        private int position = 0;
+
+        private KeyListIterator(List<Key> keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public void close() {
+            //nothing to release, the keys are held in memory
+        }
+
+        @Override
+        public void reset() {
+            position = 0;
+        }
+
+        @Override
+        public Iterator<Key> iterator() {
+            return this;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < keys.size();
+        }
+
+        @Override
+        public Key next() {
+            return keys.get(position++);
+        }
+    }
+}
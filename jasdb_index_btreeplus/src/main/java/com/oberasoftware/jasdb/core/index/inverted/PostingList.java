@@ -0,0 +1,301 @@
+/*
+ * The JASDB software and code is Copyright protected 2012 and owned by Renze de Vries
+ *
+ * All the code and design principals in the codebase are also Copyright 2012
+ * protected and owned Renze de Vries. Any unauthorized usage of the code or the
+ * design and principals as in this code is prohibited.
+ */
+package com.oberasoftware.jasdb.core.index.inverted;
+
+import com.oberasoftware.jasdb.api.index.MemoryConstants;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The documents containing a term, stored as the ascending numbers of the documents each with the amount of
+ * values of the document that contain the term. The postings are compressed by storing the difference with the
+ * number of the previous document as a variable length integer followed by the frequency. Every block of postings
+ * starts again from document number 0, so the posting of a single document is found by a binary search over the
+ * first document of the blocks and decoding only that block.
+ *
+ * Changes are kept uncompressed and merged into the compressed postings in batches.
+ *
+ * @author Renze de Vries
+ */
+final class PostingList {
+    private static final int BLOCK_POSTINGS = 128;
+    private static final int MIN_MERGE_CHANGES = 64;
+    private static final int MERGE_CHANGES_RATIO = 8;
+    private static final int CHANGE_MEMORY_SIZE = 64;
+    private static final int VARINT_BITS = 7;
+    private static final int VARINT_MASK = 0x7f;
+    private static final int VARINT_CONTINUE = 0x80;
+
+    private static final int[] NO_BLOCKS = new int[0];
+    private static final byte[] NO_DATA = new byte[0];
+
+    private byte[] data = NO_DATA;
+    private int postings = 0;
+    private int[] blockDocuments = NO_BLOCKS;
+    private int[] blockOffsets = NO_BLOCKS;
+
+    /**
+     * The changed frequencies of documents that are not merged yet, a frequency of 0 removes the document
+     */
+    private final TreeMap<Integer, Integer> changes = new TreeMap<>();
+    private int documents = 0;
+
+    /**
+     * @return The amount of documents containing the term
+     */
+    int size() {
+        return documents;
+    }
+
+    /**
+     * Adds a value of the document containing the term
+     * @param document The number of the document
+     * @return True if the document did not contain the term yet
+     */
+    boolean add(int document) {
+        int frequency = getFrequency(document);
+        changes.put(document, frequency + 1);
+        if(frequency == 0) {
+            documents++;
+        }
+        mergeChanges(false);
+        return frequency == 0;
+    }
+
+    /**
+     * Removes a value of the document containing the term
+     * @param document The number of the document
+     * @return True if the document no longer contains the term
+     */
+    boolean remove(int document) {
+        int frequency = getFrequency(document);
+        if(frequency == 0) {
+            return false;
+        }
+
+        changes.put(document, frequency - 1);
+        if(frequency == 1) {
+            documents--;
+        }
+        mergeChanges(false);
+        return frequency == 1;
+    }
+
+    boolean contains(int document) {
+        return getFrequency(document) > 0;
+    }
+
+    /**
+     * @return The numbers of the documents containing the term in ascending order
+     */
+    int[] getDocuments() {
+        int[] result = new int[documents];
+        int[] count = {0};
+        forEachPosting((document, frequency) -> result[count[0]++] = document);
+        return result;
+    }
+
+    int getFrequency(int document) {
+        Integer changedFrequency = changes.get(document);
+        if(changedFrequency != null) {
+            return changedFrequency;
+        }
+
+        int block = Arrays.binarySearch(blockDocuments, document);
+        if(block < 0) {
+            block = -block - 2;
+        }
+        if(block < 0) {
+            return 0;
+        }
+
+        Decoder decoder = new Decoder(blockOffsets[block]);
+        int blockEnd = Math.min(postings, (block + 1) * BLOCK_POSTINGS);
+        int current = 0;
+        for(int i = block * BLOCK_POSTINGS; i < blockEnd; i++) {
+            current += decoder.read();
+            int frequency = decoder.read();
+            if(current == document) {
+                return frequency;
+            } else if(current > document) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Merges the uncompressed changes into the compressed postings
+     * @param force True to always merge, False to only merge when enough changes are collected
+     */
+    void mergeChanges(boolean force) {
+        if(changes.isEmpty() || (!force && changes.size() < Math.max(MIN_MERGE_CHANGES, postings / MERGE_CHANGES_RATIO))) {
+            return;
+        }
+
+        Encoder encoder = new Encoder(data.length + changes.size() * 2);
+        forEachPosting(encoder::write);
+        changes.clear();
+        encoder.finish();
+    }
+
+    long getMemorySize() {
+        return MemoryConstants.OBJECT_BYTE_SIZE + MemoryConstants.ARRAY_BYTE_SIZE * 3 + data.length
+                + (long) blockDocuments.length * MemoryConstants.INTEGER_BYTE_SIZE * 2
+                + (long) changes.size() * CHANGE_MEMORY_SIZE;
+    }
+
+    void write(DataOutput output) throws IOException {
+        mergeChanges(true);
+        output.writeInt(postings);
+        output.writeInt(data.length);
+        output.write(data);
+    }
+
+    static PostingList read(DataInput input) throws IOException {
+        PostingList postingList = new PostingList();
+        int postings = input.readInt();
+        byte[] data = new byte[input.readInt()];
+        input.readFully(data);
+
+        postingList.setData(data, postings);
+        postingList.documents = postings;
+        return postingList;
+    }
+
+    private void setData(byte[] data, int postings) {
+        this.data = data;
+        this.postings = postings;
+
+        int blocks = (postings + BLOCK_POSTINGS - 1) / BLOCK_POSTINGS;
+        int[] documents = new int[blocks];
+        int[] offsets = new int[blocks];
+
+        Decoder decoder = new Decoder(0);
+        int current = 0;
+        for(int i = 0; i < postings; i++) {
+            if(i % BLOCK_POSTINGS == 0) {
+                current = 0;
+                offsets[i / BLOCK_POSTINGS] = decoder.offset;
+            }
+            current += decoder.read();
+            decoder.read();
+            if(i % BLOCK_POSTINGS == 0) {
+                documents[i / BLOCK_POSTINGS] = current;
+            }
+        }
+
+        this.blockDocuments = documents;
+        this.blockOffsets = offsets;
+    }
+
+    /**
+     * Visits the postings with the changes applied in ascending document order
+     */
+    private void forEachPosting(PostingConsumer consumer) {
+        Iterator<Map.Entry<Integer, Integer>> changeIterator = changes.entrySet().iterator();
+        Map.Entry<Integer, Integer> change = changeIterator.hasNext() ? changeIterator.next() : null;
+
+        Decoder decoder = new Decoder(0);
+        int current = 0;
+        for(int i = 0; i < postings; i++) {
+            if(i % BLOCK_POSTINGS == 0) {
+                current = 0;
+            }
+            current += decoder.read();
+            int frequency = decoder.read();
+
+            while(change != null && change.getKey() < current) {
+                if(change.getValue() > 0) {
+                    consumer.accept(change.getKey(), change.getValue());
+                }
+                change = changeIterator.hasNext() ? changeIterator.next() : null;
+            }
+            if(change != null && change.getKey() == current) {
+                frequency = change.getValue();
+                change = changeIterator.hasNext() ? changeIterator.next() : null;
+            }
+            if(frequency > 0) {
+                consumer.accept(current, frequency);
+            }
+        }
+
+        while(change != null) {
+            if(change.getValue() > 0) {
+                consumer.accept(change.getKey(), change.getValue());
+            }
+            change = changeIterator.hasNext() ? changeIterator.next() : null;
+        }
+    }
+
+    private interface PostingConsumer {
+        void accept(int document, int frequency);
+    }
+
+    private final class Decoder {
+        private int offset;
+
+        private Decoder(int offset) {
+            this.offset = offset;
+        }
+
+        private int read() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                value |= (b & VARINT_MASK) << shift;
+                shift += VARINT_BITS;
+            } while((b & VARINT_CONTINUE) != 0);
+            return value;
+        }
+    }
+
+    private final class Encoder {
+        private byte[] buffer;
+        private int length = 0;
+        private int count = 0;
+        private int previous = 0;
+
+        private Encoder(int capacity) {
+            this.buffer = new byte[Math.max(capacity, 16)];
+        }
+
+        private void write(int document, int frequency) {
+            if(count % BLOCK_POSTINGS == 0) {
+                previous = 0;
+            }
+            writeVarInt(document - previous);
+            writeVarInt(frequency);
+            previous = document;
+            count++;
+        }
+
+        private void writeVarInt(int value) {
+            if(length + 5 > buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            while((value & ~VARINT_MASK) != 0) {
+                buffer[length++] = (byte) ((value & VARINT_MASK) | VARINT_CONTINUE);
+                value >>>= VARINT_BITS;
+            }
+            buffer[length++] = (byte) value;
+        }
+
+        private void finish() {
+            setData(Arrays.copyOf(buffer, length), count);
+        }
+    }
+}
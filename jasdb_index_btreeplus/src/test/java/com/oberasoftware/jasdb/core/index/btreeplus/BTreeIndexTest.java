@@ -24,7 +24,9 @@ import com.oberasoftware.jasdb.core.index.keys.types.StringKeyType;
 import com.oberasoftware.jasdb.core.index.keys.types.UUIDKeyType;
 import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIterator;
 import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIteratorCollection;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
 import com.oberasoftware.jasdb.api.index.query.SearchLimit;
+import com.oberasoftware.jasdb.api.session.query.Order;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -37,16 +39,20 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -99,6 +105,99 @@ public class BTreeIndexTest extends IndexBaseTest {
 
     }
 
+    @Test
+    public void testConcurrentSplitMergeAndCursors() throws Exception {
+        int nrValues = 5000;
+        int nrWriters = 4;
+        KeyInfo keyInfo = new KeyInfoImpl(new SimpleIndexField("somekey", new LongKeyType()), new SimpleIndexField(RECORD_POINTER, new LongKeyType()));
+        KeyNameMapper keyNameMapper = keyInfo.getKeyNameMapper();
+
+        try (BTreeIndex index = new BTreeIndex(new File(tmpDir, "indexbag_somekey.idx"), keyInfo)) {
+            //the multiples of ten stay in the index, the keys ending with five are removed while the others are inserted
+            for(long i=0; i<nrValues; i++) {
+                index.insertIntoIndex(new LongKey(i * 10).addKey(keyNameMapper, RECORD_POINTER, new LongKey(i * 10)));
+                index.insertIntoIndex(new LongKey(i * 10 + 5).addKey(keyNameMapper, RECORD_POINTER, new LongKey(i * 10 + 5)));
+            }
+
+            List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+            List<Thread> writers = new ArrayList<>();
+            for(int w=1; w<=nrWriters; w++) {
+                long offset = w;
+                writers.add(new Thread(() -> {
+                    try {
+                        for(long i=0; i<nrValues; i++) {
+                            index.insertIntoIndex(new LongKey(i * 10 + offset).addKey(keyNameMapper, RECORD_POINTER, new LongKey(i * 10 + offset)));
+                        }
+                    } catch(Throwable e) {
+                        failures.add(e);
+                    }
+                }, "WriterThread" + w));
+            }
+            writers.add(new Thread(() -> {
+                try {
+                    for(long i=0; i<nrValues; i++) {
+                        index.removeFromIndex(new LongKey(i * 10 + 5));
+                    }
+                } catch(Throwable e) {
+                    failures.add(e);
+                }
+            }, "RemoveThread"));
+
+            AtomicBoolean writing = new AtomicBoolean(true);
+            List<Thread> readers = new ArrayList<>();
+            for(Order order : Order.values()) {
+                readers.add(new Thread(() -> {
+                    try {
+                        do {
+                            assertCursorScan(index, order, nrValues);
+                        } while(writing.get());
+                    } catch(Throwable e) {
+                        failures.add(e);
+                    }
+                }, "CursorThread" + order));
+            }
+
+            writers.forEach(Thread::start);
+            readers.forEach(Thread::start);
+            for(Thread writer : writers) {
+                writer.join();
+            }
+            writing.set(false);
+            for(Thread reader : readers) {
+                reader.join();
+            }
+            assertEquals("Expected no failures: " + failures, 0, failures.size());
+
+            assertEquals(nrValues * (nrWriters + 1), index.count());
+            for(long i=0; i<nrValues * 10; i++) {
+                IndexSearchResultIterator result = index.searchIndex(new EqualsCondition(new LongKey(i)), new SearchLimit());
+                assertEquals("Unexpected result for key: " + i, i % 10 <= nrWriters ? 1 : 0, result.size());
+            }
+        }
+    }
+
+    /**
+     * Scans the whole index, every key that is never removed has to be found exactly once in the right order
+     */
+    private void assertCursorScan(Index index, Order order, int nrValues) throws JasDBStorageException {
+        int stableKeys = 0;
+        Long previous = null;
+        try(KeyCursor cursor = index.searchCursor(new RangeCondition(null, false, null, false), order)) {
+            while(cursor.hasNext()) {
+                long value = ((LongKey) cursor.next()).getKey();
+                if(previous != null) {
+                    assertTrue("Key: " + value + " out of order after: " + previous,
+                            order == Order.ASCENDING ? value > previous : value < previous);
+                }
+                if(value % 10 == 0) {
+                    stableKeys++;
+                }
+                previous = value;
+            }
+        }
+        assertEquals("Unexpected amount of keys in " + order + " scan", nrValues, stableKeys);
+    }
+
     private class BTreeIndexWriterThread implements Runnable {
         private Index index;
         private KeyNameMapper keyNameMapper;
@@ -195,6 +294,73 @@ public class BTreeIndexTest extends IndexBaseTest {
 		}
 	}
 
+    @Test
+    public void testBatchInsert() throws Exception {
+        int indexSize = 50000;
+        int batchSize = 2000;
+        KeyInfo keyInfo = new KeyInfoImpl(new SimpleIndexField("somekey", new LongKeyType()), new SimpleIndexField(RECORD_POINTER, new LongKeyType()));
+
+        List<Long> values = new ArrayList<>();
+        for(long i=0; i<indexSize; i++) {
+            values.add(i);
+        }
+        Collections.shuffle(values, new Random(42));
+
+        try(BTreeIndex index = new BTreeIndex(new File(tmpDir, "indexbag_somekey.idx"), keyInfo)) {
+            //single inserts of every tenth key followed by batches of random keys and a batch appended at the end
+            for(int i=0; i<indexSize; i+=10) {
+                index.insertIntoIndex(new LongKey(values.get(i)).addKey(keyInfo.getKeyNameMapper(), RECORD_POINTER, new LongKey(values.get(i) + 100)));
+            }
+            List<Key> batch = new ArrayList<>();
+            for(int i=0; i<indexSize; i++) {
+                if(i % 10 != 0) {
+                    batch.add(new LongKey(values.get(i)).addKey(keyInfo.getKeyNameMapper(), RECORD_POINTER, new LongKey(values.get(i) + 100)));
+                }
+                if(batch.size() == batchSize || i == indexSize - 1) {
+                    index.insertIntoIndex(batch);
+                    batch.clear();
+                }
+            }
+            for(long i=indexSize; i<indexSize + batchSize; i++) {
+                batch.add(new LongKey(i).addKey(keyInfo.getKeyNameMapper(), RECORD_POINTER, new LongKey(i + 100)));
+            }
+            index.insertIntoIndex(batch);
+
+            assertEquals(indexSize + batchSize, index.count());
+            assertBlocks(index.getLockManager(), index.getPersister(), index.getRootBlock(), index.getPersister().getMaxKeys(), index.getPersister().getMinKeys(), -1);
+            for(long i=0; i<indexSize + batchSize; i++) {
+                IndexSearchResultIterator foundRecords = index.searchIndex(new EqualsCondition(new LongKey(i)), new SearchLimit());
+                assertEquals("There should be one found record for: " + i, 1, foundRecords.size());
+                assertEquals(Long.valueOf(i + 100), Long.valueOf(((LongKey)foundRecords.next().getKey(keyInfo.getKeyNameMapper(), RECORD_POINTER)).getKey()));
+            }
+
+            try {
+                index.insertIntoIndex(Lists.newArrayList(new LongKey(indexSize * 2).addKey(keyInfo.getKeyNameMapper(), RECORD_POINTER, new LongKey(1)),
+                        new LongKey(indexSize * 2).addKey(keyInfo.getKeyNameMapper(), RECORD_POINTER, new LongKey(2))));
+                Assert.fail("Duplicate keys in a batch should not be inserted");
+            } catch(JasDBStorageException e) {
+                LOG.debug("Expected duplicate key", e);
+            }
+            assertEquals(indexSize + batchSize, index.count());
+
+            //a batch with a key that already exists is not inserted at all
+            for(long i=indexSize * 2; i<indexSize * 2 + batchSize; i++) {
+                batch.add(new LongKey(i).addKey(keyInfo.getKeyNameMapper(), RECORD_POINTER, new LongKey(i + 100)));
+            }
+            batch.add(new LongKey(indexSize / 2).addKey(keyInfo.getKeyNameMapper(), RECORD_POINTER, new LongKey(1)));
+            try {
+                index.insertIntoIndex(batch);
+                Assert.fail("Existing key in a batch should not be inserted");
+            } catch(JasDBStorageException e) {
+                LOG.debug("Expected existing key", e);
+            }
+            assertEquals(indexSize + batchSize, index.count());
+            assertEquals(0, index.searchIndex(new EqualsCondition(new LongKey(indexSize * 2)), new SearchLimit()).size());
+            assertEquals(0, index.searchIndex(new EqualsCondition(new LongKey(indexSize * 2 + batchSize - 1)), new SearchLimit()).size());
+            assertBlocks(index.getLockManager(), index.getPersister(), index.getRootBlock(), index.getPersister().getMaxKeys(), index.getPersister().getMinKeys(), -1);
+        }
+    }
+
     @Test
     public void testIndexInsertDataKeyAndRead() throws Exception {
         KeyInfo keyInfo = new KeyInfoImpl(new SimpleIndexField("somekey", new StringKeyType()), new SimpleIndexField("DATA", new DataKeyType()));
@@ -487,6 +653,210 @@ public class BTreeIndexTest extends IndexBaseTest {
         }
     }
 
+    @Test
+    public void testRangeSearchCursor() throws Exception {
+        int indexSize = 10000;
+        KeyInfo keyInfo = new KeyInfoImpl(new SimpleIndexField("somekey", new LongKeyType()), new SimpleIndexField(RECORD_POINTER, new LongKeyType()));
+        KeyNameMapper keyNameMapper = keyInfo.getKeyNameMapper();
+        BTreeIndex index = new BTreeIndex(new File(tmpDir, "indexbag_somekey.idx"), keyInfo);
+        for(int i=0; i<=indexSize; i++) {
+            index.insertIntoIndex(new LongKey(i).addKey(keyNameMapper, RECORD_POINTER, new LongKey(100 + i)));
+        }
+        index.flushIndex();
+        index.close();
+
+        try {
+            index = new BTreeIndex(new File(tmpDir, "indexbag_somekey.idx"), keyInfo);
+
+            try(KeyCursor cursor = index.searchCursor(new RangeCondition(new LongKey(1000), true, new LongKey(5000), false))) {
+                long expected = 1000;
+                while(cursor.hasNext()) {
+                    Key key = cursor.next();
+                    assertEquals(new LongKey(expected), key);
+                    assertEquals(new LongKey(100 + expected), key.getKey(cursor.getKeyNameMapper(), RECORD_POINTER));
+                    expected++;
+                }
+                assertEquals(5000, expected);
+            }
+
+            try(KeyCursor cursor = index.searchCursor(new EqualsCondition(new LongKey(42)))) {
+                assertTrue(cursor.hasNext());
+                assertEquals(new LongKey(42), cursor.next());
+                assertFalse(cursor.hasNext());
+            }
+
+            int notEqualsCount = 0;
+            try(KeyCursor cursor = index.searchCursor(new NotEqualsCondition(new LongKey(42)))) {
+                while(cursor.hasNext()) {
+                    assertThat(cursor.next().equals(new LongKey(42)), is(false));
+                    notEqualsCount++;
+                }
+            }
+            assertEquals(indexSize, notEqualsCount);
+
+            KeyCursor cursor = index.searchCursor(new RangeCondition(new LongKey(0), true, null, false));
+            assertTrue(cursor.hasNext());
+            cursor.close();
+            assertFalse(cursor.hasNext());
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testReverseRangeSearchCursor() throws Exception {
+        int indexSize = 10000;
+        KeyInfo keyInfo = new KeyInfoImpl(Lists.newArrayList(new SimpleIndexField("somekey", new LongKeyType()),
+                new SimpleIndexField("__ID", new UUIDKeyType())), new ArrayList<IndexField>());
+        KeyNameMapper keyNameMapper = keyInfo.getKeyNameMapper();
+        BTreeIndex index = new BTreeIndex(new File(tmpDir, "indexbag_somekey.idx"), keyInfo);
+        for(int i=0; i<indexSize; i++) {
+            index.insertIntoIndex(new CompositeKey()
+                    .addKey(keyNameMapper, "somekey", new LongKey(i % 100))
+                    .addKey(keyNameMapper, "__ID", new UUIDKey(0, i)));
+        }
+
+        try {
+            assertReverseRange(index, new RangeCondition(new LongKey(20), true, new LongKey(30), false), 20, 29, 1000);
+            assertReverseRange(index, new RangeCondition(new LongKey(20), false, new LongKey(30), true), 21, 30, 1000);
+            assertReverseRange(index, new RangeCondition(null, false, new LongKey(50), true), 0, 50, 5100);
+            assertReverseRange(index, new RangeCondition(new LongKey(90), true, null, false), 90, 99, 1000);
+            assertReverseRange(index, new RangeCondition(null, false, null, false), 0, 99, indexSize);
+
+            int notEqualsCount = 0;
+            try(KeyCursor cursor = index.searchCursor(new NotEqualsCondition(new LongKey(42)), Order.DESCENDING)) {
+                while(cursor.hasNext()) {
+                    assertThat(cursor.next().getKey(cursor.getKeyNameMapper(), "somekey").equals(new LongKey(42)), is(false));
+                    notEqualsCount++;
+                }
+            }
+            assertEquals(indexSize - 100, notEqualsCount);
+        } finally {
+            index.close();
+        }
+    }
+
+    private void assertReverseRange(Index index, RangeCondition condition, long lowest, long highest, int expectedKeys) throws JasDBStorageException {
+        int count = 0;
+        long previous = Long.MAX_VALUE;
+        try(KeyCursor cursor = index.searchCursor(condition, Order.DESCENDING)) {
+            while(cursor.hasNext()) {
+                long value = ((LongKey) cursor.next().getKey(cursor.getKeyNameMapper(), "somekey")).getKey();
+                assertTrue(value <= previous);
+                assertTrue(value >= lowest && value <= highest);
+                if(count == 0) {
+                    assertEquals(highest, value);
+                }
+                previous = value;
+                count++;
+            }
+        }
+        assertEquals(lowest, previous);
+        assertEquals(expectedKeys, count);
+    }
+
+    @Test
+    public void testEqualsCursorSkipTo() throws Exception {
+        int indexSize = 10000;
+        KeyInfo keyInfo = new KeyInfoImpl(Lists.newArrayList(new SimpleIndexField("somekey", new LongKeyType()),
+                new SimpleIndexField("__ID", new UUIDKeyType())), new ArrayList<IndexField>());
+        KeyNameMapper keyNameMapper = keyInfo.getKeyNameMapper();
+        BTreeIndex index = new BTreeIndex(new File(tmpDir, "indexbag_somekey.idx"), keyInfo);
+        for(int i=0; i<indexSize; i++) {
+            index.insertIntoIndex(new CompositeKey()
+                    .addKey(keyNameMapper, "somekey", new LongKey(i % 10))
+                    .addKey(keyNameMapper, "__ID", new UUIDKey(0, i)));
+        }
+        index.flushIndex();
+        index.close();
+
+        try {
+            index = new BTreeIndex(new File(tmpDir, "indexbag_somekey.idx"), keyInfo);
+
+            try(KeyCursor cursor = index.searchCursor(new EqualsCondition(new LongKey(3)))) {
+                assertTrue(cursor.isDocumentOrdered());
+                assertEquals(new UUIDKey(0, 3), cursor.next().getKey(cursor.getKeyNameMapper(), "__ID"));
+                assertEquals(new UUIDKey(0, 5003), cursor.skipTo(new UUIDKey(0, 5000)).getKey(cursor.getKeyNameMapper(), "__ID"));
+                assertEquals(new UUIDKey(0, 5013), cursor.next().getKey(cursor.getKeyNameMapper(), "__ID"));
+                assertEquals(new UUIDKey(0, 5023), cursor.skipTo(new UUIDKey(0, 10)).getKey(cursor.getKeyNameMapper(), "__ID"));
+                assertEquals(new UUIDKey(0, 9993), cursor.skipTo(new UUIDKey(0, 9990)).getKey(cursor.getKeyNameMapper(), "__ID"));
+                assertNull(cursor.skipTo(new UUIDKey(0, 9994)));
+                assertFalse(cursor.hasNext());
+            }
+
+            try(KeyCursor cursor = index.searchCursor(new RangeCondition(new LongKey(3), true, new LongKey(4), true))) {
+                assertFalse(cursor.isDocumentOrdered());
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testInSearchCursor() throws Exception {
+        int indexSize = 20000;
+        KeyInfo keyInfo = new KeyInfoImpl(Lists.newArrayList(new SimpleIndexField("somekey", new LongKeyType()),
+                new SimpleIndexField("__ID", new UUIDKeyType())), new ArrayList<IndexField>());
+        KeyNameMapper keyNameMapper = keyInfo.getKeyNameMapper();
+        BTreeIndex index = new BTreeIndex(new File(tmpDir, "indexbag_somekey.idx"), keyInfo);
+        for(int i=0; i<indexSize; i++) {
+            index.insertIntoIndex(new CompositeKey()
+                    .addKey(keyNameMapper, "somekey", new LongKey(i % 1000))
+                    .addKey(keyNameMapper, "__ID", new UUIDKey(0, i)));
+        }
+
+        try {
+            List<Key> values = Lists.newArrayList(new LongKey(999), new LongKey(4), new LongKey(3), new LongKey(2500),
+                    new LongKey(500), new LongKey(4), new StringKey("7"));
+            List<Long> found = new ArrayList<>();
+            try(KeyCursor cursor = index.searchCursor(new InCondition(values))) {
+                while(cursor.hasNext()) {
+                    found.add(((LongKey) cursor.next().getKey(cursor.getKeyNameMapper(), "somekey")).getKey());
+                }
+            }
+            assertEquals(100, found.size());
+            for(int i=0; i<found.size(); i++) {
+                assertEquals(new long[] {3, 4, 7, 500, 999}[i / 20], (long) found.get(i));
+            }
+
+            List<Key> allValues = new ArrayList<>();
+            for(int i=0; i<2000; i+=2) {
+                allValues.add(new LongKey(i));
+            }
+            assertEquals(10000, index.searchIndex(new InCondition(allValues), Index.NO_SEARCH_LIMIT).size());
+            assertEquals(50, index.searchIndex(new InCondition(allValues), new SearchLimit(50)).size());
+            assertFalse(index.searchCursor(new InCondition(Collections.<Key>emptyList())).hasNext());
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testPrefixSearch() throws Exception {
+        String[] names = new String[] {"apple", "apricot", "application", "banana", "app", "ap", "b", "appz"};
+        KeyInfo keyInfo = new KeyInfoImpl(new SimpleIndexField("name", new StringKeyType()), new SimpleIndexField(RECORD_POINTER, new LongKeyType()));
+        KeyNameMapper keyNameMapper = keyInfo.getKeyNameMapper();
+        BTreeIndex index = new BTreeIndex(new File(tmpDir, "indexbag_name.idx"), keyInfo);
+        for(int i=0; i<names.length; i++) {
+            index.insertIntoIndex(new StringKey(names[i]).addKey(keyNameMapper, RECORD_POINTER, new LongKey(i)));
+        }
+
+        try {
+            List<String> found = new ArrayList<>();
+            for(Key key : index.searchIndex(new PrefixCondition(new StringKey("app")), Index.NO_SEARCH_LIMIT)) {
+                found.add(((StringKey) key).getKey());
+            }
+            assertEquals(Lists.newArrayList("app", "apple", "application", "appz"), found);
+
+            assertEquals(8, index.searchIndex(new PrefixCondition(new StringKey("")), Index.NO_SEARCH_LIMIT).size());
+            assertEquals(0, index.searchIndex(new PrefixCondition(new StringKey("c")), Index.NO_SEARCH_LIMIT).size());
+            assertTrue(new PrefixCondition(new StringKey("ap")).keyQualifies(new StringKey("apricot")));
+            assertFalse(new PrefixCondition(new StringKey("ap")).keyQualifies(new StringKey("aq")));
+        } finally {
+            index.close();
+        }
+    }
+
     @Test
     public void testIndexUpdate() throws JasDBStorageException {
         int indexSize = 1000;
@@ -17,6 +17,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.nio.file.Files;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
@@ -70,6 +71,40 @@ public class BtreeCloseOpenTest extends IndexBaseTest {
         }
     }
 
+    @Test
+    public void testMultiValuedCountPersisted() throws Exception {
+        KeyInfo keyInfo = new KeyInfoImpl(new SimpleIndexField("string", new StringKeyType(100)), new SimpleIndexField(RECORD_POINTER, new LongKeyType()));
+        File indexFile = new File(tmpDir, "indexbag_string.idx");
+        File crashedIndexFile = new File(tmpDir, "indexbag_crashed.idx");
+        BTreeIndex index = new BTreeIndex(indexFile, keyInfo);
+        try {
+            assertThat(index.getMultiValuedCount(), is(0l));
+            for(int i=0; i<10; i++) {
+                index.insertIntoIndex(new StringKey("somekey" + i).addKey(keyInfo.getKeyNameMapper(), RECORD_POINTER, new LongKey(i / 2)));
+            }
+            index.updateMultiValuedCount(5);
+            index.updateMultiValuedCount(-1);
+            index.close();
+
+            index = new BTreeIndex(indexFile, keyInfo);
+            assertThat(index.getMultiValuedCount(), is(4l));
+
+            //an index that was not closed cleanly no longer knows its multi valued documents
+            Files.copy(indexFile.toPath(), crashedIndexFile.toPath());
+            BTreeIndex crashedIndex = new BTreeIndex(crashedIndexFile, keyInfo);
+            try {
+                assertThat(crashedIndex.getMultiValuedCount(), is(-1l));
+                crashedIndex.updateMultiValuedCount(1);
+                assertThat(crashedIndex.getMultiValuedCount(), is(-1l));
+            } finally {
+                crashedIndex.close();
+            }
+        } finally {
+            index.close();
+            Assert.assertTrue(!crashedIndexFile.exists() || crashedIndexFile.delete());
+        }
+    }
+
     @Test
     public void testIndexRemove() throws Exception {
         KeyInfo keyInfo = new KeyInfoImpl(new SimpleIndexField("string", new StringKeyType(100)), new SimpleIndexField(RECORD_POINTER, new LongKeyType()));
@@ -0,0 +1,159 @@
+package com.oberasoftware.jasdb.core.index.btreeplus;
+
+import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
+import com.oberasoftware.jasdb.api.index.query.IndexSearchResultIterator;
+import com.oberasoftware.jasdb.api.index.query.SearchLimit;
+import com.oberasoftware.jasdb.core.index.btreeplus.persistence.BtreePlusBlockPersister;
+import com.oberasoftware.jasdb.core.index.keys.LongKey;
+import com.oberasoftware.jasdb.core.index.keys.keyinfo.KeyInfoImpl;
+import com.oberasoftware.jasdb.core.index.keys.types.LongKeyType;
+import com.oberasoftware.jasdb.core.index.query.EqualsCondition;
+import com.oberasoftware.jasdb.core.index.query.SimpleIndexField;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Renze de Vries
+ */
+public class BtreeFreeBlockTest extends IndexBaseTest {
+    private static final int NR_KEYS = 20000;
+
+    @Before
+    public void setup() {
+        cleanData();
+    }
+
+    @After
+    public void tearDown() {
+        cleanData();
+    }
+
+    @Test
+    public void testRemovedBlocksReused() throws Exception {
+        KeyInfo keyInfo = createKeyInfo();
+        File indexFile = new File(tmpDir, "indexbag_freeblocks.idx");
+        BTreeIndex index = new BTreeIndex(indexFile, keyInfo);
+        try {
+            insertKeys(index, keyInfo, 0, NR_KEYS);
+            index.flushIndex();
+            long indexSize = indexFile.length();
+
+            removeKeys(index, 0, NR_KEYS);
+            assertTrue("Removed blocks should be on the free list", getPersister(index).getFreeBlocks() > 0);
+
+            insertKeys(index, keyInfo, 0, NR_KEYS);
+            index.flushIndex();
+            assertTrue("Index should reuse the removed blocks", indexFile.length() < indexSize + indexSize / 10);
+            assertKeys(index, 0, NR_KEYS);
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testFreeBlocksPersisted() throws Exception {
+        KeyInfo keyInfo = createKeyInfo();
+        File indexFile = new File(tmpDir, "indexbag_freeblocks.idx");
+        BTreeIndex index = new BTreeIndex(indexFile, keyInfo);
+        int freeBlocks;
+        long indexSize;
+        try {
+            insertKeys(index, keyInfo, 0, NR_KEYS);
+            index.flushIndex();
+            indexSize = indexFile.length();
+
+            removeKeys(index, 0, NR_KEYS);
+            freeBlocks = getPersister(index).getFreeBlocks();
+            assertTrue(freeBlocks > 0);
+        } finally {
+            index.close();
+        }
+
+        index = new BTreeIndex(indexFile, keyInfo);
+        try {
+            assertEquals(freeBlocks, getPersister(index).getFreeBlocks());
+
+            insertKeys(index, keyInfo, 0, NR_KEYS);
+            index.flushIndex();
+            assertTrue("Index should reuse the persisted free blocks", indexFile.length() < indexSize + indexSize / 10);
+            assertKeys(index, 0, NR_KEYS);
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testCompactIndex() throws Exception {
+        KeyInfo keyInfo = createKeyInfo();
+        File indexFile = new File(tmpDir, "indexbag_freeblocks.idx");
+        BTreeIndex index = new BTreeIndex(indexFile, keyInfo);
+        int remainingKeys = NR_KEYS / 10;
+        try {
+            insertKeys(index, keyInfo, 0, NR_KEYS);
+            removeKeys(index, remainingKeys, NR_KEYS);
+            index.flushIndex();
+            long indexSize = indexFile.length();
+            assertTrue("Most of the index should be free", index.getFreeBlockRatio() > 0.5);
+
+            //the record writer uses this location for its own compaction
+            File recordWriterCompaction = new File(indexFile + ".compact");
+            assertTrue(recordWriterCompaction.exists() || recordWriterCompaction.createNewFile());
+
+            index.compactIndex();
+            assertTrue("Compacted index should be smaller", indexFile.length() < indexSize);
+            assertFalse(new File(indexFile + ".indexcompact").exists());
+            assertTrue(recordWriterCompaction.delete());
+            assertEquals(0, getPersister(index).getFreeBlocks());
+            assertEquals(0.0, index.getFreeBlockRatio(), 0.0);
+            assertEquals(remainingKeys, index.count());
+            assertKeys(index, 0, remainingKeys);
+
+            insertKeys(index, keyInfo, remainingKeys, NR_KEYS);
+        } finally {
+            index.close();
+        }
+
+        index = new BTreeIndex(indexFile, keyInfo);
+        try {
+            index.openIndex();
+            assertEquals(NR_KEYS, index.count());
+            assertKeys(index, 0, NR_KEYS);
+        } finally {
+            index.close();
+        }
+    }
+
+    private KeyInfo createKeyInfo() throws Exception {
+        return new KeyInfoImpl(new SimpleIndexField("somekey", new LongKeyType()), new SimpleIndexField(RECORD_POINTER, new LongKeyType()));
+    }
+
+    private BtreePlusBlockPersister getPersister(BTreeIndex index) throws Exception {
+        return (BtreePlusBlockPersister) index.getPersister();
+    }
+
+    private void insertKeys(BTreeIndex index, KeyInfo keyInfo, int start, int end) throws Exception {
+        for(int i=start; i<end; i++) {
+            index.insertIntoIndex(new LongKey(i).addKey(keyInfo.getKeyNameMapper(), RECORD_POINTER, new LongKey(100 + i)));
+        }
+    }
+
+    private void removeKeys(BTreeIndex index, int start, int end) throws Exception {
+        for(int i=start; i<end; i++) {
+            index.removeFromIndex(new LongKey(i));
+        }
+    }
+
+    private void assertKeys(BTreeIndex index, int start, int end) throws Exception {
+        for(int i=start; i<end; i++) {
+            IndexSearchResultIterator result = index.searchIndex(new EqualsCondition(new LongKey(i)), new SearchLimit());
+            assertEquals(1, result.size());
+        }
+    }
+}
@@ -11,6 +11,7 @@ import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
 import com.oberasoftware.jasdb.core.index.keys.keyinfo.KeyInfoImpl;
 import com.oberasoftware.jasdb.core.index.keys.types.LongKeyType;
 import com.oberasoftware.jasdb.core.index.query.SimpleIndexField;
+import com.oberasoftware.jasdb.core.utils.configuration.ManualConfiguration;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -19,7 +20,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 
@@ -126,4 +131,90 @@ public class IndexScanRebuildTest extends IndexBaseTest {
             index.close();
         }
     }
+
+    @Test
+    public void testRebuildBulkLoad() throws JasDBStorageException {
+        int testSize = 30000;
+        List<IndexableItem> indexableItemList = new ArrayList<>(testSize);
+        List<Integer> insertedKeys = new ArrayList<>(testSize);
+        for(int i=0; i<testSize; i++) {
+            indexableItemList.add(new MockIndexableItem("field1", i, i + 1000));
+            insertedKeys.add(i);
+        }
+        Collections.shuffle(indexableItemList, new Random(42));
+
+        KeyInfo keyInfo = new KeyInfoImpl(new SimpleIndexField("field1", new LongKeyType()), new SimpleIndexField("RECORD_POINTER", new LongKeyType()));
+        BTreeIndex index = createIndex(keyInfo, "16", "64k");
+        try {
+            index.rebuildIndex(indexableItemList.iterator());
+            assertEquals(testSize, index.count());
+            assertBlocks(index.getLockManager(), index.getPersister(), index.getRootBlock(), index.getPersister().getMaxKeys(), index.getPersister().getMinKeys(), -1);
+            assertIndexKeysPresent(insertedKeys, index);
+
+            index.insertIntoIndex(new LongKey(testSize).addKey(keyInfo.getKeyNameMapper(), "RECORD_POINTER", new LongKey(testSize + 1000)));
+            index.removeFromIndex(new LongKey(0).addKey(keyInfo.getKeyNameMapper(), "RECORD_POINTER", new LongKey(1000)));
+            assertBlocks(index.getLockManager(), index.getPersister(), index.getRootBlock(), index.getPersister().getMaxKeys(), index.getPersister().getMinKeys(), -1);
+        } finally {
+            index.close();
+        }
+
+        index = createIndex(keyInfo, "16", "64k");
+        try {
+            assertBlocks(index.getLockManager(), index.getPersister(), index.getRootBlock(), index.getPersister().getMaxKeys(), index.getPersister().getMinKeys(), -1);
+            assertEquals(testSize, index.count());
+            assertIndexKeysPresent(insertedKeys.subList(1, testSize), index);
+            assertIndexKeysPresent(Collections.singletonList(testSize), index);
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testRebuildBulkLoadTreeShapes() throws JasDBStorageException {
+        KeyInfo keyInfo = new KeyInfoImpl(new SimpleIndexField("field1", new LongKeyType()), new SimpleIndexField("RECORD_POINTER", new LongKeyType()));
+        for(int testSize : new int[]{0, 1, 16, 17, 18, 33, 288, 289, 290, 4913, 4914}) {
+            List<IndexableItem> indexableItemList = new ArrayList<>(testSize);
+            List<Integer> insertedKeys = new ArrayList<>(testSize);
+            for(int i=0; i<testSize; i++) {
+                indexableItemList.add(new MockIndexableItem("field1", i, i + 1000));
+                insertedKeys.add(i);
+            }
+
+            assertDelete(new File(tmpDir, "indexbag_field1.idx"));
+            BTreeIndex index = createIndex(keyInfo, "16", "64m");
+            try {
+                index.rebuildIndex(indexableItemList.iterator());
+                assertEquals(testSize, index.count());
+                assertBlocks(index.getLockManager(), index.getPersister(), index.getRootBlock(), index.getPersister().getMaxKeys(), index.getPersister().getMinKeys(), -1);
+                assertIndexKeysPresent(insertedKeys, index);
+            } finally {
+                index.close();
+            }
+        }
+    }
+
+    @Test(expected = JasDBStorageException.class)
+    public void testRebuildDuplicateKeys() throws JasDBStorageException {
+        List<IndexableItem> indexableItemList = new ArrayList<>();
+        indexableItemList.add(new MockIndexableItem("field1", 1, 1000));
+        indexableItemList.add(new MockIndexableItem("field1", 2, 1001));
+        indexableItemList.add(new MockIndexableItem("field1", 1, 1000));
+
+        KeyInfo keyInfo = new KeyInfoImpl(new SimpleIndexField("field1", new LongKeyType()), new SimpleIndexField("RECORD_POINTER", new LongKeyType()));
+        BTreeIndex index = createIndex(keyInfo, "16", "64m");
+        try {
+            index.rebuildIndex(indexableItemList.iterator());
+        } finally {
+            index.close();
+        }
+    }
+
+    private BTreeIndex createIndex(KeyInfo keyInfo, String pageSize, String sortMemory) throws ConfigurationException {
+        BTreeIndex index = new BTreeIndex(new File(tmpDir, "indexbag_field1.idx"), keyInfo);
+        Map<String, String> params = new HashMap<>();
+        params.put("pageSize", pageSize);
+        params.put("rebuildSortMemory", sortMemory);
+        index.configure(new ManualConfiguration("btree", params));
+        return index;
+    }
 }
@@ -0,0 +1,183 @@
+package com.oberasoftware.jasdb.core.index.btreeplus;
+
+import com.google.common.collect.Lists;
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.index.IndexField;
+import com.oberasoftware.jasdb.api.index.IndexStatistics;
+import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
+import com.oberasoftware.jasdb.api.index.keys.KeyNameMapper;
+import com.oberasoftware.jasdb.core.index.SampledIndexStatistics;
+import com.oberasoftware.jasdb.core.index.keys.CompositeKey;
+import com.oberasoftware.jasdb.core.index.keys.LongKey;
+import com.oberasoftware.jasdb.core.index.keys.keyinfo.KeyInfoImpl;
+import com.oberasoftware.jasdb.core.index.keys.types.LongKeyType;
+import com.oberasoftware.jasdb.core.index.query.EqualsCondition;
+import com.oberasoftware.jasdb.core.index.query.NotEqualsCondition;
+import com.oberasoftware.jasdb.core.index.query.RangeCondition;
+import com.oberasoftware.jasdb.core.index.query.SimpleIndexField;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Renze de Vries
+ */
+public class IndexStatisticsTest extends IndexBaseTest {
+    private static final String RECORD_POINTER = "RECORD_POINTER";
+
+    @Before
+    public void setup() {
+        assertDelete(new File(tmpDir, "index_stats.idx"));
+    }
+
+    @After
+    public void tearDown() {
+        assertDelete(new File(tmpDir, "index_stats.idx"));
+    }
+
+    @Test
+    public void testNonUniqueStatistics() throws JasDBStorageException {
+        KeyInfo keyInfo = new KeyInfoImpl(Lists.newArrayList(new SimpleIndexField("age", new LongKeyType()),
+                new SimpleIndexField(RECORD_POINTER, new LongKeyType())), new ArrayList<IndexField>());
+        KeyNameMapper keyNameMapper = keyInfo.getKeyNameMapper();
+
+        BTreeIndex index = new BTreeIndex(new File(tmpDir, "index_stats.idx"), keyInfo);
+        try {
+            long pointer = 0;
+            for(int i=0; i<20000; i++) {
+                index.insertIntoIndex(new CompositeKey().addKey(keyNameMapper, "age", new LongKey(i % 100))
+                        .addKey(keyNameMapper, RECORD_POINTER, new LongKey(pointer++)));
+            }
+            for(int i=0; i<2000; i++) {
+                index.insertIntoIndex(new CompositeKey().addKey(keyNameMapper, "age", new LongKey(500))
+                        .addKey(keyNameMapper, RECORD_POINTER, new LongKey(pointer++)));
+            }
+
+            assertStatistics(index.getStatistics());
+        } finally {
+            index.close();
+        }
+
+        index = new BTreeIndex(new File(tmpDir, "index_stats.idx"), keyInfo);
+        try {
+            //the statistics of a reopened index are sampled from the tree
+            assertStatistics(index.getStatistics());
+        } finally {
+            index.close();
+        }
+    }
+
+    private void assertStatistics(IndexStatistics statistics) {
+        assertEquals(22000, statistics.getKeyCount());
+        assertBetween(80, 200, statistics.getDistinctValues());
+
+        assertBetween(1000, 3000, statistics.estimateMatches(new EqualsCondition(new LongKey(500))));
+        assertBetween(50, 600, statistics.estimateMatches(new EqualsCondition(new LongKey(5))));
+        assertBetween(1, 200, statistics.estimateMatches(new EqualsCondition(new LongKey(250))));
+        assertBetween(19000, 21999, statistics.estimateMatches(new NotEqualsCondition(new LongKey(500))));
+        assertBetween(7000, 13000, statistics.estimateMatches(new RangeCondition(new LongKey(0), true, new LongKey(49), true)));
+    }
+
+    @Test
+    public void testUniqueStatistics() throws JasDBStorageException {
+        KeyInfo keyInfo = new KeyInfoImpl(new SimpleIndexField("field1", new LongKeyType()), new SimpleIndexField(RECORD_POINTER, new LongKeyType()));
+
+        BTreeIndex index = new BTreeIndex(new File(tmpDir, "index_stats.idx"), keyInfo);
+        try {
+            for(int i=0; i<10000; i++) {
+                index.insertIntoIndex(new LongKey(i).addKey(keyInfo.getKeyNameMapper(), RECORD_POINTER, new LongKey(i)));
+            }
+            for(int i=0; i<5000; i++) {
+                index.removeFromIndex(new LongKey(i).addKey(keyInfo.getKeyNameMapper(), RECORD_POINTER, new LongKey(i)));
+            }
+
+            IndexStatistics statistics = awaitSample(index);
+            assertEquals(5000, statistics.getKeyCount());
+            assertEquals(5000, statistics.getDistinctValues());
+            assertEquals(1, statistics.estimateMatches(new EqualsCondition(new LongKey(7000))));
+            assertBetween(1500, 3500, statistics.estimateMatches(new RangeCondition(new LongKey(0), true, new LongKey(7499), true)));
+            assertBetween(1, 50, statistics.estimateMatches(new RangeCondition(new LongKey(20000), true, null, false)));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testStaleStatisticsRefreshed() throws Exception {
+        KeyInfo keyInfo = new KeyInfoImpl(new SimpleIndexField("field1", new LongKeyType()), new SimpleIndexField(RECORD_POINTER, new LongKeyType()));
+
+        BTreeIndex index = new BTreeIndex(new File(tmpDir, "index_stats.idx"), keyInfo);
+        try {
+            for(int i=0; i<10000; i++) {
+                index.insertIntoIndex(new LongKey(i).addKey(keyInfo.getKeyNameMapper(), RECORD_POINTER, new LongKey(i)));
+            }
+            for(int i=0; i<8000; i++) {
+                index.removeFromIndex(new LongKey(i).addKey(keyInfo.getKeyNameMapper(), RECORD_POINTER, new LongKey(i)));
+            }
+
+            //the stale statistics are still used while the index is sampled again
+            SampledIndexStatistics statistics = (SampledIndexStatistics) index.getStatistics();
+            assertTrue(statistics.hasSample());
+
+            awaitSample(index);
+            assertFalse(statistics.isStale());
+            assertBetween(1, 50, statistics.estimateMatches(new RangeCondition(new LongKey(0), true, new LongKey(7999), true)));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testSampleSparseBlocks() throws JasDBStorageException {
+        KeyInfo keyInfo = new KeyInfoImpl(new SimpleIndexField("field1", new LongKeyType()), new SimpleIndexField(RECORD_POINTER, new LongKeyType()));
+
+        BTreeIndex index = new BTreeIndex(new File(tmpDir, "index_stats.idx"), keyInfo);
+        try {
+            //the blocks of the first half of the keys are left half full, the other blocks are filled up
+            for(int i=0; i<40000; i+=2) {
+                index.insertIntoIndex(new LongKey(i).addKey(keyInfo.getKeyNameMapper(), RECORD_POINTER, new LongKey(i)));
+            }
+            for(int i=20001; i<40000; i+=2) {
+                index.insertIntoIndex(new LongKey(i).addKey(keyInfo.getKeyNameMapper(), RECORD_POINTER, new LongKey(i)));
+            }
+        } finally {
+            index.close();
+        }
+
+        index = new BTreeIndex(new File(tmpDir, "index_stats.idx"), keyInfo);
+        try {
+            //10000 of the 30000 keys are in the first half of the key range
+            IndexStatistics statistics = index.getStatistics();
+            assertEquals(30000, statistics.getKeyCount());
+            assertBetween(8000, 12500, statistics.estimateMatches(new RangeCondition(new LongKey(0), true, new LongKey(19999), true)));
+        } finally {
+            index.close();
+        }
+    }
+
+    private static SampledIndexStatistics awaitSample(BTreeIndex index) throws JasDBStorageException {
+        SampledIndexStatistics statistics = (SampledIndexStatistics) index.getStatistics();
+        long timeout = System.currentTimeMillis() + 10000;
+        while(statistics.isStale() && System.currentTimeMillis() < timeout) {
+            try {
+                Thread.sleep(10);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            index.getStatistics();
+        }
+        return statistics;
+    }
+
+    private static void assertBetween(long min, long max, long actual) {
+        assertTrue("Expected estimate between: " + min + " and " + max + " but was: " + actual, actual >= min && actual <= max);
+    }
+}
@@ -4,9 +4,11 @@ import com.oberasoftware.jasdb.api.exceptions.JasDBException;
 import com.oberasoftware.jasdb.api.storage.DataBlockFactory;
 import com.oberasoftware.jasdb.core.index.query.SimpleIndexField;
 import com.oberasoftware.jasdb.core.storage.DataBlockFactoryImpl;
+import com.google.common.collect.Lists;
 import com.oberasoftware.jasdb.core.index.btreeplus.persistence.BtreePlusBlockPersister;
 import com.oberasoftware.jasdb.core.index.btreeplus.persistence.LeaveBlockFactory;
 import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.core.index.keys.CompositeKey;
 import com.oberasoftware.jasdb.core.index.keys.LongKey;
 import com.oberasoftware.jasdb.core.index.keys.StringKey;
 import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
@@ -26,9 +28,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -98,6 +102,97 @@ public class LeaveBlockFactoryTest {
         }
     }
 
+    @Test
+    public void testStoreAndLoadCompositeKeysWithSharedPrefix() throws JasDBException {
+        int nrKeys = 300;
+
+        KeyInfo keyInfo = new KeyInfoImpl(Lists.newArrayList(new SimpleIndexField("email", new StringKeyType(200)),
+                new SimpleIndexField("POINTER", new LongKeyType())), new ArrayList<>());
+        KeyNameMapper nameMapper = keyInfo.getKeyNameMapper();
+        when(persister.getMaxKeys()).thenReturn(512);
+        when(persister.getKeyInfo()).thenReturn(keyInfo);
+
+        LeaveBlockFactory leaveBlockFactory = new LeaveBlockFactory(persister);
+        LeaveBlockImpl leaveBlock = leaveBlockFactory.createBlock(555, dataBlockFactory.getBlockWithSpace(false));
+        long position = leaveBlock.getPosition();
+        for(int keyNr=0; keyNr < nrKeys; keyNr++) {
+            //every third key is equal to the shared prefix
+            String email = keyNr % 3 == 0 ? "user@example.com" : "user@example.com/" + keyNr;
+            leaveBlock.insertKey(new CompositeKey()
+                    .addKey(nameMapper, "email", new StringKey(email))
+                    .addKey(nameMapper, "POINTER", new LongKey(keyNr)));
+        }
+        leaveBlockFactory.persistBlock(leaveBlock);
+        leaveBlock.close();
+
+        leaveBlock = (LeaveBlockImpl) leaveBlockFactory.loadBlock(dataBlockFactory.loadBlock(position));
+        assertEquals(nrKeys, leaveBlock.size());
+        for(int keyNr=0; keyNr < nrKeys; keyNr++) {
+            String email = keyNr % 3 == 0 ? "user@example.com" : "user@example.com/" + keyNr;
+            Key searchKey = new CompositeKey()
+                    .addKey(nameMapper, "email", new StringKey(email))
+                    .addKey(nameMapper, "POINTER", new LongKey(keyNr));
+
+            Key key = leaveBlock.getKey(searchKey);
+            assertEquals(new StringKey(email), key.getKey(nameMapper, "email"));
+            assertEquals(new LongKey(keyNr), key.getKey(nameMapper, "POINTER"));
+        }
+    }
+
+    @Test
+    public void testModifyLoadedLeaveWithKeysAcrossBlocks() throws JasDBException {
+        int nrKeys = 400;
+
+        KeyInfo keyInfo = new KeyInfoImpl(new SimpleIndexField("field1", new StringKeyType(1024)), new SimpleIndexField("POINTER", new LongKeyType()));
+        KeyNameMapper nameMapper = keyInfo.getKeyNameMapper();
+        when(persister.getMaxKeys()).thenReturn(512);
+        when(persister.getKeyInfo()).thenReturn(keyInfo);
+
+        //keys of different lengths, the keys of the leave span multiple data blocks and start at any offset of a block
+        LeaveBlockFactory leaveBlockFactory = new LeaveBlockFactory(persister);
+        LeaveBlockImpl leaveBlock = leaveBlockFactory.createBlock(555, dataBlockFactory.getBlockWithSpace(false));
+        long position = leaveBlock.getPosition();
+        for(int keyNr=0; keyNr < nrKeys; keyNr++) {
+            leaveBlock.insertKey(new StringKey(createValue(keyNr)).addKey(nameMapper, "POINTER", new LongKey(keyNr)));
+        }
+        leaveBlockFactory.persistBlock(leaveBlock);
+        leaveBlock.close();
+
+        //the loaded leave is modified before all of its keys are loaded
+        leaveBlock = (LeaveBlockImpl) leaveBlockFactory.loadBlock(dataBlockFactory.loadBlock(position));
+        assertEquals(nrKeys, leaveBlock.size());
+        leaveBlock.insertKey(new StringKey(createValue(nrKeys)).addKey(nameMapper, "POINTER", new LongKey(nrKeys)));
+        leaveBlock.removeKey(new StringKey(createValue(7)));
+        leaveBlockFactory.persistBlock(leaveBlock);
+        leaveBlock.close();
+
+        leaveBlock = (LeaveBlockImpl) leaveBlockFactory.loadBlock(dataBlockFactory.loadBlock(position));
+        assertEquals(nrKeys, leaveBlock.size());
+        for(int keyNr=0; keyNr <= nrKeys; keyNr++) {
+            Key key = leaveBlock.getKey(new StringKey(createValue(keyNr)));
+            if(keyNr == 7) {
+                assertNull(key);
+            } else {
+                assertEquals(new StringKey(createValue(keyNr)), key);
+                assertEquals(new LongKey(keyNr), key.getKey(0));
+            }
+        }
+
+        List<Key> keys = leaveBlock.getValues();
+        assertEquals(nrKeys, keys.size());
+        for(int i=1; i<keys.size(); i++) {
+            assertTrue(keys.get(i - 1).compareTo(keys.get(i)) < 0);
+        }
+    }
+
+    private static String createValue(int keyNr) {
+        StringBuilder value = new StringBuilder("key" + keyNr);
+        for(int i=0; i<(keyNr * 31) % 250; i++) {
+            value.append('x');
+        }
+        return value.toString();
+    }
+
     private long generateLeaveBlock(LeaveBlockFactory leaveBlockFactory, KeyNameMapper nameMapper, int keys) throws JasDBException {
         LeaveBlockImpl leaveBlock = leaveBlockFactory.createBlock(555, dataBlockFactory.getBlockWithSpace(false));
         long position = leaveBlock.getPosition();
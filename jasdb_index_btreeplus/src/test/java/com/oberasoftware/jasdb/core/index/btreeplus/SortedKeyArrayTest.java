@@ -0,0 +1,136 @@
+package com.oberasoftware.jasdb.core.index.btreeplus;
+
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.core.index.keys.LongKey;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Renze de Vries
+ */
+public class SortedKeyArrayTest {
+    private static final int NR_KEYS = 1000;
+
+    @Test
+    public void testRandomInsertOrder() {
+        List<Long> values = new ArrayList<>();
+        for(long i=0; i<NR_KEYS; i++) {
+            values.add(i);
+        }
+        Collections.shuffle(values);
+
+        SortedKeyArray keys = new SortedKeyArray();
+        for(Long value : values) {
+            keys.put(new LongKey(value));
+        }
+
+        assertEquals(NR_KEYS, keys.size());
+        assertEquals(new LongKey(0), keys.first());
+        assertEquals(new LongKey(NR_KEYS - 1), keys.last());
+
+        List<Key> sortedKeys = keys.values();
+        for(int i=0; i<NR_KEYS; i++) {
+            assertEquals(new LongKey(i), sortedKeys.get(i));
+            assertTrue(keys.contains(new LongKey(i)));
+        }
+        assertFalse(keys.contains(new LongKey(NR_KEYS)));
+    }
+
+    @Test
+    public void testRange() {
+        SortedKeyArray keys = createKeys();
+
+        assertEquals(11, keys.range(new LongKey(10), true, new LongKey(20), true).size());
+        assertEquals(9, keys.range(new LongKey(10), false, new LongKey(20), false).size());
+        assertEquals(new LongKey(11), keys.range(new LongKey(10), false, new LongKey(20), true).get(0));
+        assertEquals(21, keys.range(null, true, new LongKey(20), true).size());
+        assertEquals(NR_KEYS - 10, keys.range(new LongKey(10), true, null, true).size());
+        assertEquals(NR_KEYS, keys.range(null, true, null, true).size());
+        assertEquals(0, keys.range(new LongKey(NR_KEYS), true, null, true).size());
+    }
+
+    @Test
+    public void testRemove() {
+        SortedKeyArray keys = createKeys();
+        for(int i=0; i<NR_KEYS; i+=2) {
+            keys.remove(new LongKey(i));
+        }
+        keys.remove(new LongKey(NR_KEYS * 2));
+
+        assertEquals(NR_KEYS / 2, keys.size());
+        assertNull(keys.get(new LongKey(10)));
+        assertEquals(new LongKey(11), keys.get(new LongKey(11)));
+        assertEquals(new LongKey(1), keys.first());
+    }
+
+    @Test
+    public void testSplit() {
+        SortedKeyArray keys = createKeys();
+        List<Key>[] splitted = keys.split();
+
+        assertEquals(NR_KEYS / 2, splitted[0].size());
+        assertEquals(NR_KEYS / 2, splitted[1].size());
+        assertEquals(new LongKey(NR_KEYS / 2 - 1), splitted[0].get(splitted[0].size() - 1));
+        assertEquals(new LongKey(NR_KEYS / 2), splitted[1].get(0));
+
+        keys.reset();
+        assertEquals(0, keys.size());
+        assertNull(keys.first());
+    }
+
+    @Test
+    public void testLoadKeysWhenNeeded() {
+        long[] positions = new long[NR_KEYS];
+        for(int i=0; i<NR_KEYS; i++) {
+            positions[i] = i * 2;
+        }
+        List<Long> loadedPositions = new ArrayList<>();
+        SortedKeyArray keys = new SortedKeyArray();
+        keys.loadPositions(positions, position -> {
+            loadedPositions.add(position);
+            return new LongKey(position);
+        });
+        assertEquals(NR_KEYS, keys.size());
+        assertTrue(loadedPositions.isEmpty());
+
+        //a lookup only loads the keys compared by the binary search
+        assertEquals(new LongKey(500), keys.get(new LongKey(500)));
+        assertTrue(loadedPositions.size() <= 11);
+
+        int loaded = loadedPositions.size();
+        assertEquals(6, keys.range(new LongKey(100), true, new LongKey(110), true).size());
+        assertTrue(loadedPositions.size() - loaded <= 20);
+
+        keys.put(new LongKey(501));
+        keys.remove(new LongKey(600));
+        assertTrue(keys.unloaded() > 0);
+        assertEquals(new LongKey(0), keys.first());
+        assertEquals(new LongKey((NR_KEYS - 1) * 2), keys.last());
+
+        List<Key> values = keys.values();
+        assertEquals(0, keys.unloaded());
+        assertEquals(NR_KEYS, values.size());
+        assertEquals(NR_KEYS, loadedPositions.size());
+        for(int i=1; i<values.size(); i++) {
+            assertTrue(values.get(i - 1).compareTo(values.get(i)) < 0);
+        }
+        assertTrue(values.contains(new LongKey(501)));
+        assertFalse(values.contains(new LongKey(600)));
+    }
+
+    private SortedKeyArray createKeys() {
+        SortedKeyArray keys = new SortedKeyArray();
+        for(long i=0; i<NR_KEYS; i++) {
+            keys.put(new LongKey(i));
+        }
+        return keys;
+    }
+}
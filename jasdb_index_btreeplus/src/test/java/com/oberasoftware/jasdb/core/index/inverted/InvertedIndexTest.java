@@ -0,0 +1,308 @@
+package com.oberasoftware.jasdb.core.index.inverted;
+
+import com.google.common.collect.Lists;
+import com.oberasoftware.jasdb.api.index.Index;
+import com.oberasoftware.jasdb.api.index.IndexIterator;
+import com.oberasoftware.jasdb.api.index.IndexState;
+import com.oberasoftware.jasdb.api.index.ScanIntent;
+import com.oberasoftware.jasdb.api.index.keys.Key;
+import com.oberasoftware.jasdb.api.index.keys.KeyInfo;
+import com.oberasoftware.jasdb.api.index.query.KeyCursor;
+import com.oberasoftware.jasdb.api.index.query.SearchCondition;
+import com.oberasoftware.jasdb.api.session.Entity;
+import com.oberasoftware.jasdb.api.session.IndexableItem;
+import com.oberasoftware.jasdb.core.SimpleEntity;
+import com.oberasoftware.jasdb.core.index.btreeplus.IndexBaseTest;
+import com.oberasoftware.jasdb.core.index.keys.StringKey;
+import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+import com.oberasoftware.jasdb.core.index.keys.keyinfo.KeyInfoImpl;
+import com.oberasoftware.jasdb.core.index.keys.types.StringKeyType;
+import com.oberasoftware.jasdb.core.index.keys.types.UUIDKeyType;
+import com.oberasoftware.jasdb.core.index.query.AllTermsCondition;
+import com.oberasoftware.jasdb.core.index.query.AnyTermsCondition;
+import com.oberasoftware.jasdb.core.index.query.EqualsCondition;
+import com.oberasoftware.jasdb.core.index.query.TermCondition;
+import com.oberasoftware.jasdb.core.index.query.SimpleIndexField;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Renze de Vries
+ */
+public class InvertedIndexTest extends IndexBaseTest {
+    private static final String FIELD = "tags";
+
+    private File indexLocation = new File(tmpDir, "terms.idxm");
+    private File dirtyLocation = new File(tmpDir, "terms.idxm.dirty");
+    private KeyInfo keyInfo;
+
+    @Before
+    public void setup() throws Exception {
+        assertDelete(indexLocation);
+        assertDelete(dirtyLocation);
+        keyInfo = new KeyInfoImpl(new SimpleIndexField(FIELD, new StringKeyType()), new SimpleIndexField(Entity.DOCUMENT_ID, new UUIDKeyType()));
+    }
+
+    @After
+    public void tearDown() {
+        assertDelete(indexLocation);
+        assertDelete(dirtyLocation);
+    }
+
+    @Test
+    public void testSearchTerms() throws Exception {
+        Index index = new InvertedIndex(indexLocation, keyInfo);
+        try {
+            index.insertIntoIndex(createKey("The quick brown fox", 1));
+            index.insertIntoIndex(createKey("the lazy dog", 2));
+            index.insertIntoIndex(createKey("Brown dog", 3));
+            index.insertIntoIndex(createKey("fox", 3));
+
+            assertDocuments(index, new TermCondition("brown"), 1, 3);
+            assertDocuments(index, new TermCondition("DOG"), 2, 3);
+            assertDocuments(index, new TermCondition("cat"));
+            assertDocuments(index, new AllTermsCondition(Lists.newArrayList("brown", "fox")), 1, 3);
+            assertDocuments(index, new AllTermsCondition(Lists.newArrayList("lazy brown")));
+            assertDocuments(index, new AllTermsCondition(Lists.newArrayList("cat", "dog")));
+            assertDocuments(index, new AnyTermsCondition(Lists.newArrayList("lazy", "quick", "cat")), 1, 2);
+
+            assertEquals(3, index.count());
+            assertEquals(6, index.getStatistics().getDistinctValues());
+            assertEquals(1, index.getStatistics().estimateMatches(new AllTermsCondition(Lists.newArrayList("lazy", "dog"))));
+            assertEquals(3, index.getStatistics().estimateMatches(new AnyTermsCondition(Lists.newArrayList("lazy", "brown"))));
+        } finally {
+            index.close();
+        }
+        assertEquals(IndexState.CLOSED, index.getState());
+    }
+
+    @Test
+    public void testRemoveValues() throws Exception {
+        Index index = new InvertedIndex(indexLocation, keyInfo);
+        try {
+            index.insertIntoIndex(createKey("red car", 1));
+            index.insertIntoIndex(createKey("red bike", 1));
+            index.insertIntoIndex(createKey("blue car", 2));
+
+            index.removeFromIndex(createKey("red car", 1));
+            assertDocuments(index, new TermCondition("red"), 1);
+            assertDocuments(index, new TermCondition("car"), 2);
+
+            index.updateKey(createKey("red bike", 1), createKey("green bike", 1));
+            assertDocuments(index, new TermCondition("red"));
+            assertDocuments(index, new TermCondition("green"), 1);
+
+            index.removeFromIndex(createKey("green bike", 1));
+            index.removeFromIndex(createKey("unknown", 3));
+            assertDocuments(index, new AnyTermsCondition(Lists.newArrayList("green", "bike")));
+            assertEquals(1, index.count());
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testCloseOpen() throws Exception {
+        int documents = 5000;
+        Index index = new InvertedIndex(indexLocation, keyInfo);
+        try {
+            for(int i = 0; i < documents; i++) {
+                index.insertIntoIndex(createKey("term" + (i % 3) + " number" + (i % 7) + " all", i));
+            }
+            for(int i = 0; i < documents; i += 10) {
+                index.removeFromIndex(createKey("term" + (i % 3) + " number" + (i % 7) + " all", i));
+            }
+        } finally {
+            index.close();
+        }
+
+        index = new InvertedIndex(indexLocation, keyInfo);
+        try {
+            List<Integer> expected = new ArrayList<>();
+            for(int i = 0; i < documents; i++) {
+                if(i % 10 != 0 && i % 3 == 1 && i % 7 == 4) {
+                    expected.add(i);
+                }
+            }
+            assertDocuments(index, new AllTermsCondition(Lists.newArrayList("term1", "number4")), toArray(expected));
+            assertEquals(documents - documents / 10, index.searchIndex(new TermCondition("all"), Index.NO_SEARCH_LIMIT).size());
+            assertEquals(documents - documents / 10, index.count());
+
+            int keys = 0;
+            IndexIterator iterator = index.getIndexIterator();
+            for(Key key : iterator) {
+                assertTrue(key instanceof StringKey);
+                keys++;
+            }
+            assertEquals(3 * (documents - documents / 10), keys);
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testDocumentWithoutTerms() throws Exception {
+        Index index = new InvertedIndex(indexLocation, keyInfo);
+        try {
+            index.insertIntoIndex(createKey("", 1));
+            index.insertIntoIndex(createKey("!? -", 2));
+            index.insertIntoIndex(createKey("red", 3));
+            index.insertIntoIndex(createKey("", 3));
+
+            assertEquals(1, index.count());
+            assertDocuments(index, new TermCondition("red"), 3);
+
+            int keys = 0;
+            for(Key key : index.getIndexIterator()) {
+                keys++;
+            }
+            assertEquals(1, keys);
+        } finally {
+            index.close();
+        }
+        assertFalse(dirtyLocation.exists());
+    }
+
+    @Test
+    public void testUncleanClose() throws Exception {
+        Index index = new InvertedIndex(indexLocation, keyInfo);
+        for(int i = 0; i < 100; i++) {
+            index.insertIntoIndex(createKey("term" + (i % 5), i));
+        }
+        index.flushIndex();
+        assertFalse(dirtyLocation.exists());
+
+        //the removals are never written, the removed documents stay in the index file
+        List<IndexableItem> remaining = new ArrayList<>();
+        for(int i = 0; i < 100; i++) {
+            if(i < 10) {
+                index.removeFromIndex(createKey("term" + (i % 5), i));
+            } else {
+                remaining.add(createEntity("term" + (i % 5), i));
+            }
+        }
+        assertTrue(dirtyLocation.exists());
+
+        Index reopened = new InvertedIndex(indexLocation, keyInfo);
+        try {
+            assertEquals(IndexState.INVALID, reopened.scan(ScanIntent.DETECT_INCOMPLETE, remaining.iterator()).getState());
+
+            reopened.rebuildIndex(remaining.iterator());
+            assertFalse(dirtyLocation.exists());
+            assertEquals(90, reopened.count());
+            assertDocuments(reopened, new TermCondition("term0"), 10, 15, 20, 25, 30, 35, 40, 45, 50, 55, 60, 65, 70, 75, 80, 85, 90, 95);
+            assertEquals(IndexState.OK, reopened.scan(ScanIntent.RESCAN, remaining.iterator()).getState());
+        } finally {
+            reopened.close();
+        }
+
+        reopened = new InvertedIndex(indexLocation, keyInfo);
+        try {
+            assertEquals(IndexState.OK, reopened.scan(ScanIntent.DETECT_INCOMPLETE, remaining.iterator()).getState());
+            assertEquals(90, reopened.count());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void testCursorDocumentOrder() throws Exception {
+        Index index = new InvertedIndex(indexLocation, keyInfo);
+        try {
+            for(int i = 999; i >= 0; i--) {
+                index.insertIntoIndex(createKey(i % 2 == 0 ? "even" : "odd", i));
+            }
+
+            KeyCursor cursor = index.searchCursor(new TermCondition("even"));
+            assertTrue(cursor.isDocumentOrdered());
+            Key first = cursor.next();
+            assertEquals(createDocument(0), getDocument(cursor, first));
+
+            Key skipped = cursor.skipTo(createDocument(501));
+            assertEquals(createDocument(502), getDocument(cursor, skipped));
+
+            int remaining = 0;
+            UUIDKey previous = createDocument(502);
+            while(cursor.hasNext()) {
+                UUIDKey document = getDocument(cursor, cursor.next());
+                assertTrue(document.compareTo(previous) > 0);
+                previous = document;
+                remaining++;
+            }
+            assertEquals(248, remaining);
+            assertNull(cursor.skipTo(createDocument(2000)));
+            cursor.close();
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testSupportedConditions() throws Exception {
+        Index index = new InvertedIndex(indexLocation, keyInfo);
+        try {
+            assertTrue(index.supportsCondition(new TermCondition("term")));
+            assertTrue(index.supportsCondition(new AnyTermsCondition(Lists.newArrayList("a", "b"))));
+            assertFalse(index.supportsCondition(new EqualsCondition(new StringKey("term"))));
+            assertFalse(index.supportsKeyOrder());
+            assertFalse(index.hasUniqueConstraint());
+        } finally {
+            index.close();
+        }
+    }
+
+    private void assertDocuments(Index index, SearchCondition condition, int... documents) throws Exception {
+        Set<UUIDKey> expected = new HashSet<>();
+        for(int document : documents) {
+            expected.add(createDocument(document));
+        }
+
+        Set<UUIDKey> found = new HashSet<>();
+        KeyCursor cursor = index.searchCursor(condition);
+        try {
+            while(cursor.hasNext()) {
+                assertTrue(found.add(getDocument(cursor, cursor.next())));
+            }
+        } finally {
+            cursor.close();
+        }
+        assertEquals("Unexpected documents for: " + condition, expected, found);
+    }
+
+    private static UUIDKey getDocument(KeyCursor cursor, Key key) {
+        return (UUIDKey) key.getKey(cursor.getKeyNameMapper(), Entity.DOCUMENT_ID);
+    }
+
+    private Key createKey(String value, int document) {
+        return new StringKey(value).addKey(keyInfo.getKeyNameMapper(), Entity.DOCUMENT_ID, createDocument(document));
+    }
+
+    private static IndexableItem createEntity(String value, int document) {
+        return new SimpleEntity(new UUID(document, 0).toString()).addProperty(FIELD, value);
+    }
+
+    private static UUIDKey createDocument(int document) {
+        return new UUIDKey(0, document);
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for(int i = 0; i < values.size(); i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+}
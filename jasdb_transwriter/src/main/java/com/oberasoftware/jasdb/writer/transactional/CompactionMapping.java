@@ -0,0 +1,41 @@
+package com.oberasoftware.jasdb.writer.transactional;
+
+import java.util.Arrays;
+
+/**
+ * Maps the record pointers of the original record file to the pointers of the copied records in the
+ * compacted record file. Records are copied in file order, so the original pointers are always ascending.
+ *
+ * @author Renze de Vries
+ */
+public class CompactionMapping {
+    private static final int INITIAL_SIZE = 1024;
+
+    private long[] originalPointers = new long[INITIAL_SIZE];
+    private long[] compactedPointers = new long[INITIAL_SIZE];
+    private int size = 0;
+
+    public void add(long originalPointer, long compactedPointer) {
+        if(size == originalPointers.length) {
+            originalPointers = Arrays.copyOf(originalPointers, size * 2);
+            compactedPointers = Arrays.copyOf(compactedPointers, size * 2);
+        }
+        originalPointers[size] = originalPointer;
+        compactedPointers[size] = compactedPointer;
+        size++;
+    }
+
+    /**
+     * Gets the pointer in the compacted record file
+     * @param originalPointer The pointer in the original record file
+     * @return The pointer in the compacted record file, -1 if the record was not copied
+     */
+    public long get(long originalPointer) {
+        int index = Arrays.binarySearch(originalPointers, 0, size, originalPointer);
+        return index >= 0 ? compactedPointers[index] : -1;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,81 @@
+package com.oberasoftware.jasdb.writer.transactional;
+
+import com.oberasoftware.jasdb.api.storage.CompactionReport;
+
+/**
+ * @author Renze de Vries
+ */
+public class CompactionProgress implements CompactionReport {
+    private volatile boolean running;
+    private volatile long lastCompaction;
+    private volatile long bytesTotal;
+    private volatile long bytesProcessed;
+    private volatile long recordsCopied;
+    private volatile long bytesReclaimed;
+
+    void start(long bytesTotal) {
+        this.running = true;
+        this.bytesTotal = bytesTotal;
+        this.bytesProcessed = 0;
+        this.recordsCopied = 0;
+        this.bytesReclaimed = 0;
+    }
+
+    void recordProcessed(long bytesProcessed, boolean copied) {
+        this.bytesProcessed = bytesProcessed;
+        if(copied) {
+            recordsCopied++;
+        }
+    }
+
+    void extend(long bytesTotal) {
+        this.bytesTotal = bytesTotal;
+    }
+
+    void finish(long bytesReclaimed) {
+        this.bytesReclaimed = bytesReclaimed;
+        this.bytesProcessed = bytesTotal;
+        this.lastCompaction = System.currentTimeMillis();
+        this.running = false;
+    }
+
+    void abort() {
+        this.running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public long getLastCompaction() {
+        return lastCompaction;
+    }
+
+    @Override
+    public int getProgress() {
+        long total = bytesTotal;
+        return total > 0 ? (int) Math.min(100, bytesProcessed * 100 / total) : 100;
+    }
+
+    @Override
+    public long getRecordsCopied() {
+        return recordsCopied;
+    }
+
+    @Override
+    public long getBytesReclaimed() {
+        return bytesReclaimed;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactionProgress{" +
+                "running=" + running +
+                ", progress=" + getProgress() +
+                ", recordsCopied=" + recordsCopied +
+                ", bytesReclaimed=" + bytesReclaimed +
+                '}';
+    }
+}
@@ -0,0 +1,140 @@
+package com.oberasoftware.jasdb.writer.transactional;
+
+import com.oberasoftware.jasdb.api.exceptions.DatastoreException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses the record contents using deflate with a configurable compression level. An optional preset
+ * dictionary can be given, the deflate stream stores the id of the dictionary it was written with so records
+ * written with or without the dictionary can both be read. Records written with an earlier dictionary are read
+ * by resolving their dictionary id against the known dictionaries.
+ *
+ * @author Renze de Vries
+ */
+public class DeflateRecordCodec implements RecordCodec {
+    public static final int CODEC_ID = 0;
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private final int level;
+    private final byte[] dictionary;
+    private final long dictionaryId;
+    private final Map<Long, byte[]> dictionaries;
+
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+    public DeflateRecordCodec() {
+        this(Deflater.DEFAULT_COMPRESSION, null);
+    }
+
+    public DeflateRecordCodec(int level, byte[] dictionary) {
+        this(level, dictionary, new HashMap<>());
+    }
+
+    /**
+     * @param level The deflate compression level
+     * @param dictionary The dictionary used to write records, null to write without dictionary
+     * @param knownDictionaries The dictionaries records might have been written with by their dictionary id
+     */
+    public DeflateRecordCodec(int level, byte[] dictionary, Map<Long, byte[]> knownDictionaries) {
+        this.level = level;
+        this.dictionary = dictionary;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level));
+        this.dictionaries = new HashMap<>(knownDictionaries);
+
+        if(dictionary != null) {
+            this.dictionaryId = getDictionaryId(dictionary);
+            this.dictionaries.put(dictionaryId, dictionary);
+        } else {
+            this.dictionaryId = -1;
+        }
+    }
+
+    /**
+     * The id of a dictionary as stored in the deflate stream
+     */
+    public static long getDictionaryId(byte[] dictionary) {
+        Adler32 adler = new Adler32();
+        adler.update(dictionary);
+        return adler.getValue();
+    }
+
+    @Override
+    public int getCodecId() {
+        return CODEC_ID;
+    }
+
+    @Override
+    public ByteBuffer encode(byte[] contents, int headerSpace) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        if(dictionary != null) {
+            deflater.setDictionary(dictionary);
+        }
+        deflater.setInput(contents);
+        deflater.finish();
+
+        byte[] output = new byte[headerSpace + Math.max(BUFFER_SIZE, contents.length / 2)];
+        int length = headerSpace;
+        while(!deflater.finished()) {
+            if(length == output.length) {
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+            length += deflater.deflate(output, length, output.length - length);
+        }
+
+        ByteBuffer record = ByteBuffer.wrap(output);
+        record.limit(length);
+        return record;
+    }
+
+    @Override
+    public byte[] decode(byte[] input, int offset, int length) throws DatastoreException {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(input, offset, length);
+
+        byte[] output = new byte[Math.max(BUFFER_SIZE, length * 4)];
+        int decoded = 0;
+        try {
+            while(!inflater.finished()) {
+                if(decoded == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                int bytesUncompressed = inflater.inflate(output, decoded, output.length - decoded);
+                if(bytesUncompressed == 0 && inflater.needsDictionary()) {
+                    byte[] recordDictionary = dictionaries.get(inflater.getAdler() & 0xFFFFFFFFL);
+                    if(recordDictionary != null) {
+                        inflater.setDictionary(recordDictionary);
+                    } else {
+                        throw new DatastoreException("Unable to inflate record, requires dictionary: " + inflater.getAdler() + " which is not configured");
+                    }
+                } else if(bytesUncompressed == 0 && !inflater.finished() && inflater.needsInput()) {
+                    throw new DatastoreException("Unable to inflate record, record data is incomplete");
+                }
+                decoded += bytesUncompressed;
+            }
+        } catch(DataFormatException e) {
+            throw new DatastoreException("Unable to deflate data store", e);
+        }
+
+        return decoded == output.length ? output : Arrays.copyOf(output, decoded);
+    }
+
+    @Override
+    public String toString() {
+        return "DeflateRecordCodec{" +
+                "level=" + level +
+                ", dictionaryId=" + dictionaryId +
+                '}';
+    }
+}
@@ -4,6 +4,7 @@ import com.oberasoftware.jasdb.api.exceptions.DatastoreException;
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import com.oberasoftware.jasdb.api.exceptions.RecordStoreInUseException;
 import com.oberasoftware.jasdb.api.exceptions.RecordNotFoundException;
+import com.oberasoftware.jasdb.api.storage.RecordIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,16 +15,21 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
-import java.util.zip.DataFormatException;
-import java.util.zip.Deflater;
-import java.util.zip.Inflater;
+import java.util.zip.CRC32;
 
 import static com.google.common.base.Preconditions.checkState;
 
@@ -33,31 +39,71 @@ import static com.google.common.base.Preconditions.checkState;
 public class FSWriter implements Writer {
     private static final Logger LOG = LoggerFactory.getLogger(FSWriter.class);
 
-    private static final int HEADER_SIZE = 64;
-    private static final String DATA_ENCODING = "UTF-8";
+    static final int HEADER_SIZE = 64;
+    private static final Charset DATA_ENCODING = StandardCharsets.UTF_8;
     private static final int LONG_BYTE_SIZE = Long.SIZE / Byte.SIZE;
     private static final int HEADER_RECORD_FLAG = LONG_BYTE_SIZE * 2;
     private static final int BUFFER_SIZE = 4096;
-    private final ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE);
 
     private static final long RECORD_VERSIONS = 1;
     private static final int LONGSIZE = LONG_BYTE_SIZE;
+    private static final int HEADER_SHUTDOWN = LONGSIZE * 3;
+    private static final int HEADER_RECLAIMABLE = LONGSIZE * 4;
+    private static final long CLEAN_SHUTDOWN = 1;
 
     private static final int RECORD_HEADER_SIZE = 20;
+    private static final int CHECKSUM_SIZE = Integer.BYTES;
     private static final int RESERVE_SPACE_PCT = 20;
+    private static final int RECORD_LOCK_STRIPES = 64;
+
+    private static final String ROLLBACK_EXTENSION = ".rollback";
+    private static final int ROLLBACK_ENTRY_HEADER = LONGSIZE + Integer.BYTES;
+    private static final long ROLLBACK_LOG_LIMIT = 1024 * 1024;
+
+    private static final ThreadLocal<byte[]> READ_BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
 
     private File recordLocation;
+    private File rollbackLocation;
     private FileLock fileLock;
     private FileChannel channel;
     private RandomAccessFile randomAccess;
+    private MappedSegments mappedSegments;
+    private RecordCodecs codecs;
 
     private Lock lock = new ReentrantLock();
 
     private long recordPosition = HEADER_SIZE;
     private AtomicLong recordCount = new AtomicLong(0);
+    private boolean cleanShutdown = false;
+
+    private final Object iteratorLock = new Object();
+    private int openIterators = 0;
+    private boolean retired = false;
+
+    private final WriterConfig writerConfig;
+    private final GroupCommitter groupCommitter;
+    private long commitTicket = 0;
+
+    private AtomicLong reclaimableSize = new AtomicLong(0);
+
+    private final StampedLock[] recordLocks = new StampedLock[RECORD_LOCK_STRIPES];
+    private volatile boolean inPlaceSuspended = false;
+
+    private FileChannel rollbackChannel;
+    private long rollbackPosition = 0;
 
     public FSWriter(File recordLocation) {
+        this(recordLocation, WriterConfig.getDefaultWriterConfig());
+    }
+
+    public FSWriter(File recordLocation, WriterConfig writerConfig) {
         this.recordLocation = recordLocation;
+        this.rollbackLocation = new File(recordLocation + ROLLBACK_EXTENSION);
+        this.writerConfig = writerConfig;
+        this.groupCommitter = new GroupCommitter(writerConfig, this::checkpoint);
+        for(int i=0; i<RECORD_LOCK_STRIPES; i++) {
+            recordLocks[i] = new StampedLock();
+        }
     }
 
     @Override
@@ -66,6 +112,7 @@ public class FSWriter implements Writer {
             File parentDir = recordLocation.getParentFile();
             checkState(parentDir.exists() || parentDir.mkdirs());
 
+            this.codecs = RecordCodecs.createCodecs(writerConfig, RecordCodecs.getDictionaryLocation(recordLocation));
             this.randomAccess = new RandomAccessFile(recordLocation, "rw");
             this.channel = randomAccess.getChannel();
             LOG.debug("Acquiring exclusive file lock on: {}", recordLocation);
@@ -74,11 +121,16 @@ public class FSWriter implements Writer {
                 LOG.debug("Got an exclusive lock on: {}", recordLocation);
                 if(channel.size() > 0) {
                     loadHeader();
+                    rollbackInterruptedRewrites();
+                    recoverRecords();
                 } else {
                     recordCount = new AtomicLong(0);
                     recordPosition = HEADER_SIZE;
-
-                    writeHeader();
+                }
+                //the header is marked clean again when the writer is closed, this detects an unclean shutdown
+                writeHeader(recordCount.get(), recordPosition, false);
+                if(writerConfig.isMappedReads()) {
+                    this.mappedSegments = new MappedSegments(channel);
                 }
             } else {
                 throw new RecordStoreInUseException("Record datastore: " + recordLocation + " is already in use, cannot be opened");
@@ -100,8 +152,17 @@ public class FSWriter implements Writer {
         try {
             if(channel != null) {
                 if(this.fileLock != null) {
+                    checkpoint();
+                    channel.force(false);
+                    clearRollbackLog();
+                    writeHeader(recordCount.get(), recordPosition, true);
+                    channel.force(false);
                     this.fileLock.release();
                 }
+                if(mappedSegments != null) {
+                    mappedSegments.release();
+                    mappedSegments = null;
+                }
                 this.channel.close();
                 this.randomAccess.close();
                 this.channel = null;
@@ -112,30 +173,31 @@ public class FSWriter implements Writer {
         }
     }
 
-    private void writeHeader() throws DatastoreException {
-        lock.lock();
+    private void writeHeader(long count, long position, boolean clean) throws DatastoreException {
         try {
-            headerBuffer.clear();
+            ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE);
             headerBuffer.putLong(0, RECORD_VERSIONS);
-            headerBuffer.putLong(LONGSIZE, recordCount.get());
-            headerBuffer.putLong(LONGSIZE + LONGSIZE, recordPosition);
+            headerBuffer.putLong(LONGSIZE, count);
+            headerBuffer.putLong(LONGSIZE + LONGSIZE, position);
+            headerBuffer.putLong(HEADER_SHUTDOWN, clean ? CLEAN_SHUTDOWN : 0);
+            headerBuffer.putLong(HEADER_RECLAIMABLE, reclaimableSize.get());
             channel.write(headerBuffer, 0);
         } catch(IOException e) {
             throw new DatastoreException("Unable to write header information", e);
-        } finally {
-            lock.unlock();
         }
     }
 
     private void loadHeader() throws DatastoreException {
         lock.lock();
         try {
-            headerBuffer.clear();
+            ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE);
             int bytesRead = channel.read(headerBuffer, 0);
             if(bytesRead == HEADER_SIZE) {
                 long version = headerBuffer.getLong(0);
                 recordCount.set(headerBuffer.getLong(LONGSIZE));
                 recordPosition = headerBuffer.getLong(LONGSIZE + LONGSIZE);
+                cleanShutdown = headerBuffer.getLong(HEADER_SHUTDOWN) == CLEAN_SHUTDOWN;
+                reclaimableSize.set(headerBuffer.getLong(HEADER_RECLAIMABLE));
                 if(version != RECORD_VERSIONS) {
                     throw new DatastoreException("Record version not supported");
                 }
@@ -151,14 +213,148 @@ public class FSWriter implements Writer {
         }
     }
 
-    private void incrementRecordCount() throws DatastoreException {
-        recordCount.incrementAndGet();
-        writeHeader();
+    /**
+     * Rolls forward all records that were written after the last header checkpoint, stops at the first record
+     * that was not completely written and truncates the file from there. When the writer was not closed cleanly
+     * the records and reclaimable space are counted again, records removed or relocated after the last checkpoint
+     * are only flagged in their own header.
+     */
+    private void recoverRecords() throws DatastoreException {
+        try {
+            long fileSize = channel.size();
+            long position = recordPosition;
+            long recovered = 0;
+
+            ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            while(position + RECORD_HEADER_SIZE <= fileSize) {
+                recordHeader.clear();
+                channel.read(recordHeader, position);
+                long recordSize = recordHeader.getLong(0);
+                long extraSpace = recordHeader.getLong(LONG_BYTE_SIZE);
+                int intFlag = recordHeader.getInt(HEADER_RECORD_FLAG);
+                int recordFlag = RecordCodecs.getRecordFlag(intFlag);
+
+                long dataPosition = position + RECORD_HEADER_SIZE;
+                if(recordSize <= 0 || extraSpace < 0 || dataPosition + recordSize > fileSize
+                        || recordFlag < RECORD_FLAG.ACTIVE.getFlag() || recordFlag > RECORD_FLAG.UPDATED.getFlag()
+                        || !isIntact(dataPosition, recordSize, intFlag)) {
+                    break;
+                }
+
+                if(RECORD_FLAG.getRecordFlag(recordFlag) == RECORD_FLAG.ACTIVE) {
+                    recovered++;
+                }
+                position = dataPosition + recordSize + extraSpace;
+            }
+
+            if(position != recordPosition || fileSize > position) {
+                LOG.info("Recovered {} records written after last checkpoint in: {}", recovered, recordLocation);
+                if(fileSize > position) {
+                    channel.truncate(position);
+                }
+
+                recordPosition = position;
+                recordCount.addAndGet(recovered);
+                channel.force(false);
+            }
+
+            if(!cleanShutdown || recovered > 0) {
+                countRecords();
+            }
+        } catch(IOException e) {
+            throw new DatastoreException("Unable to recover records after last checkpoint", e);
+        }
+    }
+
+    /**
+     * Counts the active records and the space of removed and relocated records by following the record headers
+     * up to the record position
+     */
+    private void countRecords() throws IOException {
+        long count = 0;
+        long reclaimable = 0;
+        long position = HEADER_SIZE;
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while(position + RECORD_HEADER_SIZE <= recordPosition) {
+            recordHeader.clear();
+            channel.read(recordHeader, position);
+            long recordSize = recordHeader.getLong(0);
+            long extraSpace = recordHeader.getLong(LONG_BYTE_SIZE);
+            if(recordSize <= 0 || extraSpace < 0) {
+                LOG.warn("Invalid record header at position: {} in: {}, stopped counting records", position, recordLocation);
+                break;
+            }
+
+            if(RECORD_FLAG.getRecordFlag(RecordCodecs.getRecordFlag(recordHeader.getInt(HEADER_RECORD_FLAG))) == RECORD_FLAG.ACTIVE) {
+                count++;
+            } else {
+                reclaimable += RECORD_HEADER_SIZE + recordSize + extraSpace;
+            }
+            position += RECORD_HEADER_SIZE + recordSize + extraSpace;
+        }
+
+        if(count != recordCount.get() || reclaimable != reclaimableSize.get()) {
+            LOG.info("Corrected record count from: {} to: {} and reclaimable bytes from: {} to: {} after unclean shutdown of: {}",
+                    recordCount.get(), count, reclaimableSize.get(), reclaimable, recordLocation);
+            recordCount.set(count);
+            reclaimableSize.set(reclaimable);
+        }
+    }
+
+    private boolean isIntact(long dataPosition, long recordSize, int headerFlag) throws IOException {
+        ByteBuffer recordData = ByteBuffer.allocate((int) recordSize);
+        while(recordData.hasRemaining() && channel.read(recordData, dataPosition + recordData.position()) != -1) {
+            LOG.trace("Reading record for recovery: {}", dataPosition);
+        }
+
+        try {
+            recordData.flip();
+            decodeRecord(recordData, recordSize, headerFlag);
+            return true;
+        } catch(DatastoreException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Makes all changes durable and checkpoints the header, this is executed by the leader of a group commit.
+     * @return The commit ticket up to which all changes are durable
+     */
+    private long checkpoint() throws DatastoreException {
+        long ticket;
+        long count;
+        long position;
+        lock.lock();
+        try {
+            ticket = commitTicket;
+            count = recordCount.get();
+            position = recordPosition;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            if(writerConfig.isSync()) {
+                channel.force(false);
+            }
+            writeHeader(count, position, false);
+        } catch(IOException e) {
+            throw new DatastoreException("Unable to commit records to storage", e);
+        }
+
+        return ticket;
     }
 
-    private void decrementRecordCount() throws DatastoreException {
-        recordCount.decrementAndGet();
-        writeHeader();
+    @Override
+    public void flush() throws DatastoreException {
+        long ticket;
+        lock.lock();
+        try {
+            ticket = ++commitTicket;
+        } finally {
+            lock.unlock();
+        }
+        groupCommitter.awaitCommit(ticket);
     }
 
     @Override
@@ -185,57 +381,114 @@ public class FSWriter implements Writer {
         return new RecordIteratorImpl(this, HEADER_SIZE, limit);
     }
 
+    /**
+     * Splits the records into segments of roughly equal size on disk, the boundaries of the segments are found by
+     * following the record headers so the records do not need to be read. The last segment also contains the
+     * records written after the segments were created.
+     */
     @Override
-    public RecordResultImpl readRecord(Supplier<Optional<Long>> recordPointerSupplier) throws DatastoreException {
-        try {
-            long recordPosition = recordPointerSupplier.get().orElseThrow(() -> new RecordNotFoundException("Unable to read record, could not be found"));
-            LOG.debug("Reading record at position: {}", recordPosition);
+    public List<RecordIterator> readRecordSegments(int segments) throws DatastoreException {
+        long endPosition = getRecordPosition();
+        long segmentSize = Math.max(1, (endPosition - HEADER_SIZE) / Math.max(1, segments));
 
-            ByteBuffer recordPointer = ByteBuffer.allocate(RECORD_HEADER_SIZE);
-            int read = channel.read(recordPointer, recordPosition);
-            long currentPosition = recordPosition + RECORD_HEADER_SIZE;
+        List<RecordIterator> recordSegments = new ArrayList<>(segments);
+        long segmentStart = HEADER_SIZE;
+        long position = HEADER_SIZE;
+        while(recordSegments.size() < segments - 1 && position < endPosition) {
+            long recordSpan = readRecordSpan(position);
+            if(recordSpan <= 0) {
+                break;
+            }
 
-            if(read != -1) {
-                long recordSize = recordPointer.getLong(0);
-                long extraSpace = recordPointer.getLong(LONG_BYTE_SIZE);
-                int intFlag = recordPointer.getInt(HEADER_RECORD_FLAG);
-                RECORD_FLAG flag = RECORD_FLAG.getRecordFlag(intFlag);
-                if(flag == RECORD_FLAG.ACTIVE || flag == RECORD_FLAG.UPDATED) {
-                    long endRecord = currentPosition + recordSize;
+            position += recordSpan;
+            if(position - segmentStart >= segmentSize && position < endPosition) {
+                recordSegments.add(new RecordIteratorImpl(this, segmentStart, position, -1));
+                segmentStart = position;
+            }
+        }
+        recordSegments.add(new RecordIteratorImpl(this, segmentStart, RecordIteratorImpl.NO_END, -1));
 
-                    LOG.trace("Record size: {}", recordSize);
-                    LOG.trace("End of record: {}", endRecord);
+        return recordSegments;
+    }
+
+    /**
+     * Reads the space taken by the record at the given position from its header, this includes the header and the
+     * space reserved for the record. Rewriting a record in place keeps its space the same.
+     * @return The space of the record, -1 if there is no record at the position
+     */
+    private long readRecordSpan(long recordPosition) throws DatastoreException {
+        StampedLock recordLock = getRecordLock(recordPosition);
+        long stamp = recordLock.readLock();
+        try {
+            ByteBuffer recordHeader = readRegion(recordPosition, RECORD_HEADER_SIZE);
+            if(recordHeader != null) {
+                int headerStart = recordHeader.position();
+                return recordHeader.getLong(headerStart) + recordHeader.getLong(headerStart + LONG_BYTE_SIZE) + RECORD_HEADER_SIZE;
+            }
+            return -1;
+        } catch(IOException e) {
+            throw new DatastoreException("Unable to read record header at position: " + recordPosition, e);
+        } finally {
+            recordLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public RecordResultImpl readRecord(Supplier<Optional<Long>> recordPointerSupplier) throws DatastoreException {
+        long recordPosition = recordPointerSupplier.get().orElseThrow(() -> new RecordNotFoundException("Unable to read record, could not be found"));
 
-                    Inflater inflater = new Inflater();
-                    StringBuilder outputBuffer = new StringBuilder();
+        //records can be rewritten in place, the read is validated against the record lock and retried if it raced
+        StampedLock recordLock = getRecordLock(recordPosition);
+        long stamp = recordLock.tryOptimisticRead();
+        if(stamp != 0) {
+            try {
+                RecordResultImpl result = readRecord(recordPosition);
+                if(recordLock.validate(stamp)) {
+                    return result;
+                }
+            } catch(DatastoreException | RuntimeException e) {
+                if(recordLock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
 
-                    ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
-                    while(currentPosition < endRecord) {
-                        readBuffer.clear();
+        stamp = recordLock.readLock();
+        try {
+            return readRecord(recordPosition);
+        } finally {
+            recordLock.unlockRead(stamp);
+        }
+    }
 
-                        int readBytes = channel.read(readBuffer, currentPosition);
-                        currentPosition += readBytes;
-                        LOG.trace("Reading record, current position: {}", currentPosition);
+    private StampedLock getRecordLock(long recordPosition) {
+        return recordLocks[(int) ((recordPosition ^ (recordPosition >>> 17)) & (RECORD_LOCK_STRIPES - 1))];
+    }
 
-                        byte[] readInput = readBuffer.array();
-                        inflater.setInput(readInput);
+    private RecordResultImpl readRecord(long recordPosition) throws DatastoreException {
+        try {
+            LOG.debug("Reading record at position: {}", recordPosition);
 
-                        byte[] buffer = new byte[BUFFER_SIZE];
-                        while(!inflater.needsInput() && !inflater.finished()) {
+            ByteBuffer recordHeader = readRegion(recordPosition, RECORD_HEADER_SIZE);
+            if(recordHeader != null) {
+                int headerStart = recordHeader.position();
+                long recordSize = recordHeader.getLong(headerStart);
+                long extraSpace = recordHeader.getLong(headerStart + LONG_BYTE_SIZE);
+                int intFlag = recordHeader.getInt(headerStart + HEADER_RECORD_FLAG);
+                RECORD_FLAG flag = RECORD_FLAG.getRecordFlag(RecordCodecs.getRecordFlag(intFlag));
+                if(flag == RECORD_FLAG.ACTIVE || flag == RECORD_FLAG.UPDATED) {
+                    LOG.trace("Record size: {}", recordSize);
 
-                            try {
-                                int bytesUncompressed = inflater.inflate(buffer);
-                                outputBuffer.append(new String(buffer, 0, bytesUncompressed, DATA_ENCODING));
-                            } catch(DataFormatException e) {
-                                throw new DatastoreException("Unable to deflate data store", e);
-                            }
-                        }
+                    ByteBuffer recordData = readRegion(recordPosition + RECORD_HEADER_SIZE, (int) recordSize);
+                    if(recordData == null) {
+                        throw new DatastoreException("Unable to read record at position: " + recordPosition + ", record is incomplete");
                     }
-                    inflater.end();
-
-                    LOG.trace("Record contents: {}", outputBuffer.toString());
 
-                    return new RecordResultImpl(recordPosition, outputBuffer.toString(), recordSize + extraSpace + RECORD_HEADER_SIZE, flag);
+                    try {
+                        return new RecordResultImpl(recordPosition, decodeRecord(recordData, recordSize, intFlag), recordSize + extraSpace + RECORD_HEADER_SIZE, flag);
+                    } catch(DatastoreException e) {
+                        throw new DatastoreException("Unable to read record at position: " + recordPosition + ", " + e.getMessage(), e);
+                    }
                 } else {
                     return new RecordResultImpl(recordPosition, null, recordSize + extraSpace + RECORD_HEADER_SIZE, flag);
                 }
@@ -247,77 +500,331 @@ public class FSWriter implements Writer {
         }
     }
 
+    /**
+     * Reads a region of the record file, this is served from the mapped segments when possible and otherwise
+     * read through the file channel.
+     * @return The buffer positioned at the start of the region, null if the region is beyond the end of the file
+     */
+    private ByteBuffer readRegion(long position, int length) throws IOException {
+        if(mappedSegments != null) {
+            ByteBuffer slice = mappedSegments.slice(position, length);
+            if(slice != null) {
+                return slice;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position()) == -1) {
+                return null;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes the record data, records written with a checksum are verified first so a torn in place rewrite is
+     * detected instead of being decoded into corrupt contents.
+     */
+    private byte[] decodeRecord(ByteBuffer recordData, long recordSize, int headerFlag) throws DatastoreException {
+        if(RecordCodecs.hasChecksum(headerFlag)) {
+            if(recordData.remaining() < CHECKSUM_SIZE) {
+                throw new DatastoreException("record is too small to contain a checksum");
+            }
+            int checksumPosition = recordData.limit() - CHECKSUM_SIZE;
+            int storedChecksum = recordData.getInt(checksumPosition);
+            recordData = recordData.duplicate();
+            recordData.limit(checksumPosition);
+            if(storedChecksum != checksum(recordSize, recordData)) {
+                throw new DatastoreException("record checksum does not match, record is corrupt");
+            }
+        }
+
+        int compressedSize = recordData.remaining();
+        byte[] input;
+        int inputOffset;
+        if(recordData.hasArray()) {
+            input = recordData.array();
+            inputOffset = recordData.arrayOffset() + recordData.position();
+        } else {
+            input = getReadBuffer(compressedSize);
+            inputOffset = 0;
+            recordData.get(input, 0, compressedSize);
+        }
+
+        return codecs.getCodec(headerFlag).decode(input, inputOffset, compressedSize);
+    }
+
+    private static int checksum(long recordSize, ByteBuffer recordData) {
+        CRC32 crc = new CRC32();
+        for(int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            crc.update((int) (recordSize >>> shift));
+        }
+        crc.update(recordData.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static byte[] getReadBuffer(int size) {
+        byte[] readBuffer = READ_BUFFERS.get();
+        if(readBuffer.length < size) {
+            readBuffer = new byte[Math.max(size, readBuffer.length * 2)];
+            READ_BUFFERS.set(readBuffer);
+        }
+        return readBuffer;
+    }
+
     @Override
     public Long writeRecord(String recordContents, Consumer<Long> postAction) throws DatastoreException {
+        ByteBuffer record = encodeRecord(recordContents);
+
+        long recordStart;
+        long ticket;
+        lock.lock();
         try {
-            lock.lock();
-            try {
-                long recordStart = recordPosition; //channel.position();
-                long currentPosition = recordStart + RECORD_HEADER_SIZE;
-
-                LOG.debug("Record start: {}", recordStart);
-                Deflater compresser = new Deflater();
-                compresser.setInput(recordContents.getBytes(DATA_ENCODING));
-                compresser.finish();
-
-                byte[] buffer = new byte[1024];
-                while(!compresser.finished()) {
-                    int nrBytes = compresser.deflate(buffer);
-                    ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, nrBytes);
-                    channel.write(byteBuffer, currentPosition);
-                    currentPosition += nrBytes;
+            recordStart = appendRecord(record);
+            ticket = ++commitTicket;
+        } finally {
+            lock.unlock();
+        }
+        groupCommitter.awaitCommit(ticket);
+
+        if(postAction != null) {
+            LOG.debug("Executing post write operation for point: {}", recordStart);
+            postAction.accept(recordStart);
+        }
+
+        return recordStart;
+    }
+
+    /**
+     * Writes a batch of records with a single append under the writer lock, the batch shares a single commit
+     * @return The record pointers in the order of the record contents
+     */
+    @Override
+    public List<Long> writeRecords(List<String> recordContents, Consumer<List<Long>> postAction) throws DatastoreException {
+        List<ByteBuffer> records = new ArrayList<>(recordContents.size());
+        for(String contents : recordContents) {
+            records.add(encodeRecord(contents));
+        }
+
+        List<Long> recordPointers = new ArrayList<>(records.size());
+        long ticket;
+        lock.lock();
+        try {
+            for(ByteBuffer record : records) {
+                recordPointers.add(appendRecord(record));
+            }
+            ticket = ++commitTicket;
+        } finally {
+            lock.unlock();
+        }
+        groupCommitter.awaitCommit(ticket);
+
+        if(postAction != null) {
+            postAction.accept(recordPointers);
+        }
+
+        return recordPointers;
+    }
+
+    /**
+     * Compresses the record contents, prepends the record header and appends a checksum of the record size and
+     * contents, this is done before acquiring the writer lock so concurrent writers only serialize on the actual
+     * file append.
+     */
+    private ByteBuffer encodeRecord(String recordContents) throws DatastoreException {
+        byte[] contents = recordContents.getBytes(DATA_ENCODING);
+        RecordCodec codec = codecs.getWriteCodec();
+        ByteBuffer encoded = codec.encode(contents, RECORD_HEADER_SIZE);
+
+        int encodedEnd = encoded.limit();
+        ByteBuffer record = ByteBuffer.allocate(encodedEnd + CHECKSUM_SIZE);
+        record.put(encoded).clear();
+
+        long bytesWritten = record.limit() - RECORD_HEADER_SIZE;
+        long extraSpace = (long)(bytesWritten * ((double)RESERVE_SPACE_PCT / 100.0));
+
+        LOG.debug("Encoded record of {} Bytes", bytesWritten);
+        record.putLong(0, bytesWritten);
+        record.putLong(LONG_BYTE_SIZE, extraSpace);
+        record.putInt(HEADER_RECORD_FLAG, RecordCodecs.withChecksum(RecordCodecs.toHeaderFlag(RECORD_FLAG.ACTIVE, codec.getCodecId())));
+
+        ByteBuffer recordData = record.duplicate();
+        recordData.position(RECORD_HEADER_SIZE).limit(encodedEnd);
+        record.putInt(encodedEnd, checksum(bytesWritten, recordData));
+        return record;
+    }
+
+    /**
+     * Appends an encoded record at the end of the record file, needs to be called while holding the writer lock
+     */
+    private long appendRecord(ByteBuffer record) throws DatastoreException {
+        try {
+            long recordStart = recordPosition;
+            LOG.debug("Record start: {}", recordStart);
+
+            long extraSpace = record.getLong(record.position() + LONG_BYTE_SIZE);
+            long currentPosition = recordStart;
+            while(record.hasRemaining()) {
+                currentPosition += channel.write(record, currentPosition);
+            }
+            recordPosition = currentPosition + extraSpace;
+            recordCount.incrementAndGet();
+
+            return recordStart;
+        } catch(IOException e) {
+            throw new DatastoreException("Unable to store record to storage", e);
+        }
+    }
+
+    @Override
+    public long writeRawRecord(ByteBuffer record) throws DatastoreException {
+        lock.lock();
+        try {
+            long recordStart = appendRecord(record);
+            commitTicket++;
+            return recordStart;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long copyRecords(long fromPosition, long toPosition, Writer target, CompactionMapping mapping, CompactionProgress progress) throws DatastoreException {
+        long position = fromPosition;
+        try {
+            while(position < toPosition) {
+                ByteBuffer recordHeader = readRegion(position, RECORD_HEADER_SIZE);
+                if(recordHeader == null) {
+                    break;
                 }
-                long bytesWritten = compresser.getBytesWritten();
-                long extraSpace = (long)(bytesWritten * ((double)RESERVE_SPACE_PCT / 100.0));
-                compresser.end();
-
-                LOG.debug("Writing {} Bytes", bytesWritten);
-                ByteBuffer recordLength = ByteBuffer.allocate(RECORD_HEADER_SIZE);
-                recordLength = recordLength.putLong(0, bytesWritten);
-                recordLength = recordLength.putLong(LONG_BYTE_SIZE, extraSpace);
-                recordLength = recordLength.putInt(HEADER_RECORD_FLAG, RECORD_FLAG.ACTIVE.getFlag());
-                channel.write(recordLength, recordStart);
-                recordPosition = (currentPosition + extraSpace);
-
-                incrementRecordCount();
-
-                if(postAction != null) {
-                    LOG.debug("Executing post write operation for point: {}", recordStart);
-                    postAction.accept(recordStart);
+                int headerStart = recordHeader.position();
+                long recordSize = recordHeader.getLong(headerStart);
+                long extraSpace = recordHeader.getLong(headerStart + LONG_BYTE_SIZE);
+                int intFlag = recordHeader.getInt(headerStart + HEADER_RECORD_FLAG);
+                RECORD_FLAG flag = RECORD_FLAG.getRecordFlag(RecordCodecs.getRecordFlag(intFlag));
+                if(recordSize <= 0) {
+                    break;
+                }
+
+                boolean copied = false;
+                if(flag == RECORD_FLAG.ACTIVE) {
+                    ByteBuffer record = readRegion(position, RECORD_HEADER_SIZE + (int) recordSize);
+                    if(record != null) {
+                        ByteBuffer recordCopy = ByteBuffer.allocate(record.remaining());
+                        recordCopy.put(record);
+                        recordCopy.flip();
+                        recordCopy.putInt(HEADER_RECORD_FLAG, RecordCodecs.withRecordFlag(intFlag, RECORD_FLAG.ACTIVE));
+
+                        mapping.add(position, target.writeRawRecord(recordCopy));
+                        copied = true;
+                    }
                 }
 
-                return recordStart;
-            } finally {
-                lock.unlock();
+                position += RECORD_HEADER_SIZE + recordSize + extraSpace;
+                progress.recordProcessed(position, copied);
             }
+            return position;
         } catch(IOException e) {
-            throw new DatastoreException("Unable to store record to storage", e);
+            throw new DatastoreException("Unable to copy records at position: " + position, e);
         }
     }
 
+    @Override
+    public long getRecordPosition() {
+        lock.lock();
+        try {
+            return recordPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void acquireIterator() {
+        synchronized(iteratorLock) {
+            openIterators++;
+        }
+    }
+
+    @Override
+    public void releaseIterator() throws JasDBStorageException {
+        boolean close;
+        synchronized(iteratorLock) {
+            openIterators--;
+            close = retired && openIterators == 0;
+        }
+        if(close) {
+            LOG.debug("Closing retired writer: {} after last iterator was released", recordLocation);
+            closeWriter();
+        }
+    }
+
+    @Override
+    public void retireWriter() throws JasDBStorageException {
+        synchronized(iteratorLock) {
+            retired = true;
+            if(openIterators > 0) {
+                LOG.debug("Deferring close of retired writer: {} until {} iterators are released", recordLocation, openIterators);
+                return;
+            }
+        }
+        closeWriter();
+    }
+
+    @Override
+    public long getReclaimableSize() {
+        return reclaimableSize.get();
+    }
+
     @Override
     public void removeRecord(Supplier<Optional<Long>> recordPointerSupplier, Consumer<Long> postRemoveAction) throws DatastoreException {
+        long recordPointer;
+        long ticket;
         lock.lock();
         try {
-            long recordPointer = recordPointerSupplier.get().orElseThrow(() -> new RecordNotFoundException("Unable to remove record, could not be found"));
+            recordPointer = recordPointerSupplier.get().orElseThrow(() -> new RecordNotFoundException("Unable to remove record, could not be found"));
 
             ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
             int read = channel.read(recordHeader, recordPointer);
             if(read != -1) {
-                recordHeader.putInt(HEADER_RECORD_FLAG, RECORD_FLAG.DELETED.getFlag());
+                recordHeader.putInt(HEADER_RECORD_FLAG, RecordCodecs.withRecordFlag(recordHeader.getInt(HEADER_RECORD_FLAG), RECORD_FLAG.DELETED));
                 recordHeader.flip();
                 channel.write(recordHeader, recordPointer);
 
                 LOG.debug("Flagged record: {}  for deletion", recordPointer);
-                decrementRecordCount();
+                recordCount.decrementAndGet();
+                reclaimableSize.addAndGet(RECORD_HEADER_SIZE + recordHeader.getLong(0) + recordHeader.getLong(LONG_BYTE_SIZE));
             }
+            ticket = ++commitTicket;
+        } catch(IOException e) {
+            LOG.error("Unable to remove record from storage", e);
+            return;
+        } finally {
+            lock.unlock();
+        }
+        groupCommitter.awaitCommit(ticket);
 
-            if(postRemoveAction != null) {
-                LOG.debug("Executing post remove action for record: {}", recordPointer);
-                postRemoveAction.accept(recordPointer);
+        if(postRemoveAction != null) {
+            LOG.debug("Executing post remove action for record: {}", recordPointer);
+            postRemoveAction.accept(recordPointer);
+        }
+    }
+
+    @Override
+    public void suspendInPlaceUpdates(boolean suspend) throws DatastoreException {
+        this.inPlaceSuspended = suspend;
+
+        //wait for any in place rewrite that started before the suspension, the rollback log of these rewrites is
+        //cleared so it cannot be applied to a compacted record file that replaces this one
+        lock.lock();
+        try {
+            if(suspend) {
+                clearRollbackLog();
             }
         } catch(IOException e) {
-            LOG.error("Unable to remove record from storage", e);
+            throw new DatastoreException("Unable to clear rollback log of: " + recordLocation, e);
         } finally {
             lock.unlock();
         }
@@ -325,10 +832,14 @@ public class FSWriter implements Writer {
 
     @Override
     public Long updateRecord(String recordContents, Supplier<Optional<Long>> recordPointerSupplier, BiConsumer<Long, Long> postUpdateAction) throws DatastoreException {
+        ByteBuffer record = encodeRecord(recordContents);
+
+        long recordPointer;
+        long updatedRecordPointer;
+        long ticket;
         lock.lock();
         try {
-            long recordPointer = recordPointerSupplier.get().orElseThrow(() -> new RecordNotFoundException("Record not Found, cannot update"));
-            long updatedRecordPointer;
+            recordPointer = recordPointerSupplier.get().orElseThrow(() -> new RecordNotFoundException("Record not Found, cannot update"));
 
             LOG.debug("Starting record update: {}", recordPointer);
             ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
@@ -336,30 +847,184 @@ public class FSWriter implements Writer {
             if(read != -1) {
                 long recordSize = recordHeader.getLong(0);
                 long reservedSpace = recordHeader.getLong(LONG_BYTE_SIZE);
-                ByteBuffer recordLength = ByteBuffer.allocate(RECORD_HEADER_SIZE);
-                recordLength = recordLength.putLong(0, recordSize);
-                recordLength = recordLength.putLong(LONG_BYTE_SIZE, reservedSpace);
-                recordLength = recordLength.putInt(HEADER_RECORD_FLAG, RECORD_FLAG.UPDATED.getFlag());
-                channel.write(recordLength, recordPointer);
+                long updatedSize = record.getLong(0);
 
-                recordCount.decrementAndGet();
+                if(writerConfig.isInPlaceUpdates() && !inPlaceSuspended && updatedSize <= recordSize + reservedSpace) {
+                    LOG.debug("Record update for: {} fits in reserved space, rewriting in place", recordPointer);
+                    record.putLong(LONG_BYTE_SIZE, recordSize + reservedSpace - updatedSize);
+                    rewriteRecord(record, recordPointer);
+                    updatedRecordPointer = recordPointer;
+                } else {
+                    ByteBuffer recordLength = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+                    recordLength = recordLength.putLong(0, recordSize);
+                    recordLength = recordLength.putLong(LONG_BYTE_SIZE, reservedSpace);
+                    recordLength = recordLength.putInt(HEADER_RECORD_FLAG, RecordCodecs.withRecordFlag(recordHeader.getInt(HEADER_RECORD_FLAG), RECORD_FLAG.UPDATED));
+                    channel.write(recordLength, recordPointer);
 
-                updatedRecordPointer = writeRecord(recordContents, null);
+                    recordCount.decrementAndGet();
+                    reclaimableSize.addAndGet(RECORD_HEADER_SIZE + recordSize + reservedSpace);
+                    updatedRecordPointer = appendRecord(record);
+                }
             } else {
                 LOG.debug("Record update for: {} not possible, reinstering at new position", recordPointer);
-                updatedRecordPointer = writeRecord(recordContents, null);
-            }
-
-            if(postUpdateAction != null) {
-                LOG.debug("Executing post record writer update action old pointer: {} new pointer: {}", recordPointer, updatedRecordPointer);
-                postUpdateAction.accept(recordPointer, updatedRecordPointer);
+                updatedRecordPointer = appendRecord(record);
             }
-
-            return updatedRecordPointer;
+            ticket = ++commitTicket;
         } catch(IOException e) {
             throw new DatastoreException("Unable to read/write to storage", e);
         } finally {
             lock.unlock();
         }
+        groupCommitter.awaitCommit(ticket);
+
+        if(postUpdateAction != null) {
+            LOG.debug("Executing post record writer update action old pointer: {} new pointer: {}", recordPointer, updatedRecordPointer);
+            postUpdateAction.accept(recordPointer, updatedRecordPointer);
+        }
+
+        return updatedRecordPointer;
+    }
+
+    /**
+     * Overwrites an existing record with an encoded record that fits in its space, needs to be called while
+     * holding the writer lock. Concurrent readers of the record are excluded through the record lock. The
+     * previous image of the overwritten region is logged first, a rewrite interrupted by a crash is detected by
+     * the record checksum and rolled back when the writer is opened again.
+     */
+    private void rewriteRecord(ByteBuffer record, long recordPointer) throws IOException {
+        logPreviousImage(recordPointer, record.limit());
+
+        StampedLock recordLock = getRecordLock(recordPointer);
+        long stamp = recordLock.writeLock();
+        try {
+            ByteBuffer recordData = record.duplicate();
+            recordData.position(RECORD_HEADER_SIZE);
+            long currentPosition = recordPointer + RECORD_HEADER_SIZE;
+            while(recordData.hasRemaining()) {
+                currentPosition += channel.write(recordData, currentPosition);
+            }
+
+            ByteBuffer recordHeader = record.duplicate();
+            recordHeader.limit(RECORD_HEADER_SIZE);
+            currentPosition = recordPointer;
+            while(recordHeader.hasRemaining()) {
+                currentPosition += channel.write(recordHeader, currentPosition);
+            }
+        } finally {
+            recordLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Appends the current contents of the region that is about to be rewritten to the rollback log, needs to be
+     * called while holding the writer lock. The log is started over once all rewrites in it are durable.
+     */
+    private void logPreviousImage(long recordPointer, int length) throws IOException {
+        if(rollbackPosition > ROLLBACK_LOG_LIMIT) {
+            clearRollbackLog();
+        }
+        if(rollbackChannel == null) {
+            rollbackChannel = FileChannel.open(rollbackLocation.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            rollbackPosition = 0;
+        }
+
+        //the reserved space of the last record is not written yet, that part of the image is left empty
+        ByteBuffer entry = ByteBuffer.allocate(ROLLBACK_ENTRY_HEADER + length);
+        entry.putLong(recordPointer).putInt(length);
+        while(entry.hasRemaining() && channel.read(entry, recordPointer + entry.position() - ROLLBACK_ENTRY_HEADER) != -1) {
+            LOG.trace("Reading previous image of record: {}", recordPointer);
+        }
+        entry.clear();
+
+        while(entry.hasRemaining()) {
+            rollbackPosition += rollbackChannel.write(entry, rollbackPosition);
+        }
+        if(writerConfig.isSync()) {
+            rollbackChannel.force(false);
+        }
+    }
+
+    /**
+     * Makes all rewrites durable and removes the rollback log, needs to be called while holding the writer lock
+     */
+    private void clearRollbackLog() throws IOException {
+        if(rollbackChannel != null) {
+            if(writerConfig.isSync()) {
+                channel.force(false);
+            }
+            rollbackChannel.close();
+            rollbackChannel = null;
+            rollbackPosition = 0;
+            Files.deleteIfExists(rollbackLocation.toPath());
+        }
+    }
+
+    /**
+     * Restores the previous image of records of which the in place rewrite was interrupted. The rollback log is
+     * applied from the last entry to the first, a record that is intact again is left as is. An incomplete entry
+     * at the end of the log was written before its rewrite started and is ignored.
+     */
+    private void rollbackInterruptedRewrites() throws IOException {
+        if(!rollbackLocation.exists()) {
+            return;
+        }
+
+        List<ByteBuffer> entries = new ArrayList<>();
+        try(FileChannel rollbackLog = FileChannel.open(rollbackLocation.toPath(), StandardOpenOption.READ)) {
+            long logSize = rollbackLog.size();
+            long position = 0;
+            ByteBuffer entryHeader = ByteBuffer.allocate(ROLLBACK_ENTRY_HEADER);
+            while(position + ROLLBACK_ENTRY_HEADER <= logSize) {
+                entryHeader.clear();
+                rollbackLog.read(entryHeader, position);
+                int length = entryHeader.getInt(LONGSIZE);
+                if(length < RECORD_HEADER_SIZE || position + ROLLBACK_ENTRY_HEADER + length > logSize) {
+                    break;
+                }
+
+                ByteBuffer entry = ByteBuffer.allocate(ROLLBACK_ENTRY_HEADER + length);
+                while(entry.hasRemaining() && rollbackLog.read(entry, position + entry.position()) != -1) {
+                    LOG.trace("Reading rollback entry at: {}", position);
+                }
+                entries.add(entry);
+                position += entry.capacity();
+            }
+        }
+
+        int restored = 0;
+        for(int i=entries.size() - 1; i>=0; i--) {
+            ByteBuffer entry = entries.get(i);
+            long recordPointer = entry.getLong(0);
+            if(!isRewriteComplete(recordPointer)) {
+                LOG.info("Rolling back interrupted rewrite of record: {} in: {}", recordPointer, recordLocation);
+                entry.position(ROLLBACK_ENTRY_HEADER);
+                long currentPosition = recordPointer;
+                while(entry.hasRemaining()) {
+                    currentPosition += channel.write(entry, currentPosition);
+                }
+                restored++;
+            }
+        }
+
+        if(restored > 0) {
+            channel.force(false);
+        }
+        Files.deleteIfExists(rollbackLocation.toPath());
+    }
+
+    /**
+     * A rewritten record always has a checksum, the rewrite is complete if the record at the position is intact
+     */
+    private boolean isRewriteComplete(long recordPointer) throws IOException {
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        if(channel.read(recordHeader, recordPointer) < RECORD_HEADER_SIZE) {
+            return false;
+        }
+
+        long recordSize = recordHeader.getLong(0);
+        int intFlag = recordHeader.getInt(HEADER_RECORD_FLAG);
+        long dataPosition = recordPointer + RECORD_HEADER_SIZE;
+        return RecordCodecs.hasChecksum(intFlag) && recordSize > 0 && recordSize <= Integer.MAX_VALUE
+                && dataPosition + recordSize <= channel.size() && isIntact(dataPosition, recordSize, intFlag);
     }
 }
@@ -0,0 +1,101 @@
+package com.oberasoftware.jasdb.writer.transactional;
+
+import com.oberasoftware.jasdb.api.exceptions.DatastoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Amortizes the disk sync of concurrent writers into a single commit. Every change to the record file gets a
+ * commit ticket, the first writer that needs a commit becomes the leader and syncs all changes made up to
+ * that point, writers arriving during the sync are picked up by the next leader.
+ *
+ * @author Renze de Vries
+ */
+public class GroupCommitter {
+    private static final Logger LOG = LoggerFactory.getLogger(GroupCommitter.class);
+
+    private final Checkpoint checkpoint;
+    private final long commitWindowNanos;
+    private final int commitBatchSize;
+
+    private final Lock commitLock = new ReentrantLock();
+    private final Condition commitCondition = commitLock.newCondition();
+
+    private long committedTicket = 0;
+    private int pendingCommits = 0;
+    private boolean committing = false;
+
+    public GroupCommitter(WriterConfig writerConfig, Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        this.commitWindowNanos = TimeUnit.MILLISECONDS.toNanos(writerConfig.getCommitWindow());
+        this.commitBatchSize = writerConfig.getCommitBatchSize();
+    }
+
+    /**
+     * Blocks until all changes up to and including the given commit ticket are committed
+     * @param ticket The commit ticket of the change
+     * @throws DatastoreException If unable to commit the changes
+     */
+    public void awaitCommit(long ticket) throws DatastoreException {
+        commitLock.lock();
+        try {
+            pendingCommits++;
+            commitCondition.signalAll();
+
+            while(committedTicket < ticket) {
+                if(!committing) {
+                    lead();
+                } else {
+                    commitCondition.await();
+                }
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatastoreException("Interrupted while waiting for record commit", e);
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private void lead() throws InterruptedException, DatastoreException {
+        committing = true;
+        try {
+            long remaining = commitWindowNanos;
+            while(pendingCommits < commitBatchSize && remaining > 0) {
+                remaining = commitCondition.awaitNanos(remaining);
+            }
+            LOG.trace("Committing batch of {} writes", pendingCommits);
+            pendingCommits = 0;
+
+            long ticket;
+            commitLock.unlock();
+            try {
+                ticket = checkpoint.commit();
+            } finally {
+                commitLock.lock();
+            }
+            committedTicket = Math.max(committedTicket, ticket);
+        } finally {
+            committing = false;
+            commitCondition.signalAll();
+        }
+    }
+
+    /**
+     * The commit operation executed by the leader of a group commit
+     */
+    @FunctionalInterface
+    public interface Checkpoint {
+        /**
+         * Makes all changes durable
+         * @return The last commit ticket covered by this commit
+         * @throws DatastoreException If unable to commit the changes
+         */
+        long commit() throws DatastoreException;
+    }
+}
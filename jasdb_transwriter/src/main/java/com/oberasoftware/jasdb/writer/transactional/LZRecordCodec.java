@@ -0,0 +1,199 @@
+package com.oberasoftware.jasdb.writer.transactional;
+
+import com.oberasoftware.jasdb.api.exceptions.DatastoreException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Fast LZ77 compression of the record contents using the LZ4 block format, the encoded record is prefixed
+ * with the length of the original contents. This trades compression ratio for much cheaper compression and
+ * decompression compared to deflate.
+ *
+ * @author Renze de Vries
+ */
+public class LZRecordCodec implements RecordCodec {
+    public static final int CODEC_ID = 2;
+
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_OFFSET = 65535;
+    private static final int ML_MASK = 0x0F;
+    private static final int RUN_MASK = 0x0F;
+    private static final int SKIP_TRIGGER = 6;
+
+    private static final int HASH_LOG = 12;
+    private static final int LENGTH_PREFIX = 4;
+
+    private static final ThreadLocal<int[]> HASH_TABLES = ThreadLocal.withInitial(() -> new int[1 << HASH_LOG]);
+
+    @Override
+    public int getCodecId() {
+        return CODEC_ID;
+    }
+
+    @Override
+    public ByteBuffer encode(byte[] contents, int headerSpace) {
+        int length = contents.length;
+        byte[] output = new byte[headerSpace + LENGTH_PREFIX + length + length / 255 + 16];
+        ByteBuffer.wrap(output).putInt(headerSpace, length);
+
+        int outputPosition = headerSpace + LENGTH_PREFIX;
+        int anchor = 0;
+        if(length > MF_LIMIT) {
+            int[] hashTable = HASH_TABLES.get();
+            Arrays.fill(hashTable, -1);
+
+            int matchLimit = length - MF_LIMIT;
+            int position = 0;
+            while(position < matchLimit) {
+                int sequence = readInt(contents, position);
+                int hash = hash(sequence);
+                int reference = hashTable[hash];
+                hashTable[hash] = position;
+
+                if(reference >= 0 && position - reference <= MAX_OFFSET && readInt(contents, reference) == sequence) {
+                    int matchLength = MIN_MATCH;
+                    int maxMatchLength = length - LAST_LITERALS - position;
+                    while(matchLength < maxMatchLength && contents[reference + matchLength] == contents[position + matchLength]) {
+                        matchLength++;
+                    }
+
+                    outputPosition = writeSequence(contents, anchor, position - anchor, position - reference, matchLength, output, outputPosition);
+                    position += matchLength;
+                    anchor = position;
+                } else {
+                    //skip faster through data that does not compress
+                    position += 1 + ((position - anchor) >>> SKIP_TRIGGER);
+                }
+            }
+        }
+        outputPosition = writeLiterals(contents, anchor, length - anchor, output, outputPosition);
+
+        ByteBuffer record = ByteBuffer.wrap(output);
+        record.limit(outputPosition);
+        return record;
+    }
+
+    private static int writeSequence(byte[] contents, int literalStart, int literalLength, int offset, int matchLength, byte[] output, int outputPosition) {
+        int tokenPosition = outputPosition;
+        outputPosition = writeLiterals(contents, literalStart, literalLength, output, outputPosition);
+
+        output[outputPosition++] = (byte) offset;
+        output[outputPosition++] = (byte) (offset >>> 8);
+
+        int remainingMatch = matchLength - MIN_MATCH;
+        if(remainingMatch >= ML_MASK) {
+            output[tokenPosition] |= ML_MASK;
+            outputPosition = writeLength(remainingMatch - ML_MASK, output, outputPosition);
+        } else {
+            output[tokenPosition] |= remainingMatch;
+        }
+        return outputPosition;
+    }
+
+    private static int writeLiterals(byte[] contents, int literalStart, int literalLength, byte[] output, int outputPosition) {
+        int tokenPosition = outputPosition++;
+        if(literalLength >= RUN_MASK) {
+            output[tokenPosition] = (byte) (RUN_MASK << 4);
+            outputPosition = writeLength(literalLength - RUN_MASK, output, outputPosition);
+        } else {
+            output[tokenPosition] = (byte) (literalLength << 4);
+        }
+
+        System.arraycopy(contents, literalStart, output, outputPosition, literalLength);
+        return outputPosition + literalLength;
+    }
+
+    private static int writeLength(int length, byte[] output, int outputPosition) {
+        while(length >= 255) {
+            output[outputPosition++] = (byte) 255;
+            length -= 255;
+        }
+        output[outputPosition++] = (byte) length;
+        return outputPosition;
+    }
+
+    @Override
+    public byte[] decode(byte[] input, int offset, int length) throws DatastoreException {
+        if(length < LENGTH_PREFIX) {
+            throw new DatastoreException("Unable to decode record, record data is incomplete");
+        }
+
+        try {
+            int end = offset + length;
+            int decodedLength = ByteBuffer.wrap(input, offset, LENGTH_PREFIX).getInt();
+            if(decodedLength < 0 || decodedLength > (long) length * 255) {
+                throw new DatastoreException("Unable to decode record, invalid record length: " + decodedLength);
+            }
+            byte[] output = new byte[decodedLength];
+
+            int position = offset + LENGTH_PREFIX;
+            int outputPosition = 0;
+            while(position < end) {
+                int token = input[position++] & 0xFF;
+
+                int literalLength = token >>> 4;
+                if(literalLength == RUN_MASK) {
+                    int lengthByte;
+                    do {
+                        lengthByte = input[position++] & 0xFF;
+                        literalLength += lengthByte;
+                    } while(lengthByte == 255);
+                }
+                System.arraycopy(input, position, output, outputPosition, literalLength);
+                position += literalLength;
+                outputPosition += literalLength;
+                if(position >= end) {
+                    break;
+                }
+
+                int matchOffset = (input[position++] & 0xFF) | ((input[position++] & 0xFF) << 8);
+                int matchLength = token & ML_MASK;
+                if(matchLength == ML_MASK) {
+                    int lengthByte;
+                    do {
+                        lengthByte = input[position++] & 0xFF;
+                        matchLength += lengthByte;
+                    } while(lengthByte == 255);
+                }
+                matchLength += MIN_MATCH;
+
+                int reference = outputPosition - matchOffset;
+                if(matchOffset == 0 || reference < 0 || outputPosition + matchLength > decodedLength) {
+                    throw new DatastoreException("Unable to decode record, invalid match in record data");
+                }
+                if(matchOffset >= matchLength) {
+                    System.arraycopy(output, reference, output, outputPosition, matchLength);
+                    outputPosition += matchLength;
+                } else {
+                    for(int i=0; i<matchLength; i++) {
+                        output[outputPosition++] = output[reference++];
+                    }
+                }
+            }
+
+            if(position != end || outputPosition != decodedLength) {
+                throw new DatastoreException("Unable to decode record, record data is incomplete");
+            }
+            return output;
+        } catch(IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new DatastoreException("Unable to decode record, record data is corrupt", e);
+        }
+    }
+
+    private static int readInt(byte[] data, int position) {
+        return (data[position] & 0xFF) | (data[position + 1] & 0xFF) << 8
+                | (data[position + 2] & 0xFF) << 16 | (data[position + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    @Override
+    public String toString() {
+        return "LZRecordCodec";
+    }
+}
@@ -0,0 +1,96 @@
+package com.oberasoftware.jasdb.writer.transactional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Provides read access to the record file through read-only memory mapped segments. Segments are never mapped
+ * beyond the current file size, the tail segment is remapped once the file has grown enough. Regions that are
+ * not mapped, or span two segments, are not served and need to be read through the file channel.
+ *
+ * @author Renze de Vries
+ */
+public class MappedSegments {
+    private static final Logger LOG = LoggerFactory.getLogger(MappedSegments.class);
+
+    private static final long SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final long REMAP_THRESHOLD = 1024 * 1024;
+
+    private final FileChannel channel;
+
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    public MappedSegments(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Gets a read-only view on a region of the record file
+     * @param position The position in the record file
+     * @param length The length of the region
+     * @return The buffer positioned at the start of the region and limited to its end, null if the region is not mapped
+     * @throws IOException If unable to map the region
+     */
+    public ByteBuffer slice(long position, int length) throws IOException {
+        int segmentIndex = (int) (position / SEGMENT_SIZE);
+        int offset = (int) (position - segmentIndex * SEGMENT_SIZE);
+        if(offset + length > SEGMENT_SIZE) {
+            return null;
+        }
+
+        MappedByteBuffer segment = getSegment(segmentIndex, offset + length);
+        if(segment != null) {
+            ByteBuffer slice = segment.duplicate();
+            slice.limit(offset + length);
+            slice.position(offset);
+            return slice;
+        } else {
+            return null;
+        }
+    }
+
+    private MappedByteBuffer getSegment(int segmentIndex, int requiredSize) throws IOException {
+        MappedByteBuffer[] currentSegments = segments;
+        if(segmentIndex < currentSegments.length && currentSegments[segmentIndex] != null
+                && currentSegments[segmentIndex].capacity() >= requiredSize) {
+            return currentSegments[segmentIndex];
+        }
+
+        synchronized (this) {
+            currentSegments = segments;
+            MappedByteBuffer segment = segmentIndex < currentSegments.length ? currentSegments[segmentIndex] : null;
+            if(segment != null && segment.capacity() >= requiredSize) {
+                return segment;
+            }
+
+            long segmentStart = segmentIndex * SEGMENT_SIZE;
+            long available = Math.min(SEGMENT_SIZE, channel.size() - segmentStart);
+            boolean shouldMap = segment == null || available == SEGMENT_SIZE || available - segment.capacity() >= REMAP_THRESHOLD;
+            if(available < requiredSize || !shouldMap) {
+                return null;
+            }
+
+            LOG.debug("Mapping record segment: {} with size: {}", segmentIndex, available);
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, available);
+
+            MappedByteBuffer[] updatedSegments = Arrays.copyOf(currentSegments, Math.max(currentSegments.length, segmentIndex + 1));
+            updatedSegments[segmentIndex] = segment;
+            segments = updatedSegments;
+
+            return segment;
+        }
+    }
+
+    /**
+     * Releases all the mapped segments, the mappings themselves are released once garbage collected
+     */
+    public synchronized void release() {
+        segments = new MappedByteBuffer[0];
+    }
+}
@@ -0,0 +1,35 @@
+package com.oberasoftware.jasdb.writer.transactional;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Stores the record contents without any compression
+ *
+ * @author Renze de Vries
+ */
+public class NoneRecordCodec implements RecordCodec {
+    public static final int CODEC_ID = 1;
+
+    @Override
+    public int getCodecId() {
+        return CODEC_ID;
+    }
+
+    @Override
+    public ByteBuffer encode(byte[] contents, int headerSpace) {
+        byte[] record = new byte[headerSpace + contents.length];
+        System.arraycopy(contents, 0, record, headerSpace, contents.length);
+        return ByteBuffer.wrap(record);
+    }
+
+    @Override
+    public byte[] decode(byte[] input, int offset, int length) {
+        return Arrays.copyOfRange(input, offset, offset + length);
+    }
+
+    @Override
+    public String toString() {
+        return "NoneRecordCodec";
+    }
+}
@@ -0,0 +1,38 @@
+package com.oberasoftware.jasdb.writer.transactional;
+
+import com.oberasoftware.jasdb.api.exceptions.DatastoreException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the contents of a record before it is written to the record file. The codec id is stored in the
+ * header of every record so files containing records written with different codecs remain readable.
+ *
+ * @author Renze de Vries
+ */
+public interface RecordCodec {
+    /**
+     * The id of the codec as stored in the record header
+     * @return The codec id
+     */
+    int getCodecId();
+
+    /**
+     * Encodes the record contents
+     * @param contents The record contents
+     * @param headerSpace The amount of bytes to leave empty at the start of the buffer for the record header
+     * @return The buffer with position zero containing the header space followed by the encoded contents
+     * @throws DatastoreException If unable to encode the contents
+     */
+    ByteBuffer encode(byte[] contents, int headerSpace) throws DatastoreException;
+
+    /**
+     * Decodes the record contents
+     * @param input The array containing the encoded record
+     * @param offset The offset of the encoded record in the array
+     * @param length The length of the encoded record
+     * @return The decoded record contents
+     * @throws DatastoreException If the encoded record is incomplete or corrupt
+     */
+    byte[] decode(byte[] input, int offset, int length) throws DatastoreException;
+}
@@ -0,0 +1,261 @@
+package com.oberasoftware.jasdb.writer.transactional;
+
+import com.oberasoftware.jasdb.api.exceptions.DatastoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Contains the codec used to write records and all codecs able to read records, the codec of a record is stored
+ * in the upper bits of the record flag in the record header. Records written before codecs were introduced
+ * have no codec bits and are read as deflate records.
+ *
+ * @author Renze de Vries
+ */
+public class RecordCodecs {
+    private static final Logger LOG = LoggerFactory.getLogger(RecordCodecs.class);
+
+    public static final String CODEC_DEFLATE = "deflate";
+    public static final String CODEC_LZ = "lz";
+    public static final String CODEC_NONE = "none";
+
+    private static final int CODEC_SHIFT = 8;
+    private static final int CHECKSUM_FLAG = 1 << (CODEC_SHIFT - 1);
+    private static final int FLAG_MASK = CHECKSUM_FLAG - 1;
+
+    private static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+    private static final String DICTIONARY_EXTENSION = ".dict";
+    private static final Pattern DICTIONARY_TOKEN = Pattern.compile("\"(?:[^\"\\\\]|\\\\.)*\"\\s*:?");
+
+    private final RecordCodec writeCodec;
+    private final RecordCodec[] readCodecs;
+
+    private RecordCodecs(RecordCodec writeCodec, DeflateRecordCodec deflateCodec) {
+        this.writeCodec = writeCodec;
+        this.readCodecs = new RecordCodec[] {deflateCodec, new NoneRecordCodec(), new LZRecordCodec()};
+    }
+
+    public RecordCodec getWriteCodec() {
+        return writeCodec;
+    }
+
+    public RecordCodec getCodec(int headerFlag) throws DatastoreException {
+        int codecId = headerFlag >>> CODEC_SHIFT;
+        if(codecId < readCodecs.length) {
+            return readCodecs[codecId];
+        } else {
+            throw new DatastoreException("Unknown record codec: " + codecId);
+        }
+    }
+
+    /**
+     * Combines the record flag and codec into the flag stored in the record header
+     */
+    public static int toHeaderFlag(RECORD_FLAG flag, int codecId) {
+        return (codecId << CODEC_SHIFT) | flag.getFlag();
+    }
+
+    /**
+     * Marks the record as ending with a checksum of its size and encoded contents
+     */
+    public static int withChecksum(int headerFlag) {
+        return headerFlag | CHECKSUM_FLAG;
+    }
+
+    public static boolean hasChecksum(int headerFlag) {
+        return (headerFlag & CHECKSUM_FLAG) != 0;
+    }
+
+    /**
+     * Replaces the record flag in a record header flag, keeping the codec and checksum of the record
+     */
+    public static int withRecordFlag(int headerFlag, RECORD_FLAG flag) {
+        return (headerFlag & ~FLAG_MASK) | flag.getFlag();
+    }
+
+    public static int getRecordFlag(int headerFlag) {
+        return headerFlag & FLAG_MASK;
+    }
+
+    /**
+     * The file storing the dictionaries the records of a record file were written with
+     */
+    public static File getDictionaryLocation(File recordLocation) {
+        return new File(recordLocation + DICTIONARY_EXTENSION);
+    }
+
+    /**
+     * Creates the codecs for a record file. All dictionaries the record file was written with are kept in the
+     * dictionary store by their id, a dictionary is only trained again when the sample file changed after the
+     * last dictionary was stored.
+     * @param writerConfig The writer settings
+     * @param dictionaryStore The dictionary store of the record file
+     * @return The record codecs
+     */
+    public static RecordCodecs createCodecs(WriterConfig writerConfig, File dictionaryStore) throws DatastoreException {
+        LinkedHashMap<Long, byte[]> dictionaries = loadDictionaries(dictionaryStore);
+        byte[] dictionary = null;
+        if(writerConfig.getDictionary() != null) {
+            File sampleFile = new File(writerConfig.getDictionary());
+            if(!dictionaries.isEmpty() && sampleFile.lastModified() <= dictionaryStore.lastModified()) {
+                for(byte[] storedDictionary : dictionaries.values()) {
+                    dictionary = storedDictionary;
+                }
+            } else {
+                dictionary = trainDictionary(sampleFile);
+                if(dictionary.length == 0) {
+                    dictionary = null;
+                } else if(dictionaries.putIfAbsent(DeflateRecordCodec.getDictionaryId(dictionary), dictionary) == null) {
+                    storeDictionaries(dictionaryStore, dictionaries);
+                }
+            }
+        }
+
+        DeflateRecordCodec deflateCodec = new DeflateRecordCodec(writerConfig.getCompressionLevel(), dictionary, dictionaries);
+        RecordCodec writeCodec;
+        switch(writerConfig.getCodec()) {
+            case CODEC_NONE:
+                writeCodec = new NoneRecordCodec();
+                break;
+            case CODEC_LZ:
+                writeCodec = new LZRecordCodec();
+                break;
+            case CODEC_DEFLATE:
+                writeCodec = deflateCodec;
+                break;
+            default:
+                throw new DatastoreException("Unknown record codec: " + writerConfig.getCodec());
+        }
+        LOG.debug("Using record codec: {}", writeCodec);
+
+        return new RecordCodecs(writeCodec, deflateCodec);
+    }
+
+    private static LinkedHashMap<Long, byte[]> loadDictionaries(File dictionaryStore) throws DatastoreException {
+        LinkedHashMap<Long, byte[]> dictionaries = new LinkedHashMap<>();
+        if(dictionaryStore.exists()) {
+            try(DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(dictionaryStore)))) {
+                while(true) {
+                    long dictionaryId;
+                    try {
+                        dictionaryId = inputStream.readLong();
+                    } catch(EOFException e) {
+                        break;
+                    }
+                    byte[] dictionary = new byte[inputStream.readInt()];
+                    inputStream.readFully(dictionary);
+                    if(DeflateRecordCodec.getDictionaryId(dictionary) != dictionaryId) {
+                        throw new DatastoreException("Dictionary: " + dictionaryId + " in: " + dictionaryStore + " is corrupt");
+                    }
+                    dictionaries.put(dictionaryId, dictionary);
+                }
+            } catch(IOException e) {
+                throw new DatastoreException("Unable to load dictionaries from: " + dictionaryStore, e);
+            }
+            LOG.debug("Loaded {} record dictionaries from: {}", dictionaries.size(), dictionaryStore);
+        }
+        return dictionaries;
+    }
+
+    /**
+     * Stores the dictionaries by writing a new store and moving it in place of the current store
+     */
+    private static void storeDictionaries(File dictionaryStore, Map<Long, byte[]> dictionaries) throws DatastoreException {
+        File tempStore = new File(dictionaryStore + ".tmp");
+        try(FileOutputStream fileStream = new FileOutputStream(tempStore)) {
+            DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(fileStream));
+            for(Map.Entry<Long, byte[]> dictionary : dictionaries.entrySet()) {
+                outputStream.writeLong(dictionary.getKey());
+                outputStream.writeInt(dictionary.getValue().length);
+                outputStream.write(dictionary.getValue());
+            }
+            outputStream.flush();
+            fileStream.getFD().sync();
+        } catch(IOException e) {
+            throw new DatastoreException("Unable to store dictionaries in: " + dictionaryStore, e);
+        }
+
+        try {
+            Files.move(tempStore.toPath(), dictionaryStore.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            throw new DatastoreException("Unable to store dictionaries in: " + dictionaryStore, e);
+        }
+    }
+
+    /**
+     * Trains a dictionary on a file of sample documents, one document per line
+     */
+    private static byte[] trainDictionary(File sampleFile) throws DatastoreException {
+        try {
+            List<String> samples = Files.readAllLines(sampleFile.toPath(), StandardCharsets.UTF_8);
+            byte[] dictionary = trainDictionary(samples, MAX_DICTIONARY_SIZE);
+            LOG.info("Trained record dictionary of {} bytes from {} samples in: {}", dictionary.length, samples.size(), sampleFile);
+            return dictionary;
+        } catch(IOException e) {
+            throw new DatastoreException("Unable to load dictionary samples from: " + sampleFile, e);
+        }
+    }
+
+    /**
+     * Trains a deflate dictionary from sample documents. The field names and string values that occur in
+     * multiple documents are scored by their occurrence and length, the highest scoring are placed at the end
+     * of the dictionary where deflate can reference them with the smallest distance.
+     * @param samples The sample documents
+     * @param maxSize The maximum size of the dictionary
+     * @return The dictionary
+     */
+    public static byte[] trainDictionary(List<String> samples, int maxSize) {
+        Map<String, Integer> occurrences = new HashMap<>();
+        for(String sample : samples) {
+            Set<String> sampleTokens = new HashSet<>();
+            Matcher matcher = DICTIONARY_TOKEN.matcher(sample);
+            while(matcher.find()) {
+                sampleTokens.add(matcher.group());
+            }
+            sampleTokens.forEach(t -> occurrences.merge(t, 1, Integer::sum));
+        }
+
+        List<Map.Entry<String, Integer>> tokens = new ArrayList<>(occurrences.entrySet());
+        tokens.removeIf(e -> e.getValue() < 2 && samples.size() > 1);
+        tokens.sort((t1, t2) -> Long.compare((long) t2.getValue() * t2.getKey().length(), (long) t1.getValue() * t1.getKey().length()));
+
+        List<byte[]> selected = new ArrayList<>();
+        int size = 0;
+        for(Map.Entry<String, Integer> token : tokens) {
+            byte[] tokenBytes = token.getKey().getBytes(StandardCharsets.UTF_8);
+            if(size + tokenBytes.length <= maxSize) {
+                selected.add(tokenBytes);
+                size += tokenBytes.length;
+            }
+        }
+
+        byte[] dictionary = new byte[size];
+        int position = size;
+        for(byte[] tokenBytes : selected) {
+            position -= tokenBytes.length;
+            System.arraycopy(tokenBytes, 0, dictionary, position, tokenBytes.length);
+        }
+        return dictionary;
+    }
+}
@@ -15,21 +15,36 @@ import java.util.Optional;
 public class RecordIteratorImpl implements RecordIterator {
     private static final Logger LOG = LoggerFactory.getLogger(RecordIteratorImpl.class);
 
+    static final long NO_END = -1;
+
     private Writer recordWriter;
 
     private long nextRecordPointer;
     private long startRecordPointer;
+    private long endRecordPointer;
 
     private int limit;
     private long foundRecords = 0;
 
     private RecordResultImpl nextLoadedRecord;
+    private boolean acquired;
 
     protected RecordIteratorImpl(Writer recordWriter, long startRecordPointer, int limit) {
+        this(recordWriter, startRecordPointer, NO_END, limit);
+    }
+
+    /**
+     * Iterates the records starting at the start pointer up to the end pointer, the end pointer needs to be at
+     * the start of a record or NO_END to iterate up to the last record. The iterator keeps the writer open until
+     * it is closed or has no more records, a compaction can retire the writer while the iterator is in use.
+     */
+    protected RecordIteratorImpl(Writer recordWriter, long startRecordPointer, long endRecordPointer, int limit) {
         this.recordWriter = recordWriter;
         this.nextRecordPointer = startRecordPointer;
         this.limit = limit;
         this.startRecordPointer = startRecordPointer;
+        this.endRecordPointer = endRecordPointer;
+        acquire();
     }
 
     @Override
@@ -37,6 +52,25 @@ public class RecordIteratorImpl implements RecordIterator {
         foundRecords = 0;
         nextRecordPointer = startRecordPointer;
         nextLoadedRecord = null;
+        release();
+    }
+
+    private void acquire() {
+        if(!acquired) {
+            recordWriter.acquireIterator();
+            acquired = true;
+        }
+    }
+
+    private void release() {
+        if(acquired) {
+            acquired = false;
+            try {
+                recordWriter.releaseIterator();
+            } catch(JasDBStorageException e) {
+                LOG.error("Unable to release record iterator", e);
+            }
+        }
     }
 
     @Override
@@ -54,9 +88,15 @@ public class RecordIteratorImpl implements RecordIterator {
     }
 
     private void loadNextRecord() {
+        acquire();
         try {
             RecordResultImpl foundRecord;
             do {
+                if(endRecordPointer != NO_END && nextRecordPointer >= endRecordPointer) {
+                    nextLoadedRecord = null;
+                    release();
+                    return;
+                }
                 foundRecord = recordWriter.readRecord(() -> Optional.of(nextRecordPointer));
                 nextRecordPointer = nextRecordPointer + foundRecord.getRecordSize();
             } while(foundRecord.getRecordFlag() != RECORD_FLAG.ACTIVE && foundRecord.getRecordFlag() != RECORD_FLAG.EMPTY);
@@ -66,6 +106,7 @@ public class RecordIteratorImpl implements RecordIterator {
                 nextLoadedRecord = foundRecord;
             } else {
                 nextLoadedRecord = null;
+                release();
             }
         } catch(JasDBStorageException e) {
             LOG.error("Unable to find next record, error accessing storage", e);
@@ -88,6 +129,7 @@ public class RecordIteratorImpl implements RecordIterator {
     public void reset() {
         this.nextRecordPointer = startRecordPointer;
         this.foundRecords = 0;
+        acquire();
     }
 
     @Override
@@ -12,17 +12,15 @@ import com.oberasoftware.jasdb.api.storage.RecordResult;
 import com.oberasoftware.jasdb.core.storage.ClonableByteArrayInputStream;
 import com.oberasoftware.jasdb.api.storage.ClonableDataStream;
 
-import java.io.UnsupportedEncodingException;
-
 public class RecordResultImpl implements RecordResult {
 	private long recordSize;
     private long recordPointer;
 
-	private String contents;
+	private byte[] contents;
 	
 	private RECORD_FLAG recordFlag;
 	
-	protected RecordResultImpl(long recordPointer, String contents, long recordSize, RECORD_FLAG recordFlag) {
+	protected RecordResultImpl(long recordPointer, byte[] contents, long recordSize, RECORD_FLAG recordFlag) {
         this.recordPointer = recordPointer;
 		this.contents = contents;
 		this.recordSize = recordSize;
@@ -38,16 +36,12 @@ public class RecordResultImpl implements RecordResult {
     }
 
     private boolean isEmpty() {
-		return contents == null || contents.isEmpty() || recordFlag == RECORD_FLAG.DELETED;
+		return contents == null || contents.length == 0 || recordFlag == RECORD_FLAG.DELETED;
 	}
 
     @Override
     public ClonableDataStream getStream() throws JasDBStorageException {
-        try {
-            return new ClonableByteArrayInputStream(contents.getBytes("UTF8"));
-        } catch(UnsupportedEncodingException e) {
-            throw new JasDBStorageException("Unable to read record contents, unsupported encoding", e);
-        }
+        return new ClonableByteArrayInputStream(contents);
     }
 
     @Override
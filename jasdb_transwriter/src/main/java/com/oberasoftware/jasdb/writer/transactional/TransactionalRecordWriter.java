@@ -10,9 +10,11 @@ package com.oberasoftware.jasdb.writer.transactional;
 import com.oberasoftware.jasdb.api.exceptions.DatastoreException;
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import com.oberasoftware.jasdb.api.exceptions.RuntimeJasDBException;
+import com.oberasoftware.jasdb.api.index.IndexIterator;
+import com.oberasoftware.jasdb.api.storage.CompactableRecordWriter;
+import com.oberasoftware.jasdb.api.storage.CompactionReport;
 import com.oberasoftware.jasdb.api.storage.RecordIterator;
 import com.oberasoftware.jasdb.api.storage.RecordResult;
-import com.oberasoftware.jasdb.api.storage.RecordWriter;
 import com.oberasoftware.jasdb.api.storage.ClonableDataStream;
 import com.oberasoftware.jasdb.core.index.query.SimpleIndexField;
 import com.oberasoftware.jasdb.core.utils.FileUtils;
@@ -33,27 +35,56 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 
-public class TransactionalRecordWriter implements RecordWriter<UUIDKey> {
+import static com.oberasoftware.jasdb.core.utils.FileUtils.deleteSafely;
+
+public class TransactionalRecordWriter implements CompactableRecordWriter<UUIDKey> {
     private static final Logger LOG = LoggerFactory.getLogger(TransactionalRecordWriter.class);
 
+    private static final String COMPACT_EXTENSION = ".compact";
+    private static final String COMPACTED_MARKER_EXTENSION = ".compacted";
 
+    private File recordLocation;
     private File indexLocation;
     private KeyInfo keyInfo;
     private Index index;
 
     private Writer writer;
+    private WriterConfig writerConfig;
+
+    private final ReadWriteLock compactionLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+    private final CompactionProgress compactionProgress = new CompactionProgress();
+    private volatile CompactionChanges compactionChanges;
 
 	public TransactionalRecordWriter(File recordLocation) {
+        this(recordLocation, WriterConfig.getDefaultWriterConfig());
+	}
+
+	public TransactionalRecordWriter(File recordLocation, WriterConfig writerConfig) {
+        this.recordLocation = recordLocation;
         this.indexLocation = new File(FileUtils.removeExtension(recordLocation.toString()) + ".idx");
-        this.writer = new FSWriter(recordLocation);
+        this.writerConfig = writerConfig;
+        this.writer = new FSWriter(recordLocation, writerConfig);
 	}
 
 	@Override
 	public void openWriter() throws JasDBStorageException {
         this.keyInfo = new KeyInfoImpl(new SimpleIndexField("__ID", new UUIDKeyType()), new SimpleIndexField("RECORD_POINTER", new LongKeyType()));
+        completeCompaction();
         this.index = new BTreeIndex(indexLocation, keyInfo);
 
         this.writer.openWriter();
@@ -62,13 +93,24 @@ public class TransactionalRecordWriter implements RecordWriter<UUIDKey> {
 
 	@Override
 	public void closeWriter() throws JasDBStorageException {
-        this.writer.closeWriter();
-        this.index.close();
+        compactionLock.writeLock().lock();
+        try {
+            this.writer.closeWriter();
+            this.index.close();
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
 	}
 
     @Override
     public void flush() throws JasDBStorageException {
-        index.flushIndex();
+        compactionLock.readLock().lock();
+        try {
+            writer.flush();
+            index.flushIndex();
+        } finally {
+            compactionLock.readLock().unlock();
+        }
     }
 
 	@Override
@@ -93,45 +135,146 @@ public class TransactionalRecordWriter implements RecordWriter<UUIDKey> {
 
 	@Override
 	public RecordIterator readAllRecords(int limit) throws DatastoreException {
-        return writer.readAllRecords(limit);
+        compactionLock.readLock().lock();
+        try {
+            return writer.readAllRecords(limit);
+        } finally {
+            compactionLock.readLock().unlock();
+        }
 	}
 
+    @Override
+    public List<RecordIterator> readRecordSegments(int segments) throws DatastoreException {
+        compactionLock.readLock().lock();
+        try {
+            return writer.readRecordSegments(segments);
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
     @Override
     public RecordResult readRecord(UUIDKey documentId) throws JasDBStorageException {
+        compactionLock.readLock().lock();
         try {
             return writer.readRecord(() -> getRecordPointer(documentId));
         } catch(RecordNotFoundException e) {
             return new RecordResultImpl(-1, null, 0, RECORD_FLAG.EMPTY);
+        } finally {
+            compactionLock.readLock().unlock();
         }
     }
 
     @Override
     public void writeRecord(UUIDKey documentId, ClonableDataStream dataStream) throws JasDBStorageException {
         String recordContents = RecordStreamUtil.toString(dataStream);
-        writer.writeRecord(recordContents, p -> {
-            try {
-                index.insertIntoIndex(documentId.cloneKey(false).addKey(keyInfo.getKeyNameMapper(), "RECORD_POINTER", new LongKey(p)));
-            } catch(JasDBStorageException e) {
+        compactionLock.readLock().lock();
+        try {
+            trackCompactionChange(documentId);
+            writer.writeRecord(recordContents, p -> {
                 try {
-                    removeRecord(documentId);
-                } catch (JasDBStorageException e1) {
-                    LOG.error("", e);
+                    index.insertIntoIndex(documentId.cloneKey(false).addKey(keyInfo.getKeyNameMapper(), "RECORD_POINTER", new LongKey(p)));
+                } catch(JasDBStorageException e) {
+                    try {
+                        removeRecord(documentId);
+                    } catch (JasDBStorageException e1) {
+                        LOG.error("", e);
+                    }
+
+                    throw new RuntimeJasDBException("Unable to write record already exists", e);
+                }
+            });
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the records as a single group to the record file and inserts their keys as a single batch in the
+     * primary key index.
+     */
+    @Override
+    public void writeRecords(Map<UUIDKey, ClonableDataStream> records) throws JasDBStorageException {
+        List<UUIDKey> documentIds = new ArrayList<>(records.size());
+        List<String> recordContents = new ArrayList<>(records.size());
+        for(Map.Entry<UUIDKey, ClonableDataStream> record : records.entrySet()) {
+            documentIds.add(record.getKey());
+            recordContents.add(RecordStreamUtil.toString(record.getValue()));
+        }
+
+        compactionLock.readLock().lock();
+        try {
+            for(UUIDKey documentId : documentIds) {
+                if(findRecordPointer(index, documentId).isPresent()) {
+                    throw new DatastoreException("Unable to write record: " + documentId + " already exists");
                 }
+                trackCompactionChange(documentId);
+            }
+
+            List<Long> recordPointers = writer.writeRecords(recordContents, null);
+            List<Key> keys = new ArrayList<>(documentIds.size());
+            for(int i=0; i<documentIds.size(); i++) {
+                keys.add(documentIds.get(i).cloneKey(false).addKey(keyInfo.getKeyNameMapper(), "RECORD_POINTER", new LongKey(recordPointers.get(i))));
+            }
 
-                throw new RuntimeJasDBException("Unable to write record already exists", e);
+            try {
+                index.insertIntoIndex(keys);
+            } catch(JasDBStorageException e) {
+                removeUnindexedRecords(documentIds, recordPointers);
+                throw new DatastoreException("Unable to write records, a record already exists", e);
+            }
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the written records of a batch that did not end up in the index because a record with the same
+     * document id was written concurrently
+     */
+    private void removeUnindexedRecords(List<UUIDKey> documentIds, List<Long> recordPointers) throws JasDBStorageException {
+        for(int i=0; i<documentIds.size(); i++) {
+            long recordPointer = recordPointers.get(i);
+            Optional<Long> indexedPointer = findRecordPointer(index, documentIds.get(i));
+            if(!indexedPointer.isPresent() || indexedPointer.get() != recordPointer) {
+                writer.removeRecord(() -> Optional.of(recordPointer), this::trackSupersededRecord);
             }
-        });
+        }
     }
 
     @Override
     public void removeRecord(UUIDKey documentId) throws JasDBStorageException {
-        writer.removeRecord(() -> getRecordPointer(documentId), p -> {
-            try {
-                index.removeFromIndex(documentId);
-            } catch (JasDBStorageException e) {
-                LOG.error("Unable to remove record from index", e);
-            }
-        });
+        compactionLock.readLock().lock();
+        try {
+            trackCompactionChange(documentId);
+            writer.removeRecord(() -> getRecordPointer(documentId), p -> {
+                trackSupersededRecord(p);
+                try {
+                    index.removeFromIndex(documentId);
+                } catch (JasDBStorageException e) {
+                    LOG.error("Unable to remove record from index", e);
+                }
+            });
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The changes made to the record file while a compaction is copying the records
+     */
+    private static class CompactionChanges {
+        private final Set<UUIDKey> documentIds = ConcurrentHashMap.newKeySet();
+        private final Set<Long> supersededPointers = ConcurrentHashMap.newKeySet();
+    }
+
+    private Optional<Long> findRecordPointer(Index lookupIndex, UUIDKey documentId) throws JasDBStorageException {
+        IndexSearchResultIterator resultIterator = lookupIndex.searchIndex(new EqualsCondition(documentId), Index.NO_SEARCH_LIMIT);
+        if(!resultIterator.isEmpty()) {
+            LongKey longKey = (LongKey) resultIterator.next().getKey(keyInfo.getKeyNameMapper(), "RECORD_POINTER");
+            return Optional.of(longKey.getKey());
+        }
+        return Optional.empty();
     }
 
     private Optional<Long> getRecordPointer(UUIDKey documentId) {
@@ -155,16 +298,244 @@ public class TransactionalRecordWriter implements RecordWriter<UUIDKey> {
 
     @Override
     public void updateRecord(UUIDKey documentId, ClonableDataStream dataStream) throws JasDBStorageException {
-        long updatedDocumentPointer = writer.updateRecord(RecordStreamUtil.toString(dataStream), () -> getRecordPointer(documentId), (oldp, newp) -> {
-            if(oldp != newp) {
-                Key newKey = documentId.cloneKey(false).addKey(keyInfo.getKeyNameMapper(), "RECORD_POINTER", new LongKey(newp));
-                try {
-                    index.updateKey(documentId, newKey);
-                } catch (JasDBStorageException e) {
-                    LOG.error("", e);
+        String recordContents = RecordStreamUtil.toString(dataStream);
+        compactionLock.readLock().lock();
+        try {
+            trackCompactionChange(documentId);
+            writer.updateRecord(recordContents, () -> getRecordPointer(documentId), (oldp, newp) -> {
+                if(!oldp.equals(newp)) {
+                    trackSupersededRecord(oldp);
+                    Key newKey = documentId.cloneKey(false).addKey(keyInfo.getKeyNameMapper(), "RECORD_POINTER", new LongKey(newp));
+                    try {
+                        index.updateKey(documentId, newKey);
+                    } catch (JasDBStorageException e) {
+                        LOG.error("", e);
+                    }
+                }
+            });
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    private void trackCompactionChange(UUIDKey documentId) {
+        CompactionChanges changes = compactionChanges;
+        if(changes != null) {
+            changes.documentIds.add(documentId);
+        }
+    }
+
+    private void trackSupersededRecord(long recordPointer) {
+        CompactionChanges changes = compactionChanges;
+        if(changes != null) {
+            changes.supersededPointers.add(recordPointer);
+        }
+    }
+
+    @Override
+    public long getReclaimableSize() {
+        return writer.getReclaimableSize();
+    }
+
+    @Override
+    public CompactionReport getCompactionReport() {
+        return compactionProgress;
+    }
+
+    /**
+     * Compacts the record file by copying all live records into a new record file and primary key index. The
+     * records are copied while the writer remains online, changes made during the copy are tracked and
+     * applied while holding the exclusive compaction lock, after which both files are swapped.
+     */
+    @Override
+    public CompactionReport compact() throws JasDBStorageException {
+        if(!compacting.compareAndSet(false, true)) {
+            LOG.info("Compaction of: {} already running", recordLocation);
+            return compactionProgress;
+        }
+
+        File compactRecordLocation = new File(recordLocation + COMPACT_EXTENSION);
+        File compactIndexLocation = new File(indexLocation + COMPACT_EXTENSION);
+        File compactDictionaryLocation = RecordCodecs.getDictionaryLocation(compactRecordLocation);
+        deleteSafely(compactRecordLocation);
+        deleteSafely(compactIndexLocation);
+        deleteSafely(compactDictionaryLocation);
+        copyDictionaries(compactDictionaryLocation);
+
+        Writer compactWriter = new FSWriter(compactRecordLocation, writerConfig);
+        Index compactIndex = new BTreeIndex(compactIndexLocation, keyInfo);
+        boolean swapped = false;
+        try {
+            compactWriter.openWriter();
+            compactIndex.openIndex();
+
+            compactionChanges = new CompactionChanges();
+            writer.suspendInPlaceUpdates(true);
+            long snapshotPosition = writer.getRecordPosition();
+            compactionProgress.start(snapshotPosition);
+            LOG.info("Starting compaction of: {} reclaimable bytes: {}", recordLocation, writer.getReclaimableSize());
+
+            CompactionMapping mapping = new CompactionMapping();
+            writer.copyRecords(FSWriter.HEADER_SIZE, snapshotPosition, compactWriter, mapping, compactionProgress);
+            copyIndexPointers(compactIndex, mapping);
+
+            compactionLock.writeLock().lock();
+            try {
+                long endPosition = writer.getRecordPosition();
+                compactionProgress.extend(endPosition);
+                writer.copyRecords(snapshotPosition, endPosition, compactWriter, mapping, compactionProgress);
+                applyCompactionChanges(compactionChanges, compactWriter, compactIndex, mapping);
+
+                compactWriter.flush();
+                compactIndex.flushIndex();
+                compactWriter.closeWriter();
+                compactIndex.close();
+
+                long bytesReclaimed = writer.getDiskSize() - compactRecordLocation.length();
+                swapCompactedFiles();
+                swapped = true;
+
+                compactionProgress.finish(bytesReclaimed);
+                LOG.info("Finished compaction of: {} report: {}", recordLocation, compactionProgress);
+            } finally {
+                compactionLock.writeLock().unlock();
+            }
+        } finally {
+            compactionChanges = null;
+            writer.suspendInPlaceUpdates(false);
+            if(!swapped) {
+                compactionProgress.abort();
+                if(compactWriter.isOpen()) {
+                    compactWriter.closeWriter();
+                    compactIndex.close();
+                }
+                deleteSafely(compactRecordLocation);
+                deleteSafely(compactIndexLocation);
+                deleteSafely(compactDictionaryLocation);
+            }
+            compacting.set(false);
+        }
+
+        return compactionProgress;
+    }
+
+    /**
+     * The records are copied as is, the compacted record file needs all dictionaries the records were written with
+     */
+    private void copyDictionaries(File compactDictionaryLocation) throws DatastoreException {
+        File dictionaryLocation = RecordCodecs.getDictionaryLocation(recordLocation);
+        if(dictionaryLocation.exists()) {
+            try {
+                Files.copy(dictionaryLocation.toPath(), compactDictionaryLocation.toPath(), StandardCopyOption.COPY_ATTRIBUTES);
+            } catch(IOException e) {
+                throw new DatastoreException("Unable to copy record dictionaries for compaction of: " + recordLocation, e);
+            }
+        }
+    }
+
+    private void copyIndexPointers(Index compactIndex, CompactionMapping mapping) throws JasDBStorageException {
+        IndexIterator indexIterator = index.getIndexIterator();
+        try {
+            for(Key key : indexIterator) {
+                LongKey recordPointer = (LongKey) key.getKey(keyInfo.getKeyNameMapper(), "RECORD_POINTER");
+                long compactedPointer = mapping.get(recordPointer.getKey());
+                if(compactedPointer != -1) {
+                    compactIndex.insertIntoIndex(key.cloneKey(false).addKey(keyInfo.getKeyNameMapper(), "RECORD_POINTER", new LongKey(compactedPointer)));
+                }
+            }
+        } finally {
+            indexIterator.close();
+        }
+    }
+
+    /**
+     * Applies all the changes made during the online part of the compaction, needs to be called while holding
+     * the exclusive compaction lock.
+     */
+    private void applyCompactionChanges(CompactionChanges changes, Writer compactWriter, Index compactIndex, CompactionMapping mapping) throws JasDBStorageException {
+        LOG.debug("Applying {} changes made during compaction", changes.documentIds.size());
+        for(Long supersededPointer : changes.supersededPointers) {
+            long compactedPointer = mapping.get(supersededPointer);
+            if(compactedPointer != -1) {
+                compactWriter.removeRecord(() -> Optional.of(compactedPointer), null);
+            }
+        }
+
+        for(UUIDKey documentId : changes.documentIds) {
+            Optional<Long> currentPointer = findRecordPointer(index, documentId);
+            long compactedPointer = currentPointer.isPresent() ? mapping.get(currentPointer.get()) : -1;
+            Optional<Long> copiedPointer = findRecordPointer(compactIndex, documentId);
+
+            if(compactedPointer != -1) {
+                Key compactedKey = documentId.cloneKey(false).addKey(keyInfo.getKeyNameMapper(), "RECORD_POINTER", new LongKey(compactedPointer));
+                if(copiedPointer.isPresent()) {
+                    compactIndex.updateKey(documentId, compactedKey);
+                } else {
+                    compactIndex.insertIntoIndex(compactedKey);
+                }
+            } else if(copiedPointer.isPresent()) {
+                compactIndex.removeFromIndex(documentId);
+            }
+        }
+    }
+
+    /**
+     * Swaps the compacted files in place of the current record file and index, needs to be called while holding
+     * the exclusive compaction lock. A marker file is created once the compacted files are complete so an
+     * interrupted swap is completed on the next open. Record iterators that are still open keep reading the
+     * replaced record file, it is closed once the last of them is released.
+     */
+    private void swapCompactedFiles() throws JasDBStorageException {
+        File marker = new File(recordLocation + COMPACTED_MARKER_EXTENSION);
+        try {
+            if(!marker.createNewFile()) {
+                throw new DatastoreException("Unable to create compaction marker: " + marker);
+            }
+        } catch(IOException e) {
+            throw new DatastoreException("Unable to create compaction marker: " + marker, e);
+        }
+
+        writer.retireWriter();
+        index.close();
+        completeCompaction();
+
+        this.writer = new FSWriter(recordLocation, writerConfig);
+        this.index = new BTreeIndex(indexLocation, keyInfo);
+        this.writer.openWriter();
+        this.index.openIndex();
+    }
+
+    /**
+     * Moves the compacted files in place if a finished compaction was not yet swapped, otherwise removes the
+     * files of an incomplete compaction.
+     */
+    private void completeCompaction() throws JasDBStorageException {
+        File marker = new File(recordLocation + COMPACTED_MARKER_EXTENSION);
+        File compactRecordLocation = new File(recordLocation + COMPACT_EXTENSION);
+        File compactIndexLocation = new File(indexLocation + COMPACT_EXTENSION);
+        File compactDictionaryLocation = RecordCodecs.getDictionaryLocation(compactRecordLocation);
+
+        if(marker.exists()) {
+            LOG.info("Completing compaction of: {}", recordLocation);
+            try {
+                if(compactDictionaryLocation.exists()) {
+                    Files.move(compactDictionaryLocation.toPath(), RecordCodecs.getDictionaryLocation(recordLocation).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                if(compactIndexLocation.exists()) {
+                    Files.move(compactIndexLocation.toPath(), indexLocation.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
                 }
+                if(compactRecordLocation.exists()) {
+                    Files.move(compactRecordLocation.toPath(), recordLocation.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch(IOException e) {
+                throw new DatastoreException("Unable to swap compacted record storage for: " + recordLocation, e);
             }
-        });
+            deleteSafely(marker);
+        } else {
+            deleteSafely(compactRecordLocation);
+            deleteSafely(compactIndexLocation);
+            deleteSafely(compactDictionaryLocation);
+        }
     }
 
     public Index getIndex() {
@@ -1,9 +1,11 @@
 package com.oberasoftware.jasdb.writer.transactional;
 
+import com.oberasoftware.jasdb.api.engine.Configuration;
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import com.oberasoftware.jasdb.api.storage.RecordWriter;
 import com.oberasoftware.jasdb.api.storage.RecordWriterFactory;
 import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+import com.oberasoftware.jasdb.core.utils.FileUtils;
 
 import java.io.File;
 
@@ -20,4 +22,10 @@ public class TransactionalRecordWriterFactory implements RecordWriterFactory<UUI
     public RecordWriter<UUIDKey> createWriter(File file) throws JasDBStorageException {
         return new TransactionalRecordWriter(file);
     }
+
+    @Override
+    public RecordWriter<UUIDKey> createWriter(File file, Configuration configuration) throws JasDBStorageException {
+        String bagName = FileUtils.removeExtension(file.getName());
+        return new TransactionalRecordWriter(file, WriterConfig.createWriterConfig(configuration, bagName));
+    }
 }
@@ -4,6 +4,8 @@ import com.oberasoftware.jasdb.api.exceptions.DatastoreException;
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
 import com.oberasoftware.jasdb.api.storage.RecordIterator;
 
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -20,10 +22,14 @@ public interface Writer {
 
     void closeWriter() throws JasDBStorageException;
 
+    void flush() throws DatastoreException;
+
     RecordResultImpl readRecord(Supplier<Optional<Long>> recordPointerSupplier) throws DatastoreException;
 
     Long writeRecord(String recordContents, Consumer<Long> postWriteAction) throws DatastoreException;
 
+    List<Long> writeRecords(List<String> recordContents, Consumer<List<Long>> postWriteAction) throws DatastoreException;
+
     void removeRecord(Supplier<Optional<Long>> recordPointerSupplier, Consumer<Long> postRemoveAction) throws DatastoreException;
 
     Long updateRecord(String recordContents, Supplier<Optional<Long>> recordPointerSupplier, BiConsumer<Long, Long> consumer) throws DatastoreException;
@@ -35,4 +41,28 @@ public interface Writer {
     RecordIterator readAllRecords() throws DatastoreException;
 
     RecordIterator readAllRecords(int limit) throws DatastoreException;
+
+    List<RecordIterator> readRecordSegments(int segments) throws DatastoreException;
+
+    long writeRawRecord(ByteBuffer record) throws DatastoreException;
+
+    long copyRecords(long fromPosition, long toPosition, Writer target, CompactionMapping mapping, CompactionProgress progress) throws DatastoreException;
+
+    long getRecordPosition();
+
+    long getReclaimableSize();
+
+    void suspendInPlaceUpdates(boolean suspend) throws DatastoreException;
+
+    /**
+     * Registers an open record iterator, a retired writer is only closed after all its iterators are released
+     */
+    void acquireIterator();
+
+    void releaseIterator() throws JasDBStorageException;
+
+    /**
+     * Closes the writer as soon as no record iterators are open anymore
+     */
+    void retireWriter() throws JasDBStorageException;
 }
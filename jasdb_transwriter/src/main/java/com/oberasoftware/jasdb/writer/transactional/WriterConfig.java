@@ -0,0 +1,215 @@
+package com.oberasoftware.jasdb.writer.transactional;
+
+import com.oberasoftware.jasdb.api.engine.Configuration;
+import com.oberasoftware.jasdb.api.exceptions.CoreConfigException;
+import com.oberasoftware.jasdb.core.utils.conversion.ValueConverterUtil;
+
+import java.util.zip.Deflater;
+
+/**
+ * Contains the settings of the record writer. The group commit settings determine how long a commit waits for
+ * other writers to join the same disk sync and if the record file is synced to disk at all, the read settings
+ * determine if records are read through memory mapped segments of the record file. Updates that fit in the
+ * space reserved for a record are rewritten in place unless disabled. The codec settings determine how records
+ * are compressed, these can be overridden per bag.
+ *
+ * @author Renze de Vries
+ */
+public class WriterConfig {
+    private static final boolean DEFAULT_SYNC = true;
+    private static final long DEFAULT_COMMIT_WINDOW = 0;
+    private static final int DEFAULT_COMMIT_BATCH_SIZE = 128;
+    private static final boolean DEFAULT_MAPPED_READS = true;
+    private static final boolean DEFAULT_IN_PLACE_UPDATES = true;
+    private static final String DEFAULT_CODEC = RecordCodecs.CODEC_DEFLATE;
+    private static final int DEFAULT_COMPRESSION_LEVEL = Deflater.DEFAULT_COMPRESSION;
+
+    private final boolean sync;
+    private final long commitWindow;
+    private final int commitBatchSize;
+    private final boolean mappedReads;
+    private final boolean inPlaceUpdates;
+
+    private String codec = DEFAULT_CODEC;
+    private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+    private String dictionary;
+
+    public WriterConfig(boolean sync, long commitWindow, int commitBatchSize) {
+        this(sync, commitWindow, commitBatchSize, DEFAULT_MAPPED_READS);
+    }
+
+    public WriterConfig(boolean sync, long commitWindow, int commitBatchSize, boolean mappedReads) {
+        this(sync, commitWindow, commitBatchSize, mappedReads, DEFAULT_IN_PLACE_UPDATES);
+    }
+
+    public WriterConfig(boolean sync, long commitWindow, int commitBatchSize, boolean mappedReads, boolean inPlaceUpdates) {
+        this.sync = sync;
+        this.commitWindow = commitWindow;
+        this.commitBatchSize = commitBatchSize;
+        this.mappedReads = mappedReads;
+        this.inPlaceUpdates = inPlaceUpdates;
+    }
+
+    /**
+     * Indicates if the record file is synced to disk on every commit
+     * @return True if the commit syncs to disk, False if not
+     */
+    public boolean isSync() {
+        return sync;
+    }
+
+    /**
+     * The maximum time in milliseconds a commit waits for other writers before syncing
+     * @return The commit window in milliseconds
+     */
+    public long getCommitWindow() {
+        return commitWindow;
+    }
+
+    /**
+     * The amount of pending writers after which a commit no longer waits for the commit window
+     * @return The commit batch size
+     */
+    public int getCommitBatchSize() {
+        return commitBatchSize;
+    }
+
+    /**
+     * Indicates if records are read through memory mapped segments of the record file instead of channel reads
+     * @return True if records are read through mapped segments, False if not
+     */
+    public boolean isMappedReads() {
+        return mappedReads;
+    }
+
+    /**
+     * Indicates if updated records that fit in the reserved space of the existing record are rewritten in place
+     * @return True if updates are rewritten in place when possible, False if updates are always appended
+     */
+    public boolean isInPlaceUpdates() {
+        return inPlaceUpdates;
+    }
+
+    /**
+     * The codec used to encode new records, either deflate, lz or none
+     * @return The record codec name
+     */
+    public String getCodec() {
+        return codec;
+    }
+
+    /**
+     * The compression level used by the deflate codec
+     * @return The deflate compression level
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * The file with sample documents, one per line, used to train the dictionary of the deflate codec
+     * @return The dictionary sample file, null if no dictionary is used
+     */
+    public String getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Creates a copy of these settings with different codec settings
+     * @param codec The codec used to encode new records
+     * @param compressionLevel The compression level used by the deflate codec
+     * @param dictionary The dictionary sample file, null if no dictionary is used
+     * @return The writer settings with the codec settings
+     */
+    public WriterConfig withCodec(String codec, int compressionLevel, String dictionary) {
+        WriterConfig writerConfig = new WriterConfig(sync, commitWindow, commitBatchSize, mappedReads, inPlaceUpdates);
+        writerConfig.codec = codec;
+        writerConfig.compressionLevel = compressionLevel;
+        writerConfig.dictionary = dictionary;
+        return writerConfig;
+    }
+
+    public static WriterConfig getDefaultWriterConfig() {
+        return new WriterConfig(DEFAULT_SYNC, DEFAULT_COMMIT_WINDOW, DEFAULT_COMMIT_BATCH_SIZE, DEFAULT_MAPPED_READS, DEFAULT_IN_PLACE_UPDATES);
+    }
+
+    public static WriterConfig createWriterConfig(Configuration config) {
+        return createWriterConfig(config, null);
+    }
+
+    /**
+     * Creates the writer settings for a bag, the codec settings of the bag can be overridden in a Bag
+     * element with the name of the bag.
+     */
+    public static WriterConfig createWriterConfig(Configuration config, String bagName) {
+        boolean sync = DEFAULT_SYNC;
+        long commitWindow = DEFAULT_COMMIT_WINDOW;
+        int commitBatchSize = DEFAULT_COMMIT_BATCH_SIZE;
+        boolean mappedReads = DEFAULT_MAPPED_READS;
+        boolean inPlaceUpdates = DEFAULT_IN_PLACE_UPDATES;
+        if(config != null) {
+            Configuration syncConfig = config.getChildConfiguration("Property[@Name='sync']");
+            if(syncConfig != null) {
+                sync = syncConfig.getAttribute("Value", DEFAULT_SYNC);
+            }
+
+            Configuration commitWindowConfig = config.getChildConfiguration("Property[@Name='commitWindow']");
+            if(commitWindowConfig != null) {
+                try {
+                    commitWindow = ValueConverterUtil.convertToMilliseconds(commitWindowConfig.getAttribute("Value"), DEFAULT_COMMIT_WINDOW);
+                } catch(CoreConfigException e) {
+                    commitWindow = DEFAULT_COMMIT_WINDOW;
+                }
+            }
+
+            Configuration commitBatchConfig = config.getChildConfiguration("Property[@Name='commitBatchSize']");
+            if(commitBatchConfig != null) {
+                commitBatchSize = ValueConverterUtil.safeConvertInteger(commitBatchConfig.getAttribute("Value"), DEFAULT_COMMIT_BATCH_SIZE);
+            }
+
+            Configuration mappedReadsConfig = config.getChildConfiguration("Property[@Name='mappedReads']");
+            if(mappedReadsConfig != null) {
+                mappedReads = mappedReadsConfig.getAttribute("Value", DEFAULT_MAPPED_READS);
+            }
+
+            Configuration inPlaceUpdatesConfig = config.getChildConfiguration("Property[@Name='inPlaceUpdates']");
+            if(inPlaceUpdatesConfig != null) {
+                inPlaceUpdates = inPlaceUpdatesConfig.getAttribute("Value", DEFAULT_IN_PLACE_UPDATES);
+            }
+        }
+
+        WriterConfig writerConfig = new WriterConfig(sync, commitWindow, commitBatchSize, mappedReads, inPlaceUpdates);
+        if(config != null) {
+            writerConfig = loadCodecConfig(config, writerConfig);
+
+            Configuration bagConfig = bagName != null ? config.getChildConfiguration("Bag[@Name='" + bagName + "']") : null;
+            if(bagConfig != null) {
+                writerConfig = loadCodecConfig(bagConfig, writerConfig);
+            }
+        }
+        return writerConfig;
+    }
+
+    private static WriterConfig loadCodecConfig(Configuration config, WriterConfig writerConfig) {
+        String codec = writerConfig.getCodec();
+        int compressionLevel = writerConfig.getCompressionLevel();
+        String dictionary = writerConfig.getDictionary();
+
+        Configuration codecConfig = config.getChildConfiguration("Property[@Name='codec']");
+        if(codecConfig != null) {
+            codec = codecConfig.getAttribute("Value", DEFAULT_CODEC);
+        }
+
+        Configuration levelConfig = config.getChildConfiguration("Property[@Name='compressionLevel']");
+        if(levelConfig != null) {
+            compressionLevel = ValueConverterUtil.safeConvertInteger(levelConfig.getAttribute("Value"), DEFAULT_COMPRESSION_LEVEL);
+        }
+
+        Configuration dictionaryConfig = config.getChildConfiguration("Property[@Name='dictionary']");
+        if(dictionaryConfig != null) {
+            dictionary = dictionaryConfig.getAttribute("Value");
+        }
+
+        return writerConfig.withCodec(codec, compressionLevel, dictionary);
+    }
+}
@@ -1,13 +1,234 @@
 package com.oberasoftware.jasdb.writer.transactional;
 
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.storage.ClonableDataStream;
+import com.oberasoftware.jasdb.api.storage.CompactionReport;
+import com.oberasoftware.jasdb.api.storage.RecordIterator;
+import com.oberasoftware.jasdb.api.storage.RecordResult;
 import com.oberasoftware.jasdb.api.storage.RecordWriter;
+import com.oberasoftware.jasdb.core.index.keys.UUIDKey;
+import com.oberasoftware.jasdb.core.utils.RecordStreamUtil;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class FSRecordWriterTest extends BaseRecordWriterTest {
+    private static final Logger LOG = LoggerFactory.getLogger(FSRecordWriterTest.class);
+    private static final String RECORD_CONTENTS = "Some Record Contents: ";
+
     @Override
     protected RecordWriter createRecordWriter(File recordFile) throws JasDBStorageException {
         return new TransactionalRecordWriter(recordFile);
     }
+
+    @Test
+    public void testCompaction() throws Exception {
+        int testSize = 1000;
+        File recordFile = new File(tmpDir, "teststore.pjs");
+        List<UUIDKey> documentIds = new ArrayList<>();
+
+        TransactionalRecordWriter recordWriter = new TransactionalRecordWriter(recordFile);
+        recordWriter.openWriter();
+        try {
+            for(int i=0; i<testSize; i++) {
+                UUIDKey documentId = new UUIDKey(UUID.randomUUID());
+                recordWriter.writeRecord(documentId, RecordStreamUtil.toStream(RECORD_CONTENTS + i));
+                documentIds.add(documentId);
+            }
+            for(int i=0; i<testSize; i++) {
+                if(i % 2 == 0) {
+                    recordWriter.removeRecord(documentIds.get(i));
+                } else {
+                    recordWriter.updateRecord(documentIds.get(i), RecordStreamUtil.toStream(RECORD_CONTENTS + "updated record content " + i));
+                }
+            }
+            long diskSize = recordWriter.getDiskSize();
+            assertTrue(recordWriter.getReclaimableSize() > 0);
+
+            CompactionReport report = recordWriter.compact();
+            assertFalse(report.isRunning());
+            assertThat(report.getRecordsCopied(), is((long) testSize / 2));
+            assertTrue(report.getBytesReclaimed() > 0);
+            assertTrue(recordWriter.getDiskSize() < diskSize);
+            assertThat(recordWriter.getReclaimableSize(), is(0L));
+            assertThat(recordWriter.getSize(), is((long) testSize / 2));
+
+            assertCompactedRecords(recordWriter, documentIds);
+        } finally {
+            recordWriter.closeWriter();
+        }
+
+        assertFalse(new File(recordFile + ".compact").exists());
+        recordWriter = new TransactionalRecordWriter(recordFile);
+        recordWriter.openWriter();
+        try {
+            assertCompactedRecords(recordWriter, documentIds);
+        } finally {
+            recordWriter.closeWriter();
+        }
+    }
+
+    @Test
+    public void testCompactionWithConcurrentWrites() throws Exception {
+        int testSize = 2000;
+        File recordFile = new File(tmpDir, "teststore.pjs");
+        List<UUIDKey> documentIds = new ArrayList<>();
+
+        TransactionalRecordWriter recordWriter = new TransactionalRecordWriter(recordFile);
+        recordWriter.openWriter();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            for(int i=0; i<testSize; i++) {
+                UUIDKey documentId = new UUIDKey(UUID.randomUUID());
+                recordWriter.writeRecord(documentId, RecordStreamUtil.toStream(RECORD_CONTENTS + i));
+                documentIds.add(documentId);
+            }
+
+            Future<?> writes = executorService.submit(() -> {
+                for(int i=0; i<testSize; i++) {
+                    recordWriter.updateRecord(documentIds.get(i), RecordStreamUtil.toStream(RECORD_CONTENTS + "updated " + i));
+                }
+                return null;
+            });
+            recordWriter.compact();
+            writes.get();
+
+            for(int i=0; i<testSize; i++) {
+                assertEquals(RECORD_CONTENTS + "updated " + i, RecordStreamUtil.toString(recordWriter.readRecord(documentIds.get(i))));
+            }
+            assertThat(recordWriter.getSize(), is((long) testSize));
+        } finally {
+            executorService.shutdown();
+            recordWriter.closeWriter();
+        }
+    }
+
+    @Test
+    public void testCompactionWithOpenIterators() throws Exception {
+        int testSize = 1000;
+        File recordFile = new File(tmpDir, "teststore.pjs");
+        Set<String> expectedContents = new HashSet<>();
+
+        TransactionalRecordWriter recordWriter = new TransactionalRecordWriter(recordFile);
+        recordWriter.openWriter();
+        try {
+            for(int i=0; i<testSize; i++) {
+                UUIDKey documentId = new UUIDKey(UUID.randomUUID());
+                recordWriter.writeRecord(documentId, RecordStreamUtil.toStream(RECORD_CONTENTS + i));
+                if(i % 2 == 0) {
+                    recordWriter.removeRecord(documentId);
+                } else {
+                    expectedContents.add(RECORD_CONTENTS + i);
+                }
+            }
+
+            RecordIterator allRecords = recordWriter.readAllRecords();
+            List<RecordIterator> segments = recordWriter.readRecordSegments(4);
+            Set<String> iterated = new HashSet<>();
+            for(int i=0; i<100; i++) {
+                assertTrue(allRecords.hasNext());
+                iterated.add(RecordStreamUtil.toString(allRecords.next()));
+            }
+
+            recordWriter.compact();
+
+            while(allRecords.hasNext()) {
+                iterated.add(RecordStreamUtil.toString(allRecords.next()));
+            }
+            allRecords.close();
+            assertEquals(expectedContents, iterated);
+
+            Set<String> segmentContents = new HashSet<>();
+            for(RecordIterator segment : segments) {
+                for(RecordResult result : segment) {
+                    segmentContents.add(RecordStreamUtil.toString(result));
+                }
+                segment.close();
+            }
+            assertEquals(expectedContents, segmentContents);
+
+            Set<String> compactedContents = new HashSet<>();
+            RecordIterator compactedRecords = recordWriter.readAllRecords();
+            for(RecordResult result : compactedRecords) {
+                compactedContents.add(RecordStreamUtil.toString(result));
+            }
+            compactedRecords.close();
+            assertEquals(expectedContents, compactedContents);
+        } finally {
+            recordWriter.closeWriter();
+        }
+    }
+
+    @Test
+    public void testWriteRecords() throws Exception {
+        int testSize = 1000;
+        int batchSize = 250;
+        File recordFile = new File(tmpDir, "teststore.pjs");
+        List<UUIDKey> documentIds = new ArrayList<>();
+
+        TransactionalRecordWriter recordWriter = new TransactionalRecordWriter(recordFile);
+        recordWriter.openWriter();
+        try {
+            Map<UUIDKey, ClonableDataStream> batch = new LinkedHashMap<>();
+            for(int i=0; i<testSize; i++) {
+                UUIDKey documentId = new UUIDKey(UUID.randomUUID());
+                batch.put(documentId, RecordStreamUtil.toStream(RECORD_CONTENTS + i));
+                documentIds.add(documentId);
+                if(batch.size() == batchSize) {
+                    recordWriter.writeRecords(batch);
+                    batch.clear();
+                }
+            }
+            assertThat(recordWriter.getSize(), is((long) testSize));
+            for(int i=0; i<testSize; i++) {
+                assertEquals(RECORD_CONTENTS + i, RecordStreamUtil.toString(recordWriter.readRecord(documentIds.get(i))));
+            }
+
+            UUIDKey newDocumentId = new UUIDKey(UUID.randomUUID());
+            batch.put(newDocumentId, RecordStreamUtil.toStream(RECORD_CONTENTS + "new"));
+            batch.put(documentIds.get(0), RecordStreamUtil.toStream(RECORD_CONTENTS + "duplicate"));
+            try {
+                recordWriter.writeRecords(batch);
+                fail("Batch with an existing record should not be written");
+            } catch(JasDBStorageException e) {
+                LOG.debug("Expected existing record", e);
+            }
+            assertFalse(recordWriter.readRecord(newDocumentId).isRecordFound());
+            assertEquals(RECORD_CONTENTS + 0, RecordStreamUtil.toString(recordWriter.readRecord(documentIds.get(0))));
+            assertThat(recordWriter.getSize(), is((long) testSize));
+        } finally {
+            recordWriter.closeWriter();
+        }
+    }
+
+    private void assertCompactedRecords(RecordWriter<UUIDKey> recordWriter, List<UUIDKey> documentIds) throws JasDBStorageException {
+        for(int i=0; i<documentIds.size(); i++) {
+            RecordResult result = recordWriter.readRecord(documentIds.get(i));
+            if(i % 2 == 0) {
+                assertFalse(result.isRecordFound());
+            } else {
+                assertEquals(RECORD_CONTENTS + "updated record content " + i, RecordStreamUtil.toString(result));
+            }
+        }
+    }
 }
@@ -0,0 +1,485 @@
+package com.oberasoftware.jasdb.writer.transactional;
+
+import com.oberasoftware.jasdb.api.exceptions.DatastoreException;
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.storage.RecordIterator;
+import com.oberasoftware.jasdb.api.storage.RecordResult;
+import com.oberasoftware.jasdb.core.utils.RecordStreamUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Renze de Vries
+ */
+public class FSWriterTest extends BaseTest {
+    private static final String RECORD_CONTENTS = "Some Record Contents: ";
+
+    private File recordFile = new File(tmpDir, "fswriter.pjs");
+
+    @Before
+    public void setUp() {
+        assertDelete(recordFile);
+    }
+
+    @After
+    public void tearDown() {
+        assertDelete(recordFile);
+    }
+
+    @Test
+    public void testConcurrentGroupCommit() throws Exception {
+        int threads = 8;
+        int recordsPerThread = 250;
+
+        FSWriter writer = new FSWriter(recordFile, new WriterConfig(true, 1, 16));
+        writer.openWriter();
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for(int t=0; t<threads; t++) {
+                final int thread = t;
+                futures.add(executorService.submit(() -> {
+                    List<Long> pointers = new ArrayList<>();
+                    for(int i=0; i<recordsPerThread; i++) {
+                        pointers.add(writer.writeRecord(RECORD_CONTENTS + thread + "_" + i, null));
+                    }
+                    return pointers;
+                }));
+            }
+
+            for(int t=0; t<threads; t++) {
+                List<Long> pointers = futures.get(t).get();
+                for(int i=0; i<recordsPerThread; i++) {
+                    assertRecord(writer, pointers.get(i), RECORD_CONTENTS + t + "_" + i);
+                }
+            }
+            assertThat(writer.getSize(), is((long) threads * recordsPerThread));
+        } finally {
+            executorService.shutdown();
+            writer.closeWriter();
+        }
+    }
+
+    @Test
+    public void testRecoverAfterLastCheckpoint() throws Exception {
+        int testSize = 100;
+        List<Long> pointers = new ArrayList<>();
+
+        FSWriter writer = new FSWriter(recordFile);
+        writer.openWriter();
+        try {
+            for(int i=0; i<testSize; i++) {
+                pointers.add(writer.writeRecord(RECORD_CONTENTS + i, null));
+            }
+        } finally {
+            writer.closeWriter();
+        }
+
+        //simulate a crash before the header checkpoint, leaving an empty header and a torn record at the end
+        try(RandomAccessFile randomAccess = new RandomAccessFile(recordFile, "rw")) {
+            randomAccess.seek(8);
+            randomAccess.writeLong(0);
+            randomAccess.writeLong(64);
+
+            randomAccess.seek(randomAccess.length());
+            randomAccess.writeLong(200);
+            randomAccess.writeLong(0);
+            randomAccess.writeInt(RECORD_FLAG.ACTIVE.getFlag());
+            randomAccess.write(new byte[50]);
+        }
+
+        writer = new FSWriter(recordFile);
+        writer.openWriter();
+        try {
+            assertThat(writer.getSize(), is((long) testSize));
+            for(int i=0; i<testSize; i++) {
+                assertRecord(writer, pointers.get(i), RECORD_CONTENTS + i);
+            }
+
+            long pointer = writer.writeRecord(RECORD_CONTENTS + testSize, null);
+            assertRecord(writer, pointer, RECORD_CONTENTS + testSize);
+            assertThat(writer.getSize(), is((long) testSize + 1));
+        } finally {
+            writer.closeWriter();
+        }
+    }
+
+    @Test
+    public void testRecountAfterUncleanShutdown() throws Exception {
+        int testSize = 100;
+        List<Long> pointers = new ArrayList<>();
+
+        FSWriter writer = new FSWriter(recordFile);
+        writer.openWriter();
+        try {
+            for(int i=0; i<testSize; i++) {
+                pointers.add(writer.writeRecord(RECORD_CONTENTS + i, null));
+            }
+            for(int i=0; i<testSize; i += 4) {
+                final long pointer = pointers.get(i);
+                writer.removeRecord(() -> Optional.of(pointer), null);
+            }
+        } finally {
+            writer.closeWriter();
+        }
+
+        //simulate a crash after the removals were flagged but before the header count was checkpointed
+        try(RandomAccessFile randomAccess = new RandomAccessFile(recordFile, "rw")) {
+            randomAccess.seek(8);
+            randomAccess.writeLong(testSize);
+            randomAccess.seek(24);
+            randomAccess.writeLong(0);
+        }
+
+        writer = new FSWriter(recordFile);
+        writer.openWriter();
+        try {
+            assertThat(writer.getSize(), is((long) testSize - testSize / 4));
+        } finally {
+            writer.closeWriter();
+        }
+
+        //a clean shutdown keeps the stored count
+        writer = new FSWriter(recordFile);
+        writer.openWriter();
+        try {
+            assertThat(writer.getSize(), is((long) testSize - testSize / 4));
+        } finally {
+            writer.closeWriter();
+        }
+    }
+
+    @Test
+    public void testReclaimableSizeAfterRestart() throws Exception {
+        int testSize = 50;
+        long reclaimable;
+
+        FSWriter writer = new FSWriter(recordFile);
+        writer.openWriter();
+        try {
+            for(int i=0; i<testSize; i++) {
+                final long pointer = writer.writeRecord(RECORD_CONTENTS + i, null);
+                if(i % 2 == 0) {
+                    writer.removeRecord(() -> Optional.of(pointer), null);
+                } else if(i % 5 == 0) {
+                    writer.updateRecord(RECORD_CONTENTS + i + " with contents that no longer fit in place " + UUID.randomUUID(), () -> Optional.of(pointer), null);
+                }
+            }
+            reclaimable = writer.getReclaimableSize();
+            assertThat(reclaimable > 0, is(true));
+        } finally {
+            writer.closeWriter();
+        }
+
+        writer = new FSWriter(recordFile);
+        writer.openWriter();
+        try {
+            assertThat(writer.getReclaimableSize(), is(reclaimable));
+        } finally {
+            writer.closeWriter();
+        }
+
+        //simulate a crash that lost the stored reclaimable size, it is counted again from the record headers
+        try(RandomAccessFile randomAccess = new RandomAccessFile(recordFile, "rw")) {
+            randomAccess.seek(24);
+            randomAccess.writeLong(0);
+            randomAccess.writeLong(0);
+        }
+
+        writer = new FSWriter(recordFile);
+        writer.openWriter();
+        try {
+            assertThat(writer.getReclaimableSize(), is(reclaimable));
+            assertThat(writer.getSize(), is((long) testSize / 2));
+        } finally {
+            writer.closeWriter();
+        }
+    }
+
+    @Test
+    public void testMappedReadsWhileGrowing() throws Exception {
+        int testSize = 3000;
+        List<Long> pointers = new ArrayList<>();
+        List<String> contents = new ArrayList<>();
+
+        FSWriter writer = new FSWriter(recordFile, new WriterConfig(false, 0, 1, true));
+        writer.openWriter();
+        try {
+            for(int i=0; i<testSize; i++) {
+                StringBuilder recordContent = new StringBuilder(RECORD_CONTENTS);
+                for(int j=0; j<20; j++) {
+                    recordContent.append(UUID.randomUUID());
+                }
+                long pointer = writer.writeRecord(recordContent.toString(), null);
+                assertRecord(writer, pointer, recordContent.toString());
+
+                pointers.add(pointer);
+                contents.add(recordContent.toString());
+            }
+
+            for(int i=0; i<testSize; i++) {
+                assertRecord(writer, pointers.get(i), contents.get(i));
+            }
+        } finally {
+            writer.closeWriter();
+        }
+    }
+
+    @Test
+    public void testInPlaceUpdate() throws Exception {
+        FSWriter writer = new FSWriter(recordFile);
+        writer.openWriter();
+        try {
+            long pointer = writer.writeRecord(RECORD_CONTENTS + "status=starting counter=00001", null);
+            long secondPointer = writer.writeRecord(RECORD_CONTENTS + "second", null);
+            long diskSize = writer.getDiskSize();
+
+            long updatedPointer = writer.updateRecord(RECORD_CONTENTS + "status=running counter=00002", () -> Optional.of(pointer), null);
+            assertThat(updatedPointer, is(pointer));
+            assertThat(writer.getDiskSize(), is(diskSize));
+            assertThat(writer.getReclaimableSize(), is(0L));
+            assertThat(writer.getSize(), is(2L));
+            assertRecord(writer, pointer, RECORD_CONTENTS + "status=running counter=00002");
+            assertRecord(writer, secondPointer, RECORD_CONTENTS + "second");
+
+            StringBuilder largeContent = new StringBuilder(RECORD_CONTENTS);
+            for(int i=0; i<10; i++) {
+                largeContent.append(UUID.randomUUID());
+            }
+            updatedPointer = writer.updateRecord(largeContent.toString(), () -> Optional.of(pointer), null);
+            assertThat(updatedPointer == pointer, is(false));
+            assertThat(writer.getSize(), is(2L));
+            assertRecord(writer, updatedPointer, largeContent.toString());
+            assertRecord(writer, secondPointer, RECORD_CONTENTS + "second");
+        } finally {
+            writer.closeWriter();
+        }
+
+        writer = new FSWriter(recordFile);
+        writer.openWriter();
+        try {
+            assertThat(writer.getSize(), is(2L));
+        } finally {
+            writer.closeWriter();
+        }
+    }
+
+    @Test
+    public void testTornInPlaceUpdateDetected() throws Exception {
+        long pointer;
+        long secondPointer;
+        FSWriter writer = new FSWriter(recordFile, WriterConfig.getDefaultWriterConfig().withCodec(RecordCodecs.CODEC_NONE, 0, null));
+        writer.openWriter();
+        try {
+            pointer = writer.writeRecord(RECORD_CONTENTS + "status=starting", null);
+            secondPointer = writer.writeRecord(RECORD_CONTENTS + "second", null);
+            final long updatePointer = pointer;
+            assertThat(writer.updateRecord(RECORD_CONTENTS + "status=running!", () -> Optional.of(updatePointer), null), is(pointer));
+        } finally {
+            writer.closeWriter();
+        }
+
+        //simulate a crash halfway the rewrite, the first part of the contents is written but the rest is not
+        try(RandomAccessFile randomAccess = new RandomAccessFile(recordFile, "rw")) {
+            randomAccess.seek(pointer + 20 + RECORD_CONTENTS.length());
+            randomAccess.write("status=starting".getBytes("UTF8"), 0, 8);
+        }
+
+        //records written without a checksum can still be read
+        byte[] oldRecord = (RECORD_CONTENTS + "old format").getBytes("UTF8");
+        long oldPointer;
+        try(RandomAccessFile randomAccess = new RandomAccessFile(recordFile, "rw")) {
+            randomAccess.seek(16);
+            oldPointer = randomAccess.readLong();
+            randomAccess.seek(oldPointer);
+            randomAccess.writeLong(oldRecord.length);
+            randomAccess.writeLong(0);
+            randomAccess.writeInt(RecordCodecs.toHeaderFlag(RECORD_FLAG.ACTIVE, 1));
+            randomAccess.write(oldRecord);
+        }
+
+        writer = new FSWriter(recordFile);
+        writer.openWriter();
+        try {
+            final long tornPointer = pointer;
+            try {
+                writer.readRecord(() -> Optional.of(tornPointer));
+                fail("Torn record should not be readable");
+            } catch(DatastoreException e) {
+                assertThat(e.getMessage().contains("checksum"), is(true));
+            }
+            assertRecord(writer, secondPointer, RECORD_CONTENTS + "second");
+            assertRecord(writer, oldPointer, RECORD_CONTENTS + "old format");
+            assertThat(writer.getSize(), is(3L));
+        } finally {
+            writer.closeWriter();
+        }
+    }
+
+    @Test
+    public void testTornInPlaceUpdateRolledBack() throws Exception {
+        File crashedFile = new File(tmpDir, "fswriter-crashed.pjs");
+        File crashedRollbackFile = new File(crashedFile + ".rollback");
+        try {
+            long[] pointers = crashDuringInPlaceUpdate(crashedFile, crashedRollbackFile);
+            long pointer = pointers[0];
+
+            //the rewrite was torn halfway the contents and the header was not yet checkpointed past the records
+            try(RandomAccessFile randomAccess = new RandomAccessFile(crashedFile, "rw")) {
+                randomAccess.seek(8);
+                randomAccess.writeLong(0);
+                randomAccess.writeLong(64);
+
+                randomAccess.seek(pointer + 20 + RECORD_CONTENTS.length());
+                randomAccess.write("status=starting".getBytes("UTF8"), 0, 8);
+            }
+
+            FSWriter writer = new FSWriter(crashedFile);
+            writer.openWriter();
+            try {
+                assertRecord(writer, pointer, RECORD_CONTENTS + "status=starting");
+                assertRecord(writer, pointers[1], RECORD_CONTENTS + "second");
+                assertThat(writer.getSize(), is(2L));
+                assertThat(crashedRollbackFile.exists(), is(false));
+            } finally {
+                writer.closeWriter();
+            }
+        } finally {
+            assertDelete(crashedFile);
+            assertDelete(crashedRollbackFile);
+        }
+    }
+
+    @Test
+    public void testCompleteInPlaceUpdateKeptAfterCrash() throws Exception {
+        File crashedFile = new File(tmpDir, "fswriter-crashed.pjs");
+        File crashedRollbackFile = new File(crashedFile + ".rollback");
+        try {
+            long[] pointers = crashDuringInPlaceUpdate(crashedFile, crashedRollbackFile);
+
+            FSWriter writer = new FSWriter(crashedFile);
+            writer.openWriter();
+            try {
+                assertRecord(writer, pointers[0], RECORD_CONTENTS + "status=running!");
+                assertRecord(writer, pointers[1], RECORD_CONTENTS + "second");
+                assertThat(writer.getSize(), is(2L));
+                assertThat(crashedRollbackFile.exists(), is(false));
+            } finally {
+                writer.closeWriter();
+            }
+        } finally {
+            assertDelete(crashedFile);
+            assertDelete(crashedRollbackFile);
+        }
+    }
+
+    /**
+     * Copies the record file and rollback log while the writer is still open after an in place update, the
+     * copies are the files as they would be found after a crash
+     * @return The pointer of the updated record and the pointer of the record after it
+     */
+    private long[] crashDuringInPlaceUpdate(File crashedFile, File crashedRollbackFile) throws Exception {
+        assertDelete(crashedFile);
+        assertDelete(crashedRollbackFile);
+
+        FSWriter writer = new FSWriter(recordFile, WriterConfig.getDefaultWriterConfig().withCodec(RecordCodecs.CODEC_NONE, 0, null));
+        writer.openWriter();
+        try {
+            long pointer = writer.writeRecord(RECORD_CONTENTS + "status=starting", null);
+            long secondPointer = writer.writeRecord(RECORD_CONTENTS + "second", null);
+            assertThat(writer.updateRecord(RECORD_CONTENTS + "status=running!", () -> Optional.of(pointer), null), is(pointer));
+
+            Files.copy(recordFile.toPath(), crashedFile.toPath());
+            Files.copy(new File(recordFile + ".rollback").toPath(), crashedRollbackFile.toPath());
+            return new long[] {pointer, secondPointer};
+        } finally {
+            writer.closeWriter();
+            assertThat(new File(recordFile + ".rollback").exists(), is(false));
+        }
+    }
+
+    @Test
+    public void testConcurrentReadsDuringInPlaceUpdates() throws Exception {
+        int updates = 2000;
+        FSWriter writer = new FSWriter(recordFile, new WriterConfig(false, 0, 1));
+        writer.openWriter();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            long pointer = writer.writeRecord(RECORD_CONTENTS + UUID.randomUUID(), null);
+
+            Future<?> reads = executorService.submit(() -> {
+                for(int i=0; i<updates; i++) {
+                    String contents = RecordStreamUtil.toString(writer.readRecord(() -> Optional.of(pointer)));
+                    assertThat(contents.startsWith(RECORD_CONTENTS), is(true));
+                }
+                return null;
+            });
+            for(int i=0; i<updates; i++) {
+                assertThat(writer.updateRecord(RECORD_CONTENTS + UUID.randomUUID(), () -> Optional.of(pointer), null), is(pointer));
+            }
+            reads.get();
+        } finally {
+            executorService.shutdown();
+            writer.closeWriter();
+        }
+    }
+
+    @Test
+    public void testReadRecordSegments() throws Exception {
+        int testSize = 1000;
+        FSWriter writer = new FSWriter(recordFile);
+        writer.openWriter();
+        try {
+            List<Long> pointers = new ArrayList<>();
+            for(int i=0; i<testSize; i++) {
+                pointers.add(writer.writeRecord(RECORD_CONTENTS + i, null));
+            }
+            for(int i=0; i<testSize; i+=3) {
+                long pointer = pointers.get(i);
+                writer.removeRecord(() -> Optional.of(pointer), null);
+            }
+
+            List<String> expected = new ArrayList<>();
+            for(RecordResult result : writer.readAllRecords()) {
+                expected.add(RecordStreamUtil.toString(result));
+            }
+
+            for(int segments : new int[] {1, 2, 7, 64, testSize * 2}) {
+                List<RecordIterator> recordSegments = writer.readRecordSegments(segments);
+                assertThat(recordSegments.size() <= segments, is(true));
+
+                List<String> contents = new ArrayList<>();
+                for(RecordIterator recordSegment : recordSegments) {
+                    for(RecordResult result : recordSegment) {
+                        contents.add(RecordStreamUtil.toString(result));
+                    }
+                }
+                assertEquals(expected, contents);
+            }
+        } finally {
+            writer.closeWriter();
+        }
+    }
+
+    private void assertRecord(FSWriter writer, long pointer, String expected) throws JasDBStorageException {
+        RecordResult result = writer.readRecord(() -> Optional.of(pointer));
+        assertEquals(expected, RecordStreamUtil.toString(result));
+    }
+}
@@ -0,0 +1,291 @@
+package com.oberasoftware.jasdb.writer.transactional;
+
+import com.oberasoftware.jasdb.api.exceptions.DatastoreException;
+import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.api.storage.RecordIterator;
+import com.oberasoftware.jasdb.api.storage.RecordResult;
+import com.oberasoftware.jasdb.core.utils.RecordStreamUtil;
+import com.oberasoftware.jasdb.core.utils.ResourceUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.zip.Deflater;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Renze de Vries
+ */
+public class RecordCodecTest extends BaseTest {
+    private static final Logger LOG = LoggerFactory.getLogger(RecordCodecTest.class);
+
+    private static final int HEADER_SPACE = 20;
+
+    private File recordFile = new File(tmpDir, "codecs.pjs");
+    private File sampleFile = new File(tmpDir, "codecs.samples");
+    private File dictionaryFile = new File(tmpDir, "codecs.pjs.dict");
+
+    @Before
+    public void setUp() {
+        assertDelete(recordFile);
+        assertDelete(sampleFile);
+        assertDelete(dictionaryFile);
+    }
+
+    @After
+    public void tearDown() {
+        assertDelete(recordFile);
+        assertDelete(sampleFile);
+        assertDelete(dictionaryFile);
+    }
+
+    @Test
+    public void testCodecRoundTrip() throws Exception {
+        String htmlData = ResourceUtil.getContent("datasets/htmlpage.data", "UTF-8");
+        byte[] randomData = new byte[10000];
+        new Random(42).nextBytes(randomData);
+        byte[] repeatingData = new byte[70000];
+        Arrays.fill(repeatingData, (byte) 'a');
+
+        List<byte[]> inputs = Arrays.asList(new byte[0], "a".getBytes(StandardCharsets.UTF_8),
+                "abcdabcdabcdabcdabcd".getBytes(StandardCharsets.UTF_8), createDocument(1).getBytes(StandardCharsets.UTF_8),
+                htmlData.getBytes(StandardCharsets.UTF_8), randomData, repeatingData);
+
+        for(RecordCodec codec : Arrays.asList(new NoneRecordCodec(), new LZRecordCodec(),
+                new DeflateRecordCodec(), new DeflateRecordCodec(Deflater.BEST_SPEED, null))) {
+            for(byte[] input : inputs) {
+                ByteBuffer encoded = codec.encode(input, HEADER_SPACE);
+                assertThat(encoded.position(), is(0));
+
+                byte[] decoded = codec.decode(encoded.array(), HEADER_SPACE, encoded.limit() - HEADER_SPACE);
+                assertArrayEquals("Codec: " + codec + " did not decode input of length: " + input.length, input, decoded);
+            }
+        }
+    }
+
+    @Test
+    public void testLZCodecIncompleteRecord() throws Exception {
+        LZRecordCodec codec = new LZRecordCodec();
+        ByteBuffer encoded = codec.encode(createDocument(1).getBytes(StandardCharsets.UTF_8), 0);
+
+        try {
+            codec.decode(encoded.array(), 0, encoded.limit() - 3);
+            fail("Incomplete record should not be decoded");
+        } catch(DatastoreException e) {
+            LOG.debug("Expected incomplete record", e);
+        }
+    }
+
+    @Test
+    public void testDictionaryCodec() throws Exception {
+        List<String> samples = new ArrayList<>();
+        for(int i=0; i<100; i++) {
+            samples.add(createDocument(i));
+        }
+        byte[] dictionary = RecordCodecs.trainDictionary(samples, 32 * 1024);
+        assertTrue(dictionary.length > 0);
+
+        byte[] document = createDocument(1000).getBytes(StandardCharsets.UTF_8);
+        DeflateRecordCodec dictionaryCodec = new DeflateRecordCodec(Deflater.DEFAULT_COMPRESSION, dictionary);
+        ByteBuffer withDictionary = dictionaryCodec.encode(document, 0);
+        ByteBuffer withoutDictionary = new DeflateRecordCodec().encode(document, 0);
+        LOG.info("Document of: {} bytes, with dictionary: {} bytes, without dictionary: {} bytes", document.length, withDictionary.limit(), withoutDictionary.limit());
+        assertTrue(withDictionary.limit() < withoutDictionary.limit());
+
+        assertArrayEquals(document, dictionaryCodec.decode(withDictionary.array(), 0, withDictionary.limit()));
+        assertArrayEquals(document, dictionaryCodec.decode(withoutDictionary.array(), 0, withoutDictionary.limit()));
+
+        try {
+            new DeflateRecordCodec().decode(withDictionary.array(), 0, withDictionary.limit());
+            fail("Record should not be decoded without dictionary");
+        } catch(DatastoreException e) {
+            LOG.debug("Expected missing dictionary", e);
+        }
+    }
+
+    @Test
+    public void testMixedCodecRecordFile() throws Exception {
+        List<String> samples = new ArrayList<>();
+        for(int i=0; i<50; i++) {
+            samples.add(createDocument(i));
+        }
+        Files.write(sampleFile.toPath(), samples, StandardCharsets.UTF_8);
+
+        WriterConfig defaultConfig = WriterConfig.getDefaultWriterConfig();
+        List<WriterConfig> configs = Arrays.asList(defaultConfig,
+                defaultConfig.withCodec(RecordCodecs.CODEC_LZ, Deflater.DEFAULT_COMPRESSION, null),
+                defaultConfig.withCodec(RecordCodecs.CODEC_NONE, Deflater.DEFAULT_COMPRESSION, null),
+                defaultConfig.withCodec(RecordCodecs.CODEC_DEFLATE, Deflater.BEST_COMPRESSION, sampleFile.toString()));
+
+        List<Long> pointers = new ArrayList<>();
+        List<String> contents = new ArrayList<>();
+        for(WriterConfig writerConfig : configs) {
+            FSWriter writer = new FSWriter(recordFile, writerConfig);
+            writer.openWriter();
+            try {
+                for(int i=0; i<25; i++) {
+                    String document = createDocument(contents.size());
+                    pointers.add(writer.writeRecord(document, null));
+                    contents.add(document);
+                }
+            } finally {
+                writer.closeWriter();
+            }
+        }
+
+        FSWriter writer = new FSWriter(recordFile, defaultConfig.withCodec(RecordCodecs.CODEC_LZ, Deflater.DEFAULT_COMPRESSION, sampleFile.toString()));
+        writer.openWriter();
+        try {
+            assertThat(writer.getSize(), is((long) contents.size()));
+            for(int i=0; i<contents.size(); i++) {
+                assertRecord(writer, pointers.get(i), contents.get(i));
+            }
+
+            String updated = createDocument(-1);
+            writer.removeRecord(() -> Optional.of(pointers.get(0)), null);
+            long updatedPointer = writer.updateRecord(updated, () -> Optional.of(pointers.get(30)), null);
+            assertRecord(writer, updatedPointer, updated);
+            assertRecord(writer, pointers.get(60), contents.get(60));
+            assertThat(writer.getSize(), is((long) contents.size() - 1));
+        } finally {
+            writer.closeWriter();
+        }
+    }
+
+    @Test
+    public void testStoredDictionaries() throws Exception {
+        List<String> samples = new ArrayList<>();
+        for(int i=0; i<50; i++) {
+            samples.add(createDocument(i));
+        }
+        Files.write(sampleFile.toPath(), samples, StandardCharsets.UTF_8);
+        WriterConfig dictionaryConfig = WriterConfig.getDefaultWriterConfig().withCodec(RecordCodecs.CODEC_DEFLATE, Deflater.DEFAULT_COMPRESSION, sampleFile.toString());
+
+        List<Long> pointers = new ArrayList<>();
+        List<String> contents = new ArrayList<>();
+        FSWriter writer = new FSWriter(recordFile, dictionaryConfig);
+        writer.openWriter();
+        try {
+            for(int i=0; i<25; i++) {
+                contents.add(createDocument(contents.size()));
+                pointers.add(writer.writeRecord(contents.get(i), null));
+            }
+        } finally {
+            writer.closeWriter();
+        }
+        assertTrue(dictionaryFile.exists());
+        long storedSize = dictionaryFile.length();
+
+        //an unchanged sample file reuses the stored dictionary
+        writer = new FSWriter(recordFile, dictionaryConfig);
+        writer.openWriter();
+        writer.closeWriter();
+        assertThat(dictionaryFile.length(), is(storedSize));
+
+        //a changed sample file trains a new dictionary, records written with the first dictionary remain readable
+        List<String> otherSamples = new ArrayList<>();
+        for(int i=0; i<50; i++) {
+            otherSamples.add("{\"name\":\"other document\",\"value\":" + i + ",\"category\":\"other-" + (i % 5) + "\"}");
+        }
+        Files.write(sampleFile.toPath(), otherSamples, StandardCharsets.UTF_8);
+        assertTrue(sampleFile.setLastModified(dictionaryFile.lastModified() + 1000));
+
+        writer = new FSWriter(recordFile, dictionaryConfig);
+        writer.openWriter();
+        try {
+            for(int i=0; i<25; i++) {
+                contents.add(otherSamples.get(i));
+                pointers.add(writer.writeRecord(otherSamples.get(i), null));
+            }
+        } finally {
+            writer.closeWriter();
+        }
+        assertTrue(dictionaryFile.length() > storedSize);
+
+        //without the sample file the records are decoded with the stored dictionaries
+        assertDelete(sampleFile);
+        writer = new FSWriter(recordFile, WriterConfig.getDefaultWriterConfig());
+        writer.openWriter();
+        try {
+            for(int i=0; i<contents.size(); i++) {
+                assertRecord(writer, pointers.get(i), contents.get(i));
+            }
+        } finally {
+            writer.closeWriter();
+        }
+    }
+
+    @Test
+    public void testCodecThroughput() throws Exception {
+        int testSize = 5000;
+        List<String> documents = new ArrayList<>();
+        for(int i=0; i<testSize; i++) {
+            documents.add(createDocument(i));
+        }
+
+        WriterConfig defaultConfig = new WriterConfig(false, 0, 1);
+        for(WriterConfig writerConfig : Arrays.asList(defaultConfig,
+                defaultConfig.withCodec(RecordCodecs.CODEC_DEFLATE, Deflater.BEST_SPEED, null),
+                defaultConfig.withCodec(RecordCodecs.CODEC_LZ, Deflater.DEFAULT_COMPRESSION, null),
+                defaultConfig.withCodec(RecordCodecs.CODEC_NONE, Deflater.DEFAULT_COMPRESSION, null))) {
+            assertDelete(recordFile);
+
+            FSWriter writer = new FSWriter(recordFile, writerConfig);
+            writer.openWriter();
+            try {
+                long start = System.nanoTime();
+                for(String document : documents) {
+                    writer.writeRecord(document, null);
+                }
+                long insertTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                int scanned = 0;
+                RecordIterator iterator = writer.readAllRecords();
+                try {
+                    for(RecordResult result : iterator) {
+                        RecordStreamUtil.toString(result);
+                        scanned++;
+                    }
+                } finally {
+                    iterator.close();
+                }
+                long scanTime = System.nanoTime() - start;
+
+                assertEquals(testSize, scanned);
+                LOG.info("Codec: {} level: {} disk size: {} insert: {} ms scan: {} ms", writerConfig.getCodec(),
+                        writerConfig.getCompressionLevel(), writer.getDiskSize(), insertTime / 1000000, scanTime / 1000000);
+            } finally {
+                writer.closeWriter();
+            }
+        }
+    }
+
+    private static String createDocument(int i) {
+        return "{\"__ID\":\"" + UUID.randomUUID() + "\",\"type\":\"status\",\"status\":\"running\",\"owner\":\"service-" + (i % 10) +
+                "\",\"counter\":" + i + ",\"description\":\"Status document describing the state of the service\",\"tags\":[\"monitoring\",\"production\"]}";
+    }
+
+    private void assertRecord(FSWriter writer, long pointer, String expected) throws JasDBStorageException {
+        RecordResult result = writer.readRecord(() -> Optional.of(pointer));
+        assertEquals(expected, RecordStreamUtil.toString(result));
+    }
+}
@@ -5,10 +5,17 @@ import com.oberasoftware.jasdb.api.exceptions.RestException;
 import com.oberasoftware.jasdb.api.index.query.SearchLimit;
 import com.oberasoftware.jasdb.api.model.NodeInformation;
 import com.oberasoftware.jasdb.api.session.Entity;
+import com.oberasoftware.jasdb.api.session.query.AggregateGroup;
+import com.oberasoftware.jasdb.api.session.query.Aggregation;
+import com.oberasoftware.jasdb.api.session.query.AggregationResult;
+import com.oberasoftware.jasdb.api.session.query.QueryExplain;
 import com.oberasoftware.jasdb.api.session.query.QueryResult;
 import com.oberasoftware.jasdb.api.session.query.SortParameter;
 import com.oberasoftware.jasdb.core.utils.StringUtils;
 import com.oberasoftware.jasdb.engine.query.operators.BlockOperation;
+import com.oberasoftware.jasdb.rest.model.RestAggregationResult;
+import com.oberasoftware.jasdb.rest.model.RestQueryCount;
+import com.oberasoftware.jasdb.rest.model.RestQueryExplain;
 import com.oberasoftware.jasdb.rest.model.serializers.json.JsonRestResponseHandler;
 import com.oberasoftware.jasdb.rest.model.streaming.StreamableEntityCollection;
 import com.oberasoftware.jasdb.rest.model.streaming.StreamedEntity;
@@ -90,9 +97,79 @@ public class EntityRestConnector extends RemoteRestConnector implements EntityCo
     @Override
     public QueryResult find(RemotingContext context, String instance, String bag, BlockOperation blockOperation, SearchLimit limit, List<SortParameter> sortParams) throws RemoteException {
         String query = RestQueryGenerator.generatorQuery(blockOperation);
-        String orderParams = RestQueryGenerator.generateOrderParams(sortParams);
         String connectionString = new RestConnectionBuilder().instance(instance).bag(bag).entities(query).getConnectionString();
 
+        ClientResponse response = doRequest(context, connectionString, getQueryParams(limit, sortParams));
+
+        return parseAsEntityCollection(response);
+    }
+
+    @Override
+    public QueryExplain explain(RemotingContext context, String instance, String bag, BlockOperation blockOperation, SearchLimit limit, List<SortParameter> sortParams) throws RemoteException {
+        String query = RestQueryGenerator.generatorQuery(blockOperation);
+        String connectionString = new RestConnectionBuilder().instance(instance).bag(bag).entities(query).getConnectionString();
+
+        Map<String, String> params = getQueryParams(limit, sortParams);
+        params.put("explain", "true");
+        ClientResponse response = doRequest(context, connectionString, params);
+        try {
+            return new JsonRestResponseHandler().deserialize(RestQueryExplain.class, response.getEntityInputStream()).getExplain();
+        } catch(RestException e) {
+            throw new RemoteException("Unable to parse remote query explain", e);
+        } finally {
+            response.close();
+        }
+    }
+
+    @Override
+    public long count(RemotingContext context, String instance, String bag, BlockOperation blockOperation) throws RemoteException {
+        String query = RestQueryGenerator.generatorQuery(blockOperation);
+        String connectionString = new RestConnectionBuilder().instance(instance).bag(bag).entities(query).getConnectionString();
+
+        Map<String, String> params = new HashMap<>();
+        params.put("count", "true");
+        ClientResponse response = doRequest(context, connectionString, params);
+        try {
+            return new JsonRestResponseHandler().deserialize(RestQueryCount.class, response.getEntityInputStream()).getCount();
+        } catch(RestException e) {
+            throw new RemoteException("Unable to parse remote query count", e);
+        } finally {
+            response.close();
+        }
+    }
+
+    @Override
+    public AggregationResult aggregate(RemotingContext context, String instance, String bag, BlockOperation blockOperation, String groupByField,
+                                       List<Aggregation> aggregations) throws RemoteException {
+        if(aggregations.isEmpty() && !StringUtils.stringNotEmpty(groupByField)) {
+            //without aggregations the remote query would return the entities, the single group only has a count
+            AggregateGroup group = new AggregateGroup();
+            group.setCount(count(context, instance, bag, blockOperation));
+            AggregationResult result = new AggregationResult();
+            result.addGroup(group);
+            return result;
+        }
+
+        String query = RestQueryGenerator.generatorQuery(blockOperation);
+        String connectionString = new RestConnectionBuilder().instance(instance).bag(bag).entities(query).getConnectionString();
+
+        Map<String, String> params = new HashMap<>();
+        String aggregationParams = RestQueryGenerator.generateAggregationParams(aggregations);
+        if(StringUtils.stringNotEmpty(aggregationParams)) params.put("aggregate", aggregationParams);
+        if(StringUtils.stringNotEmpty(groupByField)) params.put("groupBy", groupByField);
+        ClientResponse response = doRequest(context, connectionString, params);
+        try {
+            return new JsonRestResponseHandler().deserialize(RestAggregationResult.class, response.getEntityInputStream()).getResult();
+        } catch(RestException e) {
+            throw new RemoteException("Unable to parse remote aggregation result", e);
+        } finally {
+            response.close();
+        }
+    }
+
+    private Map<String, String> getQueryParams(SearchLimit limit, List<SortParameter> sortParams) {
+        String orderParams = RestQueryGenerator.generateOrderParams(sortParams);
+
         Map<String, String> params = new HashMap<>();
         if(limit.getBegin() > 0) {
             params.put("begin", String.valueOf(limit.getBegin()));
@@ -101,9 +178,7 @@ public class EntityRestConnector extends RemoteRestConnector implements EntityCo
             params.put("top", String.valueOf(limit.getMax()));
         }
         if(StringUtils.stringNotEmpty(orderParams)) params.put("orderBy", orderParams);
-        ClientResponse response = doRequest(context, connectionString, params);
-
-        return parseAsEntityCollection(response);
+        return params;
     }
 
     @Override
@@ -3,11 +3,13 @@ package com.oberasoftware.jasdb.rest.client;
 import com.oberasoftware.jasdb.engine.query.operators.AndBlock;
 import com.oberasoftware.jasdb.engine.query.operators.BlockOperation;
 import com.oberasoftware.jasdb.engine.query.operators.OrBlock;
+import com.oberasoftware.jasdb.api.session.query.Aggregation;
 import com.oberasoftware.jasdb.api.session.query.Order;
 import com.oberasoftware.jasdb.api.session.query.SortParameter;
 import com.oberasoftware.jasdb.api.index.keys.Key;
 import com.oberasoftware.jasdb.core.index.keys.LongKey;
 import com.oberasoftware.jasdb.core.index.query.EqualsCondition;
+import com.oberasoftware.jasdb.core.index.query.InCondition;
 import com.oberasoftware.jasdb.core.index.query.NotEqualsCondition;
 import com.oberasoftware.jasdb.core.index.query.RangeCondition;
 import com.oberasoftware.jasdb.api.index.query.SearchCondition;
@@ -27,6 +29,7 @@ public class RestQueryGenerator  {
     private static final String ASC_KEYWORD = "ASC";
     private static final String DESC_KEYWORD = "DESC";
     private static final String ORDER_SPLIT = ",";
+    private static final String AGGREGATION_SPLIT = ",";
     public static final String STRING_ESCAPE = "'";
 
     private RestQueryGenerator() {
@@ -46,6 +49,8 @@ public class RestQueryGenerator  {
             generateEqualsCondition(builder, field, (EqualsCondition) condition);
         } else if(condition instanceof RangeCondition) {
             generateRangeCondition(builder, field, (RangeCondition) condition);
+        } else if(condition instanceof InCondition) {
+            generateInCondition(builder, field, (InCondition) condition);
         } else {
             throw new RemoteException("Unknown condition type: " + condition.getClass().toString());
         }
@@ -63,6 +68,29 @@ public class RestQueryGenerator  {
         handleValueAppend(builder, key);
     }
 
+    /**
+     * The query syntax has no list of values, the values are sent as a block of equals conditions of which any
+     * can match
+     */
+    private static void generateInCondition(StringBuilder builder, String field, InCondition inCondition) throws RemoteException {
+        List<Key> keys = inCondition.getKeys();
+        if(keys.isEmpty()) {
+            throw new RemoteException("Unable to generate query for empty list of values on field: " + field);
+        }
+
+        builder.append("(");
+        boolean first = true;
+        for(Key key : keys) {
+            if(!first) {
+                builder.append("|");
+            }
+            first = false;
+            builder.append(field).append("=");
+            handleValueAppend(builder, key);
+        }
+        builder.append(")");
+    }
+
     private static void generateRangeCondition(StringBuilder builder, String field, RangeCondition rangeCondition) {
         Key startKey = rangeCondition.getStart();
         Key endKey = rangeCondition.getEnd();
@@ -132,4 +160,15 @@ public class RestQueryGenerator  {
         }
         return orderBuilder.toString();
     }
+
+    public static String generateAggregationParams(List<Aggregation> aggregations) {
+        StringBuilder aggregationBuilder = new StringBuilder();
+        boolean first = true;
+        for(Aggregation aggregation : aggregations) {
+            if(!first) aggregationBuilder.append(AGGREGATION_SPLIT); else first = false;
+
+            aggregationBuilder.append(aggregation);
+        }
+        return aggregationBuilder.toString();
+    }
 }
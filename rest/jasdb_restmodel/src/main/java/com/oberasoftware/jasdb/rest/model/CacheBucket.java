@@ -4,11 +4,21 @@ public class CacheBucket implements RestEntity {
 	private String name;
     private int size;
     private long memSize;
+    private long hits;
+    private long misses;
+    private long evictions;
 	
 	public CacheBucket(String name, int size, long memSize) {
+		this(name, size, memSize, 0, 0, 0);
+	}
+
+	public CacheBucket(String name, int size, long memSize, long hits, long misses, long evictions) {
 		this.name = name;
         this.size = size;
         this.memSize = memSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
 	}
 	
 	public String getName() {
@@ -22,4 +32,16 @@ public class CacheBucket implements RestEntity {
 	public long getMemSize() {
 		return this.memSize;
 	}
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
 }
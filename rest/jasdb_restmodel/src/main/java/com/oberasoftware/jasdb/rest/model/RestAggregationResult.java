@@ -0,0 +1,38 @@
+package com.oberasoftware.jasdb.rest.model;
+
+import com.oberasoftware.jasdb.api.session.query.AggregationResult;
+
+/**
+ * The aggregated values of a query executed using the aggregate option of the entity query
+ *
+ * @author Renze de Vries
+ */
+public class RestAggregationResult implements RestEntity {
+    private AggregationResult result;
+    private long timeMilliseconds;
+
+    public RestAggregationResult(AggregationResult result, long timeMilliseconds) {
+        this.result = result;
+        this.timeMilliseconds = timeMilliseconds;
+    }
+
+    public RestAggregationResult() {
+
+    }
+
+    public AggregationResult getResult() {
+        return result;
+    }
+
+    public void setResult(AggregationResult result) {
+        this.result = result;
+    }
+
+    public long getTimeMilliseconds() {
+        return timeMilliseconds;
+    }
+
+    public void setTimeMilliseconds(long timeMilliseconds) {
+        this.timeMilliseconds = timeMilliseconds;
+    }
+}
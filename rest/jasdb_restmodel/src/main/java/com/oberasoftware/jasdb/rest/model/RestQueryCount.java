@@ -0,0 +1,36 @@
+package com.oberasoftware.jasdb.rest.model;
+
+/**
+ * The amount of entities matching a query executed using the count option of the entity query
+ *
+ * @author Renze de Vries
+ */
+public class RestQueryCount implements RestEntity {
+    private long count;
+    private long timeMilliseconds;
+
+    public RestQueryCount(long count, long timeMilliseconds) {
+        this.count = count;
+        this.timeMilliseconds = timeMilliseconds;
+    }
+
+    public RestQueryCount() {
+
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getTimeMilliseconds() {
+        return timeMilliseconds;
+    }
+
+    public void setTimeMilliseconds(long timeMilliseconds) {
+        this.timeMilliseconds = timeMilliseconds;
+    }
+}
@@ -0,0 +1,38 @@
+package com.oberasoftware.jasdb.rest.model;
+
+import com.oberasoftware.jasdb.api.session.query.QueryExplain;
+
+/**
+ * The profile of a query executed using the explain option of the entity query
+ *
+ * @author Renze de Vries
+ */
+public class RestQueryExplain implements RestEntity {
+    private QueryExplain explain;
+    private long timeMilliseconds;
+
+    public RestQueryExplain(QueryExplain explain, long timeMilliseconds) {
+        this.explain = explain;
+        this.timeMilliseconds = timeMilliseconds;
+    }
+
+    public RestQueryExplain() {
+
+    }
+
+    public QueryExplain getExplain() {
+        return explain;
+    }
+
+    public void setExplain(QueryExplain explain) {
+        this.explain = explain;
+    }
+
+    public long getTimeMilliseconds() {
+        return timeMilliseconds;
+    }
+
+    public void setTimeMilliseconds(long timeMilliseconds) {
+        this.timeMilliseconds = timeMilliseconds;
+    }
+}
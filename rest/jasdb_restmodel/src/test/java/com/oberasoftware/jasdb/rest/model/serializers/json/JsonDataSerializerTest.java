@@ -10,7 +10,15 @@ package com.oberasoftware.jasdb.rest.model.serializers.json;
 import com.oberasoftware.jasdb.api.exceptions.RestException;
 import com.oberasoftware.jasdb.api.session.Entity;
 import com.oberasoftware.jasdb.api.session.Property;
+import com.oberasoftware.jasdb.api.session.query.AggregateGroup;
+import com.oberasoftware.jasdb.api.session.query.Aggregation;
+import com.oberasoftware.jasdb.api.session.query.AggregationResult;
+import com.oberasoftware.jasdb.api.session.query.BlockExplain;
+import com.oberasoftware.jasdb.api.session.query.ExplainStep;
+import com.oberasoftware.jasdb.api.session.query.QueryExplain;
 import com.oberasoftware.jasdb.rest.model.InstanceRest;
+import com.oberasoftware.jasdb.rest.model.RestAggregationResult;
+import com.oberasoftware.jasdb.rest.model.RestQueryExplain;
 import com.oberasoftware.jasdb.rest.model.serializers.RestResponseHandler;
 import com.oberasoftware.jasdb.rest.model.streaming.StreamedEntity;
 import org.junit.Assert;
@@ -66,4 +74,65 @@ public class JsonDataSerializerTest {
         assertEquals("{\"path\":\"/path\",\"version\":\"1.0.1\",\"instanceId\":\"hostname\",\"status\":\"OK\"}", bos.toString("UTF8"));
     }
 
+    @Test
+    public void testSerializeQueryExplain() throws Exception {
+        QueryExplain explain = new QueryExplain();
+        BlockExplain rootBlock = new BlockExplain("AND");
+        rootBlock.setAccessType("INDEX");
+        rootBlock.setEstimatedKeys(10);
+        rootBlock.setActualKeys(12);
+
+        ExplainStep step = new ExplainStep(ExplainStep.INDEX_SEARCH);
+        step.setIndex("city");
+        step.setEstimatedKeys(10);
+        step.setActualKeys(12);
+        rootBlock.addStep(step);
+        explain.setRootBlock(rootBlock);
+        explain.setRecordsFetched(12);
+        explain.addStageTime(QueryExplain.STAGE_BLOCKS, 150);
+
+        RestResponseHandler serializer = new JsonRestResponseHandler();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        serializer.serialize(new RestQueryExplain(explain, 3), bos);
+
+        RestQueryExplain restExplain = serializer.deserialize(RestQueryExplain.class, new ByteArrayInputStream(bos.toByteArray()));
+        assertEquals(3, restExplain.getTimeMilliseconds());
+        QueryExplain deserialized = restExplain.getExplain();
+        assertEquals(12, deserialized.getRecordsFetched());
+        assertEquals(Long.valueOf(150), deserialized.getStageTimes().get(QueryExplain.STAGE_BLOCKS));
+        assertEquals("AND", deserialized.getRootBlock().getBlockType());
+        assertEquals(1, deserialized.getRootBlock().getSteps().size());
+
+        ExplainStep deserializedStep = deserialized.getRootBlock().getSteps().get(0);
+        assertEquals(ExplainStep.INDEX_SEARCH, deserializedStep.getOperation());
+        assertEquals("city", deserializedStep.getIndex());
+        assertEquals(10, deserializedStep.getEstimatedKeys());
+        assertEquals(12, deserializedStep.getActualKeys());
+    }
+
+    @Test
+    public void testSerializeAggregationResult() throws Exception {
+        AggregationResult result = new AggregationResult("city");
+        AggregateGroup group = new AggregateGroup("Amsterdam");
+        group.setCount(2);
+        group.setValue(Aggregation.sum("age"), 70L);
+        group.setValue(Aggregation.avg("age"), 35.0);
+        result.addGroup(group);
+        result.addGroup(new AggregateGroup(null));
+
+        RestResponseHandler serializer = new JsonRestResponseHandler();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        serializer.serialize(new RestAggregationResult(result, 3), bos);
+
+        RestAggregationResult restResult = serializer.deserialize(RestAggregationResult.class, new ByteArrayInputStream(bos.toByteArray()));
+        AggregationResult deserialized = restResult.getResult();
+        assertEquals("city", deserialized.getGroupField());
+        assertEquals(2, deserialized.getGroups().size());
+
+        AggregateGroup deserializedGroup = deserialized.getGroup("Amsterdam");
+        assertEquals(2, deserializedGroup.getCount());
+        assertEquals(70L, ((Number) deserializedGroup.getValue(Aggregation.sum("age"))).longValue());
+        assertEquals(35.0, ((Number) deserializedGroup.getValue(Aggregation.avg("age"))).doubleValue(), 0.0);
+        assertEquals(0, deserialized.getGroup(null).getCount());
+    }
 }
@@ -21,7 +21,8 @@ public class CacheController {
 
         List<CacheBucket> buckets = new ArrayList<>();
         for(CacheRegion region : cachingMemoryManager.getRegions()) {
-            buckets.add(new CacheBucket(region.name(), region.size(), region.memorySize()));
+            buckets.add(new CacheBucket(region.name(), region.size(), region.memorySize(),
+                    region.hits(), region.misses(), region.evictions()));
         }
 
         return new CacheBucketCollection(buckets);
@@ -7,16 +7,22 @@ import com.oberasoftware.jasdb.api.exceptions.RestException;
 import com.oberasoftware.jasdb.api.index.query.SearchLimit;
 import com.oberasoftware.jasdb.api.session.DBInstance;
 import com.oberasoftware.jasdb.api.session.Entity;
+import com.oberasoftware.jasdb.api.session.query.Aggregation;
+import com.oberasoftware.jasdb.api.session.query.AggregationResult;
 import com.oberasoftware.jasdb.api.session.query.BlockType;
 import com.oberasoftware.jasdb.api.session.query.Order;
 import com.oberasoftware.jasdb.api.session.query.QueryBuilder;
+import com.oberasoftware.jasdb.api.session.query.QueryExplain;
 import com.oberasoftware.jasdb.api.session.query.QueryResult;
 import com.oberasoftware.jasdb.core.context.RequestContext;
 import com.oberasoftware.jasdb.engine.StorageService;
 import com.oberasoftware.jasdb.engine.StorageServiceFactory;
 import com.oberasoftware.jasdb.engine.query.BuilderTransformer;
 import com.oberasoftware.jasdb.rest.model.ErrorEntity;
+import com.oberasoftware.jasdb.rest.model.RestAggregationResult;
 import com.oberasoftware.jasdb.rest.model.RestEntity;
+import com.oberasoftware.jasdb.rest.model.RestQueryCount;
+import com.oberasoftware.jasdb.rest.model.RestQueryExplain;
 import com.oberasoftware.jasdb.rest.model.serializers.json.entity.EntityHandler;
 import com.oberasoftware.jasdb.rest.model.streaming.StreamableEntityCollection;
 import com.oberasoftware.jasdb.rest.model.streaming.StreamedEntity;
@@ -38,6 +44,7 @@ import java.net.URLDecoder;
 import java.util.List;
 
 import static com.oberasoftware.jasdb.core.utils.StringUtils.stringNotEmpty;
+import static com.oberasoftware.jasdb.rest.service.input.AggregationParameterParsing.getAggregations;
 import static com.oberasoftware.jasdb.rest.service.input.OrderParameterParsing.getOrderParams;
 import static com.oberasoftware.jasdb.rest.service.controllers.ControllerUtil.getRequestContext;
 import static org.springframework.web.bind.annotation.RequestMethod.*;
@@ -85,9 +92,14 @@ public class EntityController {
                               @RequestParam(required = false, defaultValue = "0") int begin,
                               @RequestParam(required = false, defaultValue = "-1") int top,
                               @RequestParam(required = false, defaultValue = "") String orderBy,
+                              @RequestParam(required = false, defaultValue = "false") boolean explain,
+                              @RequestParam(required = false, defaultValue = "false") boolean count,
+                              @RequestParam(required = false, defaultValue = "") String aggregate,
+                              @RequestParam(required = false, defaultValue = "") String groupBy,
                               @PathVariable String entityQuery, HttpServletRequest request, HttpServletResponse response) throws JasDBException, UnsupportedEncodingException {
         String q = URLDecoder.decode(entityQuery, "UTF8");
-        LOG.debug("Received query: {} begin: {} top: {} orderBy: {} for instance/bag: {}/{}", q, begin, top, orderBy, instanceId, bagName);
+        LOG.debug("Received query: {} begin: {} top: {} orderBy: {} explain: {} count: {} aggregate: {} groupBy: {} for instance/bag: {}/{}",
+                q, begin, top, orderBy, explain, count, aggregate, groupBy, instanceId, bagName);
         InputCondition inputCondition = new InputParser(new InputScanner(q)).getCondition();
         if(inputCondition == null) {
             inputCondition = new AndBlockOperation();
@@ -95,8 +107,18 @@ public class EntityController {
         StorageService storageService = storageServiceFactory.getStorageService(instanceId, bagName);
         RequestContext context = getRequestContext(request);
         List<OrderParam> orderParamList = getOrderParams(orderBy);
-
-        RestEntity entity = handleQuery(storageService, inputCondition, begin, top, orderParamList, context);
+        List<Aggregation> aggregations = getAggregations(aggregate);
+
+        RestEntity entity;
+        if(explain) {
+            entity = handleExplain(storageService, inputCondition, begin, top, orderParamList, context);
+        } else if(count) {
+            entity = handleCount(storageService, inputCondition, context);
+        } else if(!aggregations.isEmpty() || stringNotEmpty(groupBy)) {
+            entity = handleAggregate(storageService, inputCondition, groupBy, aggregations, context);
+        } else {
+            entity = handleQuery(storageService, inputCondition, begin, top, orderParamList, context);
+        }
         OutputHandler.createResponse(entity, response);
 
     }
@@ -106,9 +128,13 @@ public class EntityController {
                               @RequestParam(required = false, defaultValue = "0") int begin,
                               @RequestParam(required = false, defaultValue = "-1") int max,
                               @RequestParam(required = false, defaultValue = "") String orderBy,
+                              @RequestParam(required = false, defaultValue = "false") boolean explain,
+                              @RequestParam(required = false, defaultValue = "false") boolean count,
+                              @RequestParam(required = false, defaultValue = "") String aggregate,
+                              @RequestParam(required = false, defaultValue = "") String groupBy,
                               HttpServletRequest request, HttpServletResponse response) throws JasDBException, UnsupportedEncodingException {
         DBInstance instance = dbInstanceFactory.getInstance();
-        queryEntities(instance.getInstanceId(), bagName, begin, max, orderBy, entityQuery, request, response);
+        queryEntities(instance.getInstanceId(), bagName, begin, max, orderBy, explain, count, aggregate, groupBy, entityQuery, request, response);
     }
 
     @RequestMapping(value = "/Instances({instanceId})/Bags({bagName})/Entities", consumes = "application/json",
@@ -191,6 +217,39 @@ public class EntityController {
         }
 	}
 
+    private RestEntity handleExplain(StorageService storageService, InputCondition condition, int begin, int top, List<OrderParam> orderParams, RequestContext context) throws JasDBStorageException {
+        LOG.debug("Explain query: {} begin: {} top: {}", condition, begin, top);
+        QueryBuilder parentBuilder = generateQueryBuilder(condition, QueryBuilder.createBuilder());
+        setOrderingParams(parentBuilder, orderParams);
+        long start = System.currentTimeMillis();
+        QueryExplain explain = storageService.explain(context, BuilderTransformer.transformBuilder(parentBuilder), new SearchLimit(begin, top), parentBuilder.getSortParams());
+        long end = System.currentTimeMillis();
+
+        return new RestQueryExplain(explain, (end - start));
+    }
+
+    private RestEntity handleCount(StorageService storageService, InputCondition condition, RequestContext context) throws JasDBStorageException {
+        LOG.debug("Count query: {}", condition);
+        QueryBuilder parentBuilder = generateQueryBuilder(condition, QueryBuilder.createBuilder());
+        long start = System.currentTimeMillis();
+        long count = storageService.count(context, BuilderTransformer.transformBuilder(parentBuilder));
+        long end = System.currentTimeMillis();
+
+        return new RestQueryCount(count, (end - start));
+    }
+
+    private RestEntity handleAggregate(StorageService storageService, InputCondition condition, String groupBy, List<Aggregation> aggregations,
+                                       RequestContext context) throws JasDBStorageException {
+        LOG.debug("Aggregate query: {} groupBy: {} aggregations: {}", condition, groupBy, aggregations);
+        QueryBuilder parentBuilder = generateQueryBuilder(condition, QueryBuilder.createBuilder());
+        long start = System.currentTimeMillis();
+        AggregationResult result = storageService.aggregate(context, BuilderTransformer.transformBuilder(parentBuilder),
+                stringNotEmpty(groupBy) ? groupBy : null, aggregations);
+        long end = System.currentTimeMillis();
+
+        return new RestAggregationResult(result, (end - start));
+    }
+
     private RestEntity requestById(StorageService storageService, String requestedId, RequestContext context) throws JasDBStorageException {
         Entity entity = storageService.getEntityById(context, requestedId);
         if(entity != null) {
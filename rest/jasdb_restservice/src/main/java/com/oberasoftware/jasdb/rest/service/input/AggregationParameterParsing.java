@@ -0,0 +1,44 @@
+package com.oberasoftware.jasdb.rest.service.input;
+
+import com.oberasoftware.jasdb.api.exceptions.SyntaxException;
+import com.oberasoftware.jasdb.api.session.query.AggregateFunction;
+import com.oberasoftware.jasdb.api.session.query.Aggregation;
+import com.oberasoftware.jasdb.core.utils.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the aggregations of a query, for example: sum(age),max(age)
+ *
+ * @author Renze de Vries
+ */
+public class AggregationParameterParsing {
+    private static final Pattern AGGREGATION_PATTERN = Pattern.compile("\\s*(\\w+)\\((\\w+)\\)\\s*");
+    private static final String AGGREGATION_SPLIT = ",";
+
+    public static List<Aggregation> getAggregations(String aggregate) throws SyntaxException {
+        if(StringUtils.stringNotEmpty(aggregate)) {
+            List<Aggregation> aggregations = new ArrayList<>();
+            for(String aggregation : aggregate.split(AGGREGATION_SPLIT)) {
+                Matcher matcher = AGGREGATION_PATTERN.matcher(aggregation);
+                if(!matcher.matches()) {
+                    throw new SyntaxException("Unexpected aggregation syntax: " + aggregate);
+                }
+
+                try {
+                    AggregateFunction function = AggregateFunction.valueOf(matcher.group(1).toUpperCase());
+                    aggregations.add(new Aggregation(function, matcher.group(2)));
+                } catch(IllegalArgumentException e) {
+                    throw new SyntaxException("Unknown aggregate function: " + matcher.group(1));
+                }
+            }
+            return aggregations;
+        } else {
+            return Collections.emptyList();
+        }
+    }
+}
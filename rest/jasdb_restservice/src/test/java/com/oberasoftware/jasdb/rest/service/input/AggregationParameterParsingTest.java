@@ -0,0 +1,39 @@
+package com.oberasoftware.jasdb.rest.service.input;
+
+import com.oberasoftware.jasdb.api.exceptions.SyntaxException;
+import com.oberasoftware.jasdb.api.session.query.Aggregation;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Renze de Vries
+ */
+public class AggregationParameterParsingTest {
+    @Test
+    public void testAggregations() throws SyntaxException {
+        List<Aggregation> aggregations = AggregationParameterParsing.getAggregations("sum(age), MAX(age),avg(score)");
+        assertEquals(3, aggregations.size());
+        assertEquals(Aggregation.sum("age"), aggregations.get(0));
+        assertEquals(Aggregation.max("age"), aggregations.get(1));
+        assertEquals(Aggregation.avg("score"), aggregations.get(2));
+    }
+
+    @Test
+    public void testNoAggregations() throws SyntaxException {
+        assertTrue(AggregationParameterParsing.getAggregations("").isEmpty());
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void testUnknownFunction() throws SyntaxException {
+        AggregationParameterParsing.getAggregations("median(age)");
+    }
+
+    @Test(expected = SyntaxException.class)
+    public void testInvalidSyntax() throws SyntaxException {
+        AggregationParameterParsing.getAggregations("sum age");
+    }
+}
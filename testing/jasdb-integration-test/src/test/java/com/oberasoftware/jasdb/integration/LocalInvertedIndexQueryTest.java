@@ -0,0 +1,15 @@
+package com.oberasoftware.jasdb.integration;
+
+import com.oberasoftware.jasdb.service.local.LocalDBSessionFactory;
+import com.oberasoftware.jasdb.test.InvertedIndexQueryTest;
+
+/**
+ * Remote bags cannot create inverted indexes, so the inverted index queries are only tested locally
+ *
+ * @author Renze de Vries
+ */
+public class LocalInvertedIndexQueryTest extends InvertedIndexQueryTest {
+    public LocalInvertedIndexQueryTest() {
+        super(new LocalDBSessionFactory());
+    }
+}
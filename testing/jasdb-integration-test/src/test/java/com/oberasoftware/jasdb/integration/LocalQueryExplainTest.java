@@ -0,0 +1,14 @@
+package com.oberasoftware.jasdb.integration;
+
+import com.oberasoftware.jasdb.service.local.LocalDBSessionFactory;
+import com.oberasoftware.jasdb.test.QueryExplainTest;
+
+/**
+ * @author Renze de Vries
+ */
+public class LocalQueryExplainTest extends QueryExplainTest {
+    public LocalQueryExplainTest() {
+        super(new LocalDBSessionFactory());
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.oberasoftware.jasdb.integration.rest;
+
+import com.oberasoftware.jasdb.test.QueryExplainTest;
+
+/**
+ * @author Renze de Vries
+ */
+public class RestQueryExplainTest extends QueryExplainTest {
+    public RestQueryExplainTest() {
+        super(new TestRestDBSessionFactory());
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        super.tearDown();
+        System.setProperty("jasdb-config", "");
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        System.setProperty("jasdb-config", "jasdb-rest.xml");
+        super.setUp();
+    }
+
+}
@@ -673,4 +673,49 @@ public abstract class EntityBagTest {
         assertThat(result.size(), is(2L));
         result.close();
     }
+
+    @Test
+    public void testAddEntitiesRollback() throws JasDBException {
+        DBSession session = sessionFactory.createSession();
+        EntityBag bag = session.createOrGetBag("testbag");
+        bag.ensureIndex(new SimpleIndexField("title", new StringKeyType()), true);
+        bag.ensureIndex(new SimpleIndexField("city", new StringKeyType()), false);
+        bag.addEntity(new SimpleEntity().addProperty("title", "title-z").addProperty("city", "Amsterdam"));
+
+        //the conflicting entity is first so entities added one by one also stop before anything is added
+        List<Entity> entities = new ArrayList<>();
+        entities.add(new SimpleEntity().addProperty("title", "title-z").addProperty("city", "Rotterdam"));
+        for(int i=0; i<10; i++) {
+            entities.add(new SimpleEntity().addProperty("title", "title-" + (char) ('a' + i)).addProperty("city", "Rotterdam"));
+        }
+        try {
+            bag.addEntities(entities);
+            fail("Entities with a unique constraint violation should not be added");
+        } catch(JasDBStorageException e) {
+            log.debug("Expected unique constraint violation", e);
+        }
+
+        assertThat(bag.getSize(), is(1L));
+        QueryResult result = bag.find(QueryBuilder.createBuilder().field("city").value("Rotterdam")).execute();
+        assertThat(result.size(), is(0L));
+        result.close();
+        result = bag.find(QueryBuilder.createBuilder().field("title").value("title-a")).execute();
+        assertThat(result.size(), is(0L));
+        result.close();
+
+        entities.remove(0);
+        assertThat(bag.addEntities(entities).size(), is(10));
+        assertThat(bag.getSize(), is(11L));
+        result = bag.find(QueryBuilder.createBuilder().field("city").value("Rotterdam")).execute();
+        assertThat(result.size(), is(10L));
+        result.close();
+    }
+
+    @Test(expected = JasDBStorageException.class)
+    public void testAddEntitiesInvalidBatchSize() throws JasDBException {
+        DBSession session = sessionFactory.createSession();
+        EntityBag bag = session.createOrGetBag("testbag");
+
+        bag.addEntities(Collections.singletonList((Entity) new SimpleEntity()).iterator(), 0);
+    }
 }
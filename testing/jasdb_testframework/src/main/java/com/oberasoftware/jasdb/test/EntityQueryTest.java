@@ -14,18 +14,24 @@ import com.oberasoftware.jasdb.service.JasDBMain;
 import com.oberasoftware.jasdb.core.EmbeddedEntity;
 import com.oberasoftware.jasdb.core.SimpleEntity;
 import com.oberasoftware.jasdb.core.properties.EntityValue;
+import com.oberasoftware.jasdb.api.session.query.AggregateGroup;
+import com.oberasoftware.jasdb.api.session.query.Aggregation;
+import com.oberasoftware.jasdb.api.session.query.AggregationResult;
 import com.oberasoftware.jasdb.api.session.query.BlockType;
 import com.oberasoftware.jasdb.api.session.query.QueryBuilder;
 import com.oberasoftware.jasdb.api.session.query.QueryExecutor;
 import com.oberasoftware.jasdb.api.session.query.QueryResult;
 import com.oberasoftware.jasdb.api.exceptions.JasDBStorageException;
+import com.oberasoftware.jasdb.core.index.keys.types.LongKeyType;
 import com.oberasoftware.jasdb.core.index.keys.types.StringKeyType;
 import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.core.Is.is;
@@ -377,6 +383,161 @@ public abstract class EntityQueryTest extends QueryBaseTest {
         }
     }
 
+    @Test
+    public void testInQuery() throws Exception {
+        DBSession pojoDb = sessionFactory.createSession();
+        EntityBag bag = pojoDb.createOrGetBag("inverted");
+
+        try {
+            QueryExecutor executor = bag.find(QueryBuilder.createBuilder().field("field5").in(500, 3, 7, 2000).sortBy("field5"));
+            try (QueryResult result = executor.execute()) {
+                List<Entity> entities = toList(result);
+                assertThat(entities.size(), is(3));
+                assertThat(entities.get(0).getInternalId(), is(longToId.get(3L)));
+                assertThat(entities.get(1).getInternalId(), is(longToId.get(7L)));
+                assertThat(entities.get(2).getInternalId(), is(longToId.get(500L)));
+            }
+
+            executor = bag.find(QueryBuilder.createBuilder().field("field7").in("myValue3", "myValue9", "unknown"));
+            try (QueryResult result = executor.execute()) {
+                List<String> values = getEntityValue(toList(result), "field1");
+                assertThat(values.size(), is(2));
+                assertThat(values, hasItems("value3", "value9"));
+            }
+        } finally {
+            pojoDb.closeSession();
+            JasDBMain.shutdown();
+        }
+    }
+
+    @Test
+    public void testBetweenQuery() throws Exception {
+        DBSession pojoDb = sessionFactory.createSession();
+        EntityBag bag = pojoDb.createOrGetBag("inverted");
+
+        try {
+            QueryExecutor executor = bag.find(QueryBuilder.createBuilder().field("field5").between(10, 29).sortBy("field5"));
+            try (QueryResult result = executor.execute()) {
+                assertEquals(20, result.size());
+                assertResult(10, 20, result);
+            }
+
+            executor = bag.find(QueryBuilder.createBuilder().field("field9").between(10, 29));
+            try (QueryResult result = executor.execute()) {
+                assertEquals(20, result.size());
+            }
+        } finally {
+            pojoDb.closeSession();
+            JasDBMain.shutdown();
+        }
+    }
+
+    @Test
+    public void testStartsWithQuery() throws Exception {
+        DBSession pojoDb = sessionFactory.createSession();
+        EntityBag bag = pojoDb.createOrGetBag("inverted");
+
+        try {
+            QueryExecutor executor = bag.find(QueryBuilder.createBuilder().field("field1").startsWith("value99"));
+            try (QueryResult result = executor.execute()) {
+                List<String> values = getEntityValue(toList(result), "field1");
+                assertThat(values.size(), is(11));
+                assertThat(values, hasItems("value99", "value990", "value999"));
+            }
+
+            executor = bag.find(QueryBuilder.createBuilder().field("field7").startsWith("myValue99"));
+            try (QueryResult result = executor.execute()) {
+                assertThat(result.size(), is(11L));
+            }
+        } finally {
+            pojoDb.closeSession();
+            JasDBMain.shutdown();
+        }
+    }
+
+    @Test
+    public void testCountQuery() throws Exception {
+        DBSession pojoDb = sessionFactory.createSession();
+        EntityBag bag = pojoDb.createOrGetBag("inverted");
+
+        try {
+            assertThat(bag.find(QueryBuilder.createBuilder()).count(), is((long) NUMBER_ENTITIES));
+            assertThat(bag.find(QueryBuilder.createBuilder().field("field5").between(10, 29)).count(), is(20L));
+            assertThat(bag.find(QueryBuilder.createBuilder().field("field9").greaterThan(989)).count(), is(10L));
+            assertThat(bag.find(QueryBuilder.createBuilder().field("field1").value("unknown")).count(), is(0L));
+
+            for(String city : SimpleBaseTest.possibleCities) {
+                long expected = cityCounters.getOrDefault(city, 0);
+                assertThat(bag.find(QueryBuilder.createBuilder().field("city").value(city)).count(), is(expected));
+            }
+        } finally {
+            pojoDb.closeSession();
+            JasDBMain.shutdown();
+        }
+    }
+
+    @Test
+    public void testAggregateQuery() throws Exception {
+        DBSession pojoDb = sessionFactory.createSession();
+        EntityBag bag = pojoDb.createOrGetBag("inverted");
+
+        try {
+            AggregationResult result = bag.find(QueryBuilder.createBuilder()).aggregate(Aggregation.min("field5"), Aggregation.max("field5"),
+                    Aggregation.sum("field9"), Aggregation.avg("field9"));
+            assertThat(result.getGroups().size(), is(1));
+            AggregateGroup group = result.getGroups().get(0);
+            assertThat(group.getCount(), is((long) NUMBER_ENTITIES));
+            assertThat(((Number) group.getValue(Aggregation.min("field5"))).longValue(), is(0L));
+            assertThat(((Number) group.getValue(Aggregation.max("field5"))).longValue(), is((long) NUMBER_ENTITIES - 1));
+            assertThat(((Number) group.getValue(Aggregation.sum("field9"))).longValue(), is(499500L));
+            assertThat(((Number) group.getValue(Aggregation.avg("field9"))).doubleValue(), is(499.5));
+
+            result = bag.find(QueryBuilder.createBuilder().field("field5").between(10, 19)).aggregate(Aggregation.sum("field5"),
+                    Aggregation.min("field6"), Aggregation.max("field6"));
+            group = result.getGroups().get(0);
+            assertThat(group.getCount(), is(10L));
+            assertThat(((Number) group.getValue(Aggregation.sum("field5"))).longValue(), is(145L));
+            assertThat(((Number) group.getValue(Aggregation.min("field6"))).longValue(), is((long) NUMBER_ENTITIES - 19));
+            assertThat(((Number) group.getValue(Aggregation.max("field6"))).longValue(), is((long) NUMBER_ENTITIES - 10));
+        } finally {
+            pojoDb.closeSession();
+            JasDBMain.shutdown();
+        }
+    }
+
+    @Test
+    public void testAggregateGroupBy() throws Exception {
+        DBSession pojoDb = sessionFactory.createSession();
+        EntityBag bag = pojoDb.createOrGetBag("inverted");
+
+        try {
+            AggregationResult result = bag.find(QueryBuilder.createBuilder()).groupBy("city").aggregate(Aggregation.max("age"));
+            assertThat(result.getGroupField(), is("city"));
+
+            long total = 0;
+            for(String city : SimpleBaseTest.possibleCities) {
+                AggregateGroup group = result.getGroup(city);
+                if(cityCounters.containsKey(city)) {
+                    assertThat(group.getCount(), is((long) cityCounters.get(city)));
+                    assertTrue(((Number) group.getValue(Aggregation.max("age"))).longValue() < MAX_AGE);
+                    total += group.getCount();
+                } else {
+                    assertNull(group);
+                }
+            }
+            //every entity has two different cities
+            assertThat(total, is(2L * NUMBER_ENTITIES));
+
+            result = bag.find(QueryBuilder.createBuilder().field("field5").between(0, 99)).groupBy("field7").aggregate(Aggregation.sum("field5"));
+            assertThat(result.getGroups().size(), is(100));
+            assertThat(result.getGroup("myValue42").getCount(), is(1L));
+            assertThat(((Number) result.getGroup("myValue42").getValue(Aggregation.sum("field5"))).longValue(), is(42L));
+        } finally {
+            pojoDb.closeSession();
+            JasDBMain.shutdown();
+        }
+    }
+
     @Test
     public void testEqualsMultivalueFields() throws Exception {
         DBSession pojoDb = sessionFactory.createSession();
@@ -480,6 +641,53 @@ public abstract class EntityQueryTest extends QueryBaseTest {
         }
     }
 
+    @Test
+    public void testSelectFields() throws Exception {
+        DBSession pojoDb = sessionFactory.createSession();
+        EntityBag bag = pojoDb.createOrGetBag("selecttest");
+        bag.ensureIndex(new SimpleIndexField("category", new LongKeyType()), false,
+                new SimpleIndexField("counter", new LongKeyType()), new SimpleIndexField("name", new StringKeyType()));
+
+        try {
+            String firstId = bag.addEntity(new SimpleEntity().addProperty("category", 1L).addProperty("counter", 10L)
+                    .addProperty("name", "First Item").addProperty("description", "some description")).getInternalId();
+            String zeroId = bag.addEntity(new SimpleEntity().addProperty("category", 1L).addProperty("counter", 0L)
+                    .addProperty("name", "Zero Item")).getInternalId();
+            String missingId = bag.addEntity(new SimpleEntity().addProperty("category", 1L)
+                    .addProperty("name", "Missing Counter")).getInternalId();
+            bag.addEntity(new SimpleEntity().addProperty("category", 2L).addProperty("counter", 20L).addProperty("name", "Other"));
+
+            //the counter is held by the index, the name is normalized in the index and read from the document
+            Map<String, Entity> entities = new HashMap<>();
+            try (QueryResult result = bag.find(QueryBuilder.createBuilder().field("category").value(1L)).select("counter", "name").execute()) {
+                for(Entity entity : result) {
+                    entities.put(entity.getInternalId(), entity);
+                }
+            }
+            assertThat(entities.size(), is(3));
+            assertThat(entities.get(firstId).getValue("counter"), is(10L));
+            assertThat(entities.get(firstId).getValue("name"), is("First Item"));
+            assertThat(entities.get(zeroId).getValue("counter"), is(0L));
+            assertThat(entities.get(zeroId).getValue("name"), is("Zero Item"));
+            assertFalse(entities.get(missingId).hasProperty("counter"));
+            assertThat(entities.get(missingId).getValue("name"), is("Missing Counter"));
+
+            entities.clear();
+            try (QueryResult result = bag.find(QueryBuilder.createBuilder().field("category").value(1L)).select("counter").execute()) {
+                for(Entity entity : result) {
+                    entities.put(entity.getInternalId(), entity);
+                }
+            }
+            assertThat(entities.size(), is(3));
+            assertThat(entities.get(firstId).getValue("counter"), is(10L));
+            assertThat(entities.get(zeroId).getValue("counter"), is(0L));
+            assertFalse(entities.get(missingId).hasProperty("counter"));
+        } finally {
+            pojoDb.closeSession();
+            JasDBMain.shutdown();
+        }
+    }
+
     @Test
     public void testPartialIndexes() throws Exception {
         DBSession pojoDb = sessionFactory.createSession();
@@ -0,0 +1,194 @@
+package com.oberasoftware.jasdb.test;
+
+import com.oberasoftware.jasdb.api.session.DBSession;
+import com.oberasoftware.jasdb.api.session.DBSessionFactory;
+import com.oberasoftware.jasdb.api.session.Entity;
+import com.oberasoftware.jasdb.api.session.EntityBag;
+import com.oberasoftware.jasdb.api.session.query.BlockExplain;
+import com.oberasoftware.jasdb.api.session.query.ExplainStep;
+import com.oberasoftware.jasdb.api.session.query.QueryBuilder;
+import com.oberasoftware.jasdb.api.session.query.QueryResult;
+import com.oberasoftware.jasdb.core.SimpleEntity;
+import com.oberasoftware.jasdb.core.index.keys.types.StringKeyType;
+import com.oberasoftware.jasdb.core.index.query.SimpleIndexField;
+import com.oberasoftware.jasdb.engine.HomeLocatorUtil;
+import com.oberasoftware.jasdb.service.JasDBMain;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Renze de Vries
+ */
+public abstract class InvertedIndexQueryTest {
+    private static final String BAG_NAME = "articles";
+    private static final int NUMBER_ENTITIES = 500;
+    private static final String[] COLORS = {"red", "green", "blue", "yellow", "black"};
+    private static final String[] VEHICLES = {"car", "bike", "boat"};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private DBSessionFactory sessionFactory;
+
+    private Map<String, Entity> entities = new HashMap<>();
+
+    protected InvertedIndexQueryTest(DBSessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        JasDBMain.shutdown();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        System.setProperty(HomeLocatorUtil.JASDB_HOME, temporaryFolder.newFolder().toString());
+        JasDBMain.start();
+
+        DBSession session = sessionFactory.createSession();
+        EntityBag bag = session.createOrGetBag(BAG_NAME);
+        for(int i=0; i<NUMBER_ENTITIES; i++) {
+            if(i == NUMBER_ENTITIES / 2) {
+                //the inverted indexes are built from the existing entities and kept up to date for the next ones
+                bag.ensureInvertedIndex(new SimpleIndexField("tags", new StringKeyType()));
+                bag.ensureInvertedIndex(new SimpleIndexField("title", new StringKeyType()));
+            }
+
+            String title = "The " + COLORS[i % COLORS.length] + " " + VEHICLES[i % VEHICLES.length] + " number" + (i % 10);
+            Entity entity = bag.addEntity(new SimpleEntity()
+                    .addProperty("title", title)
+                    .addProperty("description", title)
+                    .addProperty("tags", COLORS[i % COLORS.length], VEHICLES[i % VEHICLES.length], "tag" + (i % 7)));
+            entities.put(entity.getInternalId(), entity);
+        }
+        session.closeSession();
+    }
+
+    @Test
+    public void testContainsUsesInvertedIndex() throws Exception {
+        DBSession session = sessionFactory.createSession();
+        EntityBag bag = session.createOrGetBag(BAG_NAME);
+        try {
+            assertQuery(bag, QueryBuilder.createBuilder().field("tags").contains("RED"), "tags",
+                    entity -> hasTag(entity, "red"));
+            assertQuery(bag, QueryBuilder.createBuilder().field("title").contains("blue boat"), "title",
+                    entity -> hasWords(entity, "title", "blue", "boat"));
+            assertQuery(bag, QueryBuilder.createBuilder().field("tags").containsAny("tag1", "tag2", "unknown"), "tags",
+                    entity -> hasTag(entity, "tag1") || hasTag(entity, "tag2"));
+            assertQuery(bag, QueryBuilder.createBuilder().field("tags").containsAll("green", "bike", "tag3"), "tags",
+                    entity -> hasTag(entity, "green") && hasTag(entity, "bike") && hasTag(entity, "tag3"));
+            assertQuery(bag, QueryBuilder.createBuilder().field("tags").containsAll("green", "unknown"), "tags",
+                    entity -> false);
+        } finally {
+            session.closeSession();
+        }
+    }
+
+    @Test
+    public void testContainsTableScan() throws Exception {
+        DBSession session = sessionFactory.createSession();
+        EntityBag bag = session.createOrGetBag(BAG_NAME);
+        try {
+            assertQuery(bag, QueryBuilder.createBuilder().field("description").contains("Blue boat"), null,
+                    entity -> hasWords(entity, "description", "blue", "boat"));
+            assertQuery(bag, QueryBuilder.createBuilder().field("description").containsAny("number1", "number2"), null,
+                    entity -> hasWords(entity, "description", "number1") || hasWords(entity, "description", "number2"));
+            assertQuery(bag, QueryBuilder.createBuilder().field("description").containsAll("yellow", "car"), null,
+                    entity -> hasWords(entity, "description", "yellow", "car"));
+        } finally {
+            session.closeSession();
+        }
+    }
+
+    @Test
+    public void testRemoveAndRestart() throws Exception {
+        DBSession session = sessionFactory.createSession();
+        EntityBag bag = session.createOrGetBag(BAG_NAME);
+        try {
+            for(Entity entity : getEntities(bag, QueryBuilder.createBuilder().field("tags").contains("black"))) {
+                bag.removeEntity(entity.getInternalId());
+                entities.remove(entity.getInternalId());
+            }
+            assertQuery(bag, QueryBuilder.createBuilder().field("tags").contains("black"), "tags", entity -> false);
+        } finally {
+            session.closeSession();
+        }
+
+        JasDBMain.shutdown();
+        JasDBMain.start();
+
+        session = sessionFactory.createSession();
+        bag = session.createOrGetBag(BAG_NAME);
+        try {
+            assertQuery(bag, QueryBuilder.createBuilder().field("tags").contains("black"), "tags", entity -> false);
+            assertQuery(bag, QueryBuilder.createBuilder().field("tags").containsAny("red", "tag4"), "tags",
+                    entity -> hasTag(entity, "red") || hasTag(entity, "tag4"));
+            assertQuery(bag, QueryBuilder.createBuilder().field("title").containsAll("green", "number3"), "title",
+                    entity -> hasWords(entity, "title", "green", "number3"));
+        } finally {
+            session.closeSession();
+        }
+    }
+
+    private void assertQuery(EntityBag bag, QueryBuilder query, String indexedField, Predicate<Entity> matcher) throws Exception {
+        Set<String> expected = new HashSet<>();
+        for(Entity entity : entities.values()) {
+            if(matcher.test(entity)) {
+                expected.add(entity.getInternalId());
+            }
+        }
+
+        Set<String> found = new HashSet<>();
+        for(Entity entity : getEntities(bag, query)) {
+            assertTrue("Entity found twice: " + entity.getInternalId(), found.add(entity.getInternalId()));
+        }
+        assertEquals(expected, found);
+
+        BlockExplain rootBlock = bag.find(query).explain().getRootBlock();
+        if(indexedField != null) {
+            assertThat(rootBlock.getAccessType(), is("INDEX"));
+            ExplainStep step = rootBlock.getSteps().get(0);
+            assertThat(step.getOperation(), is(ExplainStep.INDEX_SEARCH));
+            assertTrue("Unexpected index: " + step.getIndex(), step.getIndex().startsWith(indexedField));
+        } else {
+            assertThat(rootBlock.getAccessType(), is("TABLE_SCAN"));
+        }
+    }
+
+    private static List<Entity> getEntities(EntityBag bag, QueryBuilder query) throws Exception {
+        List<Entity> found = new ArrayList<>();
+        try(QueryResult result = bag.find(query).execute()) {
+            for(Entity entity : result) {
+                found.add(entity);
+            }
+        }
+        return found;
+    }
+
+    private static boolean hasTag(Entity entity, String tag) {
+        return entity.getProperty("tags").getValueObjects().contains(tag);
+    }
+
+    private static boolean hasWords(Entity entity, String field, String... words) {
+        List<String> values = Arrays.asList(entity.getProperty(field).getFirstValueObject().toString().toLowerCase().split(" "));
+        return values.containsAll(Arrays.asList(words));
+    }
+}
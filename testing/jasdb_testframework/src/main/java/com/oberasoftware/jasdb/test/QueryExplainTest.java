@@ -0,0 +1,169 @@
+package com.oberasoftware.jasdb.test;
+
+import com.oberasoftware.jasdb.api.session.DBSession;
+import com.oberasoftware.jasdb.api.session.DBSessionFactory;
+import com.oberasoftware.jasdb.api.session.EntityBag;
+import com.oberasoftware.jasdb.api.session.query.BlockExplain;
+import com.oberasoftware.jasdb.api.session.query.BlockType;
+import com.oberasoftware.jasdb.api.session.query.ExplainStep;
+import com.oberasoftware.jasdb.api.session.query.Order;
+import com.oberasoftware.jasdb.api.session.query.QueryBuilder;
+import com.oberasoftware.jasdb.api.session.query.QueryExplain;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Renze de Vries
+ */
+public abstract class QueryExplainTest extends QueryBaseTest {
+    public QueryExplainTest(DBSessionFactory sessionFactory) {
+        super(sessionFactory);
+    }
+
+    @Test
+    public void testExplainIndexQuery() throws Exception {
+        DBSession session = sessionFactory.createSession();
+        EntityBag bag = session.createOrGetBag("inverted");
+        try {
+            QueryExplain explain = bag.find(QueryBuilder.createBuilder().field("field1").value("value50")).explain();
+            assertNotNull(explain);
+            assertThat(explain.getResultSize(), is(1L));
+            assertThat(explain.getRecordsFetched(), is(0L));
+            assertNull(explain.getSortMethod());
+            assertTrue(explain.getStageTimes().containsKey(QueryExplain.STAGE_BLOCKS));
+            assertTrue(explain.getStageTimes().containsKey(QueryExplain.STAGE_EVALUATE));
+
+            BlockExplain rootBlock = explain.getRootBlock();
+            assertThat(rootBlock.getAccessType(), is("INDEX"));
+            assertTrue(rootBlock.getConditions().containsKey("field1"));
+            assertThat(rootBlock.getActualKeys(), is(1L));
+            assertTrue(rootBlock.getChildBlocks().isEmpty());
+
+            assertThat(rootBlock.getSteps().size(), is(1));
+            ExplainStep step = rootBlock.getSteps().get(0);
+            assertThat(step.getOperation(), is(ExplainStep.INDEX_SEARCH));
+            assertTrue("Unexpected index: " + step.getIndex(), step.getIndex().startsWith("field1"));
+            assertThat(step.getActualKeys(), is(1L));
+            assertTrue(step.getEstimatedKeys() >= 1);
+        } finally {
+            session.closeSession();
+        }
+    }
+
+    @Test
+    public void testExplainIndexQueryWithFilter() throws Exception {
+        DBSession session = sessionFactory.createSession();
+        EntityBag bag = session.createOrGetBag("inverted");
+        try {
+            QueryExplain explain = bag.find(QueryBuilder.createBuilder()
+                    .field("field1").value("value50").field("field7").value("myValue50")).explain();
+            assertThat(explain.getResultSize(), is(1L));
+            assertThat(explain.getRecordsFetched(), is(1L));
+
+            BlockExplain rootBlock = explain.getRootBlock();
+            assertThat(rootBlock.getAccessType(), is("INDEX"));
+            assertThat(rootBlock.getActualKeys(), is(1L));
+
+            List<String> operations = getOperations(rootBlock);
+            assertThat(operations.get(0), is(ExplainStep.INDEX_SEARCH));
+            assertThat(operations.get(operations.size() - 1), is(ExplainStep.RECORD_FILTER));
+            assertThat(rootBlock.getSteps().get(operations.size() - 1).getActualKeys(), is(1L));
+        } finally {
+            session.closeSession();
+        }
+    }
+
+    @Test
+    public void testExplainTableScan() throws Exception {
+        DBSession session = sessionFactory.createSession();
+        EntityBag bag = session.createOrGetBag("inverted");
+        try {
+            QueryExplain explain = bag.find(QueryBuilder.createBuilder().field("field7").value("myValue50")).explain();
+            assertThat(explain.getResultSize(), is(1L));
+            assertThat(explain.getRecordsFetched(), is((long) NUMBER_ENTITIES));
+
+            BlockExplain rootBlock = explain.getRootBlock();
+            assertThat(rootBlock.getAccessType(), is("TABLE_SCAN"));
+            assertTrue(rootBlock.getConditions().containsKey("field7"));
+            assertThat(rootBlock.getActualKeys(), is(1L));
+
+            assertThat(rootBlock.getSteps().size(), is(1));
+            ExplainStep step = rootBlock.getSteps().get(0);
+            assertThat(step.getOperation(), is(ExplainStep.TABLE_SCAN));
+            assertNull(step.getIndex());
+            assertThat(step.getActualKeys(), is(1L));
+        } finally {
+            session.closeSession();
+        }
+    }
+
+    @Test
+    public void testExplainChildBlocks() throws Exception {
+        DBSession session = sessionFactory.createSession();
+        EntityBag bag = session.createOrGetBag("inverted");
+        try {
+            QueryBuilder builder = QueryBuilder.createBuilder(BlockType.OR);
+            builder.addQueryBlock(QueryBuilder.createBuilder().field("field1").value("value50"));
+            builder.addQueryBlock(QueryBuilder.createBuilder().field("field1").value("value60"));
+
+            QueryExplain explain = bag.find(builder).explain();
+            assertThat(explain.getResultSize(), is(2L));
+            assertThat(explain.getRootBlock().getActualKeys(), is(2L));
+
+            int indexBlocks = 0;
+            for(BlockExplain block : getBlocks(explain.getRootBlock())) {
+                if(!block.getConditions().isEmpty()) {
+                    assertThat(block.getAccessType(), is("INDEX"));
+                    assertTrue(block.getActualKeys() >= 1);
+                    indexBlocks++;
+                }
+            }
+            assertTrue(indexBlocks >= 1);
+        } finally {
+            session.closeSession();
+        }
+    }
+
+    @Test
+    public void testExplainSortedQuery() throws Exception {
+        DBSession session = sessionFactory.createSession();
+        EntityBag bag = session.createOrGetBag("inverted");
+        try {
+            QueryBuilder builder = QueryBuilder.createBuilder().field("field7").value("myValue50");
+            builder.sortBy("field5", Order.DESCENDING);
+
+            QueryExplain explain = bag.find(builder).explain();
+            assertThat(explain.getResultSize(), is(1L));
+            assertEquals(QueryExplain.SORT_FULL, explain.getSortMethod());
+            assertTrue(explain.getStageTimes().containsKey(QueryExplain.STAGE_SORT));
+        } finally {
+            session.closeSession();
+        }
+    }
+
+    private static List<String> getOperations(BlockExplain block) {
+        List<String> operations = new ArrayList<>();
+        for(ExplainStep step : block.getSteps()) {
+            operations.add(step.getOperation());
+        }
+        return operations;
+    }
+
+    private static List<BlockExplain> getBlocks(BlockExplain block) {
+        List<BlockExplain> blocks = new ArrayList<>();
+        blocks.add(block);
+        for(BlockExplain childBlock : block.getChildBlocks()) {
+            blocks.addAll(getBlocks(childBlock));
+        }
+        return blocks;
+    }
+}